@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.os.Looper;
+
+import com.android.internal.telephony.cdma.CdmaSmsBroadcastConfigInfo;
+import com.android.internal.telephony.gsm.SmsBroadcastConfigInfo;
+
+/**
+ * {@link CommandsInterface} requests returning a {@link CommandFuture}
+ * instead of answering a Message. Responses are delivered on the given
+ * looper.
+ *
+ * Requests without a method here are sent with {@link #newFuture}:
+ * <pre>
+ *   CommandFuture&lt;String&gt; f = commands.newFuture();
+ *   ci.getIMSIForApp(aid, f.obtainMessage());
+ * </pre>
+ *
+ * {@hide}
+ */
+public class AsyncCommands {
+    private final CommandsInterface mCi;
+    private final Looper mLooper;
+
+    public AsyncCommands(CommandsInterface ci, Looper looper) {
+        mCi = ci;
+        mLooper = looper;
+    }
+
+    public <T> CommandFuture<T> newFuture() {
+        return new CommandFuture<T>(mLooper);
+    }
+
+    public CommandFuture<String> getIMSI() {
+        CommandFuture<String> f = newFuture();
+        mCi.getIMSI(f.obtainMessage());
+        return f;
+    }
+
+    public CommandFuture<String> getBasebandVersion() {
+        CommandFuture<String> f = newFuture();
+        mCi.getBasebandVersion(f.obtainMessage());
+        return f;
+    }
+
+    public CommandFuture<String> getSmscAddress() {
+        CommandFuture<String> f = newFuture();
+        mCi.getSmscAddress(f.obtainMessage());
+        return f;
+    }
+
+    public CommandFuture<Void> setSmscAddress(String address) {
+        CommandFuture<Void> f = newFuture();
+        mCi.setSmscAddress(address, f.obtainMessage());
+        return f;
+    }
+
+    public CommandFuture<Void> setGsmBroadcastConfig(SmsBroadcastConfigInfo[] configs) {
+        CommandFuture<Void> f = newFuture();
+        mCi.setGsmBroadcastConfig(configs, f.obtainMessage());
+        return f;
+    }
+
+    public CommandFuture<Void> setGsmBroadcastActivation(boolean activate) {
+        CommandFuture<Void> f = newFuture();
+        mCi.setGsmBroadcastActivation(activate, f.obtainMessage());
+        return f;
+    }
+
+    public CommandFuture<Void> setCdmaBroadcastConfig(CdmaSmsBroadcastConfigInfo[] configs) {
+        CommandFuture<Void> f = newFuture();
+        mCi.setCdmaBroadcastConfig(configs, f.obtainMessage());
+        return f;
+    }
+
+    public CommandFuture<Void> setCdmaBroadcastActivation(boolean activate) {
+        CommandFuture<Void> f = newFuture();
+        mCi.setCdmaBroadcastActivation(activate, f.obtainMessage());
+        return f;
+    }
+}
@@ -33,6 +33,9 @@ import com.mediatek.internal.telephony.SrvccCallContext;
 
 import com.android.internal.telephony.RadioCapability;
 
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
 /**
  * {@hide}
  */
@@ -42,42 +45,56 @@ public abstract class BaseCommands implements CommandsInterface {
     protected RadioState mState = RadioState.RADIO_UNAVAILABLE;
     protected Object mStateMonitor = new Object();
 
-    protected RegistrantList mRadioStateChangedRegistrants = new RegistrantList();
-    protected RegistrantList mOnRegistrants = new RegistrantList();
-    protected RegistrantList mAvailRegistrants = new RegistrantList();
-    protected RegistrantList mOffOrNotAvailRegistrants = new RegistrantList();
-    protected RegistrantList mNotAvailRegistrants = new RegistrantList();
-    protected RegistrantList mCallStateRegistrants = new RegistrantList();
-    protected RegistrantList mVoiceNetworkStateRegistrants = new RegistrantList();
-    protected RegistrantList mDataNetworkStateRegistrants = new RegistrantList();
-    protected RegistrantList mVoiceRadioTechChangedRegistrants = new RegistrantList();
-    protected RegistrantList mImsNetworkStateChangedRegistrants = new RegistrantList();
-    protected RegistrantList mIccStatusChangedRegistrants = new RegistrantList();
-    protected RegistrantList mVoicePrivacyOnRegistrants = new RegistrantList();
-    protected RegistrantList mVoicePrivacyOffRegistrants = new RegistrantList();
+    // Every indication list, in declaration order, for dump
+    private final ArrayList<MeteredRegistrantList> mMeteredRegistrantLists =
+            new ArrayList<MeteredRegistrantList>();
+
+    protected RegistrantList mRadioStateChangedRegistrants = newRegistrantList("RadioStateChanged");
+    protected RegistrantList mOnRegistrants = newRegistrantList("On");
+    protected RegistrantList mAvailRegistrants = newRegistrantList("Avail");
+    protected RegistrantList mOffOrNotAvailRegistrants = newRegistrantList("OffOrNotAvail");
+    protected RegistrantList mNotAvailRegistrants = newRegistrantList("NotAvail");
+    protected RegistrantList mCallStateRegistrants =
+            newRegistrantList("CallState", MeteredRegistrantList.POLICY_COALESCE);
+    protected RegistrantList mVoiceNetworkStateRegistrants =
+            newRegistrantList("VoiceNetworkState", MeteredRegistrantList.POLICY_COALESCE);
+    protected RegistrantList mDataNetworkStateRegistrants =
+            newRegistrantList("DataNetworkState", MeteredRegistrantList.POLICY_COALESCE);
+    protected RegistrantList mVoiceRadioTechChangedRegistrants =
+            newRegistrantList("VoiceRadioTechChanged");
+    protected RegistrantList mImsNetworkStateChangedRegistrants =
+            newRegistrantList("ImsNetworkStateChanged", MeteredRegistrantList.POLICY_COALESCE);
+    protected RegistrantList mIccStatusChangedRegistrants =
+            newRegistrantList("IccStatusChanged", MeteredRegistrantList.POLICY_COALESCE);
+    protected RegistrantList mVoicePrivacyOnRegistrants = newRegistrantList("VoicePrivacyOn");
+    protected RegistrantList mVoicePrivacyOffRegistrants = newRegistrantList("VoicePrivacyOff");
     protected Registrant mUnsolOemHookRawRegistrant;
-    protected RegistrantList mOtaProvisionRegistrants = new RegistrantList();
-    protected RegistrantList mCallWaitingInfoRegistrants = new RegistrantList();
-    protected RegistrantList mDisplayInfoRegistrants = new RegistrantList();
-    protected RegistrantList mSignalInfoRegistrants = new RegistrantList();
-    protected RegistrantList mNumberInfoRegistrants = new RegistrantList();
-    protected RegistrantList mRedirNumInfoRegistrants = new RegistrantList();
-    protected RegistrantList mLineControlInfoRegistrants = new RegistrantList();
-    protected RegistrantList mT53ClirInfoRegistrants = new RegistrantList();
-    protected RegistrantList mT53AudCntrlInfoRegistrants = new RegistrantList();
-    protected RegistrantList mRingbackToneRegistrants = new RegistrantList();
-    protected RegistrantList mResendIncallMuteRegistrants = new RegistrantList();
-    protected RegistrantList mCdmaSubscriptionChangedRegistrants = new RegistrantList();
-    protected RegistrantList mCdmaPrlChangedRegistrants = new RegistrantList();
-    protected RegistrantList mExitEmergencyCallbackModeRegistrants = new RegistrantList();
-    protected RegistrantList mRilConnectedRegistrants = new RegistrantList();
-    protected RegistrantList mIccRefreshRegistrants = new RegistrantList();
-    protected RegistrantList mRilCellInfoListRegistrants = new RegistrantList();
-    protected RegistrantList mSubscriptionStatusRegistrants = new RegistrantList();
-    protected RegistrantList mSrvccStateRegistrants = new RegistrantList();
-    protected RegistrantList mHardwareConfigChangeRegistrants = new RegistrantList();
+    protected RegistrantList mOtaProvisionRegistrants = newRegistrantList("OtaProvision");
+    protected RegistrantList mCallWaitingInfoRegistrants = newRegistrantList("CallWaitingInfo");
+    protected RegistrantList mDisplayInfoRegistrants = newRegistrantList("DisplayInfo");
+    protected RegistrantList mSignalInfoRegistrants = newRegistrantList("SignalInfo");
+    protected RegistrantList mNumberInfoRegistrants = newRegistrantList("NumberInfo");
+    protected RegistrantList mRedirNumInfoRegistrants = newRegistrantList("RedirNumInfo");
+    protected RegistrantList mLineControlInfoRegistrants = newRegistrantList("LineControlInfo");
+    protected RegistrantList mT53ClirInfoRegistrants = newRegistrantList("T53ClirInfo");
+    protected RegistrantList mT53AudCntrlInfoRegistrants = newRegistrantList("T53AudCntrlInfo");
+    protected RegistrantList mRingbackToneRegistrants = newRegistrantList("RingbackTone");
+    protected RegistrantList mResendIncallMuteRegistrants = newRegistrantList("ResendIncallMute");
+    protected RegistrantList mCdmaSubscriptionChangedRegistrants =
+            newRegistrantList("CdmaSubscriptionChanged");
+    protected RegistrantList mCdmaPrlChangedRegistrants = newRegistrantList("CdmaPrlChanged");
+    protected RegistrantList mExitEmergencyCallbackModeRegistrants =
+            newRegistrantList("ExitEmergencyCallbackMode");
+    protected RegistrantList mRilConnectedRegistrants = newRegistrantList("RilConnected");
+    protected RegistrantList mIccRefreshRegistrants = newRegistrantList("IccRefresh");
+    protected RegistrantList mRilCellInfoListRegistrants = newRegistrantList("RilCellInfoList");
+    protected RegistrantList mSubscriptionStatusRegistrants =
+            newRegistrantList("SubscriptionStatus");
+    protected RegistrantList mSrvccStateRegistrants = newRegistrantList("SrvccState");
+    protected RegistrantList mHardwareConfigChangeRegistrants =
+            newRegistrantList("HardwareConfigChange");
     protected RegistrantList mPhoneRadioCapabilityChangedRegistrants =
-            new RegistrantList();
+            newRegistrantList("PhoneRadioCapabilityChanged");
 
     protected Registrant mGsmSmsRegistrant;
     protected Registrant mCdmaSmsRegistrant;
@@ -116,6 +133,27 @@ public abstract class BaseCommands implements CommandsInterface {
         mContext = context;  // May be null (if so we won't log statistics)
     }
 
+    private RegistrantList newRegistrantList(String name) {
+        return newRegistrantList(name, MeteredRegistrantList.POLICY_DELIVER_ALL);
+    }
+
+    private RegistrantList newRegistrantList(String name, int policy) {
+        MeteredRegistrantList list = new MeteredRegistrantList(name, policy);
+        mMeteredRegistrantLists.add(list);
+        return list;
+    }
+
+    /**
+     * Dump the notifications of the indications and the registrants that
+     * have not handled them yet.
+     */
+    protected void dumpRegistrants(PrintWriter pw) {
+        pw.println(" Registrants:");
+        for (MeteredRegistrantList list : mMeteredRegistrantLists) {
+            list.dump(pw);
+        }
+    }
+
     //***** CommandsInterface implementation
 
     @Override
@@ -962,7 +1000,7 @@ public abstract class BaseCommands implements CommandsInterface {
     // MTK
 
     //MTK-START Support Multi-Application
-    protected RegistrantList mSessionChangedRegistrants = new RegistrantList();
+    protected RegistrantList mSessionChangedRegistrants = newRegistrantList("SessionChanged");
     //MTK-END Support Multi-Application
 
     protected Registrant mStkEvdlCallRegistrant;
@@ -970,41 +1008,45 @@ public abstract class BaseCommands implements CommandsInterface {
     protected Registrant mStkCallCtrlRegistrant;
 
     /// M: CC010: Add RIL interface @{
-    protected RegistrantList mCallForwardingInfoRegistrants = new RegistrantList();
+    protected RegistrantList mCallForwardingInfoRegistrants =
+            newRegistrantList("CallForwardingInfo");
     protected Registrant mCallRelatedSuppSvcRegistrant;
     protected Registrant mIncomingCallIndicationRegistrant;
     //protected Registrant mCnapNotifyRegistrant; //obsolete
-    protected RegistrantList mCipherIndicationRegistrant = new RegistrantList();
+    protected RegistrantList mCipherIndicationRegistrant =
+            newRegistrantList("CipherIndicationRegistrant");
     /// @}
     /// M: CC077: 2/3G CAPABILITY_HIGH_DEF_AUDIO @{
     protected Registrant mSpeechCodecInfoRegistrant;
     /// @}
 
     //Remote SIM ME lock related APIs [Start]
-    protected RegistrantList mMelockRegistrants = new RegistrantList();
+    protected RegistrantList mMelockRegistrants = newRegistrantList("Melock");
     //Remote SIM ME lock related APIs [End]
 
-    protected RegistrantList mPhbReadyRegistrants = new RegistrantList();
+    protected RegistrantList mPhbReadyRegistrants = newRegistrantList("PhbReady");
 
     /// M: IMS feature. @{
     /* Register for updating call ids for conference call after SRVCC is done. */
-    protected RegistrantList mEconfSrvccRegistrants = new RegistrantList();
+    protected RegistrantList mEconfSrvccRegistrants = newRegistrantList("EconfSrvcc");
     /* Register for updating conference call merged/added result. */
-    protected RegistrantList mEconfResultRegistrants = new RegistrantList();
+    protected RegistrantList mEconfResultRegistrants = newRegistrantList("EconfResult");
     /* Register for updating call mode and pau. */
-    protected RegistrantList mCallInfoRegistrants = new RegistrantList();
+    protected RegistrantList mCallInfoRegistrants = newRegistrantList("CallInfo");
     /// @}
 
     // M: fast dormancy.
     protected Registrant mScriResultRegistrant;
     // M: CC33 LTE.
-    protected RegistrantList mRacUpdateRegistrants = new RegistrantList();
-    protected RegistrantList mRemoveRestrictEutranRegistrants = new RegistrantList();
+    protected RegistrantList mRacUpdateRegistrants = newRegistrantList("RacUpdate");
+    protected RegistrantList mRemoveRestrictEutranRegistrants =
+            newRegistrantList("RemoveRestrictEutran");
 
-    protected RegistrantList mResetAttachApnRegistrants = new RegistrantList();
+    protected RegistrantList mResetAttachApnRegistrants = newRegistrantList("ResetAttachApn");
 
     /// M: [C2K] for eng mode
-    protected RegistrantList mEngModeNetworkInfoRegistrant = new RegistrantList();
+    protected RegistrantList mEngModeNetworkInfoRegistrant =
+            newRegistrantList("EngModeNetworkInfoRegistrant");
 
     /// M: [C2K] for call fade
     protected Registrant mCdmaSignalFadeRegistrant;
@@ -1022,29 +1064,36 @@ public abstract class BaseCommands implements CommandsInterface {
     RadioCapability mRadioCapability;
 
     /* M: network part start */
-    protected RegistrantList mFemtoCellInfoRegistrants = new RegistrantList();
-    protected RegistrantList mNeighboringInfoRegistrants = new RegistrantList();
-    protected RegistrantList mNetworkInfoRegistrants = new RegistrantList();
-    protected RegistrantList mNetworkExistRegistrants = new RegistrantList();
+    protected RegistrantList mFemtoCellInfoRegistrants = newRegistrantList("FemtoCellInfo");
+    protected RegistrantList mNeighboringInfoRegistrants = newRegistrantList("NeighboringInfo");
+    protected RegistrantList mNetworkInfoRegistrants = newRegistrantList("NetworkInfo");
+    protected RegistrantList mNetworkExistRegistrants = newRegistrantList("NetworkExist");
 
-    protected RegistrantList mPlmnChangeNotificationRegistrant = new RegistrantList();
+    protected RegistrantList mPlmnChangeNotificationRegistrant =
+            newRegistrantList("PlmnChangeNotificationRegistrant");
     protected Registrant mRegistrationSuspendedRegistrant;
     protected Object mEmsrReturnValue = null;
     protected Object mEcopsReturnValue = null;
     protected Object mWPMonitor = new Object();
 
     //VoLTE
-    protected RegistrantList mImsEnableRegistrants = new RegistrantList();
-    protected RegistrantList mImsDisableRegistrants = new RegistrantList();
-    protected RegistrantList mImsRegistrationInfoRegistrants = new RegistrantList();
-    protected RegistrantList mDedicateBearerActivatedRegistrant = new RegistrantList();
-    protected RegistrantList mDedicateBearerModifiedRegistrant = new RegistrantList();
-    protected RegistrantList mDedicateBearerDeactivatedRegistrant = new RegistrantList();
-
-    protected RegistrantList mPsNetworkStateRegistrants = new RegistrantList();
-    protected RegistrantList mImeiLockRegistrant = new RegistrantList();
-    protected RegistrantList mInvalidSimInfoRegistrant = new RegistrantList();
-    protected RegistrantList mGetAvailableNetworkDoneRegistrant = new RegistrantList();
+    protected RegistrantList mImsEnableRegistrants = newRegistrantList("ImsEnable");
+    protected RegistrantList mImsDisableRegistrants = newRegistrantList("ImsDisable");
+    protected RegistrantList mImsRegistrationInfoRegistrants =
+            newRegistrantList("ImsRegistrationInfo");
+    protected RegistrantList mDedicateBearerActivatedRegistrant =
+            newRegistrantList("DedicateBearerActivatedRegistrant");
+    protected RegistrantList mDedicateBearerModifiedRegistrant =
+            newRegistrantList("DedicateBearerModifiedRegistrant");
+    protected RegistrantList mDedicateBearerDeactivatedRegistrant =
+            newRegistrantList("DedicateBearerDeactivatedRegistrant");
+
+    protected RegistrantList mPsNetworkStateRegistrants = newRegistrantList("PsNetworkState");
+    protected RegistrantList mImeiLockRegistrant = newRegistrantList("ImeiLockRegistrant");
+    protected RegistrantList mInvalidSimInfoRegistrant =
+            newRegistrantList("InvalidSimInfoRegistrant");
+    protected RegistrantList mGetAvailableNetworkDoneRegistrant =
+            newRegistrantList("GetAvailableNetworkDoneRegistrant");
     /* M: network part end */
 
     /// M: CC010: Add RIL interface @{
@@ -1055,58 +1104,71 @@ public abstract class BaseCommands implements CommandsInterface {
     // In order to cache the event from modem at boot-up sequence
     protected boolean mIsSmsSimFull = false;
     protected boolean mIsSmsReady = false;
-    protected RegistrantList mSmsReadyRegistrants = new RegistrantList();
+    protected RegistrantList mSmsReadyRegistrants = newRegistrantList("SmsReady");
     protected Registrant mMeSmsFullRegistrant;
     protected Registrant mEtwsNotificationRegistrant;
     // MTK-END
 
     // IMS VoLTE
-    protected RegistrantList mEpsNetworkFeatureSupportRegistrants = new RegistrantList();
-    protected RegistrantList mEpsNetworkFeatureInfoRegistrants = new RegistrantList();
-    protected RegistrantList mSrvccHandoverInfoIndicationRegistrants = new RegistrantList();
-    protected RegistrantList mMoDataBarringInfoRegistrants = new RegistrantList();
-    protected RegistrantList mSsacBarringInfoRegistrants = new RegistrantList();
+    protected RegistrantList mEpsNetworkFeatureSupportRegistrants =
+            newRegistrantList("EpsNetworkFeatureSupport");
+    protected RegistrantList mEpsNetworkFeatureInfoRegistrants =
+            newRegistrantList("EpsNetworkFeatureInfo");
+    protected RegistrantList mSrvccHandoverInfoIndicationRegistrants =
+            newRegistrantList("SrvccHandoverInfoIndication");
+    protected RegistrantList mMoDataBarringInfoRegistrants = newRegistrantList("MoDataBarringInfo");
+    protected RegistrantList mSsacBarringInfoRegistrants = newRegistrantList("SsacBarringInfo");
     /// M: CC071: Add Customer proprietary-IMS RIL interface. @{
-    protected RegistrantList mEmergencyBearerSupportInfoRegistrants = new RegistrantList();
+    protected RegistrantList mEmergencyBearerSupportInfoRegistrants =
+            newRegistrantList("EmergencyBearerSupportInfo");
     /// @}
 
     /* C2K part start */
-    protected RegistrantList mViaGpsEvent = new RegistrantList();
-    protected RegistrantList mAcceptedRegistrant = new RegistrantList();
-    protected RegistrantList mNetworkTypeChangedRegistrant = new RegistrantList();
+    protected RegistrantList mViaGpsEvent = newRegistrantList("ViaGpsEvent");
+    protected RegistrantList mAcceptedRegistrant = newRegistrantList("AcceptedRegistrant");
+    protected RegistrantList mNetworkTypeChangedRegistrant =
+            newRegistrantList("NetworkTypeChangedRegistrant");
     protected Registrant mUtkSessionEndRegistrant;
     protected Registrant mUtkProCmdRegistrant;
     protected Registrant mUtkEventRegistrant;
-    protected RegistrantList mInvalidSimDetectedRegistrant = new RegistrantList();
+    protected RegistrantList mInvalidSimDetectedRegistrant =
+            newRegistrantList("InvalidSimDetectedRegistrant");
 
     /// M: [C2K][IR] Support SVLTE IR feature. @{
-    protected RegistrantList mMccMncChangeRegistrants = new RegistrantList();
+    protected RegistrantList mMccMncChangeRegistrants = newRegistrantList("MccMncChange");
     /// M: [C2K][IR] Support SVLTE IR feature. @}
 
     /// M: [C2K][IR][MD-IRAT] URC for GMSS RAT changed. @{
-    protected RegistrantList mGmssRatChangedRegistrant = new RegistrantList();
+    protected RegistrantList mGmssRatChangedRegistrant =
+            newRegistrantList("GmssRatChangedRegistrant");
     /// M: [C2K][IR][MD-IRAT] URC for GMSS RAT changed. @}
 
     /// M: [C2K] for ps type changed.
-    protected RegistrantList mDataNetworkTypeChangedRegistrant = new RegistrantList();
+    protected RegistrantList mDataNetworkTypeChangedRegistrant =
+            newRegistrantList("DataNetworkTypeChangedRegistrant");
 
     /// M: [C2K][MD IRAT] add IRat state change registrant.
-    protected RegistrantList mIratStateChangeRegistrant = new RegistrantList();
+    protected RegistrantList mIratStateChangeRegistrant =
+            newRegistrantList("IratStateChangeRegistrant");
 
     /* C2K part end */
 
-    protected RegistrantList mAbnormalEventRegistrant = new RegistrantList();
+    protected RegistrantList mAbnormalEventRegistrant =
+            newRegistrantList("AbnormalEventRegistrant");
 
     /// M: For 3G VT only @{
-    protected RegistrantList mVtStatusInfoRegistrants = new RegistrantList();
-    protected RegistrantList mVtRingRegistrants = new RegistrantList();
+    protected RegistrantList mVtStatusInfoRegistrants = newRegistrantList("VtStatusInfo");
+    protected RegistrantList mVtRingRegistrants = newRegistrantList("VtRing");
     /// @}
 
-    protected RegistrantList mCdmaImsiReadyRegistrant = new RegistrantList();
-    protected RegistrantList mImsiRefreshDoneRegistrant = new RegistrantList();
+    protected RegistrantList mCdmaImsiReadyRegistrant =
+            newRegistrantList("CdmaImsiReadyRegistrant");
+    protected RegistrantList mImsiRefreshDoneRegistrant =
+            newRegistrantList("ImsiRefreshDoneRegistrant");
 
     // M: [LTE][Low Power][UL traffic shaping] Start
-    protected RegistrantList mLteAccessStratumStateRegistrants = new RegistrantList();
+    protected RegistrantList mLteAccessStratumStateRegistrants =
+            newRegistrantList("LteAccessStratumState");
     // M: [LTE][Low Power][UL traffic shaping] End
 
     /// M: BIP {
@@ -1310,17 +1372,18 @@ public abstract class BaseCommands implements CommandsInterface {
     }
     // Added by M begin
 
-    protected RegistrantList mSimMissing = new RegistrantList();
-    protected RegistrantList mSimRecovery = new RegistrantList();
-    protected RegistrantList mVirtualSimOn = new RegistrantList();
-    protected RegistrantList mVirtualSimOff = new RegistrantList();
-    protected RegistrantList mSimPlugOutRegistrants = new RegistrantList();
-    protected RegistrantList mSimPlugInRegistrants = new RegistrantList();
-    protected RegistrantList mTrayPlugInRegistrants = new RegistrantList();
-    protected RegistrantList mCdmaCardTypeRegistrants = new RegistrantList();
-    protected RegistrantList mCommonSlotNoChangedRegistrants = new RegistrantList();
-    protected RegistrantList mDataAllowedRegistrants = new RegistrantList();
-    protected RegistrantList mEusimReady = new RegistrantList();
+    protected RegistrantList mSimMissing = newRegistrantList("SimMissing");
+    protected RegistrantList mSimRecovery = newRegistrantList("SimRecovery");
+    protected RegistrantList mVirtualSimOn = newRegistrantList("VirtualSimOn");
+    protected RegistrantList mVirtualSimOff = newRegistrantList("VirtualSimOff");
+    protected RegistrantList mSimPlugOutRegistrants = newRegistrantList("SimPlugOut");
+    protected RegistrantList mSimPlugInRegistrants = newRegistrantList("SimPlugIn");
+    protected RegistrantList mTrayPlugInRegistrants = newRegistrantList("TrayPlugIn");
+    protected RegistrantList mCdmaCardTypeRegistrants = newRegistrantList("CdmaCardType");
+    protected RegistrantList mCommonSlotNoChangedRegistrants =
+            newRegistrantList("CommonSlotNoChanged");
+    protected RegistrantList mDataAllowedRegistrants = newRegistrantList("DataAllowed");
+    protected RegistrantList mEusimReady = newRegistrantList("EusimReady");
     protected boolean mIsEusimReady = false;
     protected Object mCdmaCardTypeValue = null;
 
@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.os.AsyncResult;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of a {@link CommandsInterface} request.
+ *
+ * The request is sent with the message of {@link #obtainMessage}; its
+ * AsyncResult completes the future on the looper the future was created for.
+ * Listeners run on that looper. A future can be given a timeout and
+ * cancelled, after which a late response is dropped; the request itself is
+ * not withdrawn from the modem.
+ *
+ * Threads other than the looper may block on {@link #get}. Several requests
+ * can be sent before waiting, and joined with {@link #whenAll}.
+ *
+ * {@hide}
+ */
+public class CommandFuture<T> {
+    private static final int EVENT_RESPONSE = 1;
+    private static final int EVENT_TIMEOUT = 2;
+
+    public interface Listener<T> {
+        /**
+         * Called on the looper of the future once it is done.
+         */
+        void onComplete(CommandFuture<T> future);
+    }
+
+    public interface Transform<T, R> {
+        R apply(T result);
+    }
+
+    public interface Chain<T, R> {
+        /**
+         * @return the future of the next request, sent with the result of
+         *         the previous one
+         */
+        CommandFuture<R> next(T result);
+    }
+
+    private final Handler mHandler;
+    private final ArrayList<Listener<T>> mListeners = new ArrayList<Listener<T>>();
+    private boolean mDone;
+    private boolean mCancelled;
+    private T mResult;
+    private Throwable mException;
+
+    public CommandFuture(Looper looper) {
+        mHandler = new Handler(looper) {
+            @Override
+            public void handleMessage(Message msg) {
+                switch (msg.what) {
+                    case EVENT_RESPONSE:
+                        AsyncResult ar = (AsyncResult) msg.obj;
+                        if (ar.exception != null) {
+                            completeExceptionally(ar.exception);
+                        } else {
+                            @SuppressWarnings("unchecked")
+                            T result = (T) ar.result;
+                            complete(result);
+                        }
+                        break;
+                    case EVENT_TIMEOUT:
+                        completeExceptionally(new TimeoutException());
+                        break;
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the message to pass as response of the request
+     */
+    public Message obtainMessage() {
+        return mHandler.obtainMessage(EVENT_RESPONSE);
+    }
+
+    public Looper getLooper() {
+        return mHandler.getLooper();
+    }
+
+    /**
+     * Fail with a TimeoutException unless done within the given time.
+     */
+    public CommandFuture<T> setTimeout(long timeoutMillis) {
+        mHandler.sendEmptyMessageDelayed(EVENT_TIMEOUT, timeoutMillis);
+        return this;
+    }
+
+    /**
+     * @return false if the future was already done
+     */
+    public boolean complete(T result) {
+        return finish(result, null, false);
+    }
+
+    /**
+     * @return false if the future was already done
+     */
+    public boolean completeExceptionally(Throwable exception) {
+        return finish(null, exception, false);
+    }
+
+    /**
+     * @return false if the future was already done
+     */
+    public boolean cancel() {
+        return finish(null, new CancellationException(), true);
+    }
+
+    private boolean finish(T result, Throwable exception, boolean cancelled) {
+        ArrayList<Listener<T>> listeners;
+        synchronized (this) {
+            if (mDone) {
+                return false;
+            }
+            mDone = true;
+            mCancelled = cancelled;
+            mResult = result;
+            mException = exception;
+            listeners = new ArrayList<Listener<T>>(mListeners);
+            mListeners.clear();
+            notifyAll();
+        }
+        mHandler.removeMessages(EVENT_TIMEOUT);
+        for (Listener<T> listener : listeners) {
+            notifyListener(listener);
+        }
+        return true;
+    }
+
+    private void notifyListener(final Listener<T> listener) {
+        if (Looper.myLooper() == mHandler.getLooper()) {
+            listener.onComplete(this);
+        } else {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onComplete(CommandFuture.this);
+                }
+            });
+        }
+    }
+
+    /**
+     * Call the listener on the looper once the future is done, right away
+     * if it is done already.
+     */
+    public CommandFuture<T> addListener(Listener<T> listener) {
+        synchronized (this) {
+            if (!mDone) {
+                mListeners.add(listener);
+                return this;
+            }
+        }
+        notifyListener(listener);
+        return this;
+    }
+
+    public synchronized boolean isDone() {
+        return mDone;
+    }
+
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @return the result of a successful future, null otherwise
+     */
+    public synchronized T getResult() {
+        return mResult;
+    }
+
+    /**
+     * @return the exception of a failed future, null otherwise
+     */
+    public synchronized Throwable getException() {
+        return mException;
+    }
+
+    /**
+     * Wait for the result. Must not be called on the looper of the future,
+     * which has to run for the response to arrive.
+     *
+     * @throws ExecutionException with the exception of the request as cause
+     */
+    public T get() throws InterruptedException, ExecutionException {
+        checkNotOnLooper();
+        synchronized (this) {
+            while (!mDone) {
+                wait();
+            }
+            return getDone();
+        }
+    }
+
+    /**
+     * Same as {@link #get()}, giving up after the timeout. The future stays
+     * pending in that case.
+     */
+    public T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        checkNotOnLooper();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            while (!mDone) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return getDone();
+        }
+    }
+
+    private T getDone() throws ExecutionException {
+        if (mCancelled) {
+            throw (CancellationException) mException;
+        }
+        if (mException != null) {
+            throw new ExecutionException(mException);
+        }
+        return mResult;
+    }
+
+    private void checkNotOnLooper() {
+        if (Looper.myLooper() == mHandler.getLooper()) {
+            throw new IllegalStateException("get() would block the looper of the future");
+        }
+    }
+
+    /**
+     * @return a future completed with the result of this one mapped by the
+     *         transform, or with the same exception
+     */
+    public <R> CommandFuture<R> thenApply(final Transform<? super T, R> transform) {
+        final CommandFuture<R> next = new CommandFuture<R>(getLooper());
+        addListener(new Listener<T>() {
+            @Override
+            public void onComplete(CommandFuture<T> future) {
+                if (future.getException() != null) {
+                    next.completeExceptionally(future.getException());
+                    return;
+                }
+                try {
+                    next.complete(transform.apply(future.getResult()));
+                } catch (RuntimeException e) {
+                    next.completeExceptionally(e);
+                }
+            }
+        });
+        propagateCancel(next);
+        return next;
+    }
+
+    /**
+     * @return a future completed as the request sent by the chain with the
+     *         result of this one, or with the exception of this one
+     */
+    public <R> CommandFuture<R> thenCompose(final Chain<? super T, R> chain) {
+        final CommandFuture<R> next = new CommandFuture<R>(getLooper());
+        addListener(new Listener<T>() {
+            @Override
+            public void onComplete(CommandFuture<T> future) {
+                if (future.getException() != null) {
+                    next.completeExceptionally(future.getException());
+                    return;
+                }
+                CommandFuture<R> sent;
+                try {
+                    sent = chain.next(future.getResult());
+                } catch (RuntimeException e) {
+                    next.completeExceptionally(e);
+                    return;
+                }
+                sent.addListener(new Listener<R>() {
+                    @Override
+                    public void onComplete(CommandFuture<R> f) {
+                        next.finish(f.getResult(), f.getException(), false);
+                    }
+                });
+            }
+        });
+        propagateCancel(next);
+        return next;
+    }
+
+    /**
+     * Cancel this future along with a future derived from it.
+     */
+    @SuppressWarnings("unchecked")
+    private void propagateCancel(CommandFuture<?> derived) {
+        derived.addListener(new Listener() {
+            @Override
+            public void onComplete(CommandFuture f) {
+                if (f.isCancelled()) {
+                    cancel();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return a future completed once all futures are done, failed with the
+     *         exception of the first future that failed. The results are
+     *         read from the futures themselves.
+     */
+    @SuppressWarnings("unchecked")
+    public static CommandFuture<Void> whenAll(Looper looper, final CommandFuture<?>... futures) {
+        final CommandFuture<Void> all = new CommandFuture<Void>(looper);
+        if (futures.length == 0) {
+            all.complete(null);
+            return all;
+        }
+        final int[] pending = { futures.length };
+        for (CommandFuture<?> future : futures) {
+            future.addListener(new Listener() {
+                @Override
+                public void onComplete(CommandFuture f) {
+                    synchronized (pending) {
+                        if (f.getException() != null) {
+                            all.completeExceptionally(f.getException());
+                        } else if (--pending[0] == 0) {
+                            all.complete(null);
+                        }
+                    }
+                }
+            });
+        }
+        return all;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CommandFuture{" + (!mDone ? "pending" : mCancelled ? "cancelled"
+                : mException != null ? "failed " + mException : "done") + "}";
+    }
+}
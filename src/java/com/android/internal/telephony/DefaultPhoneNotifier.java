@@ -19,11 +19,14 @@ package com.android.internal.telephony;
 import android.net.LinkProperties;
 import android.net.NetworkCapabilities;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.telephony.CellInfo;
 import android.telephony.DataConnectionRealTimeInfo;
 import android.telephony.Rlog;
+import android.telephony.SignalStrength;
 import android.telephony.VoLteServiceState;
 import android.telephony.ServiceState;
 import android.telephony.SubscriptionManager;
@@ -33,14 +36,26 @@ import android.telephony.DisconnectCause;
 
 import com.android.internal.telephony.Call;
 import com.android.internal.telephony.CallManager;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.telephony.Phone;
 import com.android.internal.telephony.ITelephonyRegistry;
 import com.android.internal.telephony.PhoneConstants;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * broadcast intents
+ *
+ * Notifications of a state the registry already has are dropped, and bursts
+ * of the frequent ones are sent once per frame with the latest state, as each
+ * registry call fans out to every listener.
  */
 public class DefaultPhoneNotifier implements PhoneNotifier {
     private static final String LOG_TAG = "DefaultPhoneNotifier";
@@ -48,104 +63,290 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
 
     protected ITelephonyRegistry mRegistry;
 
+    // Coalesced updates are sent at most once per frame
+    private static final long FLUSH_DELAY_MS = 16;
+
+    /**
+     * Arguments of a registry call. Calls with equal arguments for the same
+     * key are not repeated.
+     */
+    private abstract static class Update {
+        private final Object[] mArgs;
+
+        Update(Object... args) {
+            mArgs = args;
+        }
+
+        abstract void send(ITelephonyRegistry registry) throws RemoteException;
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && o.getClass() == getClass()
+                    && Arrays.equals(mArgs, ((Update) o).mArgs);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(mArgs);
+        }
+    }
+
+    private final Object mLock = new Object();
+    // Last update sent and update waiting for the flush, per event and phone
+    private final HashMap<String, Update> mLastSent = new HashMap<String, Update>();
+    private final LinkedHashMap<String, Update> mPending = new LinkedHashMap<String, Update>();
+    // Updates to send to the registry, in order, see sendOutgoing()
+    private final ArrayList<Update> mOutgoing = new ArrayList<Update>();
+    private final Handler mHandler;
+    private boolean mFlushScheduled;
+    private boolean mSending;
+    private int mSent;
+    private int mSuppressed;
+    private int mCoalesced;
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (mLock) {
+                mFlushScheduled = false;
+                flushLocked();
+            }
+            sendOutgoing();
+        }
+    };
+
     /*package*/
     protected DefaultPhoneNotifier() {
         mRegistry = ITelephonyRegistry.Stub.asInterface(ServiceManager.getService(
                     "telephony.registry"));
+        mHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * @param looper the looper on which coalesced updates are sent
+     */
+    @VisibleForTesting
+    DefaultPhoneNotifier(ITelephonyRegistry registry, Looper looper) {
+        mRegistry = registry;
+        mHandler = new Handler(looper);
+    }
+
+    /**
+     * Send an update of state to the registry unless the registry already
+     * has it. Coalesced updates are sent with the next flush, replacing
+     * updates of the same key still pending; other updates are sent right
+     * away, after the pending ones so that the order is kept.
+     *
+     * @param key the event and the phone or subscription it is about
+     */
+    private void updateState(String key, boolean coalesce, Update update) {
+        if (mRegistry == null) {
+            return;
+        }
+        synchronized (mLock) {
+            if (coalesce) {
+                if (mPending.remove(key) != null) {
+                    mCoalesced++;
+                }
+            } else {
+                flushLocked();
+            }
+            if (update.equals(mLastSent.get(key))) {
+                mSuppressed++;
+            } else if (coalesce) {
+                mPending.put(key, update);
+                if (!mFlushScheduled) {
+                    mFlushScheduled = true;
+                    mHandler.postDelayed(mFlush, FLUSH_DELAY_MS);
+                }
+            } else {
+                queueLocked(key, update);
+            }
+        }
+        sendOutgoing();
+    }
+
+    /**
+     * Send an event, which is never suppressed, after the pending updates.
+     */
+    private void sendEvent(Update update) {
+        if (mRegistry == null) {
+            return;
+        }
+        synchronized (mLock) {
+            flushLocked();
+            queueLocked(null, update);
+        }
+        sendOutgoing();
+    }
+
+    private void flushLocked() {
+        if (mPending.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Update> entry : mPending.entrySet()) {
+            queueLocked(entry.getKey(), entry.getValue());
+        }
+        mPending.clear();
+    }
+
+    private void queueLocked(String key, Update update) {
+        mOutgoing.add(update);
+        mSent++;
+        if (key != null) {
+            mLastSent.put(key, update);
+        }
+    }
+
+    /**
+     * Make the registry calls of the queued updates without holding mLock,
+     * so that the callers of the notifier don't wait for each other's binder
+     * calls. One thread sends at a time, in queue order; the updates queued
+     * by other threads meanwhile are sent by it.
+     */
+    private void sendOutgoing() {
+        synchronized (mLock) {
+            if (mSending || mOutgoing.isEmpty()) {
+                return;
+            }
+            mSending = true;
+        }
+        ArrayList<Update> updates = new ArrayList<Update>();
+        boolean done = false;
+        try {
+            while (true) {
+                synchronized (mLock) {
+                    if (mOutgoing.isEmpty()) {
+                        mSending = false;
+                        done = true;
+                        return;
+                    }
+                    updates.addAll(mOutgoing);
+                    mOutgoing.clear();
+                }
+                for (Update update : updates) {
+                    try {
+                        update.send(mRegistry);
+                    } catch (RemoteException ex) {
+                        // system process is dead
+                    }
+                }
+                updates.clear();
+            }
+        } finally {
+            if (!done) {
+                synchronized (mLock) {
+                    mSending = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * The registry keeps its state per phone, the subscription is part of
+     * the arguments.
+     */
+    private static String key(String event, int phoneId) {
+        return event + ":" + phoneId;
     }
 
     @Override
     public void notifyPhoneState(Phone sender) {
         Call ringingCall = sender.getRingingCall();
-        int subId = sender.getSubId();
+        final int subId = sender.getSubId();
         String incomingNumber = "";
         if (ringingCall != null && ringingCall.getEarliestConnection() != null){
             incomingNumber = ringingCall.getEarliestConnection().getAddress();
         }
-        try {
-            if (mRegistry != null) {
-                  mRegistry.notifyCallStateForSubscriber(subId,
-                        convertCallState(sender.getState()), incomingNumber);
+        final int state = convertCallState(sender.getState());
+        final String number = incomingNumber;
+        updateState(key("callState", sender.getPhoneId()), false,
+                new Update(subId, state, number) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyCallStateForSubscriber(subId, state, number);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     @Override
     public void notifyServiceState(Phone sender) {
         ServiceState ss = sender.getServiceState();
-        int phoneId = sender.getPhoneId();
-        int subId = sender.getSubId();
+        final int phoneId = sender.getPhoneId();
+        final int subId = sender.getSubId();
 
         Rlog.d(LOG_TAG, "nofityServiceState: mRegistry=" + mRegistry + " ss=" + ss
                 + " sender=" + sender + " phondId=" + phoneId + " subId=" + subId);
+        final ServiceState state;
         if (ss == null) {
-            ss = new ServiceState();
-            ss.setStateOutOfService();
+            state = new ServiceState();
+            state.setStateOutOfService();
+        } else {
+            // The tracker keeps changing its instance
+            state = new ServiceState(ss);
         }
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyServiceStateForPhoneId(phoneId, subId, ss);
+        updateState(key("serviceState", phoneId), true, new Update(subId, state) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyServiceStateForPhoneId(phoneId, subId, state);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     @Override
     public void notifySignalStrength(Phone sender) {
-        int subId = sender.getSubId();
+        final int subId = sender.getSubId();
+        SignalStrength ss = sender.getSignalStrength();
         Rlog.d(LOG_TAG, "notifySignalStrength: mRegistry=" + mRegistry
-                + " ss=" + sender.getSignalStrength() + " sender=" + sender);
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifySignalStrengthForSubscriber(subId, sender.getSignalStrength());
+                + " ss=" + ss + " sender=" + sender);
+        final SignalStrength strength = ss == null ? null : new SignalStrength(ss);
+        updateState(key("signalStrength", sender.getPhoneId()), true,
+                new Update(subId, strength) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifySignalStrengthForSubscriber(subId, strength);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     @Override
     public void notifyMessageWaitingChanged(Phone sender) {
-        int phoneId = sender.getPhoneId();
-        int subId = sender.getSubId();
-
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyMessageWaitingChangedForPhoneId(phoneId, subId,
-                        sender.getMessageWaitingIndicator());
+        final int phoneId = sender.getPhoneId();
+        final int subId = sender.getSubId();
+        final boolean mwi = sender.getMessageWaitingIndicator();
+
+        updateState(key("messageWaiting", phoneId), true, new Update(subId, mwi) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyMessageWaitingChangedForPhoneId(phoneId, subId, mwi);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     @Override
     public void notifyCallForwardingChanged(Phone sender) {
-        int subId = sender.getSubId();
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyCallForwardingChangedForSubscriber(subId,
-                        sender.getCallForwardingIndicator());
+        final int subId = sender.getSubId();
+        final boolean cfi = sender.getCallForwardingIndicator();
+        updateState(key("callForwarding", sender.getPhoneId()), true,
+                new Update(subId, cfi) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyCallForwardingChangedForSubscriber(subId, cfi);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     @Override
     public void notifyDataActivity(Phone sender) {
-        int subId = sender.getSubId();
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyDataActivityForSubscriber(subId,
-                        convertDataActivityState(sender.getDataActivityState()));
+        final int subId = sender.getSubId();
+        final int activity = convertDataActivityState(sender.getDataActivityState());
+        updateState(key("dataActivity", sender.getPhoneId()), true,
+                new Update(subId, activity) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyDataActivityForSubscriber(subId, activity);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     @Override
@@ -154,9 +355,9 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
         doNotifyDataConnection(sender, reason, apnType, state);
     }
 
-    private void doNotifyDataConnection(Phone sender, String reason, String apnType,
-            PhoneConstants.DataState state) {
-        int subId = sender.getSubId();
+    private void doNotifyDataConnection(Phone sender, final String reason,
+            final String apnType, PhoneConstants.DataState state) {
+        final int subId = sender.getSubId();
         long dds = SubscriptionManager.getDefaultDataSubId();
         if (DBG) log("subId = " + subId + ", DDS = " + dds);
 
@@ -175,82 +376,89 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
         ServiceState ss = sender.getServiceState();
         if (ss != null) roaming = ss.getDataRoaming();
 
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyDataConnectionForSubscriber(subId,
-                    convertDataState(state),
-                    sender.isDataConnectivityPossible(apnType), reason,
-                    sender.getActiveApnHost(apnType),
-                    apnType,
-                    linkProperties,
-                    networkCapabilities,
-                    ((telephony!=null) ? telephony.getDataNetworkType(subId) :
-                    TelephonyManager.NETWORK_TYPE_UNKNOWN),
-                    roaming);
+        final int dataState = convertDataState(state);
+        final boolean possible = sender.isDataConnectivityPossible(apnType);
+        final String apn = sender.getActiveApnHost(apnType);
+        final LinkProperties lp = linkProperties;
+        final NetworkCapabilities nc = networkCapabilities;
+        final int networkType = (telephony != null) ? telephony.getDataNetworkType(subId) :
+                TelephonyManager.NETWORK_TYPE_UNKNOWN;
+        final boolean isRoaming = roaming;
+        updateState(key("dataConnection/" + apnType, sender.getPhoneId()), false,
+                new Update(subId, dataState, possible, reason, apn, lp, nc, networkType,
+                        isRoaming) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyDataConnectionForSubscriber(subId, dataState, possible, reason,
+                        apn, apnType, lp, nc, networkType, isRoaming);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     @Override
-    public void notifyDataConnectionFailed(Phone sender, String reason, String apnType) {
-        int subId = sender.getSubId();
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyDataConnectionFailedForSubscriber(subId, reason, apnType);
+    public void notifyDataConnectionFailed(Phone sender, final String reason,
+            final String apnType) {
+        final int subId = sender.getSubId();
+        sendEvent(new Update() {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyDataConnectionFailedForSubscriber(subId, reason, apnType);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     @Override
     public void notifyCellLocation(Phone sender) {
-        int subId = sender.getSubId();
-        Bundle data = new Bundle();
+        final int subId = sender.getSubId();
+        final Bundle data = new Bundle();
         sender.getCellLocation().fillInNotifierBundle(data);
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyCellLocationForSubscriber(subId, data);
-            }
-        } catch (RemoteException ex) {
-            // system process is dead
+        // Compare the contents, the location object of the tracker changes
+        HashMap<String, Object> contents = new HashMap<String, Object>();
+        for (String key : data.keySet()) {
+            contents.put(key, data.get(key));
         }
+        updateState(key("cellLocation", sender.getPhoneId()), true,
+                new Update(subId, contents) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyCellLocationForSubscriber(subId, data);
+            }
+        });
     }
 
     @Override
     public void notifyCellInfo(Phone sender, List<CellInfo> cellInfo) {
-        int subId = sender.getSubId();
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyCellInfoForSubscriber(subId, cellInfo);
+        final int subId = sender.getSubId();
+        final List<CellInfo> cells =
+                cellInfo == null ? null : new ArrayList<CellInfo>(cellInfo);
+        updateState(key("cellInfo", sender.getPhoneId()), true, new Update(subId, cells) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyCellInfoForSubscriber(subId, cells);
             }
-        } catch (RemoteException ex) {
-
-        }
+        });
     }
 
     @Override
     public void notifyDataConnectionRealTimeInfo(Phone sender,
-                                                 DataConnectionRealTimeInfo dcRtInfo) {
-        try {
-            mRegistry.notifyDataConnectionRealTimeInfo(dcRtInfo);
-        } catch (RemoteException ex) {
-
-        }
+                                                 final DataConnectionRealTimeInfo dcRtInfo) {
+        updateState("dataConnectionRealTimeInfo", true, new Update(dcRtInfo) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyDataConnectionRealTimeInfo(dcRtInfo);
+            }
+        });
     }
 
     @Override
-    public void notifyOtaspChanged(Phone sender, int otaspMode) {
+    public void notifyOtaspChanged(Phone sender, final int otaspMode) {
         // FIXME: subId?
-        try {
-            if (mRegistry != null) {
-                mRegistry.notifyOtaspChanged(otaspMode);
+        updateState("otasp", false, new Update(otaspMode) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyOtaspChanged(otaspMode);
             }
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        });
     }
 
     public void notifyPreciseCallState(Phone sender) {
@@ -259,52 +467,67 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
         Call foregroundCall = sender.getForegroundCall();
         Call backgroundCall = sender.getBackgroundCall();
         if (ringingCall != null && foregroundCall != null && backgroundCall != null) {
-            try {
-                mRegistry.notifyPreciseCallState(
-                        convertPreciseCallState(ringingCall.getState()),
-                        convertPreciseCallState(foregroundCall.getState()),
-                        convertPreciseCallState(backgroundCall.getState()));
-            } catch (RemoteException ex) {
-                // system process is dead
-            }
+            final int ringing = convertPreciseCallState(ringingCall.getState());
+            final int foreground = convertPreciseCallState(foregroundCall.getState());
+            final int background = convertPreciseCallState(backgroundCall.getState());
+            updateState("preciseCallState", false,
+                    new Update(ringing, foreground, background) {
+                @Override
+                void send(ITelephonyRegistry registry) throws RemoteException {
+                    registry.notifyPreciseCallState(ringing, foreground, background);
+                }
+            });
         }
     }
 
-    public void notifyDisconnectCause(int cause, int preciseCause) {
+    public void notifyDisconnectCause(final int cause, final int preciseCause) {
         // FIXME: subId?
-        try {
-            mRegistry.notifyDisconnectCause(cause, preciseCause);
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        sendEvent(new Update() {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyDisconnectCause(cause, preciseCause);
+            }
+        });
     }
 
-    public void notifyPreciseDataConnectionFailed(Phone sender, String reason, String apnType,
-            String apn, String failCause) {
+    public void notifyPreciseDataConnectionFailed(Phone sender, final String reason,
+            final String apnType, final String apn, final String failCause) {
         // FIXME: subId?
-        try {
-            mRegistry.notifyPreciseDataConnectionFailed(reason, apnType, apn, failCause);
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        sendEvent(new Update() {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyPreciseDataConnectionFailed(reason, apnType, apn, failCause);
+            }
+        });
     }
 
     @Override
-    public void notifyVoLteServiceStateChanged(Phone sender, VoLteServiceState lteState) {
+    public void notifyVoLteServiceStateChanged(Phone sender, final VoLteServiceState lteState) {
         // FIXME: subID
-        try {
-            mRegistry.notifyVoLteServiceStateChanged(lteState);
-        } catch (RemoteException ex) {
-            // system process is dead
-        }
+        updateState("voLteServiceState", false, new Update(lteState) {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyVoLteServiceStateChanged(lteState);
+            }
+        });
     }
 
     @Override
-    public void notifyOemHookRawEventForSubscriber(int subId, byte[] rawData) {
-        try {
-            mRegistry.notifyOemHookRawEventForSubscriber(subId, rawData);
-        } catch (RemoteException ex) {
-            // system process is dead
+    public void notifyOemHookRawEventForSubscriber(final int subId, final byte[] rawData) {
+        sendEvent(new Update() {
+            @Override
+            void send(ITelephonyRegistry registry) throws RemoteException {
+                registry.notifyOemHookRawEventForSubscriber(subId, rawData);
+            }
+        });
+    }
+
+    public void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        synchronized (mLock) {
+            pw.println("DefaultPhoneNotifier: sent=" + mSent
+                    + " saved=" + (mSuppressed + mCoalesced)
+                    + " (suppressed=" + mSuppressed + " coalesced=" + mCoalesced + ")"
+                    + " pending=" + mPending.size() + " outgoing=" + mOutgoing.size());
         }
     }
 
@@ -20,6 +20,8 @@ import android.telephony.Rlog;
 import java.lang.Comparable;
 import android.telephony.PhoneNumberUtils;
 
+import java.util.Arrays;
+
 /**
  * {@hide}
  */
@@ -114,6 +116,71 @@ public class DriverCall implements Comparable<DriverCall> {
     DriverCall() {
     }
 
+    /**
+     * Copy every field of {@code dc} into this instance so that a
+     * DriverCall can be reused as a poll snapshot without reallocating.
+     */
+    public void
+    copyFrom(DriverCall dc) {
+        index = dc.index;
+        isMT = dc.isMT;
+        state = dc.state;
+        isMpty = dc.isMpty;
+        number = dc.number;
+        TOA = dc.TOA;
+        isVoice = dc.isVoice;
+        isVoicePrivacy = dc.isVoicePrivacy;
+        als = dc.als;
+        numberPresentation = dc.numberPresentation;
+        name = dc.name;
+        namePresentation = dc.namePresentation;
+        uusInfo = dc.uusInfo;
+        callMode = dc.callMode;
+        pau = dc.pau;
+        isVideo = dc.isVideo;
+    }
+
+    /**
+     * @return true if {@code dc} reports exactly the same call as this one,
+     * i.e. applying it to a Connection that already saw this one is a no-op.
+     */
+    public boolean
+    isSameAs(DriverCall dc) {
+        return dc != null
+                && index == dc.index
+                && isMT == dc.isMT
+                && state == dc.state
+                && isMpty == dc.isMpty
+                && TOA == dc.TOA
+                && isVoice == dc.isVoice
+                && isVoicePrivacy == dc.isVoicePrivacy
+                && als == dc.als
+                && numberPresentation == dc.numberPresentation
+                && namePresentation == dc.namePresentation
+                && callMode == dc.callMode
+                && isVideo == dc.isVideo
+                && uusInfoEquals(uusInfo, dc.uusInfo)
+                && equalsHandlesNulls(number, dc.number)
+                && equalsHandlesNulls(name, dc.name)
+                && equalsHandlesNulls(pau, dc.pau);
+    }
+
+    private static boolean
+    equalsHandlesNulls(Object a, Object b) {
+        return (a == null) ? (b == null) : a.equals(b);
+    }
+
+    // RIL decodes a new UUSInfo for each response, compare the contents
+    private static boolean
+    uusInfoEquals(UUSInfo a, UUSInfo b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getType() == b.getType()
+                && a.getDcs() == b.getDcs()
+                && Arrays.equals(a.getUserData(), b.getUserData());
+    }
+
     @Override
     public String
     toString() {
@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.telephony.Rlog;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.telephony.HbpcdLookup.ArbitraryMccSidMatch;
+import com.android.internal.telephony.HbpcdLookup.MccIdd;
+import com.android.internal.telephony.HbpcdLookup.MccLookup;
+import com.android.internal.telephony.HbpcdLookup.MccSidConflicts;
+import com.android.internal.telephony.HbpcdLookup.MccSidRange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Read-only copy of the HBPCD lookup tables, shared by {@link HbpcdUtils}
+ * and {@link SmsNumberUtils}.
+ *
+ * The tables ship with the HBPCD provider and do not change at run time, so
+ * they are read once per process. The index is immutable once built and may
+ * be used from any thread.
+ */
+final class HbpcdIndex {
+    private static final String TAG = "HbpcdIndex";
+    private static final boolean DBG = false;
+
+    // SID listed more than once in the arbitrary match table
+    private static final int AMBIGUOUS = -1;
+
+    private static final Object sLock = new Object();
+    private static volatile HbpcdIndex sInstance;
+
+    // SID -> MCC of arbitrary_mcc_sid_match, or AMBIGUOUS
+    private final SparseIntArray mArbitrarySids = new SparseIntArray();
+    // SID -> conflicting MCCs, in ascending order
+    private final SparseArray<int[]> mConflicts = new SparseArray<int[]>();
+    // Time zone rows of mcc_lookup, sorted by MCC
+    private int[] mZoneMccs = new int[0];
+    private double[] mGmtLow = new double[0];
+    private double[] mGmtHigh = new double[0];
+    private double[] mDstLow = new double[0];
+    private double[] mDstHigh = new double[0];
+    // mcc_sid_range sorted by lower bound; mMaxHigh[i] is the highest upper
+    // bound of the ranges up to i, to stop the search early, and mRangeRow[i]
+    // the position of the range in the table
+    private int[] mRangeLow = new int[0];
+    private int[] mRangeHigh = new int[0];
+    private int[] mRangeMcc = new int[0];
+    private int[] mRangeRow = new int[0];
+    private int[] mMaxHigh = new int[0];
+    // MCC -> IDDs, and all IDDs, in table order without duplicates
+    private final SparseArray<ArrayList<String>> mIdds = new SparseArray<ArrayList<String>>();
+    private final ArrayList<String> mAllIdds = new ArrayList<String>();
+    // Country codes of mcc_lookup as a digit trie
+    private final CountryCodeNode mCountryCodes = new CountryCodeNode();
+    private int mMaxCountryCodeLength;
+
+    private static class CountryCodeNode {
+        CountryCodeNode[] mNext;
+        int mCountryCode = -1;
+        // Position of the country code in the table, the first listed one wins
+        int mOrder = Integer.MAX_VALUE;
+
+        CountryCodeNode child(int digit) {
+            if (mNext == null) {
+                mNext = new CountryCodeNode[10];
+            }
+            if (mNext[digit] == null) {
+                mNext[digit] = new CountryCodeNode();
+            }
+            return mNext[digit];
+        }
+    }
+
+    /**
+     * @return the index, or null if the tables could not be read. Reading is
+     *         attempted again on the next call in that case.
+     */
+    static HbpcdIndex getInstance(Context context) {
+        HbpcdIndex index = sInstance;
+        if (index == null) {
+            synchronized (sLock) {
+                index = sInstance;
+                if (index == null) {
+                    index = load(context.getContentResolver());
+                    sInstance = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private HbpcdIndex() {
+    }
+
+    /**
+     * @return an index of the given mcc_sid_range rows of {low, high, mcc} only
+     */
+    @VisibleForTesting
+    static HbpcdIndex forRanges(int[][] ranges) {
+        HbpcdIndex index = new HbpcdIndex();
+        index.setRanges(ranges);
+        return index;
+    }
+
+    /**
+     * @return the MCC of a SID assigned to a single operator, AMBIGUOUS if the
+     *         SID is listed several times, or 0
+     */
+    int getArbitraryMcc(int sid) {
+        return mArbitrarySids.get(sid, 0);
+    }
+
+    /**
+     * @return the first conflicting MCC of the SID whose time zone matches,
+     *         or 0. Matches the conflict query of {@link HbpcdUtils#getMcc}.
+     */
+    int getConflictMcc(int sid, int tz, int dstFlag) {
+        int[] mccs = mConflicts.get(sid);
+        if (mccs == null) {
+            return 0;
+        }
+        for (int mcc : mccs) {
+            int i = Arrays.binarySearch(mZoneMccs, mcc);
+            if (i < 0) {
+                continue;
+            }
+            while (i > 0 && mZoneMccs[i - 1] == mcc) {
+                i--;
+            }
+            for (; i < mZoneMccs.length && mZoneMccs[i] == mcc; i++) {
+                if (dstFlag == 0 ? (mGmtLow[i] <= tz && tz <= mGmtHigh[i])
+                        : dstFlag == 1 && (mDstLow[i] <= tz && tz <= mDstHigh[i])) {
+                    return mcc;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the MCC of the first range of the table containing the SID, or 0
+     */
+    int getRangeMcc(int sid) {
+        int match = -1;
+        int i = upperBound(mRangeLow, sid) - 1;
+        for (; i >= 0 && mMaxHigh[i] >= sid; i--) {
+            if (mRangeHigh[i] >= sid && (match < 0 || mRangeRow[i] < mRangeRow[match])) {
+                match = i;
+            }
+        }
+        return match >= 0 ? mRangeMcc[match] : 0;
+    }
+
+    /**
+     * @return the IDDs of the MCC, or all IDDs if mcc is null. Must not be
+     *         modified.
+     */
+    ArrayList<String> getIdds(String mcc) {
+        if (mcc == null) {
+            return mAllIdds;
+        }
+        try {
+            return getIdds(Integer.parseInt(mcc.trim()));
+        } catch (NumberFormatException e) {
+            return new ArrayList<String>();
+        }
+    }
+
+    ArrayList<String> getIdds(int mcc) {
+        ArrayList<String> idds = mIdds.get(mcc);
+        return idds != null ? idds : new ArrayList<String>();
+    }
+
+    /**
+     * Returns the country code the number starts with. As the prefixes of
+     * the number used to be compared as integers, leading zeros are skipped
+     * and count towards the length of the longest country code.
+     *
+     * @return the country code, or -1 if there is none
+     */
+    int getCountryCode(String number) {
+        int start = 0;
+        while (start < number.length() && start < mMaxCountryCodeLength
+                && number.charAt(start) == '0') {
+            start++;
+        }
+        CountryCodeNode node = mCountryCodes;
+        // A country code of 0 is stored at the root and matches any leading zero
+        CountryCodeNode best = (start > 0 && node.mCountryCode == 0) ? node : null;
+        for (int i = start; i < mMaxCountryCodeLength && i < number.length(); i++) {
+            int digit = number.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || node.mNext == null || node.mNext[digit] == null) {
+                break;
+            }
+            node = node.mNext[digit];
+            if (node.mCountryCode >= 0 && (best == null || node.mOrder < best.mOrder)) {
+                best = node;
+            }
+        }
+        return best != null ? best.mCountryCode : -1;
+    }
+
+    private static int upperBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static HbpcdIndex load(ContentResolver resolver) {
+        long start = SystemClock.elapsedRealtime();
+        HbpcdIndex index = new HbpcdIndex();
+        try {
+            if (!index.loadArbitrary(resolver) || !index.loadConflicts(resolver)
+                    || !index.loadLookup(resolver) || !index.loadRanges(resolver)
+                    || !index.loadIdds(resolver)) {
+                Rlog.w(TAG, "HBPCD lookup tables not available");
+                return null;
+            }
+        } catch (SQLException e) {
+            Rlog.e(TAG, "Can't access HbpcdLookup database", e);
+            return null;
+        }
+        if (DBG) {
+            Rlog.d(TAG, "loaded " + index.mRangeMcc.length + " SID ranges, "
+                    + index.mConflicts.size() + " conflicting SIDs, "
+                    + index.mZoneMccs.length + " MCCs in "
+                    + (SystemClock.elapsedRealtime() - start) + " ms");
+        }
+        return index;
+    }
+
+    private static Cursor query(ContentResolver resolver, Uri uri, String... projection) {
+        return resolver.query(uri, projection, null, null, null);
+    }
+
+    private boolean loadArbitrary(ContentResolver resolver) {
+        Cursor c = query(resolver, ArbitraryMccSidMatch.CONTENT_URI,
+                ArbitraryMccSidMatch.SID, ArbitraryMccSidMatch.MCC);
+        if (c == null) {
+            return false;
+        }
+        try {
+            while (c.moveToNext()) {
+                int sid = c.getInt(0);
+                mArbitrarySids.put(sid,
+                        mArbitrarySids.indexOfKey(sid) >= 0 ? AMBIGUOUS : c.getInt(1));
+            }
+        } finally {
+            c.close();
+        }
+        return true;
+    }
+
+    private boolean loadConflicts(ContentResolver resolver) {
+        Cursor c = query(resolver, MccSidConflicts.CONTENT_URI,
+                MccSidConflicts.SID_CONFLICT, MccSidConflicts.MCC);
+        if (c == null) {
+            return false;
+        }
+        try {
+            while (c.moveToNext()) {
+                int sid = c.getInt(0);
+                int mcc = c.getInt(1);
+                int[] mccs = mConflicts.get(sid);
+                if (mccs == null) {
+                    mConflicts.put(sid, new int[] { mcc });
+                } else if (Arrays.binarySearch(mccs, mcc) < 0) {
+                    mccs = Arrays.copyOf(mccs, mccs.length + 1);
+                    mccs[mccs.length - 1] = mcc;
+                    Arrays.sort(mccs);
+                    mConflicts.put(sid, mccs);
+                }
+            }
+        } finally {
+            c.close();
+        }
+        return true;
+    }
+
+    private boolean loadLookup(ContentResolver resolver) {
+        Cursor c = query(resolver, MccLookup.CONTENT_URI, MccLookup.MCC,
+                MccLookup.GMT_OFFSET_LOW, MccLookup.GMT_OFFSET_HIGH, MccLookup.GMT_DST_LOW,
+                MccLookup.GMT_DST_HIGH, MccLookup.COUNTRY_CODE);
+        if (c == null) {
+            return false;
+        }
+        try {
+            int count = c.getCount();
+            long[] order = new long[count];
+            int[] mccs = new int[count];
+            double[][] zones = new double[count][];
+            for (int row = 0; c.moveToNext(); row++) {
+                mccs[row] = c.getInt(0);
+                zones[row] = new double[] {
+                        c.getDouble(1), c.getDouble(2), c.getDouble(3), c.getDouble(4) };
+                // Sort by MCC and keep rows of the same MCC in table order
+                order[row] = ((long) mccs[row] << 32) | row;
+                addCountryCode(c.getInt(5), row);
+            }
+            Arrays.sort(order);
+            mZoneMccs = new int[count];
+            mGmtLow = new double[count];
+            mGmtHigh = new double[count];
+            mDstLow = new double[count];
+            mDstHigh = new double[count];
+            for (int i = 0; i < count; i++) {
+                int row = (int) order[i];
+                mZoneMccs[i] = mccs[row];
+                mGmtLow[i] = zones[row][0];
+                mGmtHigh[i] = zones[row][1];
+                mDstLow[i] = zones[row][2];
+                mDstHigh[i] = zones[row][3];
+            }
+        } finally {
+            c.close();
+        }
+        return true;
+    }
+
+    private void addCountryCode(int countryCode, int order) {
+        if (countryCode < 0) {
+            return;
+        }
+        String digits = String.valueOf(countryCode);
+        CountryCodeNode node = mCountryCodes;
+        for (int i = 0; i < digits.length() && countryCode > 0; i++) {
+            node = node.child(digits.charAt(i) - '0');
+        }
+        if (order < node.mOrder) {
+            node.mCountryCode = countryCode;
+            node.mOrder = order;
+        }
+        mMaxCountryCodeLength = Math.max(mMaxCountryCodeLength, digits.length());
+    }
+
+    private boolean loadRanges(ContentResolver resolver) {
+        Cursor c = query(resolver, MccSidRange.CONTENT_URI,
+                MccSidRange.RANGE_LOW, MccSidRange.RANGE_HIGH, MccSidRange.MCC);
+        if (c == null) {
+            return false;
+        }
+        try {
+            int[][] rows = new int[c.getCount()][];
+            for (int row = 0; c.moveToNext(); row++) {
+                rows[row] = new int[] { c.getInt(0), c.getInt(1), c.getInt(2) };
+            }
+            setRanges(rows);
+        } finally {
+            c.close();
+        }
+        return true;
+    }
+
+    private void setRanges(int[][] rows) {
+        int count = rows.length;
+        long[] order = new long[count];
+        for (int row = 0; row < count; row++) {
+            order[row] = ((long) rows[row][0] << 32) | row;
+        }
+        Arrays.sort(order);
+        mRangeLow = new int[count];
+        mRangeHigh = new int[count];
+        mRangeMcc = new int[count];
+        mRangeRow = new int[count];
+        mMaxHigh = new int[count];
+        for (int i = 0; i < count; i++) {
+            int[] row = rows[(int) order[i]];
+            mRangeLow[i] = row[0];
+            mRangeHigh[i] = row[1];
+            mRangeMcc[i] = row[2];
+            mRangeRow[i] = (int) order[i];
+            mMaxHigh[i] = i == 0 ? row[1] : Math.max(mMaxHigh[i - 1], row[1]);
+        }
+    }
+
+    private boolean loadIdds(ContentResolver resolver) {
+        Cursor c = query(resolver, MccIdd.CONTENT_URI, MccIdd.MCC, MccIdd.IDD);
+        if (c == null) {
+            return false;
+        }
+        try {
+            while (c.moveToNext()) {
+                int mcc = c.getInt(0);
+                String idd = c.getString(1);
+                ArrayList<String> idds = mIdds.get(mcc);
+                if (idds == null) {
+                    idds = new ArrayList<String>();
+                    mIdds.put(mcc, idds);
+                }
+                if (!idds.contains(idd)) {
+                    idds.add(idd);
+                }
+                if (!mAllIdds.contains(idd)) {
+                    mAllIdds.add(idd);
+                }
+            }
+        } finally {
+            c.close();
+        }
+        return true;
+    }
+}
@@ -28,6 +28,7 @@ import android.os.AsyncResult;
 import android.os.Binder;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemProperties;
 import android.os.UserManager;
 import android.provider.Telephony;
 import android.telephony.Rlog;
@@ -44,9 +45,12 @@ import com.android.internal.telephony.SmsNumberUtils;
 import com.android.internal.telephony.uicc.IccRecords;
 import com.android.internal.util.HexDump;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import static android.telephony.SmsManager.STATUS_ON_ICC_FREE;
 import static android.telephony.SmsManager.STATUS_ON_ICC_READ;
@@ -64,7 +68,6 @@ public class IccSmsInterfaceManager {
 
     protected final Object mLock = new Object();
     protected boolean mSuccess;
-    private List<SmsRawData> mSms;
 
     private CellBroadcastRangeManager mCellBroadcastRangeManager =
             new CellBroadcastRangeManager();
@@ -73,11 +76,22 @@ public class IccSmsInterfaceManager {
 
     private static final int EVENT_LOAD_DONE = 1;
     private static final int EVENT_UPDATE_DONE = 2;
-    protected static final int EVENT_SET_BROADCAST_ACTIVATION_DONE = 3;
-    protected static final int EVENT_SET_BROADCAST_CONFIG_DONE = 4;
+    private static final int EVENT_LOAD_BATCH = 5;
+    // Number of EF_SMS records delivered at once while loading
+    private static final int SMS_LOAD_BATCH_SIZE = 10;
     private static final int SMS_CB_CODE_SCHEME_MIN = 0;
     private static final int SMS_CB_CODE_SCHEME_MAX = 255;
 
+    /**
+     * Set to true if the modem applies each cell broadcast configuration on
+     * top of the current one, instead of replacing it. Only the channels
+     * enabled or disabled are sent then.
+     */
+    private static final String PROPERTY_CB_INCREMENTAL_CONFIG =
+            "ro.telephony.cb_incremental_config";
+    private static final boolean CB_INCREMENTAL_CONFIG =
+            SystemProperties.getBoolean(PROPERTY_CB_INCREMENTAL_CONFIG, false);
+
     protected PhoneBase mPhone;
     final protected Context mContext;
     final protected AppOpsManager mAppOps;
@@ -97,30 +111,20 @@ public class IccSmsInterfaceManager {
                         mLock.notifyAll();
                     }
                     break;
-                case EVENT_LOAD_DONE:
+                case EVENT_LOAD_BATCH:
                     ar = (AsyncResult)msg.obj;
-                    synchronized (mLock) {
-                        if (ar.exception == null) {
-                            mSms = buildValidRawData((ArrayList<byte[]>) ar.result);
-                            //Mark SMS as read after importing it from card.
-                            markMessagesAsRead((ArrayList<byte[]>) ar.result);
-                        } else {
-                            if (Rlog.isLoggable("SMS", Log.DEBUG)) {
-                                log("Cannot load Sms records");
-                            }
-                            if (mSms != null)
-                                mSms.clear();
-                        }
-                        mLock.notifyAll();
-                    }
+                    ArrayList<byte[]> records = (ArrayList<byte[]>) ar.result;
+                    ((IccSmsLoadListener) ar.userObj).onMessagesLoaded(msg.arg1,
+                            buildValidRawData(records));
+                    //Mark SMS as read after importing it from card.
+                    markMessagesAsRead(records, msg.arg1);
                     break;
-                case EVENT_SET_BROADCAST_ACTIVATION_DONE:
-                case EVENT_SET_BROADCAST_CONFIG_DONE:
-                    ar = (AsyncResult) msg.obj;
-                    synchronized (mLock) {
-                        mSuccess = (ar.exception == null);
-                        mLock.notifyAll();
+                case EVENT_LOAD_DONE:
+                    ar = (AsyncResult)msg.obj;
+                    if (ar.exception != null && Rlog.isLoggable("SMS", Log.DEBUG)) {
+                        log("Cannot load Sms records");
                     }
+                    ((IccSmsLoadListener) ar.userObj).onLoadFinished(ar.exception == null);
                     break;
             }
         }
@@ -135,7 +139,64 @@ public class IccSmsInterfaceManager {
                 phone.mSmsStorageMonitor, phone.mSmsUsageMonitor);
     }
 
+    /**
+     * Receives the messages stored on Icc as they are read, see
+     * {@link #loadMessagesFromIccEf}. Methods are called on the handler thread.
+     */
+    public interface IccSmsLoadListener {
+        /**
+         * @param firstIndex 0-based index on Icc of the first message
+         * @param messages the messages, null for free records
+         */
+        void onMessagesLoaded(int firstIndex, List<SmsRawData> messages);
+
+        /**
+         * @param success false if reading the Icc failed; messages delivered
+         *        until then are valid
+         */
+        void onLoadFinished(boolean success);
+    }
+
+    /**
+     * Collects all messages for {@link #getAllMessagesFromIccEf}.
+     */
+    private static class SmsCollector implements IccSmsLoadListener {
+        private final ArrayList<SmsRawData> mMessages = new ArrayList<SmsRawData>();
+        private boolean mFinished;
+        private boolean mSuccess;
+
+        @Override
+        public synchronized void onMessagesLoaded(int firstIndex, List<SmsRawData> messages) {
+            mMessages.addAll(messages);
+        }
+
+        @Override
+        public synchronized void onLoadFinished(boolean success) {
+            mSuccess = success;
+            mFinished = true;
+            notifyAll();
+        }
+
+        synchronized List<SmsRawData> waitForMessages() throws InterruptedException {
+            while (!mFinished) {
+                wait();
+            }
+            if (!mSuccess) {
+                mMessages.clear();
+            }
+            return mMessages;
+        }
+    }
+
     protected void markMessagesAsRead(ArrayList<byte[]> messages) {
+        markMessagesAsRead(messages, 0);
+    }
+
+    /**
+     * @param messages consecutive records of EF_SMS
+     * @param firstIndex 0-based index of the first record
+     */
+    protected void markMessagesAsRead(ArrayList<byte[]> messages, int firstIndex) {
         if (messages == null) {
             return;
         }
@@ -160,9 +221,10 @@ public class IccSmsInterfaceManager {
                  byte[] nba = new byte[n - 1];
                  System.arraycopy(ba, 1, nba, 0, n - 1);
                  byte[] record = makeSmsRecordData(STATUS_ON_ICC_READ, nba);
-                 fh.updateEFLinearFixed(IccConstants.EF_SMS, i + 1, record, null, null);
+                 fh.updateEFLinearFixed(IccConstants.EF_SMS, firstIndex + i + 1, record, null,
+                         null);
                  if (Rlog.isLoggable("SMS", Log.DEBUG)) {
-                     log("SMS " + (i + 1) + " marked as read");
+                     log("SMS " + (firstIndex + i + 1) + " marked as read");
                  }
              }
         }
@@ -294,27 +356,52 @@ public class IccSmsInterfaceManager {
                 callingPackage) != AppOpsManager.MODE_ALLOWED) {
             return new ArrayList<SmsRawData>();
         }
-        synchronized(mLock) {
 
-            IccFileHandler fh = mPhone.getIccFileHandler();
-            if (fh == null) {
-                Rlog.e(LOG_TAG, "Cannot load Sms records. No icc card?");
-                if (mSms != null) {
-                    mSms.clear();
-                    return mSms;
-                }
-            }
+        // Wait on a per request collector rather than mLock, so that other
+        // requests are not held up for the whole EF_SMS read
+        SmsCollector collector = new SmsCollector();
+        if (!startLoadingMessages(collector)) {
+            return new ArrayList<SmsRawData>();
+        }
+        try {
+            return collector.waitForMessages();
+        } catch (InterruptedException e) {
+            log("interrupted while trying to load from the Icc");
+            return new ArrayList<SmsRawData>();
+        }
+    }
 
-            Message response = mHandler.obtainMessage(EVENT_LOAD_DONE);
-            fh.loadEFLinearFixedAll(IccConstants.EF_SMS, response);
+    /**
+     * Loads the messages currently stored on Icc without blocking. The
+     * messages are delivered to the listener in batches as they are read,
+     * null entries stand for free records.
+     *
+     * @return false if the messages can't be loaded, the listener is not called then
+     */
+    public boolean loadMessagesFromIccEf(String callingPackage, IccSmsLoadListener listener) {
+        if (DBG) log("loadMessagesFromIccEf");
 
-            try {
-                mLock.wait();
-            } catch (InterruptedException e) {
-                log("interrupted while trying to load from the Icc");
-            }
+        mContext.enforceCallingOrSelfPermission(
+                Manifest.permission.RECEIVE_SMS,
+                "Reading messages from Icc");
+        if (mAppOps.noteOp(AppOpsManager.OP_READ_ICC_SMS, Binder.getCallingUid(),
+                callingPackage) != AppOpsManager.MODE_ALLOWED) {
+            return false;
+        }
+        return startLoadingMessages(listener);
+    }
+
+    private boolean startLoadingMessages(IccSmsLoadListener listener) {
+        IccFileHandler fh = mPhone.getIccFileHandler();
+        if (fh == null) {
+            Rlog.e(LOG_TAG, "Cannot load Sms records. No icc card?");
+            return false;
         }
-        return mSms;
+
+        fh.loadEFLinearFixedAll(IccConstants.EF_SMS, SMS_LOAD_BATCH_SIZE,
+                mHandler.obtainMessage(EVENT_LOAD_BATCH, listener),
+                mHandler.obtainMessage(EVENT_LOAD_DONE, listener));
+        return true;
     }
 
     /**
@@ -706,7 +793,7 @@ public class IccSmsInterfaceManager {
     }
 
     /**
-     * create SmsRawData lists from all sms record byte[]
+     * create SmsRawData lists from sms record byte[]
      * Use null to indicate "free" record
      *
      * @param messages List of message records from EF_SMS.
@@ -907,6 +994,11 @@ public class IccSmsInterfaceManager {
             mConfigList.clear();
         }
 
+        @Override
+        protected boolean isIncrementalUpdateSupported() {
+            return CB_INCREMENTAL_CONFIG;
+        }
+
         /**
          * Called after {@link #startUpdate} to indicate a range of enabled
          * values.
@@ -947,6 +1039,11 @@ public class IccSmsInterfaceManager {
             mConfigList.clear();
         }
 
+        @Override
+        protected boolean isIncrementalUpdateSupported() {
+            return CB_INCREMENTAL_CONFIG;
+        }
+
         /**
          * Called after {@link #startUpdate} to indicate a range of enabled
          * values.
@@ -978,80 +1075,51 @@ public class IccSmsInterfaceManager {
         if (DBG)
             log("Calling setGsmBroadcastConfig with " + configs.length + " configurations");
 
-        synchronized (mLock) {
-            Message response = mHandler.obtainMessage(EVENT_SET_BROADCAST_CONFIG_DONE);
-
-            mSuccess = false;
-            mPhone.mCi.setGsmBroadcastConfig(configs, response);
-
-            try {
-                mLock.wait();
-            } catch (InterruptedException e) {
-                log("interrupted while trying to set cell broadcast config");
-            }
-        }
-
-        return mSuccess;
+        return waitForSuccess(getCommands().setGsmBroadcastConfig(configs),
+                "set cell broadcast config");
     }
 
     private boolean setCellBroadcastActivation(boolean activate) {
         if (DBG)
             log("Calling setCellBroadcastActivation(" + activate + ')');
 
-        synchronized (mLock) {
-            Message response = mHandler.obtainMessage(EVENT_SET_BROADCAST_ACTIVATION_DONE);
-
-            mSuccess = false;
-            mPhone.mCi.setGsmBroadcastActivation(activate, response);
-
-            try {
-                mLock.wait();
-            } catch (InterruptedException e) {
-                log("interrupted while trying to set cell broadcast activation");
-            }
-        }
-
-        return mSuccess;
+        return waitForSuccess(getCommands().setGsmBroadcastActivation(activate),
+                "set cell broadcast activation");
     }
 
     private boolean setCdmaBroadcastConfig(CdmaSmsBroadcastConfigInfo[] configs) {
         if (DBG)
             log("Calling setCdmaBroadcastConfig with " + configs.length + " configurations");
 
-        synchronized (mLock) {
-            Message response = mHandler.obtainMessage(EVENT_SET_BROADCAST_CONFIG_DONE);
-
-            mSuccess = false;
-            mPhone.mCi.setCdmaBroadcastConfig(configs, response);
-
-            try {
-                mLock.wait();
-            } catch (InterruptedException e) {
-                log("interrupted while trying to set cdma broadcast config");
-            }
-        }
-
-        return mSuccess;
+        return waitForSuccess(getCommands().setCdmaBroadcastConfig(configs),
+                "set cdma broadcast config");
     }
 
     private boolean setCdmaBroadcastActivation(boolean activate) {
         if (DBG)
             log("Calling setCdmaBroadcastActivation(" + activate + ")");
 
-        synchronized (mLock) {
-            Message response = mHandler.obtainMessage(EVENT_SET_BROADCAST_ACTIVATION_DONE);
+        return waitForSuccess(getCommands().setCdmaBroadcastActivation(activate),
+                "set cdma broadcast activation");
+    }
 
-            mSuccess = false;
-            mPhone.mCi.setCdmaBroadcastActivation(activate, response);
+    private AsyncCommands getCommands() {
+        return new AsyncCommands(mPhone.mCi, mHandler.getLooper());
+    }
 
-            try {
-                mLock.wait();
-            } catch (InterruptedException e) {
-                log("interrupted while trying to set cdma broadcast activation");
-            }
+    /**
+     * Block the calling binder thread until the request is answered.
+     */
+    private boolean waitForSuccess(CommandFuture<?> request, String what) {
+        try {
+            request.get();
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            log("interrupted while trying to " + what);
+            return false;
         }
-
-        return mSuccess;
     }
 
     protected void log(String msg) {
@@ -1275,4 +1343,8 @@ public class IccSmsInterfaceManager {
         log("getSmsCapacityOnIcc().numberOnIcc = " + numberOnIcc);
         return numberOnIcc;
     }
+
+    public void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        mDispatcher.dump(fd, pw, args);
+    }
 }
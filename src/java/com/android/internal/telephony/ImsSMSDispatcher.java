@@ -31,8 +31,9 @@ import com.android.internal.telephony.cdma.CdmaSMSDispatcher;
 import com.android.internal.telephony.gsm.GsmInboundSmsHandler;
 import com.android.internal.telephony.gsm.GsmSMSDispatcher;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -99,6 +100,13 @@ public final class ImsSMSDispatcher extends SMSDispatcher {
         mCdmaInboundSmsHandler.dispose();
     }
 
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        pw.println("ImsSMSDispatcher send queues:");
+        mGsmDispatcher.dump(fd, pw, args);
+        mCdmaDispatcher.dump(fd, pw, args);
+    }
+
     /**
      * Handles events coming from the phone stack. Overridden from handler.
      *
@@ -288,27 +296,25 @@ public final class ImsSMSDispatcher extends SMSDispatcher {
         }
 
         // format didn't match, need to re-encode.
-        HashMap map = tracker.mData;
+        SmsTrackerData trackerData = tracker.mData;
 
         // to re-encode, fields needed are:  scAddr, destAddr, and
         //   text if originally sent as sendText or
         //   data and destPort if originally sent as sendData.
-        if (!( map.containsKey("scAddr") && map.containsKey("destAddr") &&
-               ( map.containsKey("text") ||
-                       (map.containsKey("data") && map.containsKey("destPort"))))) {
+        if (trackerData.mText == null && trackerData.mUserData == null) {
             // should never come here...
             Rlog.e(TAG, "sendRetrySms failed to re-encode per missing fields!");
             tracker.onFailed(mContext, RESULT_ERROR_GENERIC_FAILURE, 0/*errorCode*/);
             return;
         }
-        String scAddr = (String)map.get("scAddr");
-        String destAddr = (String)map.get("destAddr");
+        String scAddr = trackerData.mScAddr;
+        String destAddr = trackerData.mDestAddr;
 
         SmsMessageBase.SubmitPduBase pdu = null;
         //    figure out from tracker if this was sendText/Data
-        if (map.containsKey("text")) {
+        if (trackerData.mText != null) {
             Rlog.d(TAG, "sms failed was text");
-            String text = (String)map.get("text");
+            String text = trackerData.mText;
 
             if (isCdmaFormat(newFormat)) {
                 Rlog.d(TAG, "old format (gsm) ==> new format (cdma)");
@@ -320,28 +326,27 @@ public final class ImsSMSDispatcher extends SMSDispatcher {
                 pdu = com.android.internal.telephony.gsm.SmsMessage.getSubmitPdu(
                         scAddr, destAddr, text, (tracker.mDeliveryIntent != null), null);
             }
-        } else if (map.containsKey("data")) {
+        } else {
             Rlog.d(TAG, "sms failed was data");
-            byte[] data = (byte[])map.get("data");
-            Integer destPort = (Integer)map.get("destPort");
+            byte[] data = trackerData.mUserData;
+            int destPort = trackerData.mDestPort;
 
             if (isCdmaFormat(newFormat)) {
                 Rlog.d(TAG, "old format (gsm) ==> new format (cdma)");
                 pdu = com.android.internal.telephony.cdma.SmsMessage.getSubmitPdu(
-                            scAddr, destAddr, destPort.intValue(), data,
+                            scAddr, destAddr, destPort, data,
                             (tracker.mDeliveryIntent != null));
                 shouldSendSmsOverIms();
             } else {
                 Rlog.d(TAG, "old format (cdma) ==> new format (gsm)");
                 pdu = com.android.internal.telephony.gsm.SmsMessage.getSubmitPdu(
-                            scAddr, destAddr, destPort.intValue(), data,
+                            scAddr, destAddr, destPort, data,
                             (tracker.mDeliveryIntent != null));
             }
         }
 
         // replace old smsc and pdu with newly encoded ones
-        map.put("smsc", pdu.encodedScAddress);
-        map.put("pdu", pdu.encodedMessage);
+        trackerData.setPdu(pdu);
 
         SMSDispatcher dispatcher = (isCdmaFormat(newFormat)) ?
                 mCdmaDispatcher : mGsmDispatcher;
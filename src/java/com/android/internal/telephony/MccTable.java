@@ -48,6 +48,8 @@ public final class MccTable {
     static final String LOG_TAG = "MccTable";
 
     static ArrayList<MccEntry> sTable;
+    // sTable indexed by MCC, so that lookups do not allocate
+    private static final MccEntry[] sTableByMcc = new MccEntry[1000];
 
     static class MccEntry implements Comparable<MccEntry> {
         final int mMcc;
@@ -70,6 +72,9 @@ public final class MccTable {
     }
 
     private static MccEntry entryForMcc(int mcc) {
+        if (mcc >= 0 && mcc < sTableByMcc.length) {
+            return sTableByMcc[mcc];
+        }
         MccEntry m = new MccEntry(mcc, "", 0);
 
         int index = Collections.binarySearch(sTable, m);
@@ -642,5 +647,11 @@ public final class MccTable {
         //table.add(new MccEntry(901,"",2));	//"International Mobile, shared code"
 
         Collections.sort(sTable);
+        for (MccEntry entry : sTable) {
+            if (entry.mMcc >= 0 && entry.mMcc < sTableByMcc.length
+                    && sTableByMcc[entry.mMcc] == null) {
+                sTableByMcc[entry.mMcc] = entry;
+            }
+        }
     }
 }
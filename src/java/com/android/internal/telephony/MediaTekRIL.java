@@ -2008,6 +2008,7 @@ public class MediaTekRIL extends RIL implements CommandsInterface {
                             // End-of-stream reached
                             break;
                         }
+                        record(RilTrace.DIRECTION_RESPONSE, buffer, length);
                         p = Parcel.obtain();
                         p.unmarshall(buffer, 0, length);
                         p.setDataPosition(0);
@@ -2870,19 +2871,24 @@ public class MediaTekRIL extends RIL implements CommandsInterface {
 
         ret = new ArrayList<OperatorInfo>(strings.length / 5);
 
+        // Networks are listed once per radio technology, look names up once
+        int subId = SubscriptionManager.getSubIdUsingPhoneId(mInstanceId);
+        SpnOverride.OperatorNameLookup names =
+                SpnOverride.getInstance().newOperatorNameLookup(subId, mContext);
+
         for (int i = 0 ; i < strings.length ; i += 5) {
             /* Default display manufacturer maintained operator name table */
             if (strings[i + 2] != null) {
-                strings[i + 0] = SpnOverride.getInstance().lookupOperatorName(SubscriptionManager.getSubIdUsingPhoneId(mInstanceId), strings[i + 2], true, mContext);
-                strings[i + 1] = SpnOverride.getInstance().lookupOperatorName(SubscriptionManager.getSubIdUsingPhoneId(mInstanceId), strings[i + 2], false, mContext);
+                strings[i + 0] = names.lookupOperatorName(strings[i + 2], true);
+                strings[i + 1] = names.lookupOperatorName(strings[i + 2], false);
                 riljLog("lookup RIL responseOperator(), longAlpha= " + strings[i + 0] + ",shortAlpha= " + strings[i + 1] + ",numeric=" + strings[i + 2]);
             }
 
             String longName = null;
             String shortName = null;
             /* Operator name from network MM information has higher priority to display */
-            longName = lookupOperatorNameFromNetwork(SubscriptionManager.getSubIdUsingPhoneId(mInstanceId), strings[i + 2], true);
-            shortName = lookupOperatorNameFromNetwork(SubscriptionManager.getSubIdUsingPhoneId(mInstanceId), strings[i + 2], false);
+            longName = lookupOperatorNameFromNetwork(subId, strings[i + 2], true);
+            shortName = lookupOperatorNameFromNetwork(subId, strings[i + 2], false);
             if (longName != null) {
                 strings[i + 0] = longName;
             }
@@ -3071,6 +3077,9 @@ public class MediaTekRIL extends RIL implements CommandsInterface {
 
         ret = new ArrayList<FemtoCellInfo>(strings.length / 6);
 
+        SpnOverride.OperatorNameLookup names = SpnOverride.getInstance().newOperatorNameLookup(
+                SubscriptionManager.getSubIdUsingPhoneId(mInstanceId), mContext);
+
         /* <plmn numeric>,<act>,<plmn long alpha name>,<csgId>,,csgIconType>,<hnbName> */
         for (int i = 0 ; i < strings.length ; i += 6) {
             String actStr;
@@ -3091,7 +3100,7 @@ public class MediaTekRIL extends RIL implements CommandsInterface {
 
             if (strings[i + 1] != null && (strings[i + 1].equals("") || strings[i + 1].equals(strings[i + 0]))) {
                 Rlog.d(RILJ_LOG_TAG, "lookup RIL responseFemtoCellInfos() for plmn id= " + strings[i + 0]);
-                strings[i + 1] = SpnOverride.getInstance().lookupOperatorName(SubscriptionManager.getSubIdUsingPhoneId(mInstanceId), strings[i + 0], true, mContext);
+                strings[i + 1] = names.lookupOperatorName(strings[i + 0], true);
             }
 
             if (strings[i + 2].equals("7")) {
@@ -4363,6 +4372,9 @@ public class MediaTekRIL extends RIL implements CommandsInterface {
 
         ret = new ArrayList<NetworkInfoWithAcT>(strings.length / 4);
 
+        SpnOverride.OperatorNameLookup names = SpnOverride.getInstance().newOperatorNameLookup(
+                SubscriptionManager.getSubIdUsingPhoneId(mInstanceId), mContext);
+
         String strOperName = null;
         String strOperNumeric = null;
         int nAct = 0;
@@ -4387,7 +4399,7 @@ public class MediaTekRIL extends RIL implements CommandsInterface {
                     case 2:
                         if (strings[i + 2] != null) {
                             strOperNumeric = strings[i + 2];
-                            strOperName = SpnOverride.getInstance().lookupOperatorName(SubscriptionManager.getSubIdUsingPhoneId(mInstanceId), strings[i + 2], true, mContext);
+                            strOperName = names.lookupOperatorName(strings[i + 2], true);
                         }
                         break;
                     default:
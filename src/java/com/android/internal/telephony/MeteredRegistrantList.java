@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.os.AsyncResult;
+import android.os.Handler;
+import android.os.Message;
+import android.os.Registrant;
+import android.os.RegistrantList;
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * RegistrantList of an indication of the RIL that keeps track of the
+ * notifications still queued on the handler of each registrant.
+ *
+ * Notifying only posts messages, so the thread reading the rild socket never
+ * runs registrant code; a slow registrant instead accumulates messages on its
+ * looper. The queue depth and the age of the oldest queued notification of
+ * each registrant are tracked, which tells which registrant lags behind under
+ * bursty unsolicited load. Each notification is posted wrapped in a
+ * {@link Delivery} that leaves the pending ones of its registrant when it
+ * runs, so the message queue of the handler is never searched.
+ *
+ * Lists of indications that only tell the registrant to query the new state,
+ * or carry the complete new state, may coalesce: a notification still queued
+ * when the next one is sent is dropped, so a registrant receives at most one
+ * pending notification however fast the modem sends them.
+ *
+ * {@hide}
+ */
+public class MeteredRegistrantList extends RegistrantList {
+    /** Deliver every notification. */
+    public static final int POLICY_DELIVER_ALL = 0;
+    /** Replace a notification still queued by the newer one. */
+    public static final int POLICY_COALESCE = 1;
+
+    private static class Queue {
+        // Notifications posted and not handled yet, oldest first
+        final ArrayDeque<Delivery> mPending = new ArrayDeque<Delivery>();
+        int mWhat;
+        String mHandlerName;
+        int mSent;
+        int mCoalesced;
+        int mMaxDepth;
+        long mMaxLag;
+    }
+
+    /**
+     * A notification posted to the handler of a registrant, which hands the
+     * message of the registrant to the handler when it runs.
+     */
+    private class Delivery implements Runnable {
+        final Queue mQueue;
+        final Message mMsg;
+        final long mSentTime;
+        // Replaced by a newer notification before it ran
+        boolean mCoalesced;
+
+        Delivery(Queue queue, Message msg, long sentTime) {
+            mQueue = queue;
+            mMsg = msg;
+            mSentTime = sentTime;
+        }
+
+        @Override
+        public void run() {
+            synchronized (MeteredRegistrantList.this) {
+                if (mCoalesced) {
+                    return;
+                }
+                // Notifications of a registrant are handled in order, this
+                // is the first one
+                mQueue.mPending.remove(this);
+            }
+            mMsg.getTarget().dispatchMessage(mMsg);
+        }
+    }
+
+    private final String mName;
+    private final int mPolicy;
+    private final WeakHashMap<Registrant, Queue> mQueues = new WeakHashMap<Registrant, Queue>();
+    private int mNotified;
+
+    public MeteredRegistrantList(String name, int policy) {
+        mName = name;
+        mPolicy = policy;
+    }
+
+    @Override
+    public void notifyRegistrants() {
+        deliver(null, null);
+    }
+
+    @Override
+    public void notifyException(Throwable exception) {
+        deliver(null, exception);
+    }
+
+    @Override
+    public void notifyResult(Object result) {
+        deliver(result, null);
+    }
+
+    @Override
+    public void notifyRegistrants(AsyncResult ar) {
+        deliver(ar.result, ar.exception);
+    }
+
+    private synchronized void deliver(Object result, Throwable exception) {
+        mNotified++;
+        long now = SystemClock.uptimeMillis();
+        for (int i = 0, s = size(); i < s; i++) {
+            Registrant r = (Registrant) get(i);
+            Message msg = r.messageForRegistrant();
+            if (msg == null) {
+                // The handler was garbage collected
+                continue;
+            }
+            Handler h = msg.getTarget();
+            Queue queue = mQueues.get(r);
+            if (queue == null) {
+                queue = new Queue();
+                queue.mWhat = msg.what;
+                queue.mHandlerName = h.getClass().getName();
+                mQueues.put(r, queue);
+            }
+
+            if (!queue.mPending.isEmpty()) {
+                queue.mMaxLag = Math.max(queue.mMaxLag,
+                        now - queue.mPending.peekFirst().mSentTime);
+                if (mPolicy == POLICY_COALESCE) {
+                    // Left on the looper, where they run without delivering
+                    for (Delivery pending : queue.mPending) {
+                        pending.mCoalesced = true;
+                        queue.mCoalesced++;
+                    }
+                    queue.mPending.clear();
+                }
+            }
+
+            msg.obj = new AsyncResult(msg.obj, result, exception);
+            Delivery delivery = new Delivery(queue, msg, now);
+            // Fails when the looper of the handler is exiting
+            if (h.post(delivery)) {
+                queue.mPending.addLast(delivery);
+                queue.mMaxDepth = Math.max(queue.mMaxDepth, queue.mPending.size());
+                queue.mSent++;
+            }
+        }
+    }
+
+    public synchronized void dump(PrintWriter pw) {
+        if (mNotified == 0) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        pw.println("  " + mName + (mPolicy == POLICY_COALESCE ? " (coalesce)" : "")
+                + " notified=" + mNotified);
+        for (Map.Entry<Registrant, Queue> entry : mQueues.entrySet()) {
+            Queue queue = entry.getValue();
+            // Notifications still queued and the age of the oldest one
+            int depth = queue.mPending.size();
+            long lag = depth > 0 ? now - queue.mPending.peekFirst().mSentTime : 0;
+            pw.println("   " + queue.mHandlerName + " what=" + queue.mWhat + " sent=" + queue.mSent
+                    + " coalesced=" + queue.mCoalesced + " queued=" + depth
+                    + " lag=" + lag + " maxQueued=" + queue.mMaxDepth
+                    + " maxLag=" + queue.mMaxLag);
+        }
+    }
+}
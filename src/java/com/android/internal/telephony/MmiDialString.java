@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Classification of a dial string as described in TS 22.030 6.5.3.2, done
+ * in a single pass over the string.
+ *
+ * A supplementary service code has the structure of TS 22.030 6.5.2:
+ * <pre>
+ *   action service-code [*SIA [*SIB [*SIC [*PWD]]]] # [dialing-number]
+ * </pre>
+ * where the action is one of *, #, *#, ** or ## and the service code has two
+ * or three digits. The fields are the same as the groups of the regular
+ * expression the MMI codes used to match, with empty fields reported as
+ * null.
+ *
+ * Whether a short code is sent as USSD also depends on the call state and
+ * the emergency numbers, which is left to the caller.
+ *
+ * {@hide}
+ */
+public class MmiDialString {
+    /** A number to call, or the empty string. */
+    public static final int TYPE_NUMBER = 0;
+    /** A supplementary service code, possibly followed by a number. */
+    public static final int TYPE_SUPP_SERVICE = 1;
+    /** A string ending with # that is not a supplementary service code. */
+    public static final int TYPE_USSD = 2;
+    /** A string of one or two characters, a USSD short code if the caller says so. */
+    public static final int TYPE_SHORT_CODE = 3;
+
+    private static final int MAX_LENGTH_SHORT_CODE = 2;
+    private static final int MAX_FIELDS = 4;
+
+    private static HashSet<String> sTwoDigitNumbers;
+
+    private final int[] mFieldStart = new int[MAX_FIELDS];
+    private final int[] mFieldEnd = new int[MAX_FIELDS];
+
+    private String mDialString;
+    private int mType;
+    private boolean mSuppService;
+    private int mActionEnd;
+    private int mScEnd;
+    private int mFields;
+    private int mPoundEnd;
+
+    /**
+     * @return the classification of a dial string
+     */
+    public static MmiDialString parse(String dialString) {
+        MmiDialString mmi = new MmiDialString();
+        mmi.scan(dialString);
+        return mmi;
+    }
+
+    /**
+     * Classify a dial string, replacing the previous result.
+     *
+     * @return the type of the dial string
+     */
+    public int scan(String dialString) {
+        mDialString = dialString;
+        mFields = 0;
+        mSuppService = dialString != null && scanSuppService(dialString);
+
+        if (dialString == null || dialString.length() == 0) {
+            mType = TYPE_NUMBER;
+        } else if (mSuppService) {
+            // According to TS 22.030 6.5.2 "Structure of the MMI", the dialing
+            // number should not end with #. Such a string is a USSD, eg,
+            // *400#16 digit number# to recharge the prepaid card in India
+            // operator(Mumbai MTNL)
+            mType = mPoundEnd < dialString.length() && dialString.endsWith("#")
+                    ? TYPE_USSD : TYPE_SUPP_SERVICE;
+        } else if (dialString.endsWith("#")) {
+            mType = TYPE_USSD;
+        } else if (dialString.length() <= MAX_LENGTH_SHORT_CODE) {
+            mType = TYPE_SHORT_CODE;
+        } else {
+            mType = TYPE_NUMBER;
+        }
+        return mType;
+    }
+
+    private boolean scanSuppService(String s) {
+        int length = s.length();
+        // Action, two digits of service code and #
+        if (length < 4) {
+            return false;
+        }
+
+        char action = s.charAt(0);
+        if (action != '*' && action != '#') {
+            return false;
+        }
+        int i = 1;
+        char c = s.charAt(1);
+        if (c == '*' || c == '#') {
+            if (action == '#' && c == '*') {
+                return false;
+            }
+            i++;
+        }
+        mActionEnd = i;
+
+        while (i < length && isDigit(s.charAt(i))) {
+            i++;
+        }
+        int scLength = i - mActionEnd;
+        if (scLength < 2 || scLength > 3) {
+            return false;
+        }
+        mScEnd = i;
+
+        while (i < length && s.charAt(i) == '*') {
+            if (mFields == MAX_FIELDS) {
+                return false;
+            }
+            mFieldStart[mFields] = ++i;
+            while (i < length && (c = s.charAt(i)) != '*' && c != '#') {
+                i++;
+            }
+            mFieldEnd[mFields++] = i;
+        }
+        if (i == length || s.charAt(i) != '#') {
+            return false;
+        }
+        mPoundEnd = ++i;
+
+        // The dialing number is anything up to a line terminator
+        for (; i < length; i++) {
+            c = s.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    /**
+     * @return true if the dial string has the structure of a supplementary
+     *         service code, whatever its type
+     */
+    public boolean isSuppService() {
+        return mSuppService;
+    }
+
+    /** @return the code up to and including the # */
+    public String getPoundString() {
+        return mSuppService ? mDialString.substring(0, mPoundEnd) : null;
+    }
+
+    /** @return the action: activation, deactivation, interrogation, registration or erasure */
+    public String getAction() {
+        return mSuppService ? mDialString.substring(0, mActionEnd) : null;
+    }
+
+    public String getServiceCode() {
+        return mSuppService ? mDialString.substring(mActionEnd, mScEnd) : null;
+    }
+
+    public String getSia() {
+        return getField(0);
+    }
+
+    public String getSib() {
+        return getField(1);
+    }
+
+    public String getSic() {
+        return getField(2);
+    }
+
+    /** @return the fourth field, the confirmation of a new password */
+    public String getPwd() {
+        return getField(3);
+    }
+
+    /** @return the number after the code, null if none */
+    public String getDialingNumber() {
+        if (!mSuppService || mPoundEnd == mDialString.length()) {
+            return null;
+        }
+        return mDialString.substring(mPoundEnd);
+    }
+
+    private String getField(int index) {
+        if (!mSuppService || index >= mFields || mFieldStart[index] == mFieldEnd[index]) {
+            return null;
+        }
+        return mDialString.substring(mFieldStart[index], mFieldEnd[index]);
+    }
+
+    /**
+     * @return true if the dial string is one of the country specific two
+     *         digit numbers that are called rather than sent as short codes
+     */
+    public static boolean isTwoDigitNumber(Context context, String dialString) {
+        if (dialString == null || dialString.length() > MAX_LENGTH_SHORT_CODE) {
+            return false;
+        }
+        HashSet<String> numbers;
+        synchronized (MmiDialString.class) {
+            if (sTwoDigitNumbers == null) {
+                sTwoDigitNumbers = new HashSet<String>(Arrays.asList(
+                        context.getResources().getStringArray(
+                                com.android.internal.R.array.config_twoDigitNumberPattern)));
+            }
+            numbers = sTwoDigitNumbers;
+        }
+        return numbers.contains(dialString);
+    }
+
+    @Override
+    public String toString() {
+        return "MmiDialString{type=" + mType + " sc=" + getServiceCode() + "}";
+    }
+}
@@ -22,6 +22,7 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.net.LocalServerSocket;
+import android.os.SystemClock;
 import android.os.SystemProperties;
 import android.os.UserHandle;
 import android.provider.Settings;
@@ -43,6 +44,7 @@ import com.android.internal.telephony.sip.SipPhone;
 import com.android.internal.telephony.sip.SipPhoneFactory;
 import com.android.internal.telephony.uicc.IccCardProxy;
 import com.android.internal.telephony.uicc.UiccController;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.util.IndentingPrintWriter;
 
 import com.mediatek.internal.telephony.NetworkManager;
@@ -105,6 +107,9 @@ public class PhoneFactory {
 
     static private IWorldPhone sWorldPhone = null;
 
+    // Duration of each stage of makeDefaultPhone, for dump
+    static private String sBringUpTimings = null;
+
     /* C2K support start */
     static final String EVDO_DT_SUPPORT = "ril.evdo.dtsupport";
 
@@ -132,6 +137,7 @@ public class PhoneFactory {
         synchronized (sLockProxyPhones) {
             if (!sMadeDefaults) {
                 sContext = context;
+                StageTimer timer = new StageTimer();
 
                 // create the telephony device controller.
                 TelephonyDevController.create();
@@ -161,6 +167,8 @@ public class PhoneFactory {
                     }
                 }
 
+                timer.mark("socket");
+
                 sPhoneNotifier = new DefaultPhoneNotifier();
 
                 // Get preferred network mode
@@ -252,29 +260,21 @@ public class PhoneFactory {
                     Rlog.i(LOG_TAG, "RILJ Sub = " + i);
                     Rlog.i(LOG_TAG, "capabilityPhoneId=" + capabilityPhoneId
                             + " Network Mode set to " + Integer.toString(networkModes[i]));
-
-                    // Use reflection to construct the RIL class (defaults to RIL)
-                    try {
-                        sCommandsInterfaces[i] = instantiateCustomRIL(
-                                                     sRILClassname, context, networkModes[i], cdmaSubscription, i);
-                    } catch (Exception e) {
-                        // 6 different types of exceptions are thrown here that it's
-                        // easier to just catch Exception as our "error handling" is the same.
-                        // Yes, we're blocking the whole thing and making the radio unusable. That's by design.
-                        // The log message should make it clear why the radio is broken
-                        while (true) {
-                            Rlog.e(LOG_TAG, "Unable to construct custom RIL class", e);
-                            try {Thread.sleep(10000);} catch (InterruptedException ie) {}
-                        }
-                    }
                 }
+                timer.mark("networkModes");
+
+                makeCommandsInterfaces(sRILClassname, context, networkModes, cdmaSubscription,
+                        timer);
+
                 Rlog.i(LOG_TAG, "Creating SubscriptionController");
                 TelephonyPluginDelegate.getInstance().initSubscriptionController(context,
                         sCommandsInterfaces);
+                timer.mark("subscriptionController");
 
                 // Instantiate UiccController so that all other classes can just
                 // call getInstance()
                 mUiccController = UiccController.make(context, sCommandsInterfaces);
+                timer.mark("uiccController");
 
                 // MTK-START, Refine SVLTE remote SIM APP type, 2015/04/29
                 // MTK TODO
@@ -288,10 +288,12 @@ public class PhoneFactory {
                 mRadioManager = RadioManager.init(context, numPhones, sCommandsInterfaces);
                 //MTK-END [mtk06800] create RadioManager for proprietary power on flow
                 mNetworkManager = NetworkManager.init(context, numPhones, sCommandsInterfaces);
+                timer.mark("radioManager");
 
                 // MTK SVLTE
                 if (CdmaFeatureOptionUtils.isCdmaLteDcSupport()) {
                     svlteInit(context);
+                    timer.mark("phones");
                 } else {
                 for (int i = 0; i < numPhones; i++) {
                     PhoneBase phone = null;
@@ -306,6 +308,7 @@ public class PhoneFactory {
                     Rlog.i(LOG_TAG, "Creating Phone with type = " + phoneType + " sub = " + i);
 
                     sProxyPhones[i] = TelephonyPluginDelegate.getInstance().makePhoneProxy(phone);
+                    timer.mark("phone[" + i + "]");
                 }
                 }  // MTK
                 mProxyController = ProxyController.getInstance(context, sProxyPhones,
@@ -316,6 +319,7 @@ public class PhoneFactory {
                 // FIXME: needs to be done in a more controlled manner in the future.
                 sProxyPhone = sProxyPhones[0];
                 sCommandsInterface = sCommandsInterfaces[0];
+                timer.mark("proxyController");
 
                 // Ensure that we have a default SMS app. Requesting the app with
                 // updateIfNeeded set to true is enough to configure a default SMS app.
@@ -329,6 +333,7 @@ public class PhoneFactory {
 
                 // Set up monitor to watch for changes to SMS packages
                 SmsApplication.initSmsPackageMonitor(context);
+                timer.mark("smsApplication");
 
                 sMadeDefaults = true;
 
@@ -336,6 +341,7 @@ public class PhoneFactory {
                 sSubInfoRecordUpdater = TelephonyPluginDelegate.getInstance().
                         makeSubscriptionInfoUpdater(context, sProxyPhones, sCommandsInterfaces);
                 SubscriptionController.getInstance().updatePhonesAvailability(sProxyPhones);
+                timer.mark("subInfoRecordUpdater");
 
                 TelephonyPluginDelegate.getInstance().
                         initExtTelephonyClasses(context, sProxyPhones, sCommandsInterfaces);
@@ -352,6 +358,7 @@ public class PhoneFactory {
                         sProxyPhones[i].setPreferredNetworkType(userNwType, null);
                     }
                 }
+                timer.mark("imsService");
 
                 // MTK
                 //[WorldMode]
@@ -364,10 +371,134 @@ public class PhoneFactory {
                 } else {
                     Rlog.i(LOG_TAG, "World phone not support");
                 }
+                timer.mark("worldPhone");
+
+                sBringUpTimings = timer.toString();
+                Rlog.i(LOG_TAG, "Phones made: " + sBringUpTimings);
+            }
+        }
+    }
+
+    /**
+     * Create the RIL of every slot. Each RIL connects to its own rild socket
+     * and starts its own threads, so the RILs of slots other than the first
+     * are created on worker threads while the first one is created here.
+     * The phones are Handlers of the calling thread and are still made one
+     * after the other once all RILs exist.
+     */
+    private static void makeCommandsInterfaces(final String rilClassname, final Context context,
+            final int[] networkModes, final int cdmaSubscription, StageTimer timer) {
+        final int numPhones = networkModes.length;
+        Exception[] errors = new Exception[numPhones];
+        long[] durations = new long[numPhones];
+
+        makeConcurrently(new SlotFactory<CommandsInterface>() {
+            @Override
+            public CommandsInterface make(int phoneId) throws Exception {
+                // Use reflection to construct the RIL class (defaults to RIL)
+                return instantiateCustomRIL(rilClassname, context, networkModes[phoneId],
+                        cdmaSubscription, phoneId);
+            }
+        }, sCommandsInterfaces, errors, durations);
+
+        for (int i = 0; i < numPhones; i++) {
+            if (errors[i] != null) {
+                // 6 different types of exceptions are thrown here that it's
+                // easier to just catch Exception as our "error handling" is the same.
+                // Yes, we're blocking the whole thing and making the radio unusable. That's by design.
+                // The log message should make it clear why the radio is broken
+                while (true) {
+                    Rlog.e(LOG_TAG, "Unable to construct custom RIL class", errors[i]);
+                    try {Thread.sleep(10000);} catch (InterruptedException ie) {}
+                }
+            }
+        }
+        for (int i = 0; i < numPhones; i++) {
+            timer.add("ril[" + i + "]", durations[i]);
+        }
+        timer.mark("rils");
+    }
+
+    /**
+     * Makes the object of one slot for {@link #makeConcurrently}.
+     */
+    interface SlotFactory<T> {
+        T make(int phoneId) throws Exception;
+    }
+
+    /**
+     * Make the objects of all slots, slot 0 on the calling thread and every
+     * other slot on a worker thread, and return once all of them are done.
+     * A slot that throws is left null in {@code results} and its exception is
+     * stored in {@code errors}, the other slots are still made.
+     */
+    @VisibleForTesting
+    static <T> void makeConcurrently(final SlotFactory<T> factory, final T[] results,
+            final Exception[] errors, final long[] durations) {
+        final int numSlots = results.length;
+        Thread[] workers = new Thread[numSlots];
+
+        for (int i = 1; i < numSlots; i++) {
+            final int phoneId = i;
+            workers[i] = new Thread("MakeSlot" + i) {
+                @Override
+                public void run() {
+                    makeSlot(factory, phoneId, results, errors, durations);
+                }
+            };
+            workers[i].start();
+        }
+        makeSlot(factory, 0, results, errors, durations);
+
+        for (int i = 1; i < numSlots; i++) {
+            boolean joined = false;
+            while (!joined) {
+                try {
+                    workers[i].join();
+                    joined = true;
+                } catch (InterruptedException e) {
+                }
             }
         }
     }
 
+    private static <T> void makeSlot(SlotFactory<T> factory, int phoneId, T[] results,
+            Exception[] errors, long[] durations) {
+        long start = SystemClock.elapsedRealtime();
+        try {
+            results[phoneId] = factory.make(phoneId);
+        } catch (Exception e) {
+            errors[phoneId] = e;
+        }
+        durations[phoneId] = SystemClock.elapsedRealtime() - start;
+    }
+
+    /**
+     * Records how long each stage of makeDefaultPhone took.
+     */
+    private static class StageTimer {
+        private final long mStart = SystemClock.elapsedRealtime();
+        private long mLast = mStart;
+        private final StringBuilder mStages = new StringBuilder();
+
+        /** End the current stage. */
+        void mark(String stage) {
+            long now = SystemClock.elapsedRealtime();
+            add(stage, now - mLast);
+            mLast = now;
+        }
+
+        /** Record a duration measured elsewhere, without ending the current stage. */
+        void add(String stage, long duration) {
+            mStages.append(stage).append('=').append(duration).append("ms ");
+        }
+
+        @Override
+        public String toString() {
+            return mStages.toString() + "total=" + (mLast - mStart) + "ms";
+        }
+    }
+
     public static Phone getCdmaPhone(int phoneId) {
         Phone phone;
         synchronized(PhoneProxy.lockForRadioTechnologyChange) {
@@ -670,6 +801,10 @@ public class PhoneFactory {
 
     public static void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
         pw.println("PhoneFactory:");
+        pw.println(" bringUp: " + sBringUpTimings);
+        if (sPhoneNotifier instanceof DefaultPhoneNotifier) {
+            ((DefaultPhoneNotifier) sPhoneNotifier).dump(fd, pw, args);
+        }
         PhoneProxy [] phones = (PhoneProxy[])PhoneFactory.getPhones();
         int i = -1;
         for(PhoneProxy phoneProxy : phones) {
@@ -45,6 +45,7 @@ import android.os.Message;
 import android.os.Parcel;
 import android.os.PowerManager;
 import android.os.BatteryManager;
+import android.os.Build;
 import android.os.SystemProperties;
 import android.os.PowerManager.WakeLock;
 import android.os.SystemClock;
@@ -86,7 +87,10 @@ import com.mediatek.internal.telephony.cdma.CdmaFeatureOptionUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
@@ -269,6 +273,9 @@ public class RIL extends BaseCommands implements CommandsInterface {
     RILSender mSender;
     Thread mReceiverThread;
     RILReceiver mReceiver;
+    RilTrace.Writer mRecorder;
+    long mRecorderFlushTime;
+    RilReplayer mReplayer;
     Display mDefaultDisplay;
     int mDefaultDisplayState = Display.STATE_UNKNOWN;
     int mRadioScreenState = RADIO_SCREEN_UNSET;
@@ -307,6 +314,16 @@ public class RIL extends BaseCommands implements CommandsInterface {
 
     static final String[] SOCKET_NAME_RIL = {"rild", "rild2", "rild3"};
 
+    // Directory to record the traffic with rild to, one RilTrace file per RIL.
+    // Like the properties below, only read on debuggable builds.
+    static final String PROPERTY_RIL_RECORD = "telephony.test.ril_record";
+    // Directory of RilTrace files to replay instead of connecting to rild
+    static final String PROPERTY_RIL_REPLAY = "telephony.test.ril_replay";
+    // Replay speed, 1 for the recorded timing and 0 for as fast as possible
+    static final String PROPERTY_RIL_REPLAY_SPEED = "telephony.test.ril_replay_speed";
+    // Longest time recorded frames stay in the buffer of the recording
+    static final long RIL_RECORD_FLUSH_MILLIS = 10 * 1000;
+
     static final int SOCKET_OPEN_RETRY_MILLIS = 4 * 1000;
 
     // The number of the required config values for broadcast SMS stored in the C struct
@@ -383,6 +400,16 @@ public class RIL extends BaseCommands implements CommandsInterface {
 
                         s = mSocket;
 
+                        if (mReplayer != null) {
+                            synchronized (mRequestList) {
+                                mRequestList.append(rr.mSerial, rr);
+                            }
+                            rr.mParcel.recycle();
+                            rr.mParcel = null;
+                            mReplayer.onRequest(rr.mRequest, rr.mSerial);
+                            return;
+                        }
+
                         if (s == null) {
                             rr.onError(RADIO_NOT_AVAILABLE, null);
                             rr.release();
@@ -413,6 +440,7 @@ public class RIL extends BaseCommands implements CommandsInterface {
 
                         //Rlog.v(RILJ_LOG_TAG, "writing packet: " + data.length + " bytes");
 
+                        record(RilTrace.DIRECTION_REQUEST, data, data.length);
                         s.getOutputStream().write(dataLength);
                         s.getOutputStream().write(data);
                     } catch (IOException ex) {
@@ -623,6 +651,7 @@ public class RIL extends BaseCommands implements CommandsInterface {
                             break;
                         }
 
+                        record(RilTrace.DIRECTION_RESPONSE, buffer, length);
                         p = Parcel.obtain();
                         p.unmarshall(buffer, 0, length);
                         p.setDataPosition(0);
@@ -642,6 +671,7 @@ public class RIL extends BaseCommands implements CommandsInterface {
 
                 Rlog.i(RILJ_LOG_TAG, "(" + mInstanceId + ") Disconnected from '" + rilSocket
                       + "' socket");
+                flushRecording();
 
                 setRadioState (RadioState.RADIO_UNAVAILABLE);
 
@@ -693,6 +723,8 @@ public class RIL extends BaseCommands implements CommandsInterface {
                 DEFAULT_WAKE_LOCK_TIMEOUT);
         mWakeLockCount = 0;
 
+        setUpTrace();
+
         ///M: SVLTE solution2 C2K RIL connect/disconnect  control. @{
         if (CdmaFeatureOptionUtils.isCdmaLteDcSupport()) {
             if (mPreferredNetworkType != RILConstants.NETWORK_MODE_CDMA) {
@@ -701,7 +733,8 @@ public class RIL extends BaseCommands implements CommandsInterface {
             DisplayManager dm = (DisplayManager)context.getSystemService(
                     Context.DISPLAY_SERVICE);
             mDefaultDisplay = dm.getDisplay(Display.DEFAULT_DISPLAY);
-            dm.registerDisplayListener(mDisplayListener, null);
+            // The RIL may be created off the main thread, see PhoneFactory
+            dm.registerDisplayListener(mDisplayListener, new Handler(context.getMainLooper()));
         } else {
             mSenderThread = new HandlerThread("RILSender" + mInstanceId);
             mSenderThread.start();
@@ -715,14 +748,15 @@ public class RIL extends BaseCommands implements CommandsInterface {
                 riljLog("Not starting RILReceiver: wifi-only");
             } else {
                 riljLog("Starting RILReceiver" + mInstanceId);
-                mReceiver = createRILReceiver();
+                mReceiver = mReplayer != null ? new ReplayReceiver() : createRILReceiver();
                 mReceiverThread = new Thread(mReceiver, "RILReceiver" + mInstanceId);
                 mReceiverThread.start();
 
                 DisplayManager dm = (DisplayManager)context.getSystemService(
                         Context.DISPLAY_SERVICE);
                 mDefaultDisplay = dm.getDisplay(Display.DEFAULT_DISPLAY);
-                dm.registerDisplayListener(mDisplayListener, null);
+                dm.registerDisplayListener(mDisplayListener,
+                        new Handler(context.getMainLooper()));
                 mDefaultDisplayState = mDefaultDisplay.getState();
 
                 IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
@@ -749,6 +783,87 @@ public class RIL extends BaseCommands implements CommandsInterface {
         return new RILReceiver();
     }
 
+    /**
+     * Receiver feeding the trace of mReplayer instead of reading rild.
+     */
+    protected class ReplayReceiver extends RILReceiver {
+        @Override
+        public void run() {
+            mReplayer.run();
+        }
+    }
+
+    private void setUpTrace() {
+        if (!Build.IS_DEBUGGABLE) {
+            return;
+        }
+        String name = "ril" + (mInstanceId == null ? 0 : mInstanceId) + ".trace";
+        String replayDir = SystemProperties.get(PROPERTY_RIL_REPLAY, "");
+        if (!replayDir.isEmpty()) {
+            File file = new File(replayDir, name);
+            float speed = 1;
+            try {
+                speed = Float.parseFloat(SystemProperties.get(PROPERTY_RIL_REPLAY_SPEED, "1"));
+            } catch (NumberFormatException e) {
+                riljLog("Invalid replay speed, using 1");
+            }
+            try {
+                mReplayer = new RilReplayer(this,
+                        new RilTrace.Reader(new FileInputStream(file)), speed);
+                riljLog("Replaying " + file + " speed=" + speed);
+                return;
+            } catch (IOException e) {
+                Rlog.e(RILJ_LOG_TAG, "Cannot replay " + file, e);
+            }
+        }
+
+        String recordDir = SystemProperties.get(PROPERTY_RIL_RECORD, "");
+        if (!recordDir.isEmpty()) {
+            File file = new File(recordDir, name);
+            try {
+                mRecorderFlushTime = SystemClock.elapsedRealtime();
+                mRecorder = new RilTrace.Writer(new FileOutputStream(file),
+                        SystemClock.elapsedRealtimeNanos() / 1000);
+                riljLog("Recording to " + file);
+            } catch (IOException e) {
+                Rlog.e(RILJ_LOG_TAG, "Cannot record to " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Append a parcel exchanged with rild to the recording, if any, so that
+     * it reaches the file within RIL_RECORD_FLUSH_MILLIS.
+     */
+    protected void record(int direction, byte[] data, int length) {
+        RilTrace.Writer recorder = mRecorder;
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.write(direction, SystemClock.elapsedRealtimeNanos() / 1000, data, 0, length);
+            long now = SystemClock.elapsedRealtime();
+            if (now - mRecorderFlushTime >= RIL_RECORD_FLUSH_MILLIS) {
+                mRecorderFlushTime = now;
+                recorder.flush();
+            }
+        } catch (IOException e) {
+            Rlog.e(RILJ_LOG_TAG, "Recording failed, stopped", e);
+            mRecorder = null;
+        }
+    }
+
+    protected void flushRecording() {
+        RilTrace.Writer recorder = mRecorder;
+        if (recorder != null) {
+            try {
+                recorder.flush();
+            } catch (IOException e) {
+                Rlog.e(RILJ_LOG_TAG, "Recording failed", e);
+            }
+        }
+    }
+
     //***** CommandsInterface implementation
 
     @Override
@@ -2672,6 +2787,20 @@ public class RIL extends BaseCommands implements CommandsInterface {
         }
     }
 
+    /**
+     * Fail the request with the given serial, if it is still pending.
+     */
+    void failRequest(int serial, int error) {
+        RILRequest rr = findAndRemoveRequestFromList(serial);
+        if (rr != null) {
+            if (RILJ_LOGD) riljLog(rr.serialString() + "< " + requestToString(rr.mRequest)
+                    + " failed with " + error);
+            rr.onError(error, null);
+            rr.release();
+            decrementWakeLock();
+        }
+    }
+
     protected RILRequest findAndRemoveRequestFromList(int serial) {
         RILRequest rr = null;
         synchronized (mRequestList) {
@@ -5257,6 +5386,11 @@ public class RIL extends BaseCommands implements CommandsInterface {
         }
         pw.println(" mLastNITZTimeInfo=" + mLastNITZTimeInfo);
         pw.println(" mTestingEmergencyCall=" + mTestingEmergencyCall.get());
+        if (mRecorder != null) {
+            pw.println(" recorded frames=" + mRecorder.getFrameCount());
+            flushRecording();
+        }
+        dumpRegistrants(pw);
     }
 
     /**
@@ -5658,7 +5792,7 @@ public class RIL extends BaseCommands implements CommandsInterface {
         mSender = new RILSender(looper);
 
         riljLog("Starting RILReceiver" + mInstanceId);
-        mReceiver = new RILReceiver();
+        mReceiver = mReplayer != null ? new ReplayReceiver() : createRILReceiver();
         mReceiverThread = new Thread(mReceiver, "RILReceiver" + mInstanceId);
         mReceiverThread.start();
     }
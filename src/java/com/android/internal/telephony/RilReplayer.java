@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.telephony.Rlog;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Feeds a {@link RilTrace} to a {@link RIL} in place of rild.
+ *
+ * Indications are delivered at their recorded time divided by the speed, or
+ * as fast as possible with a speed of 0. A recorded response is delivered
+ * once the RIL sent a request of the same kind, with the serial of that
+ * request, so the replay follows the code under test rather than the
+ * recording; a response no request shows up for within
+ * {@link #REQUEST_WAIT_MS} is skipped. Requests are never sent anywhere,
+ * and a request the rest of the trace has no response for fails right away.
+ *
+ * {@hide}
+ */
+class RilReplayer implements Runnable {
+    private static final String LOG_TAG = "RilReplayer";
+    private static final long REQUEST_WAIT_MS = 5000;
+
+    private final RIL mRil;
+    private final ArrayList<RilTrace.Frame> mFrames = new ArrayList<RilTrace.Frame>();
+    private final float mSpeed;
+
+    // Request of each recorded serial, from the recorded requests
+    private final SparseIntArray mRecordedRequests = new SparseIntArray();
+    // Serials of the requests sent by the RIL and not answered yet, per request
+    private final SparseArray<ArrayDeque<Integer>> mLiveSerials =
+            new SparseArray<ArrayDeque<Integer>>();
+    // Recorded responses not replayed yet and not promised to a live request,
+    // per request, guarded by mLiveSerials
+    private final SparseIntArray mUnclaimedResponses = new SparseIntArray();
+
+    private int mReplayed;
+    private int mSkipped;
+
+    /**
+     * Read the whole trace, so that requests it has no response for are
+     * known before they are sent.
+     */
+    RilReplayer(RIL ril, RilTrace.Reader reader, float speed) throws IOException {
+        mRil = ril;
+        mSpeed = speed;
+        try {
+            SparseIntArray requests = new SparseIntArray();
+            RilTrace.Frame frame;
+            while ((frame = reader.next()) != null) {
+                mFrames.add(frame);
+                Parcel p = Parcel.obtain();
+                try {
+                    p.unmarshall(frame.data, 0, frame.data.length);
+                    p.setDataPosition(0);
+                    if (frame.direction == RilTrace.DIRECTION_REQUEST) {
+                        int request = p.readInt();
+                        requests.put(p.readInt(), request);
+                    } else if (p.readInt() == RIL.RESPONSE_SOLICITED) {
+                        int request = requests.get(p.readInt(), -1);
+                        if (request >= 0) {
+                            mUnclaimedResponses.put(request,
+                                    mUnclaimedResponses.get(request) + 1);
+                        }
+                    }
+                } finally {
+                    p.recycle();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Called by the sender of the RIL instead of writing to rild.
+     */
+    void onRequest(int request, int serial) {
+        synchronized (mLiveSerials) {
+            int unclaimed = mUnclaimedResponses.get(request);
+            if (unclaimed == 0) {
+                Rlog.w(LOG_TAG, "No recorded response for serial " + serial
+                        + " request=" + request);
+                mRil.failRequest(serial, RILConstants.GENERIC_FAILURE);
+                return;
+            }
+            mUnclaimedResponses.put(request, unclaimed - 1);
+            ArrayDeque<Integer> serials = mLiveSerials.get(request);
+            if (serials == null) {
+                serials = new ArrayDeque<Integer>();
+                mLiveSerials.put(request, serials);
+            }
+            serials.addLast(serial);
+            mLiveSerials.notifyAll();
+        }
+    }
+
+    private int takeLiveSerial(int request) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + REQUEST_WAIT_MS;
+        synchronized (mLiveSerials) {
+            for (;;) {
+                ArrayDeque<Integer> serials = mLiveSerials.get(request);
+                if (serials != null && !serials.isEmpty()) {
+                    return serials.removeFirst();
+                }
+                long remaining = deadline - SystemClock.elapsedRealtime();
+                if (remaining <= 0) {
+                    // Not promised to anyone, so no longer available either
+                    mUnclaimedResponses.put(request, mUnclaimedResponses.get(request) - 1);
+                    return -1;
+                }
+                mLiveSerials.wait(remaining);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        long start = SystemClock.elapsedRealtime();
+        long recordedMicros = 0;
+        try {
+            for (RilTrace.Frame frame : mFrames) {
+                recordedMicros = frame.timeMicros;
+                Parcel p = Parcel.obtain();
+                try {
+                    p.unmarshall(frame.data, 0, frame.data.length);
+                    p.setDataPosition(0);
+                    if (frame.direction == RilTrace.DIRECTION_REQUEST) {
+                        int request = p.readInt();
+                        mRecordedRequests.put(p.readInt(), request);
+                        continue;
+                    }
+
+                    if (mSpeed > 0) {
+                        long due = start + (long) (frame.timeMicros / 1000 / mSpeed);
+                        long delay = due - SystemClock.elapsedRealtime();
+                        if (delay > 0) {
+                            Thread.sleep(delay);
+                        }
+                    }
+
+                    if (p.readInt() == RIL.RESPONSE_SOLICITED) {
+                        int recordedSerial = p.readInt();
+                        int request = mRecordedRequests.get(recordedSerial, -1);
+                        mRecordedRequests.delete(recordedSerial);
+                        int serial = request < 0 ? -1 : takeLiveSerial(request);
+                        if (serial < 0) {
+                            Rlog.w(LOG_TAG, "No request for recorded serial " + recordedSerial
+                                    + " request=" + request);
+                            mSkipped++;
+                            continue;
+                        }
+                        p.setDataPosition(4);
+                        p.writeInt(serial);
+                    }
+                    p.setDataPosition(0);
+                    mRil.processResponse(p);
+                    mReplayed++;
+                } finally {
+                    p.recycle();
+                }
+            }
+        } catch (InterruptedException e) {
+            Rlog.w(LOG_TAG, "Interrupted");
+        }
+
+        Rlog.i(LOG_TAG, "Replayed " + mReplayed + " frames, skipped " + mSkipped
+                + ", in " + (SystemClock.elapsedRealtime() - start) + " ms, recorded in "
+                + recordedMicros / 1000 + " ms");
+        // Requests still waiting for a response would wait forever
+        mRil.clearRequestList(RILConstants.RADIO_NOT_AVAILABLE, false);
+    }
+}
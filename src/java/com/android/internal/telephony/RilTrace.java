@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * File format of the parcels exchanged with rild, as recorded by {@link RIL}.
+ *
+ * The file starts with a magic number and a version. Each frame then holds
+ * its direction, the microseconds since the previous frame and the length of
+ * the parcel as variable length integers, followed by the parcel. Parcels
+ * are stored as marshalled, without the length prefix of the socket.
+ *
+ * {@hide}
+ */
+public class RilTrace {
+    private static final int MAGIC = 0x52494c54; // "RILT"
+    private static final int VERSION = 1;
+
+    /** Parcel of a request sent to rild. */
+    public static final int DIRECTION_REQUEST = 0;
+    /** Parcel of a response or indication read from rild. */
+    public static final int DIRECTION_RESPONSE = 1;
+
+    public static class Frame {
+        public final int direction;
+        /** Microseconds since the start of the trace. */
+        public final long timeMicros;
+        public final byte[] data;
+
+        Frame(int direction, long timeMicros, byte[] data) {
+            this.direction = direction;
+            this.timeMicros = timeMicros;
+            this.data = data;
+        }
+    }
+
+    public static class Writer implements Closeable {
+        private final DataOutputStream mOut;
+        private long mLastMicros;
+        private int mFrames;
+
+        /**
+         * @param startMicros time the trace starts at, on the clock of the
+         *        times given to {@link #write}
+         */
+        public Writer(OutputStream out, long startMicros) throws IOException {
+            mOut = new DataOutputStream(new BufferedOutputStream(out));
+            mOut.writeInt(MAGIC);
+            mOut.writeInt(VERSION);
+            mLastMicros = startMicros;
+        }
+
+        /**
+         * Append a frame. Frames written from several threads are kept in
+         * the order they were written in.
+         */
+        public synchronized void write(int direction, long timeMicros, byte[] data, int offset,
+                int length) throws IOException {
+            mOut.writeByte(direction);
+            writeVarint(Math.max(0, timeMicros - mLastMicros));
+            writeVarint(length);
+            mOut.write(data, offset, length);
+            mLastMicros = Math.max(mLastMicros, timeMicros);
+            mFrames++;
+        }
+
+        public synchronized int getFrameCount() {
+            return mFrames;
+        }
+
+        public synchronized void flush() throws IOException {
+            mOut.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            mOut.close();
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7fL) != 0) {
+                mOut.writeByte((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            mOut.writeByte((int) value);
+        }
+    }
+
+    public static class Reader implements Closeable {
+        private final DataInputStream mIn;
+        private long mMicros;
+
+        public Reader(InputStream in) throws IOException {
+            mIn = new DataInputStream(new BufferedInputStream(in));
+            if (mIn.readInt() != MAGIC) {
+                throw new IOException("Not a RIL trace");
+            }
+            int version = mIn.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported RIL trace version " + version);
+            }
+        }
+
+        /**
+         * @return the next frame, or null at the end of the trace
+         */
+        public Frame next() throws IOException {
+            int direction = mIn.read();
+            if (direction < 0) {
+                return null;
+            }
+            mMicros += readVarint();
+            long length = readVarint();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Frame too long: " + length);
+            }
+            byte[] data = new byte[(int) length];
+            mIn.readFully(data);
+            return new Frame(direction, mMicros, data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            mIn.close();
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = mIn.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated frame");
+                }
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed length");
+        }
+    }
+}
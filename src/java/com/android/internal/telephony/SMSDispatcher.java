@@ -71,8 +71,9 @@ import com.android.internal.telephony.GsmAlphabet.TextEncodingDetails;
 import com.android.internal.telephony.uicc.UiccCard;
 import com.android.internal.telephony.uicc.UiccController;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -146,7 +147,10 @@ public abstract class SMSDispatcher extends Handler {
 
     /** Maximum number of times to retry sending a failed SMS. */
     private static final int MAX_SEND_RETRIES = 3;
-    /** Delay before next send attempt on a failed SMS, in milliseconds. */
+    /**
+     * Delay before the first retry of a failed SMS, in milliseconds. Doubles
+     * with each further retry, see {@link #getRetryDelay}.
+     */
     private static final int SEND_RETRY_DELAY = 2000;
     /** single part SMS */
     private static final int SINGLE_PART_SMS = 1;
@@ -161,6 +165,8 @@ public abstract class SMSDispatcher extends Handler {
      */
     private static int sConcatenatedRef = new Random().nextInt(256);
 
+    private final Random mRetryJitter = new Random();
+
     /** Outgoing message counter. Shared by all dispatchers. */
     private SmsUsageMonitor mUsageMonitor;
 
@@ -169,6 +175,13 @@ public abstract class SMSDispatcher extends Handler {
     /** Number of outgoing SmsTrackers waiting for user confirmation. */
     private int mPendingTrackerCount;
 
+    /**
+     * Messages waiting for or being sent by the RIL. Created by the first
+     * {@link #queueSmsByPstn}, so that only the dispatchers sending over PSTN
+     * have one.
+     */
+    private volatile SmsSendQueue mSendQueue;
+
     /* Flags indicating whether the current device allows sms service */
     protected boolean mSmsCapable = true;
     protected boolean mSmsSendDisabled;
@@ -233,6 +246,10 @@ public abstract class SMSDispatcher extends Handler {
     /** Unregister for incoming SMS events. */
     public void dispose() {
         mContext.getContentResolver().unregisterContentObserver(mSettingsObserver);
+        SmsSendQueue sendQueue = mSendQueue;
+        if (sendQueue != null) {
+            sendQueue.dispose();
+        }
     }
 
     /**
@@ -375,8 +392,7 @@ public abstract class SMSDispatcher extends Handler {
 
         @Override
         protected void onServiceReady(ICarrierMessagingService carrierMessagingService) {
-            HashMap<String, Object> map = mTracker.mData;
-            String text = (String) map.get("text");
+            String text = mTracker.mData.mText;
 
             if (text != null) {
                 try {
@@ -407,9 +423,8 @@ public abstract class SMSDispatcher extends Handler {
 
         @Override
         protected void onServiceReady(ICarrierMessagingService carrierMessagingService) {
-            HashMap<String, Object> map = mTracker.mData;
-            byte[] data = (byte[]) map.get("data");
-            int destPort = (int) map.get("destPort");
+            byte[] data = mTracker.mData.mUserData;
+            int destPort = mTracker.mData.mDestPort;
 
             if (data != null) {
                 try {
@@ -629,6 +644,11 @@ public abstract class SMSDispatcher extends Handler {
         SmsTracker tracker = (SmsTracker) ar.userObj;
         PendingIntent sentIntent = tracker.mSentIntent;
 
+        SmsSendQueue sendQueue = mSendQueue;
+        if (sendQueue != null) {
+            sendQueue.onSendComplete(tracker, ar.exception == null);
+        }
+
         if (ar.result != null) {
             tracker.mMessageRef = ((SmsResponse)ar.result).mMessageRef;
         } else {
@@ -678,7 +698,7 @@ public abstract class SMSDispatcher extends Handler {
                 //       implementations this retry is handled by the baseband.
                 tracker.mRetryCount++;
                 Message retryMsg = obtainMessage(EVENT_SEND_RETRY, tracker);
-                sendMessageDelayed(retryMsg, SEND_RETRY_DELAY);
+                sendMessageDelayed(retryMsg, getRetryDelay(tracker.mRetryCount));
             } else {
                 int errorCode = 0;
                 if (ar.result != null) {
@@ -694,6 +714,19 @@ public abstract class SMSDispatcher extends Handler {
         }
     }
 
+    /**
+     * Returns the delay before the given retry of a failed SMS. The delay doubles with
+     * each retry and a random jitter of up to a quarter of it keeps messages that failed
+     * together from being retried all at once.
+     *
+     * @param retryCount the number of the retry, starting at 1
+     * @return the delay in milliseconds
+     */
+    private long getRetryDelay(int retryCount) {
+        long delay = (long) SEND_RETRY_DELAY << (retryCount - 1);
+        return delay + mRetryJitter.nextInt((int) (delay / 4) + 1);
+    }
+
     /**
      * Handles outbound message when the phone is not in service.
      *
@@ -994,8 +1027,7 @@ public abstract class SMSDispatcher extends Handler {
      * -param destAddr the destination phone number (for short code confirmation)
      */
     protected void sendRawPdu(SmsTracker tracker) {
-        HashMap map = tracker.mData;
-        byte pdu[] = (byte[]) map.get("pdu");
+        byte pdu[] = tracker.mData.mPdu;
 
         if (mSmsSendDisabled) {
             Rlog.e(TAG, "Device does not support sending sms.");
@@ -1329,6 +1361,34 @@ public abstract class SMSDispatcher extends Handler {
      */
     protected abstract void sendSmsByPstn(SmsTracker tracker);
 
+    /**
+     * Queue the tracker to be sent by {@link #sendSmsByPstn} once a slot of the
+     * outbound window of this dispatcher is free.
+     *
+     * @param tracker holds the SMS message to send
+     */
+    protected void queueSmsByPstn(SmsTracker tracker) {
+        SmsSendQueue sendQueue = mSendQueue;
+        if (sendQueue == null) {
+            synchronized (this) {
+                sendQueue = mSendQueue;
+                if (sendQueue == null) {
+                    sendQueue = new SmsSendQueue(this, mContext,
+                            getFormat() + "[" + mPhone.getPhoneId() + "]");
+                    mSendQueue = sendQueue;
+                }
+            }
+        }
+        sendQueue.add(tracker);
+    }
+
+    public void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        SmsSendQueue sendQueue = mSendQueue;
+        if (sendQueue != null) {
+            sendQueue.dump(pw);
+        }
+    }
+
     /**
      * Retry the message along to the radio.
      *
@@ -1353,14 +1413,14 @@ public abstract class SMSDispatcher extends Handler {
         ArrayList<PendingIntent> sentIntents;
         ArrayList<PendingIntent> deliveryIntents;
 
-        HashMap<String, Object> map = tracker.mData;
+        SmsTrackerData data = tracker.mData;
 
-        String destinationAddress = (String) map.get("destination");
-        String scAddress = (String) map.get("scaddress");
+        String destinationAddress = data.mDestAddr;
+        String scAddress = data.mScAddr;
 
-        parts = (ArrayList<String>) map.get("parts");
-        sentIntents = (ArrayList<PendingIntent>) map.get("sentIntents");
-        deliveryIntents = (ArrayList<PendingIntent>) map.get("deliveryIntents");
+        parts = data.mParts;
+        sentIntents = data.mSentIntents;
+        deliveryIntents = data.mDeliveryIntents;
 
         // check if in service
         int ss = mPhone.getServiceState().getState();
@@ -1381,13 +1441,54 @@ public abstract class SMSDispatcher extends Handler {
                 tracker.mExpectMore, tracker.mvalidityPeriod);
     }
 
+    /**
+     * Contents of an outgoing SMS, carried by its {@link SmsTracker}.
+     */
+    protected static final class SmsTrackerData {
+        // fields need to be public for derived SmsDispatchers
+        public final String mDestAddr;
+        public final String mScAddr;
+        // Set for a text message
+        public final String mText;
+        // Set for a data message, mDestPort is -1 for a text message
+        public final byte[] mUserData;
+        public final int mDestPort;
+
+        // Encoded SMSC address and PDU, replaced when the message is re-encoded
+        public byte[] mSmsc;
+        public byte[] mPdu;
+
+        // Set for a multipart message waiting for user confirmation
+        public ArrayList<String> mParts;
+        public ArrayList<PendingIntent> mSentIntents;
+        public ArrayList<PendingIntent> mDeliveryIntents;
+
+        SmsTrackerData(String destAddr, String scAddr, String text, byte[] userData,
+                int destPort, SmsMessageBase.SubmitPduBase pdu) {
+            mDestAddr = destAddr;
+            mScAddr = scAddr;
+            mText = text;
+            mUserData = userData;
+            mDestPort = destPort;
+            setPdu(pdu);
+        }
+
+        /**
+         * Replace the encoded SMSC address and PDU of the message.
+         */
+        public void setPdu(SmsMessageBase.SubmitPduBase pdu) {
+            mSmsc = pdu.encodedScAddress;
+            mPdu = pdu.encodedMessage;
+        }
+    }
+
     /**
      * Keeps track of an SMS that has been sent to the RIL, until it has
      * successfully been sent, or we're done trying.
      */
     protected static final class SmsTracker {
         // fields need to be public for derived SmsDispatchers
-        public final HashMap<String, Object> mData;
+        public final SmsTrackerData mData;
         public int mRetryCount;
         public int mImsRetry; // nonzero indicates initial message was sent over Ims
         public int mMessageRef;
@@ -1420,7 +1521,10 @@ public abstract class SMSDispatcher extends Handler {
 
         private boolean mPersistMessage;
 
-        private SmsTracker(HashMap<String, Object> data, PendingIntent sentIntent,
+        // Set once the message was reported as sent or failed
+        private boolean mCompleted;
+
+        private SmsTracker(SmsTrackerData data, PendingIntent sentIntent,
                 PendingIntent deliveryIntent, PackageInfo appInfo, String destAddr, String format,
                 AtomicInteger unsentPartCount, AtomicBoolean anyPartFailed, Uri messageUri,
                 SmsHeader smsHeader, boolean isExpectMore, String fullMessageText, int subId,
@@ -1451,7 +1555,15 @@ public abstract class SMSDispatcher extends Handler {
          * @return true if the tracker holds a multi-part SMS; false otherwise
          */
         boolean isMultipart() {
-            return mData.containsKey("parts");
+            return mData.mParts != null;
+        }
+
+        /**
+         * Returns whether the final result of this tracker was reported.
+         * @return true once {@link #onSent} or {@link #onFailed} was called
+         */
+        boolean isCompleted() {
+            return mCompleted;
         }
 
         /**
@@ -1573,6 +1685,7 @@ public abstract class SMSDispatcher extends Handler {
          * @param errorCode
          */
         public void onFailed(Context context, int error, int errorCode) {
+            mCompleted = true;
             if (mAnyPartFailed != null) {
                 mAnyPartFailed.set(true);
             }
@@ -1612,6 +1725,7 @@ public abstract class SMSDispatcher extends Handler {
          * @param context The Context
          */
         public void onSent(Context context) {
+            mCompleted = true;
             // is single part or last part of multipart message
             boolean isSinglePartOrLastPart = true;
             if (mUnsentPartCount != null) {
@@ -1644,7 +1758,7 @@ public abstract class SMSDispatcher extends Handler {
         }
     }
 
-    protected SmsTracker getSmsTracker(HashMap<String, Object> data, PendingIntent sentIntent,
+    protected SmsTracker getSmsTracker(SmsTrackerData data, PendingIntent sentIntent,
             PendingIntent deliveryIntent, String format, AtomicInteger unsentPartCount,
             AtomicBoolean anyPartFailed, Uri messageUri, SmsHeader smsHeader,
             boolean isExpectMore, String fullMessageText, boolean isText, int validityPeriod,
@@ -1665,13 +1779,13 @@ public abstract class SMSDispatcher extends Handler {
         }
         // Strip non-digits from destination phone number before checking for short codes
         // and before displaying the number to the user if confirmation is required.
-        String destAddr = PhoneNumberUtils.extractNetworkPortion((String) data.get("destAddr"));
+        String destAddr = PhoneNumberUtils.extractNetworkPortion(data.mDestAddr);
         return new SmsTracker(data, sentIntent, deliveryIntent, appInfo, destAddr, format,
                 unsentPartCount, anyPartFailed, messageUri, smsHeader, isExpectMore,
                 fullMessageText, getSubId(), isText, validityPeriod, persistMessage);
     }
 
-    protected SmsTracker getSmsTracker(HashMap<String, Object> data, PendingIntent sentIntent,
+    protected SmsTracker getSmsTracker(SmsTrackerData data, PendingIntent sentIntent,
             PendingIntent deliveryIntent, String format, Uri messageUri, boolean isExpectMore,
             String fullMessageText, boolean isText, boolean persistMessage) {
         return getSmsTracker(data, sentIntent, deliveryIntent, format, null/*unsentPartCount*/,
@@ -1679,7 +1793,7 @@ public abstract class SMSDispatcher extends Handler {
                 fullMessageText, isText, -1, persistMessage);
     }
 
-    protected SmsTracker getSmsTracker(HashMap<String, Object> data, PendingIntent sentIntent,
+    protected SmsTracker getSmsTracker(SmsTrackerData data, PendingIntent sentIntent,
             PendingIntent deliveryIntent, String format, Uri messageUri, boolean isExpectMore,
             String fullMessageText, boolean isText, int validityPeriod, boolean persistMessage) {
         return getSmsTracker(data, sentIntent, deliveryIntent, format, null/*unsentPartCount*/,
@@ -1687,27 +1801,14 @@ public abstract class SMSDispatcher extends Handler {
                 isText, validityPeriod, persistMessage);
     }
 
-    protected HashMap<String, Object> getSmsTrackerMap(String destAddr, String scAddr,
+    protected SmsTrackerData getSmsTrackerData(String destAddr, String scAddr,
             String text, SmsMessageBase.SubmitPduBase pdu) {
-        HashMap<String, Object> map = new HashMap<String, Object>();
-        map.put("destAddr", destAddr);
-        map.put("scAddr", scAddr);
-        map.put("text", text);
-        map.put("smsc", pdu.encodedScAddress);
-        map.put("pdu", pdu.encodedMessage);
-        return map;
+        return new SmsTrackerData(destAddr, scAddr, text, null, -1, pdu);
     }
 
-    protected HashMap<String, Object> getSmsTrackerMap(String destAddr, String scAddr,
+    protected SmsTrackerData getSmsTrackerData(String destAddr, String scAddr,
             int destPort, byte[] data, SmsMessageBase.SubmitPduBase pdu) {
-        HashMap<String, Object> map = new HashMap<String, Object>();
-        map.put("destAddr", destAddr);
-        map.put("scAddr", scAddr);
-        map.put("destPort", destPort);
-        map.put("data", data);
-        map.put("smsc", pdu.encodedScAddress);
-        map.put("pdu", pdu.encodedMessage);
-        return map;
+        return new SmsTrackerData(destAddr, scAddr, null, data, destPort, pdu);
     }
 
     /**
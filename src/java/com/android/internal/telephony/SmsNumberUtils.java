@@ -18,21 +18,15 @@ package com.android.internal.telephony;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 
 import android.content.Context;
 import android.os.SystemProperties;
 import android.os.Build;
 import android.text.TextUtils;
-import android.content.ContentResolver;
-import android.database.Cursor;
-import android.database.SQLException;
 import android.telephony.PhoneNumberUtils;
 import android.telephony.TelephonyManager;
 import android.telephony.Rlog;
-import com.android.internal.telephony.HbpcdLookup.MccIdd;
-import com.android.internal.telephony.HbpcdLookup.MccLookup;
 
 
  /**
@@ -98,11 +92,6 @@ public class SmsNumberUtils {
     /* <Country_code>-<Area_code>-<Phone Number>, 86-25-86281234*/
     private static final int NP_CC_AREA_LOCAL = NP_INTERNATIONAL_BEGIN + 4;
 
-    private static int[] ALL_COUNTRY_CODES = null;
-    private static int MAX_COUNTRY_CODES_LENGTH;
-    private static HashMap<String, ArrayList<String>> IDDS_MAPS =
-            new HashMap<String, ArrayList<String>>();
-
     private static class NumberEntry {
         public String number;
         public String IDD;
@@ -239,46 +228,8 @@ public class SmsNumberUtils {
      * @return the IDD array list.
      */
     private static ArrayList<String> getAllIDDs(Context context, String mcc) {
-        ArrayList<String> allIDDs = IDDS_MAPS.get(mcc);
-        if (allIDDs != null) {
-            return allIDDs;
-        } else {
-            allIDDs = new ArrayList<String>();
-        }
-
-        String projection[] = {MccIdd.IDD, MccIdd.MCC};
-        String where = null;
-
-        // if mcc is null         : return all rows
-        // if mcc is empty-string : return those rows whose mcc is emptry-string
-        String[] selectionArgs = null;
-        if (mcc != null) {
-            where = MccIdd.MCC + "=?";
-            selectionArgs = new String[] {mcc};
-        }
-
-        Cursor cursor = null;
-        try {
-            cursor = context.getContentResolver().query(MccIdd.CONTENT_URI, projection,
-                    where, selectionArgs, null);
-            if (cursor.getCount() > 0) {
-                while (cursor.moveToNext()) {
-                    String idd = cursor.getString(0);
-                    if (!allIDDs.contains(idd)) {
-                        allIDDs.add(idd);
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            Rlog.e(TAG, "Can't access HbpcdLookup database", e);
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
-
-        IDDS_MAPS.put(mcc, allIDDs);
-
+        HbpcdIndex index = HbpcdIndex.getInstance(context);
+        ArrayList<String> allIDDs = index != null ? index.getIdds(mcc) : new ArrayList<String>();
         if (DBG) Rlog.d(TAG, "MCC = " + mcc + ", all IDDs = " + allIDDs);
         return allIDDs;
     }
@@ -428,66 +379,17 @@ public class SmsNumberUtils {
         int countryCode = -1;
         if (number.length() >= MIN_COUNTRY_AREA_LOCAL_LENGTH) {
             // Check Country code
-            int[] allCCs = getAllCountryCodes(context);
-            if (allCCs == null) {
+            HbpcdIndex index = HbpcdIndex.getInstance(context);
+            if (index == null) {
                 return countryCode;
             }
-
-            int[] ccArray = new int[MAX_COUNTRY_CODES_LENGTH];
-            for (int i = 0; i < MAX_COUNTRY_CODES_LENGTH; i ++) {
-                ccArray[i] = Integer.valueOf(number.substring(0, i+1));
-            }
-
-            for (int i = 0; i < allCCs.length; i ++) {
-                int tempCC = allCCs[i];
-                for (int j = 0; j < MAX_COUNTRY_CODES_LENGTH; j ++) {
-                    if (tempCC == ccArray[j]) {
-                        if (DBG) Rlog.d(TAG, "Country code = " + tempCC);
-                        return tempCC;
-                    }
-                }
-            }
+            countryCode = index.getCountryCode(number);
+            if (DBG && countryCode > 0) Rlog.d(TAG, "Country code = " + countryCode);
         }
 
         return countryCode;
     }
 
-    /**
-     *  Gets all country Codes information with given MCC.
-     */
-    private static int[] getAllCountryCodes(Context context) {
-        if (ALL_COUNTRY_CODES != null) {
-            return ALL_COUNTRY_CODES;
-        }
-
-        Cursor cursor = null;
-        try {
-            String projection[] = {MccLookup.COUNTRY_CODE};
-            cursor = context.getContentResolver().query(MccLookup.CONTENT_URI,
-                    projection, null, null, null);
-
-            if (cursor.getCount() > 0) {
-                ALL_COUNTRY_CODES = new int[cursor.getCount()];
-                int i = 0;
-                while (cursor.moveToNext()) {
-                    int countryCode = cursor.getInt(0);
-                    ALL_COUNTRY_CODES[i++] = countryCode;
-                    int length = String.valueOf(countryCode).trim().length();
-                    if (length > MAX_COUNTRY_CODES_LENGTH) {
-                        MAX_COUNTRY_CODES_LENGTH = length;
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            Rlog.e(TAG, "Can't access HbpcdLookup database", e);
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
-        return ALL_COUNTRY_CODES;
-    }
-
     private static boolean inExceptionListForNpCcAreaLocal(NumberEntry numberEntry) {
         int countryCode = numberEntry.countryCode;
         boolean result = (numberEntry.number.length() == 12
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.SystemProperties;
+import android.os.UserHandle;
+import android.telephony.Rlog;
+
+import com.android.internal.telephony.SMSDispatcher.SmsTracker;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import static android.telephony.SmsManager.RESULT_ERROR_GENERIC_FAILURE;
+
+/**
+ * Outbound queue between an {@link SMSDispatcher} and the RIL.
+ *
+ * At most a configurable number of messages of the dispatcher are handed to
+ * the RIL at a time, the others wait here. Messages of the default SMS
+ * application, of the phone process and of Bluetooth are sent ahead of
+ * messages of other applications, so that a bulk send by a background
+ * application does not delay what the user is typing.
+ *
+ * All methods except {@link #add} must be called on the looper of the
+ * dispatcher.
+ *
+ * {@hide}
+ */
+class SmsSendQueue extends Handler {
+    private static final String TAG = "SmsSendQueue";
+    private static final boolean DBG = true;
+
+    /** Number of messages handed to the RIL at a time, per dispatcher. */
+    private static final String PROPERTY_WINDOW = "persist.radio.sms_send_window";
+    private static final int DEFAULT_WINDOW = 4;
+
+    static final int LANE_USER = 0;
+    static final int LANE_BACKGROUND = 1;
+    private static final String[] LANE_NAMES = { "user", "background" };
+
+    // Period over which the send rate is reported
+    private static final long RATE_PERIOD = 60 * 1000;
+
+    private static final int EVENT_ADD = 1;
+
+    private static class Entry {
+        final SmsTracker mTracker;
+        final long mQueuedTime;
+        int mLane;
+        long mIssuedTime;
+
+        Entry(SmsTracker tracker, long queuedTime) {
+            mTracker = tracker;
+            mQueuedTime = queuedTime;
+        }
+    }
+
+    /**
+     * Counters of one lane, for dump.
+     */
+    private static class LaneStats {
+        int mQueued;
+        int mIssued;
+        int mSent;
+        int mFailed;
+        long mTotalWait;
+        long mMaxWait;
+        long mTotalLatency;
+        long mMaxLatency;
+        // Completion times within the last RATE_PERIOD
+        final ArrayDeque<Long> mRecent = new ArrayDeque<Long>();
+
+        void onIssued(long wait) {
+            mIssued++;
+            mTotalWait += wait;
+            mMaxWait = Math.max(mMaxWait, wait);
+        }
+
+        void onCompleted(boolean success, long latency, long now) {
+            if (success) {
+                mSent++;
+            } else {
+                mFailed++;
+            }
+            mTotalLatency += latency;
+            mMaxLatency = Math.max(mMaxLatency, latency);
+            mRecent.addLast(now);
+            trim(now);
+        }
+
+        void trim(long now) {
+            while (!mRecent.isEmpty() && now - mRecent.peekFirst() > RATE_PERIOD) {
+                mRecent.removeFirst();
+            }
+        }
+
+        @Override
+        public String toString() {
+            int completed = mSent + mFailed;
+            return "queued=" + mQueued + " sent=" + mSent + " failed=" + mFailed
+                    + " lastMinute=" + mRecent.size()
+                    + " wait(avg/max)=" + (mIssued == 0 ? 0 : mTotalWait / mIssued)
+                    + "/" + mMaxWait
+                    + " latency(avg/max)=" + (completed == 0 ? 0 : mTotalLatency / completed)
+                    + "/" + mMaxLatency;
+        }
+    }
+
+    private final SMSDispatcher mDispatcher;
+    private final Context mContext;
+    private final String mName;
+    private final int mWindow;
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Entry>[] mLanes = new ArrayDeque[] {
+            new ArrayDeque<Entry>(), new ArrayDeque<Entry>() };
+    private final LaneStats[] mStats = { new LaneStats(), new LaneStats() };
+    private final ArrayList<Entry> mInFlight = new ArrayList<Entry>();
+
+    SmsSendQueue(SMSDispatcher dispatcher, Context context, String name) {
+        super(dispatcher.getLooper());
+        mDispatcher = dispatcher;
+        mContext = context;
+        mName = name;
+        mWindow = Math.max(1, SystemProperties.getInt(PROPERTY_WINDOW, DEFAULT_WINDOW));
+    }
+
+    /**
+     * Queue a message to be sent by {@link SMSDispatcher#sendSmsByPstn}.
+     * May be called from any thread.
+     */
+    void add(SmsTracker tracker) {
+        sendMessage(obtainMessage(EVENT_ADD,
+                new Entry(tracker, SystemClock.elapsedRealtime())));
+    }
+
+    @Override
+    public void handleMessage(Message msg) {
+        switch (msg.what) {
+            case EVENT_ADD:
+                Entry entry = (Entry) msg.obj;
+                entry.mLane = getLane(entry.mTracker);
+                mLanes[entry.mLane].addLast(entry);
+                mStats[entry.mLane].mQueued++;
+                issueNext();
+                break;
+
+            default:
+                Rlog.e(TAG, "Unexpected message " + msg.what);
+        }
+    }
+
+    /**
+     * Called when the RIL answered the send request of the tracker. Frees its
+     * slot whether the message is retried or not; a retry is queued again.
+     */
+    void onSendComplete(SmsTracker tracker, boolean success) {
+        for (int i = 0; i < mInFlight.size(); i++) {
+            Entry entry = mInFlight.get(i);
+            if (entry.mTracker == tracker) {
+                mInFlight.remove(i);
+                complete(entry, success);
+                issueNext();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fail the messages that were not handed to the RIL yet.
+     */
+    void dispose() {
+        removeMessages(EVENT_ADD);
+        for (ArrayDeque<Entry> lane : mLanes) {
+            for (Entry entry : lane) {
+                entry.mTracker.onFailed(mContext, RESULT_ERROR_GENERIC_FAILURE, 0/*errorCode*/);
+            }
+            lane.clear();
+        }
+    }
+
+    private void issueNext() {
+        while (mInFlight.size() < mWindow) {
+            Entry entry = mLanes[LANE_USER].pollFirst();
+            if (entry == null) {
+                entry = mLanes[LANE_BACKGROUND].pollFirst();
+            }
+            if (entry == null) {
+                return;
+            }
+            entry.mIssuedTime = SystemClock.elapsedRealtime();
+            mStats[entry.mLane].onIssued(entry.mIssuedTime - entry.mQueuedTime);
+            mInFlight.add(entry);
+            mDispatcher.sendSmsByPstn(entry.mTracker);
+            if (entry.mTracker.isCompleted()) {
+                // Failed before reaching the RIL, e.g. not in service
+                mInFlight.remove(entry);
+                complete(entry, false);
+            }
+        }
+    }
+
+    private void complete(Entry entry, boolean success) {
+        long now = SystemClock.elapsedRealtime();
+        mStats[entry.mLane].onCompleted(success, now - entry.mIssuedTime, now);
+        if (DBG) {
+            Rlog.d(TAG, "[" + mName + "] " + LANE_NAMES[entry.mLane]
+                    + (success ? " sent" : " failed")
+                    + " wait=" + (entry.mIssuedTime - entry.mQueuedTime)
+                    + " latency=" + (now - entry.mIssuedTime)
+                    + " queued=" + (mLanes[LANE_USER].size() + mLanes[LANE_BACKGROUND].size()));
+        }
+    }
+
+    private int getLane(SmsTracker tracker) {
+        if (tracker.mAppInfo == null
+                || SmsApplication.isDefaultSmsApplication(mContext,
+                        tracker.mAppInfo.packageName)) {
+            return LANE_USER;
+        }
+        // The phone process, and Bluetooth sending for a connected car kit (MAP)
+        int appId = UserHandle.getAppId(tracker.mAppInfo.applicationInfo.uid);
+        if (appId == Process.PHONE_UID || appId == Process.BLUETOOTH_UID) {
+            return LANE_USER;
+        }
+        return LANE_BACKGROUND;
+    }
+
+    void dump(PrintWriter pw) {
+        long now = SystemClock.elapsedRealtime();
+        pw.println(" " + mName + " window=" + mWindow + " inFlight=" + mInFlight.size());
+        for (int lane = 0; lane < mLanes.length; lane++) {
+            mStats[lane].trim(now);
+            pw.println("  " + LANE_NAMES[lane] + " pending=" + mLanes[lane].size() + " "
+                    + mStats[lane]);
+        }
+    }
+}
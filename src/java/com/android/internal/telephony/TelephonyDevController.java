@@ -108,13 +108,16 @@ public class TelephonyDevController extends Handler {
      * configuration callback data it can provide.
      */
     public static void registerRIL(CommandsInterface cmdsIf) {
-        /* get the current configuration from this ril... */
-        cmdsIf.getHardwareConfig(sRilHardwareConfig);
-        /* ... process it ... */
-        if (sRilHardwareConfig != null) {
-            AsyncResult ar = (AsyncResult) sRilHardwareConfig.obj;
-            if (ar.exception == null) {
-                handleGetHardwareConfigChanged(ar);
+        // RILs of different slots may be created concurrently
+        synchronized (mLock) {
+            /* get the current configuration from this ril... */
+            cmdsIf.getHardwareConfig(sRilHardwareConfig);
+            /* ... process it ... */
+            if (sRilHardwareConfig != null) {
+                AsyncResult ar = (AsyncResult) sRilHardwareConfig.obj;
+                if (ar.exception == null) {
+                    handleGetHardwareConfigChanged(ar);
+                }
             }
         }
         /* and register for async device configuration change. */
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.util.LruCache;
+import android.util.TimeUtils;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Time zone lookups of the service state trackers, shared by all phones.
+ *
+ * The zones of a country are read from the time zone database once, and the
+ * zones matching a country, UTC offset and DST flag are kept for the quarter
+ * of an hour they were computed in. Offsets are multiples of 15 minutes and
+ * transitions happen at whole or half local hours, so the matching zones
+ * cannot change within such a quarter. Moving back and forth across a border
+ * then no longer searches the database at every registration change. All
+ * caches are bounded and drop the least recently used entries first.
+ *
+ * {@hide}
+ */
+public class TimeZoneResolver {
+    private static final int MAX_COUNTRIES = 16;
+    private static final int MAX_CANDIDATES = 32;
+    private static final long BUCKET_MILLIS = 15 * 60 * 1000;
+    private static final int MS_PER_HOUR = 60 * 60 * 1000;
+
+    private static final LruCache<String, List<TimeZone>> sCountryZones =
+            new LruCache<String, List<TimeZone>>(MAX_COUNTRIES);
+    private static final LruCache<String, List<TimeZone>> sUniqueOffsetZones =
+            new LruCache<String, List<TimeZone>>(MAX_COUNTRIES);
+    private static final LruCache<Key, List<TimeZone>> sCandidates =
+            new LruCache<Key, List<TimeZone>>(MAX_CANDIDATES);
+
+    /**
+     * Country, offset, DST flag and quarter of an hour of a lookup. A null
+     * country stands for all zones with the raw offset.
+     */
+    private static class Key {
+        final String mIso;
+        final int mOffset;
+        final boolean mDst;
+        final long mBucket;
+
+        Key(String iso, int offset, boolean dst, long when) {
+            mIso = iso;
+            mOffset = offset;
+            mDst = dst;
+            mBucket = when / BUCKET_MILLIS;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mOffset == other.mOffset && mDst == other.mDst
+                    && mBucket == other.mBucket
+                    && (mIso == null ? other.mIso == null : mIso.equals(other.mIso));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mIso == null ? 0 : mIso.hashCode();
+            result = 31 * result + mOffset;
+            result = 31 * result + (mDst ? 1 : 0);
+            return 31 * result + (int) (mBucket ^ (mBucket >>> 32));
+        }
+    }
+
+    private TimeZoneResolver() {
+    }
+
+    /**
+     * Same as {@link TimeUtils#getTimeZone(int, boolean, long, String)}: the
+     * current time zone if it is in the country and matches, otherwise the
+     * first zone of the country that matches, or null.
+     */
+    public static TimeZone getTimeZone(int offset, boolean dst, long when, String iso) {
+        List<TimeZone> candidates = getCandidates(iso, offset, dst, when);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        TimeZone current = TimeZone.getDefault();
+        String currentName = current.getID();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.get(i).getID().equals(currentName)) {
+                return current;
+            }
+        }
+        return candidates.get(0);
+    }
+
+    /**
+     * Returns a TimeZone object based only on parameters from the NITZ
+     * string, for networks without a valid country.
+     */
+    public static TimeZone getNitzTimeZone(int offset, boolean dst, long when) {
+        List<TimeZone> candidates = getCandidates(null, offset, dst, when);
+        if (candidates.isEmpty()) {
+            // Couldn't find a proper timezone.  Perhaps the DST data is wrong.
+            candidates = getCandidates(null, offset, !dst, when);
+        }
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    /**
+     * Same as {@link TimeUtils#getTimeZonesWithUniqueOffsets(String)}.
+     */
+    public static List<TimeZone> getTimeZonesWithUniqueOffsets(String iso) {
+        List<TimeZone> zones = sUniqueOffsetZones.get(iso);
+        if (zones == null) {
+            zones = Collections.unmodifiableList(TimeUtils.getTimeZonesWithUniqueOffsets(iso));
+            sUniqueOffsetZones.put(iso, zones);
+        }
+        return zones;
+    }
+
+    private static List<TimeZone> getCandidates(String iso, int offset, boolean dst,
+            long when) {
+        Key key = new Key(iso, offset, dst, when);
+        List<TimeZone> candidates = sCandidates.get(key);
+        if (candidates != null) {
+            return candidates;
+        }
+
+        ArrayList<TimeZone> matching = new ArrayList<TimeZone>();
+        Date d = new Date(when);
+        if (iso != null) {
+            for (TimeZone tz : getCountryZones(iso)) {
+                if (tz.getOffset(when) == offset && tz.inDaylightTime(d) == dst) {
+                    matching.add(tz);
+                }
+            }
+        } else {
+            int rawOffset = dst ? offset - MS_PER_HOUR : offset;
+            for (String id : TimeZone.getAvailableIDs(rawOffset)) {
+                TimeZone tz = TimeZone.getTimeZone(id);
+                if (tz.getOffset(when) == offset && tz.inDaylightTime(d) == dst) {
+                    matching.add(tz);
+                }
+            }
+        }
+        candidates = Collections.unmodifiableList(matching);
+        sCandidates.put(key, candidates);
+        return candidates;
+    }
+
+    private static List<TimeZone> getCountryZones(String iso) {
+        List<TimeZone> zones = sCountryZones.get(iso);
+        if (zones == null) {
+            zones = Collections.unmodifiableList(TimeUtils.getTimeZones(iso));
+            sCountryZones.put(iso, zones);
+        }
+        return zones;
+    }
+
+    public static void dump(PrintWriter pw) {
+        pw.println(" TimeZoneResolver: countries=" + sCountryZones
+                + " candidates=" + sCandidates);
+    }
+}
@@ -24,8 +24,6 @@ import android.os.Message;
 import com.android.internal.telephony.GsmAlphabet;
 import com.android.internal.telephony.uicc.IccFileHandler;
 
-import java.util.Iterator;
-import java.util.List;
 import static com.android.internal.telephony.cat.CatCmdMessage.
                    SetupEventListConstants.USER_ACTIVITY_EVENT;
 import static com.android.internal.telephony.cat.CatCmdMessage.
@@ -80,22 +78,22 @@ class CommandParamsFactory extends Handler {
     private static final int MAX_UCS2_CHARS = 118;
 
     static synchronized CommandParamsFactory getInstance(RilMessageDecoder caller,
-            IccFileHandler fh) {
+            IccFileHandler fh, int slotId) {
         if (sInstance != null) {
             return sInstance;
         }
         if (fh != null) {
-            return new CommandParamsFactory(caller, fh);
+            return new CommandParamsFactory(caller, fh, slotId);
         }
         return null;
     }
 
-    private CommandParamsFactory(RilMessageDecoder caller, IccFileHandler fh) {
+    private CommandParamsFactory(RilMessageDecoder caller, IccFileHandler fh, int slotId) {
         mCaller = caller;
-        mIconLoader = IconLoader.getInstance(this, fh);
+        mIconLoader = IconLoader.getInstance(this, fh, slotId);
     }
 
-    private CommandDetails processCommandDetails(List<ComprehensionTlv> ctlvs) {
+    private CommandDetails processCommandDetails(ComprehensionTlvIndex ctlvs) {
         CommandDetails cmdDet = null;
 
         if (ctlvs != null) {
@@ -127,7 +125,7 @@ class CommandParamsFactory extends Handler {
             return;
         }
         boolean cmdPending = false;
-        List<ComprehensionTlv> ctlvs = berTlv.getComprehensionTlvs();
+        ComprehensionTlvIndex ctlvs = berTlv.getComprehensionTlvs();
         // process command dtails from the tlv list.
         CommandDetails cmdDet = processCommandDetails(ctlvs);
         if (cmdDet == null) {
@@ -283,33 +281,8 @@ class CommandParamsFactory extends Handler {
      *         If no object is found with the tag, null is returned.
      */
     private ComprehensionTlv searchForTag(ComprehensionTlvTag tag,
-            List<ComprehensionTlv> ctlvs) {
-        Iterator<ComprehensionTlv> iter = ctlvs.iterator();
-        return searchForNextTag(tag, iter);
-    }
-
-    /**
-     * Search for the next COMPREHENSION-TLV object with the given tag from a
-     * list iterated by {@code iter}. {@code iter} points to the object next to
-     * the found object when this method returns. Used for searching the same
-     * list for similar tags, usually item id.
-     *
-     * @param tag A tag to search for
-     * @param iter Iterator for ComprehensionTlv objects used for search
-     *
-     * @return A ComprehensionTlv object that has the tag value of {@code tag}.
-     *         If no object is found with the tag, null is returned.
-     */
-    private ComprehensionTlv searchForNextTag(ComprehensionTlvTag tag,
-            Iterator<ComprehensionTlv> iter) {
-        int tagValue = tag.value();
-        while (iter.hasNext()) {
-            ComprehensionTlv ctlv = iter.next();
-            if (ctlv.getTag() == tagValue) {
-                return ctlv;
-            }
-        }
-        return null;
+            ComprehensionTlvIndex ctlvs) {
+        return ctlvs.getByTag(tag.value());
     }
 
     /**
@@ -323,7 +296,7 @@ class CommandParamsFactory extends Handler {
      * @throws ResultException
      */
     private boolean processDisplayText(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs)
+            ComprehensionTlvIndex ctlvs)
             throws ResultException {
 
         CatLog.d(this, "process DisplayText");
@@ -385,7 +358,7 @@ class CommandParamsFactory extends Handler {
      * @throws ResultException
      */
     private boolean processSetUpIdleModeText(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) throws ResultException {
+            ComprehensionTlvIndex ctlvs) throws ResultException {
 
         CatLog.d(this, "process SetUpIdleModeText");
 
@@ -435,7 +408,7 @@ class CommandParamsFactory extends Handler {
      * @throws ResultException
      */
     private boolean processGetInkey(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) throws ResultException {
+            ComprehensionTlvIndex ctlvs) throws ResultException {
 
         CatLog.d(this, "process GetInkey");
 
@@ -493,7 +466,7 @@ class CommandParamsFactory extends Handler {
      * @throws ResultException
      */
     private boolean processGetInput(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) throws ResultException {
+            ComprehensionTlvIndex ctlvs) throws ResultException {
 
         CatLog.d(this, "process GetInput");
 
@@ -573,14 +546,13 @@ class CommandParamsFactory extends Handler {
      * @throws ResultException
      */
     private boolean processSelectItem(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) throws ResultException {
+            ComprehensionTlvIndex ctlvs) throws ResultException {
 
         CatLog.d(this, "process SelectItem");
 
         Menu menu = new Menu();
         IconId titleIconId = null;
         ItemsIconId itemsIconId = null;
-        Iterator<ComprehensionTlv> iter = ctlvs.iterator();
 
         ComprehensionTlv ctlv = searchForTag(ComprehensionTlvTag.ALPHA_ID,
                 ctlvs);
@@ -588,13 +560,9 @@ class CommandParamsFactory extends Handler {
             menu.title = ValueParser.retrieveAlphaId(ctlv);
         }
 
-        while (true) {
-            ctlv = searchForNextTag(ComprehensionTlvTag.ITEM, iter);
-            if (ctlv != null) {
-                menu.items.add(ValueParser.retrieveItem(ctlv));
-            } else {
-                break;
-            }
+        for (int i = ctlvs.indexOfTag(ComprehensionTlvTag.ITEM.value()); i >= 0;
+                i = ctlvs.nextIndexOfSameTag(i)) {
+            menu.items.add(ValueParser.retrieveItem(ctlvs.get(i)));
         }
 
         // We must have at least one menu item.
@@ -672,7 +640,7 @@ class CommandParamsFactory extends Handler {
      *         asynchronous processing is required.
      */
     private boolean processEventNotify(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) throws ResultException {
+            ComprehensionTlvIndex ctlvs) throws ResultException {
 
         CatLog.d(this, "process EventNotify");
 
@@ -755,7 +723,7 @@ class CommandParamsFactory extends Handler {
      *         is not required.
      */
     private boolean processSetUpEventList(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) {
+            ComprehensionTlvIndex ctlvs) {
 
         CatLog.d(this, "process SetUpEventList");
         ComprehensionTlv ctlv = searchForTag(ComprehensionTlvTag.EVENT_LIST, ctlvs);
@@ -806,7 +774,7 @@ class CommandParamsFactory extends Handler {
      * @throws ResultException
      */
     private boolean processLaunchBrowser(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) throws ResultException {
+            ComprehensionTlvIndex ctlvs) throws ResultException {
 
         CatLog.d(this, "process LaunchBrowser");
 
@@ -879,7 +847,7 @@ class CommandParamsFactory extends Handler {
      * @throws ResultException
      */
     private boolean processPlayTone(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) throws ResultException {
+            ComprehensionTlvIndex ctlvs) throws ResultException {
 
         CatLog.d(this, "process PlayTone");
 
@@ -949,10 +917,9 @@ class CommandParamsFactory extends Handler {
      *         asynchronous processing is required.
      */
     private boolean processSetupCall(CommandDetails cmdDet,
-            List<ComprehensionTlv> ctlvs) throws ResultException {
+            ComprehensionTlvIndex ctlvs) throws ResultException {
         CatLog.d(this, "process SetupCall");
 
-        Iterator<ComprehensionTlv> iter = ctlvs.iterator();
         ComprehensionTlv ctlv = null;
         // User confirmation phase message.
         TextMessage confirmMsg = new TextMessage();
@@ -962,7 +929,8 @@ class CommandParamsFactory extends Handler {
         IconId callIconId = null;
 
         // get confirmation message string.
-        ctlv = searchForNextTag(ComprehensionTlvTag.ALPHA_ID, iter);
+        int alphaIdIndex = ctlvs.indexOfTag(ComprehensionTlvTag.ALPHA_ID.value());
+        ctlv = (alphaIdIndex >= 0) ? ctlvs.get(alphaIdIndex) : null;
         confirmMsg.text = ValueParser.retrieveAlphaId(ctlv);
 
         ctlv = searchForTag(ComprehensionTlvTag.ICON_ID, ctlvs);
@@ -972,7 +940,10 @@ class CommandParamsFactory extends Handler {
         }
 
         // get call set up message string.
-        ctlv = searchForNextTag(ComprehensionTlvTag.ALPHA_ID, iter);
+        if (alphaIdIndex >= 0) {
+            alphaIdIndex = ctlvs.nextIndexOfSameTag(alphaIdIndex);
+        }
+        ctlv = (alphaIdIndex >= 0) ? ctlvs.get(alphaIdIndex) : null;
         if (ctlv != null) {
             callMsg.text = ValueParser.retrieveAlphaId(ctlv);
         }
@@ -1000,7 +971,7 @@ class CommandParamsFactory extends Handler {
         return false;
     }
 
-    private boolean processProvideLocalInfo(CommandDetails cmdDet, List<ComprehensionTlv> ctlvs)
+    private boolean processProvideLocalInfo(CommandDetails cmdDet, ComprehensionTlvIndex ctlvs)
             throws ResultException {
         CatLog.d(this, "process ProvideLocalInfo");
         switch (cmdDet.commandQualifier) {
@@ -1021,7 +992,7 @@ class CommandParamsFactory extends Handler {
     }
 
     private boolean processBIPClient(CommandDetails cmdDet,
-                                     List<ComprehensionTlv> ctlvs) throws ResultException {
+                                     ComprehensionTlvIndex ctlvs) throws ResultException {
         AppInterface.CommandType commandType =
                                     AppInterface.CommandType.fromInt(cmdDet.typeOfCommand);
         if (commandType != null) {
@@ -1060,7 +1031,7 @@ class CommandParamsFactory extends Handler {
     }
 
     private boolean processActivate(CommandDetails cmdDet,
-                                     List<ComprehensionTlv> ctlvs) throws ResultException {
+                                     ComprehensionTlvIndex ctlvs) throws ResultException {
         AppInterface.CommandType commandType =
                 AppInterface.CommandType.fromInt(cmdDet.typeOfCommand);
         CatLog.d(this, "process " + commandType.name());
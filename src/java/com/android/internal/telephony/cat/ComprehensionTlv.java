@@ -18,9 +18,6 @@ package com.android.internal.telephony.cat;
 
 import android.telephony.Rlog;
 
-import java.util.ArrayList;
-import java.util.List;
-
 
 /**
  * Class for representing COMPREHENSION-TLV objects.
@@ -31,6 +28,13 @@ import java.util.List;
  */
 class ComprehensionTlv {
     private static final String LOG_TAG = "ComprehensionTlv";
+
+    // Layout of the header array filled by decodeHeader()
+    private static final int HEADER_TAG = 0;
+    private static final int HEADER_CR = 1;
+    private static final int HEADER_LENGTH = 2;
+    private static final int HEADER_VALUE_INDEX = 3;
+    private static final int HEADER_SIZE = 4;
     private int mTag;
     private boolean mCr;
     private int mLength;
@@ -82,18 +86,19 @@ class ComprehensionTlv {
      *
      * @param data A byte array containing data to be parsed
      * @param startIndex Index in data at which to start parsing
-     * @return A list of COMPREHENSION-TLV objects parsed
+     * @return A list of COMPREHENSION-TLV objects parsed, indexed by tag
      * @throws ResultException
      */
-    public static List<ComprehensionTlv> decodeMany(byte[] data, int startIndex)
+    public static ComprehensionTlvIndex decodeMany(byte[] data, int startIndex)
             throws ResultException {
-        ArrayList<ComprehensionTlv> items = new ArrayList<ComprehensionTlv>();
+        ComprehensionTlvIndex items = new ComprehensionTlvIndex(data);
+        int[] header = new int[HEADER_SIZE];
         int endIndex = data.length;
         while (startIndex < endIndex) {
-            ComprehensionTlv ctlv = ComprehensionTlv.decode(data, startIndex);
-            if (ctlv != null) {
-                items.add(ctlv);
-                startIndex = ctlv.mValueIndex + ctlv.mLength;
+            if (decodeHeader(data, startIndex, header)) {
+                items.add(header[HEADER_TAG], header[HEADER_CR] != 0,
+                        header[HEADER_LENGTH], header[HEADER_VALUE_INDEX]);
+                startIndex = header[HEADER_VALUE_INDEX] + header[HEADER_LENGTH];
             } else {
                 CatLog.d(LOG_TAG, "decodeMany: ctlv is null, stop decoding");
                 break;
@@ -113,6 +118,26 @@ class ComprehensionTlv {
      */
     public static ComprehensionTlv decode(byte[] data, int startIndex)
             throws ResultException {
+        int[] header = new int[HEADER_SIZE];
+        if (!decodeHeader(data, startIndex, header)) {
+            return null;
+        }
+        return new ComprehensionTlv(header[HEADER_TAG], header[HEADER_CR] != 0,
+                header[HEADER_LENGTH], data, header[HEADER_VALUE_INDEX]);
+    }
+
+    /**
+     * Parses the tag and length of a COMPREHENSION-TLV object without
+     * allocating it.
+     *
+     * @param data A byte array containing data to be parsed
+     * @param startIndex Index in data at which to start parsing
+     * @param header Receives the tag, CR flag, length and value index
+     * @return false if no object can be decoded at startIndex
+     * @throws ResultException
+     */
+    private static boolean decodeHeader(byte[] data, int startIndex, int[] header)
+            throws ResultException {
         int curIndex = startIndex;
         int endIndex = data.length;
 
@@ -130,7 +155,7 @@ class ComprehensionTlv {
                         " endIndex=" + endIndex);
                 // Return null which will stop decoding, this has occurred
                 // with Ghana MTN simcard and JDI simcard.
-                return null;
+                return false;
 
             case 0x7f: // tag is in three-byte format
                 tag = ((data[curIndex] & 0xff) << 8)
@@ -192,7 +217,11 @@ class ComprehensionTlv {
 
             }
 
-            return new ComprehensionTlv(tag, cr, length, data, curIndex);
+            header[HEADER_TAG] = tag;
+            header[HEADER_CR] = cr ? 1 : 0;
+            header[HEADER_LENGTH] = length;
+            header[HEADER_VALUE_INDEX] = curIndex;
+            return true;
 
         } catch (IndexOutOfBoundsException e) {
             throw new ResultException(ResultCode.CMD_DATA_NOT_UNDERSTOOD,
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.cat;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * List of the COMPREHENSION-TLV objects of a proactive command, in the order
+ * they appear in the command.
+ *
+ * The objects are decoded in a single pass into a flat int array holding the
+ * tag, length and value offset of each object, which point into the raw
+ * command data instead of copying it. {@link ComprehensionTlv} instances are
+ * only created for the entries that are actually read through
+ * {@link #get(int)}, and are not kept.
+ *
+ * A command has a few dozen objects at most, so {@link #indexOfTag(int)} scans
+ * the entries linearly rather than keep a table per tag. Each entry links to
+ * the next entry with the same tag for repeated objects such as items.
+ *
+ * {@hide}
+ */
+class ComprehensionTlvIndex extends AbstractList<ComprehensionTlv> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Layout of an entry in mEntries
+    private static final int TAG = 0;
+    private static final int LENGTH = 1;
+    private static final int VALUE_INDEX = 2;
+    // Position of the next entry with the same tag, or -1
+    private static final int NEXT_SAME_TAG = 3;
+    private static final int ENTRY_SIZE = 4;
+    // Set in the tag of an entry when comprehension is required
+    private static final int CR_FLAG = 0x80000000;
+
+    private final byte[] mRawValue;
+    private int mSize;
+    private int[] mEntries = new int[INITIAL_CAPACITY * ENTRY_SIZE];
+
+    ComprehensionTlvIndex(byte[] data) {
+        mRawValue = data;
+    }
+
+    void add(int tag, boolean cr, int length, int valueIndex) {
+        int offset = mSize * ENTRY_SIZE;
+        if (offset == mEntries.length) {
+            mEntries = Arrays.copyOf(mEntries, offset * 2);
+        }
+        int[] entries = mEntries;
+        entries[offset + TAG] = cr ? tag | CR_FLAG : tag;
+        entries[offset + LENGTH] = length;
+        entries[offset + VALUE_INDEX] = valueIndex;
+        entries[offset + NEXT_SAME_TAG] = -1;
+
+        // Repeated objects like items usually follow each other
+        for (int i = offset - ENTRY_SIZE; i >= 0; i -= ENTRY_SIZE) {
+            if ((entries[i + TAG] & ~CR_FLAG) == tag) {
+                entries[i + NEXT_SAME_TAG] = mSize;
+                break;
+            }
+        }
+        mSize++;
+    }
+
+    /**
+     * @return the position of the first object with the given tag value,
+     *         or -1 if there is none
+     */
+    int indexOfTag(int tag) {
+        int[] entries = mEntries;
+        for (int i = 0; i < mSize; i++) {
+            if ((entries[i * ENTRY_SIZE + TAG] & ~CR_FLAG) == tag) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the position of the next object after {@code index} with the
+     *         same tag as the object at {@code index}, or -1 if there is none
+     */
+    int nextIndexOfSameTag(int index) {
+        checkIndex(index);
+        return mEntries[index * ENTRY_SIZE + NEXT_SAME_TAG];
+    }
+
+    /**
+     * @return the first object with the given tag, or null if there is none
+     */
+    ComprehensionTlv getByTag(int tag) {
+        int index = indexOfTag(tag);
+        return index < 0 ? null : get(index);
+    }
+
+    int getTag(int index) {
+        checkIndex(index);
+        return mEntries[index * ENTRY_SIZE + TAG] & ~CR_FLAG;
+    }
+
+    int getLength(int index) {
+        checkIndex(index);
+        return mEntries[index * ENTRY_SIZE + LENGTH];
+    }
+
+    int getValueIndex(int index) {
+        checkIndex(index);
+        return mEntries[index * ENTRY_SIZE + VALUE_INDEX];
+    }
+
+    @Override
+    public ComprehensionTlv get(int index) {
+        checkIndex(index);
+        int offset = index * ENTRY_SIZE;
+        int tag = mEntries[offset + TAG];
+        return new ComprehensionTlv(tag & ~CR_FLAG, (tag & CR_FLAG) != 0,
+                mEntries[offset + LENGTH], mRawValue, mEntries[offset + VALUE_INDEX]);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index=" + index + " size=" + mSize);
+        }
+    }
+}
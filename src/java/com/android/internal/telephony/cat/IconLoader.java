@@ -17,6 +17,8 @@
 package com.android.internal.telephony.cat;
 
 import com.android.internal.telephony.uicc.IccFileHandler;
+import com.android.internal.telephony.uicc.UiccCard;
+import com.android.internal.telephony.uicc.UiccController;
 
 import android.graphics.Bitmap;
 import android.graphics.Color;
@@ -25,27 +27,31 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
-import java.util.HashMap;
+import android.util.LruCache;
 
 /**
  * Class for loading icons from the SIM card. Has two states: single, for loading
  * one icon. Multi, for loading icons list.
  *
+ * In multi state up to {@link #MAX_PARALLEL_LOADS} icons are read from the SIM
+ * at the same time. Decoded icons are kept in a memory bounded LRU cache shared
+ * by all loaders and keyed by slot, ICCID and EF-IMG record number. The icons
+ * of a slot are dropped when its card is removed.
  */
 class IconLoader extends Handler {
     // members
     private int mState = STATE_SINGLE_ICON;
-    private ImageDescriptor mId = null;
-    private Bitmap mCurrentIcon = null;
-    private int mRecordNumber;
     private IccFileHandler mSimFH = null;
+    private final int mSlotId;
     private Message mEndMsg = null;
-    private byte[] mIconData = null;
-    // multi icons state members
+    // Incremented on every load request so that results of an abandoned
+    // request are ignored.
+    private int mLoadId = 0;
     private int[] mRecordNumbers = null;
-    private int mCurrentRecordIndex = 0;
     private Bitmap[] mIcons = null;
-    private HashMap<Integer, Bitmap> mIconsCache = null;
+    private int mNextRecordIndex = 0;
+    private int mLoadedCount = 0;
+    private int mPendingLoads = 0;
 
     private static IconLoader sLoader = null;
     private static HandlerThread sThread = null;
@@ -66,109 +72,205 @@ class IconLoader extends Handler {
     // CLUT entry size, {Red, Green, Black}
     private static final int CLUT_ENTRY_SIZE = 3;
 
+    // Number of icons read from the SIM at the same time.
+    private static final int MAX_PARALLEL_LOADS = 4;
+    // Upper bound of the memory used by cached icons.
+    private static final int MAX_ICONS_CACHE_BYTES = 1024 * 1024;
 
-    private IconLoader(Looper looper , IccFileHandler fh) {
+    private static final LruCache<IconKey, Bitmap> sIconsCache =
+            new LruCache<IconKey, Bitmap>(MAX_ICONS_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(IconKey key, Bitmap icon) {
+            return icon.getByteCount();
+        }
+    };
+
+    // Cache key, icons of different SIM cards must not be mixed up.
+    private static final class IconKey {
+        final int mSlotId;
+        final String mIccId;
+        final int mRecordNumber;
+
+        IconKey(int slotId, String iccId, int recordNumber) {
+            mSlotId = slotId;
+            mIccId = iccId;
+            mRecordNumber = recordNumber;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IconKey)) {
+                return false;
+            }
+            IconKey other = (IconKey) o;
+            return mSlotId == other.mSlotId && mRecordNumber == other.mRecordNumber
+                    && mIccId.equals(other.mIccId);
+        }
+
+        @Override
+        public int hashCode() {
+            return (mIccId.hashCode() * 31 + mSlotId) * 31 + mRecordNumber;
+        }
+    }
+
+    // Icon being read: EF-IMG record, then image instance, then CLUT if needed.
+    private static final class IconRequest {
+        final int mLoadId;
+        final int mIndex;
+        final int mRecordNumber;
+        ImageDescriptor mId;
+        byte[] mIconData;
+
+        IconRequest(int loadId, int index, int recordNumber) {
+            mLoadId = loadId;
+            mIndex = index;
+            mRecordNumber = recordNumber;
+        }
+    }
+
+
+    private IconLoader(Looper looper , IccFileHandler fh, int slotId) {
         super(looper);
         mSimFH = fh;
-
-        mIconsCache = new HashMap<Integer, Bitmap>(50);
+        mSlotId = slotId;
     }
 
-    static IconLoader getInstance(Handler caller, IccFileHandler fh) {
+    static IconLoader getInstance(Handler caller, IccFileHandler fh, int slotId) {
         if (sLoader != null) {
             return sLoader;
         }
         if (fh != null) {
             sThread = new HandlerThread("Cat Icon Loader");
             sThread.start();
-            return new IconLoader(sThread.getLooper(), fh);
+            return new IconLoader(sThread.getLooper(), fh, slotId);
         }
         return null;
     }
 
+    // Key of an icon of the card in the slot, null while its ICCID is unknown
+    private IconKey iconKey(int recordNumber) {
+        UiccCard card = UiccController.getInstance().getUiccCard(mSlotId);
+        String iccId = card != null ? card.getIccId() : null;
+        return iccId != null ? new IconKey(mSlotId, iccId, recordNumber) : null;
+    }
+
     void loadIcons(int[] recordNumbers, Message msg) {
         if (recordNumbers == null || recordNumbers.length == 0 || msg == null) {
             return;
         }
-        mEndMsg = msg;
-        // initialize multi icons load variables.
-        mIcons = new Bitmap[recordNumbers.length];
-        mRecordNumbers = recordNumbers;
-        mCurrentRecordIndex = 0;
         mState = STATE_MULTI_ICONS;
-        startLoadingIcon(recordNumbers[0]);
+        startLoading(recordNumbers, msg);
     }
 
     void loadIcon(int recordNumber, Message msg) {
         if (msg == null) {
             return;
         }
-        mEndMsg = msg;
         mState = STATE_SINGLE_ICON;
-        startLoadingIcon(recordNumber);
+        startLoading(new int[] { recordNumber }, msg);
     }
 
-    private void startLoadingIcon(int recordNumber) {
+    private void startLoading(int[] recordNumbers, Message msg) {
         // Reset the load variables.
-        mId = null;
-        mIconData = null;
-        mCurrentIcon = null;
-        mRecordNumber = recordNumber;
-
-        // make sure the icon was not already loaded and saved in the local cache.
-        if (mIconsCache.containsKey(recordNumber)) {
-            mCurrentIcon = mIconsCache.get(recordNumber);
-            postIcon();
+        mLoadId++;
+        mEndMsg = msg;
+        mRecordNumbers = recordNumbers;
+        mIcons = new Bitmap[recordNumbers.length];
+        mNextRecordIndex = 0;
+        mLoadedCount = 0;
+        mPendingLoads = 0;
+        startPendingIcons();
+    }
+
+    // Start loading icons until MAX_PARALLEL_LOADS are read at the same time.
+    private void startPendingIcons() {
+        while (mPendingLoads < MAX_PARALLEL_LOADS
+                && mNextRecordIndex < mRecordNumbers.length) {
+            startLoadingIcon(mNextRecordIndex++);
+        }
+        if (mLoadedCount == mRecordNumbers.length) {
+            postIcons();
+        }
+    }
+
+    private void startLoadingIcon(int index) {
+        int recordNumber = mRecordNumbers[index];
+        if (recordNumber < 0) {
+            iconLoaded(index, null);
+            return;
+        }
+
+        // make sure the icon was not already loaded and saved in the cache.
+        IconKey key = iconKey(recordNumber);
+        Bitmap icon = key != null ? sIconsCache.get(key) : null;
+        if (icon != null) {
+            iconLoaded(index, icon);
             return;
         }
 
         // start the first phase ==> loading Image Descriptor.
-        readId();
+        mPendingLoads++;
+        readId(new IconRequest(mLoadId, index, recordNumber));
+    }
+
+    private void iconLoaded(int index, Bitmap icon) {
+        mIcons[index] = icon;
+        mLoadedCount++;
+    }
+
+    // Called when reading an icon from the SIM is over, icon is null on failure.
+    private void iconReadDone(IconRequest request, Bitmap icon) {
+        mPendingLoads--;
+        IconKey key = icon != null ? iconKey(request.mRecordNumber) : null;
+        if (key != null) {
+            sIconsCache.put(key, icon);
+        }
+        iconLoaded(request.mIndex, icon);
+        startPendingIcons();
     }
 
     @Override
     public void handleMessage(Message msg) {
-        AsyncResult ar;
+        AsyncResult ar = (AsyncResult) msg.obj;
+        IconRequest request = (IconRequest) ar.userObj;
+
+        if (request.mLoadId != mLoadId) {
+            CatLog.d(this, "Ignore result of an abandoned icon load");
+            return;
+        }
 
         try {
             switch (msg.what) {
             case EVENT_READ_EF_IMG_RECOED_DONE:
-                ar = (AsyncResult) msg.obj;
-                if (handleImageDescriptor((byte[]) ar.result)) {
-                    readIconData();
+                if (handleImageDescriptor(request, (byte[]) ar.result)) {
+                    readIconData(request);
                 } else {
                     throw new Exception("Unable to parse image descriptor");
                 }
                 break;
             case EVENT_READ_ICON_DONE:
                 CatLog.d(this, "load icon done");
-                ar = (AsyncResult) msg.obj;
                 byte[] rawData = ((byte[]) ar.result);
-                if (mId.mCodingScheme == ImageDescriptor.CODING_SCHEME_BASIC) {
-                    mCurrentIcon = parseToBnW(rawData, rawData.length);
-                    mIconsCache.put(mRecordNumber, mCurrentIcon);
-                    postIcon();
-                } else if (mId.mCodingScheme == ImageDescriptor.CODING_SCHEME_COLOUR) {
-                    mIconData = rawData;
-                    readClut();
+                if (request.mId.mCodingScheme == ImageDescriptor.CODING_SCHEME_BASIC) {
+                    iconReadDone(request, parseToBnW(rawData, rawData.length));
+                } else if (request.mId.mCodingScheme == ImageDescriptor.CODING_SCHEME_COLOUR) {
+                    request.mIconData = rawData;
+                    readClut(request);
                 } else {
                     CatLog.d(this, "else  /postIcon ");
-                    postIcon();
+                    iconReadDone(request, null);
                 }
                 break;
             case EVENT_READ_CLUT_DONE:
-                ar = (AsyncResult) msg.obj;
                 byte [] clut = ((byte[]) ar.result);
-                mCurrentIcon = parseToRGB(mIconData, mIconData.length,
-                        false, clut);
-                mIconsCache.put(mRecordNumber, mCurrentIcon);
-                postIcon();
+                iconReadDone(request, parseToRGB(request.mIconData,
+                        request.mIconData.length, false, clut));
                 break;
             }
         } catch (Exception e) {
             CatLog.d(this, "Icon load failed");
             // post null icon back to the caller.
-            postIcon();
+            iconReadDone(request, null);
         }
     }
 
@@ -179,55 +281,48 @@ class IconLoader extends Handler {
      * @param rawData byte [] containing Image Instance descriptor as defined in
      * TS 51.011.
      */
-    private boolean handleImageDescriptor(byte[] rawData) {
-        mId = ImageDescriptor.parse(rawData, 1);
-        if (mId == null) {
+    private boolean handleImageDescriptor(IconRequest request, byte[] rawData) {
+        request.mId = ImageDescriptor.parse(rawData, 1);
+        if (request.mId == null) {
             return false;
         }
         return true;
     }
 
     // Start reading color lookup table from SIM card.
-    private void readClut() {
-        int length = mIconData[3] * CLUT_ENTRY_SIZE;
-        Message msg = obtainMessage(EVENT_READ_CLUT_DONE);
-        mSimFH.loadEFImgTransparent(mId.mImageId,
-                mIconData[CLUT_LOCATION_OFFSET],
-                mIconData[CLUT_LOCATION_OFFSET + 1], length, msg);
+    private void readClut(IconRequest request) {
+        byte[] iconData = request.mIconData;
+        int length = iconData[3] * CLUT_ENTRY_SIZE;
+        Message msg = obtainMessage(EVENT_READ_CLUT_DONE, request);
+        mSimFH.loadEFImgTransparent(request.mId.mImageId,
+                iconData[CLUT_LOCATION_OFFSET],
+                iconData[CLUT_LOCATION_OFFSET + 1], length, msg);
     }
 
     // Start reading Image Descriptor from SIM card.
-    private void readId() {
-        if (mRecordNumber < 0) {
-            mCurrentIcon = null;
-            postIcon();
-            return;
-        }
-        Message msg = obtainMessage(EVENT_READ_EF_IMG_RECOED_DONE);
-        mSimFH.loadEFImgLinearFixed(mRecordNumber, msg);
+    private void readId(IconRequest request) {
+        Message msg = obtainMessage(EVENT_READ_EF_IMG_RECOED_DONE, request);
+        mSimFH.loadEFImgLinearFixed(request.mRecordNumber, msg);
     }
 
     // Start reading icon bytes array from SIM card.
-    private void readIconData() {
-        Message msg = obtainMessage(EVENT_READ_ICON_DONE);
-        mSimFH.loadEFImgTransparent(mId.mImageId, 0, 0, mId.mLength ,msg);
+    private void readIconData(IconRequest request) {
+        Message msg = obtainMessage(EVENT_READ_ICON_DONE, request);
+        mSimFH.loadEFImgTransparent(request.mId.mImageId, 0, 0, request.mId.mLength, msg);
     }
 
-    // When all is done pass icon back to caller.
-    private void postIcon() {
+    // When all is done pass icons back to caller.
+    private void postIcons() {
+        if (mEndMsg == null) {
+            return;
+        }
         if (mState == STATE_SINGLE_ICON) {
-            mEndMsg.obj = mCurrentIcon;
-            mEndMsg.sendToTarget();
+            mEndMsg.obj = mIcons[0];
         } else if (mState == STATE_MULTI_ICONS) {
-            mIcons[mCurrentRecordIndex++] = mCurrentIcon;
-            // If not all icons were loaded, start loading the next one.
-            if (mCurrentRecordIndex < mRecordNumbers.length) {
-                startLoadingIcon(mRecordNumbers[mCurrentRecordIndex]);
-            } else {
-                mEndMsg.obj = mIcons;
-                mEndMsg.sendToTarget();
-            }
+            mEndMsg.obj = mIcons;
         }
+        mEndMsg.sendToTarget();
+        mEndMsg = null;
     }
 
     /**
@@ -363,12 +458,18 @@ class IconLoader extends Handler {
         return mask;
     }
     public void dispose() {
+        // The card was removed, its icons can not be asked for again
+        for (IconKey key : sIconsCache.snapshot().keySet()) {
+            if (key.mSlotId == mSlotId) {
+                sIconsCache.remove(key);
+            }
+        }
+        mLoadId++;
         mSimFH = null;
         if (sThread != null) {
             sThread.quit();
             sThread = null;
         }
-        mIconsCache = null;
         sLoader = null;
     }
 }
@@ -67,7 +67,7 @@ class RilMessageDecoder extends StateMachine {
 
         if (slotId != SubscriptionManager.INVALID_SIM_SLOT_INDEX && slotId < mSimCount) {
             if (null == mInstance[slotId]) {
-                mInstance[slotId] = new RilMessageDecoder(caller, fh);
+                mInstance[slotId] = new RilMessageDecoder(caller, fh, slotId);
             }
         } else {
             CatLog.d("RilMessageDecoder", "invaild slot id: " + slotId);
@@ -108,7 +108,7 @@ class RilMessageDecoder extends StateMachine {
         msg.sendToTarget();
     }
 
-    private RilMessageDecoder(Handler caller, IccFileHandler fh) {
+    private RilMessageDecoder(Handler caller, IccFileHandler fh, int slotId) {
         super("RilMessageDecoder");
 
         addState(mStateStart);
@@ -116,7 +116,7 @@ class RilMessageDecoder extends StateMachine {
         setInitialState(mStateStart);
 
         mCaller = caller;
-        mCmdParamsFactory = CommandParamsFactory.getInstance(this, fh);
+        mCmdParamsFactory = CommandParamsFactory.getInstance(this, fh, slotId);
     }
 
     private RilMessageDecoder() {
@@ -22,6 +22,7 @@ import com.android.internal.telephony.CommandException;
 import com.android.internal.telephony.uicc.UiccCardApplication;
 import com.android.internal.telephony.uicc.IccCardApplicationStatus.AppState;
 import com.android.internal.telephony.MmiCode;
+import com.android.internal.telephony.MmiDialString;
 import com.android.internal.telephony.Phone;
 
 import android.os.AsyncResult;
@@ -29,9 +30,6 @@ import android.os.Handler;
 import android.os.Message;
 import android.telephony.Rlog;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
 /**
  * This class can handle Puk code Mmi
  *
@@ -72,31 +70,6 @@ public final class CdmaMmiCode  extends Handler implements MmiCode {
     State mState = State.PENDING;
     CharSequence mMessage;
 
-    // Class Variables
-
-    static Pattern sPatternSuppService = Pattern.compile(
-        "((\\*|#|\\*#|\\*\\*|##)(\\d{2,3})(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*))?)?)?)?#)(.*)");
-/*       1  2                    3          4  5       6   7         8    9     10  11             12
-
-         1 = Full string up to and including #
-         2 = action
-         3 = service code
-         5 = SIA
-         7 = SIB
-         9 = SIC
-         10 = dialing number
-*/
-
-    static final int MATCH_GROUP_POUND_STRING = 1;
-    static final int MATCH_GROUP_ACTION = 2;
-    static final int MATCH_GROUP_SERVICE_CODE = 3;
-    static final int MATCH_GROUP_SIA = 5;
-    static final int MATCH_GROUP_SIB = 7;
-    static final int MATCH_GROUP_SIC = 9;
-    static final int MATCH_GROUP_PWD_CONFIRM = 11;
-    static final int MATCH_GROUP_DIALING_NUMBER = 12;
-
-
     // Public Class methods
 
     /**
@@ -106,40 +79,27 @@ public final class CdmaMmiCode  extends Handler implements MmiCode {
 
     public static CdmaMmiCode
     newFromDialString(String dialString, CDMAPhone phone, UiccCardApplication app) {
-        Matcher m;
         CdmaMmiCode ret = null;
 
-        m = sPatternSuppService.matcher(dialString);
+        MmiDialString mmi = MmiDialString.parse(dialString);
 
         // Is this formatted like a standard supplementary service code?
-        if (m.matches()) {
+        if (mmi.isSuppService()) {
             ret = new CdmaMmiCode(phone,app);
-            ret.mPoundString = makeEmptyNull(m.group(MATCH_GROUP_POUND_STRING));
-            ret.mAction = makeEmptyNull(m.group(MATCH_GROUP_ACTION));
-            ret.mSc = makeEmptyNull(m.group(MATCH_GROUP_SERVICE_CODE));
-            ret.mSia = makeEmptyNull(m.group(MATCH_GROUP_SIA));
-            ret.mSib = makeEmptyNull(m.group(MATCH_GROUP_SIB));
-            ret.mSic = makeEmptyNull(m.group(MATCH_GROUP_SIC));
-            ret.mPwd = makeEmptyNull(m.group(MATCH_GROUP_PWD_CONFIRM));
-            ret.mDialingNumber = makeEmptyNull(m.group(MATCH_GROUP_DIALING_NUMBER));
+            ret.mPoundString = mmi.getPoundString();
+            ret.mAction = mmi.getAction();
+            ret.mSc = mmi.getServiceCode();
+            ret.mSia = mmi.getSia();
+            ret.mSib = mmi.getSib();
+            ret.mSic = mmi.getSic();
+            ret.mPwd = mmi.getPwd();
+            ret.mDialingNumber = mmi.getDialingNumber();
 
         }
 
         return ret;
     }
 
-    // Private Class methods
-
-    /** make empty strings be null.
-     *  Regexp returns empty strings for empty groups
-     */
-    private static String
-    makeEmptyNull (String s) {
-        if (s != null && s.length() == 0) return null;
-
-        return s;
-    }
-
     // Constructor
 
     CdmaMmiCode (CDMAPhone phone, UiccCardApplication app) {
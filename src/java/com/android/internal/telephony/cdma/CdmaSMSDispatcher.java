@@ -41,7 +41,6 @@ import com.android.internal.telephony.SmsUsageMonitor;
 import com.android.internal.telephony.TelephonyProperties;
 import com.android.internal.telephony.cdma.sms.UserData;
 
-import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -112,8 +111,8 @@ public class CdmaSMSDispatcher extends SMSDispatcher {
         SmsMessage.SubmitPdu pdu = SmsMessage.getSubmitPdu(
                 scAddr, destAddr, destPort, data, (deliveryIntent != null));
         if (pdu != null) {
-            HashMap map = getSmsTrackerMap(destAddr, scAddr, destPort, data, pdu);
-            SmsTracker tracker = getSmsTracker(map, sentIntent, deliveryIntent, getFormat(),
+            SmsTrackerData trackerData = getSmsTrackerData(destAddr, scAddr, destPort, data, pdu);
+            SmsTracker tracker = getSmsTracker(trackerData, sentIntent, deliveryIntent, getFormat(),
                     null /*messageUri*/, false /*isExpectMore*/, null /*fullMessageText*/,
                     false /*isText*/, true /*persistMessage*/);
 
@@ -146,8 +145,8 @@ public class CdmaSMSDispatcher extends SMSDispatcher {
         SmsMessage.SubmitPdu pdu = SmsMessage.getSubmitPdu(
                 scAddr, destAddr, text, (deliveryIntent != null), null, priority);
         if (pdu != null) {
-            HashMap map = getSmsTrackerMap(destAddr, scAddr, text, pdu);
-            SmsTracker tracker = getSmsTracker(map, sentIntent, deliveryIntent, getFormat(),
+            SmsTrackerData trackerData = getSmsTrackerData(destAddr, scAddr, text, pdu);
+            SmsTracker tracker = getSmsTracker(trackerData, sentIntent, deliveryIntent, getFormat(),
                     messageUri, isExpectMore, text, true /*isText*/, validityPeriod,
                     persistMessage);
 
@@ -216,9 +215,9 @@ public class CdmaSMSDispatcher extends SMSDispatcher {
         SmsMessage.SubmitPdu submitPdu = SmsMessage.getSubmitPdu(destinationAddress,
                 uData, (deliveryIntent != null) && lastPart, priority);
 
-        HashMap map = getSmsTrackerMap(destinationAddress, scAddress,
+        SmsTrackerData trackerData = getSmsTrackerData(destinationAddress, scAddress,
                 message, submitPdu);
-        return getSmsTracker(map, sentIntent, deliveryIntent,
+        return getSmsTracker(trackerData, sentIntent, deliveryIntent,
                 getFormat(), unsentPartCount, anyPartFailed, messageUri, smsHeader,
                 (!lastPart || isExpectMore), fullMessageText, true /*isText*/, validityPeriod,
                 true /*persistMessage*/);
@@ -239,10 +238,8 @@ public class CdmaSMSDispatcher extends SMSDispatcher {
     /** {@inheritDoc} */
     @Override
     protected void sendSms(SmsTracker tracker) {
-        HashMap<String, Object> map = tracker.mData;
-
-        // byte[] smsc = (byte[]) map.get("smsc");  // unused for CDMA
-        byte[] pdu = (byte[]) map.get("pdu");
+        // byte[] smsc = tracker.mData.mSmsc;  // unused for CDMA
+        byte[] pdu = tracker.mData.mPdu;
 
         Rlog.d(TAG, "sendSms: "
                 + " isIms()=" + isIms()
@@ -251,7 +248,7 @@ public class CdmaSMSDispatcher extends SMSDispatcher {
                 + " mMessageRef=" + tracker.mMessageRef
                 + " SS=" + mPhone.getServiceState().getState());
 
-        sendSmsByPstn(tracker);
+        queueSmsByPstn(tracker);
     }
 
     /** {@inheritDoc} */
@@ -265,7 +262,7 @@ public class CdmaSMSDispatcher extends SMSDispatcher {
         }
 
         Message reply = obtainMessage(EVENT_SEND_SMS_COMPLETE, tracker);
-        byte[] pdu = (byte[]) tracker.mData.get("pdu");
+        byte[] pdu = tracker.mData.mPdu;
 
         int currentDataNetwork = mPhone.getServiceState().getDataNetworkType();
         boolean imsSmsDisabled = (currentDataNetwork == TelephonyManager.NETWORK_TYPE_EHRPD
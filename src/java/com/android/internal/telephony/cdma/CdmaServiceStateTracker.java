@@ -62,6 +62,7 @@ import com.android.internal.telephony.PhoneFactory;
 import com.android.internal.telephony.ServiceStateTracker;
 import com.android.internal.telephony.TelephonyIntents;
 import com.android.internal.telephony.TelephonyProperties;
+import com.android.internal.telephony.TimeZoneResolver;
 import com.android.internal.telephony.dataconnection.DcTrackerBase;
 import com.android.internal.telephony.uicc.UiccCardApplication;
 import com.android.internal.telephony.uicc.UiccController;
@@ -71,7 +72,6 @@ import java.io.FileDescriptor;
 import java.io.PrintWriter;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
 
@@ -1128,7 +1128,7 @@ public class CdmaServiceStateTracker extends ServiceStateTracker {
             zone = getNitzTimeZone(mZoneOffset, mZoneDst, mZoneTime);
             if (DBG) log("fixTimeZone: using NITZ TimeZone");
         } else {
-            zone = TimeUtils.getTimeZone(mZoneOffset, mZoneDst, mZoneTime, isoCountryCode);
+            zone = TimeZoneResolver.getTimeZone(mZoneOffset, mZoneDst, mZoneTime, isoCountryCode);
             if (DBG) log("fixTimeZone: using getTimeZone(off, dst, time, iso)");
         }
 
@@ -1452,35 +1452,11 @@ public class CdmaServiceStateTracker extends ServiceStateTracker {
      * Returns a TimeZone object based only on parameters from the NITZ string.
      */
     private TimeZone getNitzTimeZone(int offset, boolean dst, long when) {
-        TimeZone guess = findTimeZone(offset, dst, when);
-        if (guess == null) {
-            // Couldn't find a proper timezone.  Perhaps the DST data is wrong.
-            guess = findTimeZone(offset, !dst, when);
-        }
+        TimeZone guess = TimeZoneResolver.getNitzTimeZone(offset, dst, when);
         if (DBG) log("getNitzTimeZone returning " + (guess == null ? guess : guess.getID()));
         return guess;
     }
 
-    private TimeZone findTimeZone(int offset, boolean dst, long when) {
-        int rawOffset = offset;
-        if (dst) {
-            rawOffset -= MS_PER_HOUR;
-        }
-        String[] zones = TimeZone.getAvailableIDs(rawOffset);
-        TimeZone guess = null;
-        Date d = new Date(when);
-        for (String zone : zones) {
-            TimeZone tz = TimeZone.getTimeZone(zone);
-            if (tz.getOffset(when) == offset &&
-                    tz.inDaylightTime(d) == dst) {
-                guess = tz;
-                break;
-            }
-        }
-
-        return guess;
-    }
-
     /**
      * TODO: This code is exactly the same as in GsmServiceStateTracker
      * and has a TODO to not poll signal strength if screen is off.
@@ -1699,7 +1675,7 @@ public class CdmaServiceStateTracker extends ServiceStateTracker {
             if (zone == null) {
                 if (mGotCountryCode) {
                     if (iso != null && iso.length() > 0) {
-                        zone = TimeUtils.getTimeZone(tzOffset, dst != 0,
+                        zone = TimeZoneResolver.getTimeZone(tzOffset, dst != 0,
                                 c.getTimeInMillis(),
                                 iso);
                     } else {
@@ -89,6 +89,7 @@ import java.io.FileDescriptor;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Objects;
 import java.lang.StringBuilder;
@@ -1276,6 +1277,9 @@ public class DcTracker extends DcTrackerBase {
     protected ArrayList<ApnSetting> createApnList(Cursor cursor, IccRecords r) {
         ArrayList<ApnSetting> mnoApns = new ArrayList<ApnSetting>();
         ArrayList<ApnSetting> mvnoApns = new ArrayList<ApnSetting>();
+        // MVNO candidates are matched together against one read of the SIM
+        ArrayList<ApnSetting> mvnoCandidates = new ArrayList<ApnSetting>();
+        MvnoMatcher mvnoMatcher = new MvnoMatcher();
 
         if (cursor.moveToFirst()) {
             do {
@@ -1285,8 +1289,9 @@ public class DcTracker extends DcTrackerBase {
                 }
 
                 if (apn.hasMvnoParams()) {
-                    if (r != null && ApnSetting.mvnoMatches(r, apn.mvnoType, apn.mvnoMatchData)) {
-                        mvnoApns.add(apn);
+                    if (r != null) {
+                        mvnoMatcher.add(mvnoCandidates.size(), apn.mvnoType, apn.mvnoMatchData);
+                        mvnoCandidates.add(apn);
                     }
                 } else {
                     mnoApns.add(apn);
@@ -1294,6 +1299,13 @@ public class DcTracker extends DcTrackerBase {
             } while (cursor.moveToNext());
         }
 
+        if (!mvnoMatcher.isEmpty()) {
+            BitSet matched = mvnoMatcher.match(MvnoMatcher.SimIdentity.from(r));
+            for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                mvnoApns.add(mvnoCandidates.get(i));
+            }
+        }
+
         ArrayList<ApnSetting> result;
         if (mvnoApns.isEmpty()) {
             result = mnoApns;
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.dataconnection;
+
+import com.android.internal.telephony.uicc.IccRecords;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * MVNO match data of a set of APNs, compiled for matching all of them at once.
+ *
+ * Rules are added with the index of their APN. SPNs are kept in a hash map,
+ * IMSI patterns, GID1 prefixes and ICCID prefixes in tries, so that one walk
+ * over each identifier of the SIM finds every rule it satisfies. A rule
+ * matches exactly when {@link ApnSetting#mvnoMatches} does.
+ *
+ * {@hide}
+ */
+public class MvnoMatcher {
+    /**
+     * Identifiers of the SIM, read once for a match.
+     */
+    public static class SimIdentity {
+        final String mSpn;
+        final String mImsi;
+        final String mGid1;
+        final String mIccId;
+
+        public SimIdentity(String spn, String imsi, String gid1, String iccId) {
+            mSpn = spn;
+            mImsi = imsi;
+            mGid1 = gid1;
+            mIccId = iccId;
+        }
+
+        public static SimIdentity from(IccRecords r) {
+            return new SimIdentity(r.getServiceProviderName(), r.getIMSI(), r.getGid1(),
+                    r.getIccId());
+        }
+    }
+
+    /**
+     * Trie of patterns, each node listing the rules whose pattern ends there.
+     */
+    private static class Trie {
+        private static final char ANY = 'x';
+
+        private static class Node {
+            char[] mKeys = new char[0];
+            Node[] mNext = new Node[0];
+            int[] mRules = new int[0];
+
+            Node child(char key) {
+                for (int i = 0; i < mKeys.length; i++) {
+                    if (mKeys[i] == key) {
+                        return mNext[i];
+                    }
+                }
+                Node node = new Node();
+                int size = mKeys.length;
+                mKeys = Arrays.copyOf(mKeys, size + 1);
+                mNext = Arrays.copyOf(mNext, size + 1);
+                mKeys[size] = key;
+                mNext[size] = node;
+                return node;
+            }
+        }
+
+        // Whether 'x' and 'X' in patterns match any character
+        private final boolean mWildcard;
+        private final boolean mIgnoreCase;
+        private final Node mRoot = new Node();
+
+        Trie(boolean wildcard, boolean ignoreCase) {
+            mWildcard = wildcard;
+            mIgnoreCase = ignoreCase;
+        }
+
+        void add(String pattern, int rule) {
+            Node node = mRoot;
+            for (int i = 0; i < pattern.length(); i++) {
+                node = node.child(key(pattern.charAt(i)));
+            }
+            node.mRules = Arrays.copyOf(node.mRules, node.mRules.length + 1);
+            node.mRules[node.mRules.length - 1] = rule;
+        }
+
+        private char key(char c) {
+            if (mWildcard && (c == 'x' || c == 'X')) {
+                return ANY;
+            }
+            // Same folding as String.equalsIgnoreCase
+            return mIgnoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+        }
+
+        /**
+         * Add the rules of all patterns that are a prefix of s to matched.
+         */
+        void match(String s, BitSet matched) {
+            if (mWildcard) {
+                match(mRoot, s, 0, matched);
+                return;
+            }
+            Node node = mRoot;
+            for (int pos = 0; node != null; pos++) {
+                for (int rule : node.mRules) {
+                    matched.set(rule);
+                }
+                if (pos == s.length()) {
+                    return;
+                }
+                char c = key(s.charAt(pos));
+                Node next = null;
+                for (int i = 0; i < node.mKeys.length; i++) {
+                    if (node.mKeys[i] == c) {
+                        next = node.mNext[i];
+                        break;
+                    }
+                }
+                node = next;
+            }
+        }
+
+        private void match(Node node, String s, int pos, BitSet matched) {
+            for (int rule : node.mRules) {
+                matched.set(rule);
+            }
+            if (pos == s.length()) {
+                return;
+            }
+            char c = s.charAt(pos);
+            for (int i = 0; i < node.mKeys.length; i++) {
+                char key = node.mKeys[i];
+                if (key == ANY || key == c) {
+                    match(node.mNext[i], s, pos + 1, matched);
+                }
+            }
+        }
+    }
+
+    private final HashMap<String, ArrayList<Integer>> mSpns =
+            new HashMap<String, ArrayList<Integer>>();
+    private final Trie mImsis = new Trie(true, false);
+    private final Trie mGids = new Trie(false, true);
+    private final Trie mIccIds = new Trie(false, false);
+    private int mRuleCount;
+
+    /**
+     * Add the match data of the APN with the given index. Data of an unknown
+     * type never matches.
+     */
+    public void add(int index, String mvnoType, String mvnoMatchData) {
+        mRuleCount++;
+        if (mvnoType.equalsIgnoreCase("spn")) {
+            String spn = fold(mvnoMatchData);
+            ArrayList<Integer> rules = mSpns.get(spn);
+            if (rules == null) {
+                rules = new ArrayList<Integer>(1);
+                mSpns.put(spn, rules);
+            }
+            rules.add(index);
+        } else if (mvnoType.equalsIgnoreCase("imsi")) {
+            // An empty pattern matches no IMSI
+            if (!mvnoMatchData.isEmpty()) {
+                mImsis.add(mvnoMatchData, index);
+            }
+        } else if (mvnoType.equalsIgnoreCase("gid")) {
+            mGids.add(mvnoMatchData, index);
+        } else if (mvnoType.equalsIgnoreCase("iccid")) {
+            for (String iccId : mvnoMatchData.split(",")) {
+                mIccIds.add(iccId, index);
+            }
+        } else {
+            mRuleCount--;
+        }
+    }
+
+    public boolean isEmpty() {
+        return mRuleCount == 0;
+    }
+
+    /**
+     * @return the indexes of the APNs whose match data the SIM satisfies
+     */
+    public BitSet match(SimIdentity sim) {
+        BitSet matched = new BitSet();
+        if (sim.mSpn != null) {
+            ArrayList<Integer> rules = mSpns.get(fold(sim.mSpn));
+            if (rules != null) {
+                for (int rule : rules) {
+                    matched.set(rule);
+                }
+            }
+        }
+        if (sim.mImsi != null) {
+            mImsis.match(sim.mImsi, matched);
+        }
+        if (sim.mGid1 != null) {
+            mGids.match(sim.mGid1, matched);
+        }
+        if (sim.mIccId != null) {
+            mIccIds.match(sim.mIccId, matched);
+        }
+        return matched;
+    }
+
+    private static String fold(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
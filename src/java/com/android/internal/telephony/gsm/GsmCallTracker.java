@@ -22,6 +22,7 @@ import android.os.Handler;
 import android.os.Message;
 import android.os.Registrant;
 import android.os.RegistrantList;
+import android.os.SystemClock;
 import android.os.SystemProperties;
 import android.telephony.DisconnectCause;
 import android.telephony.PhoneNumberUtils;
@@ -32,6 +33,7 @@ import android.util.EventLog;
 import java.util.Iterator;
 import android.telephony.Rlog;
 
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.telephony.Call;
 import com.android.internal.telephony.CallStateException;
 import com.android.internal.telephony.CallTracker;
@@ -77,6 +79,18 @@ public final class GsmCallTracker extends CallTracker {
     RegistrantList mVoiceCallStartedRegistrants = new RegistrantList();
 
 
+    // DriverCalls of the current poll placed at their slot (index - 1)
+    private DriverCall mPolledSlots[] = new DriverCall[MAX_CONNECTIONS];
+    // Copy of the DriverCall last applied to each slot, reused across polls
+    private DriverCall mLastPolledSlots[] = new DriverCall[MAX_CONNECTIONS];
+    private boolean mLastPolledValid[] = new boolean[MAX_CONNECTIONS];
+
+    // Poll statistics, see dump()
+    private long mCallStateChangeTime;
+    private long mLastPollToNotifyMs;
+    private int mSlotsUpdated;
+    private int mSlotsUnchanged;
+
     // connections dropped during last poll
     ArrayList<GsmConnection> mDroppedDuringPoll
         = new ArrayList<GsmConnection>(MAX_CONNECTIONS);
@@ -384,6 +398,9 @@ public final class GsmCallTracker extends CallTracker {
         mPendingOperations++;
         mLastRelevantPoll = null;
         mNeedsPoll = true;
+        // A local operation may change Connection state behind the
+        // modem's back (eg. hangup), so re-apply every slot on next poll
+        invalidatePolledSlots();
 
         if (DBG_POLL) log("obtainCompleteMessage: pendingOperations=" +
                 mPendingOperations + ", needsPoll=" + mNeedsPoll);
@@ -437,6 +454,30 @@ public final class GsmCallTracker extends CallTracker {
         }
     }
 
+    private void
+    invalidatePolledSlots() {
+        for (int i = 0; i < MAX_CONNECTIONS; i++) {
+            mLastPolledValid[i] = false;
+        }
+    }
+
+    /**
+     * Remember the DriverCall that was applied to slot i so that an identical
+     * entry in the next poll can skip GsmConnection.update().
+     */
+    private void
+    savePolledSlot(int i, DriverCall dc) {
+        if (dc == null) {
+            mLastPolledValid[i] = false;
+            return;
+        }
+        if (mLastPolledSlots[i] == null) {
+            mLastPolledSlots[i] = new DriverCall();
+        }
+        mLastPolledSlots[i].copyFrom(dc);
+        mLastPolledValid[i] = true;
+    }
+
     @Override
     protected synchronized void
     handlePollCalls(AsyncResult ar) {
@@ -463,21 +504,35 @@ public final class GsmCallTracker extends CallTracker {
         boolean needsPollDelay = false;
         boolean unknownConnectionAppeared = false;
 
-        for (int i = 0, curDC = 0, dcSize = polledCalls.size()
-                ; i < mConnections.length; i++) {
+        // polledCall list is sparse, spread it over the slot table
+        for (int i = 0; i < MAX_CONNECTIONS; i++) {
+            mPolledSlots[i] = null;
+        }
+        for (int j = 0, dcSize = polledCalls.size(); j < dcSize; j++) {
+            DriverCall dc = (DriverCall) polledCalls.get(j);
+            if (dc.index >= 1 && dc.index <= MAX_CONNECTIONS) {
+                mPolledSlots[dc.index - 1] = dc;
+            } else {
+                Rlog.e(LOG_TAG, "handlePollCalls: ignoring out of range call " + dc);
+            }
+        }
+
+        for (int i = 0; i < mConnections.length; i++) {
             GsmConnection conn = mConnections[i];
-            DriverCall dc = null;
+            DriverCall dc = mPolledSlots[i];
 
-            // polledCall list is sparse
-            if (curDC < dcSize) {
-                dc = (DriverCall) polledCalls.get(curDC);
+            if (conn == null && dc == null) {
+                mLastPolledValid[i] = false;
+                continue;
+            }
 
-                if (dc.index == i+1) {
-                    curDC++;
-                } else {
-                    dc = null;
-                }
+            if (conn != null && mLastPolledValid[i] && mLastPolledSlots[i].isSameAs(dc)) {
+                // Nothing changed for this slot since the last poll
+                if (DBG_POLL) log("poll: conn[i=" + i + "] unchanged");
+                mSlotsUnchanged++;
+                continue;
             }
+            mSlotsUpdated++;
 
             if (DBG_POLL) log("poll: conn[i=" + i + "]=" +
                     conn+", dc=" + dc);
@@ -605,6 +660,8 @@ public final class GsmCallTracker extends CallTracker {
                     }
                 }
             }
+
+            savePolledSlot(i, mConnections[i] != null ? dc : null);
         }
 
         // This is the first poll after an ATD.
@@ -695,7 +752,12 @@ public final class GsmCallTracker extends CallTracker {
 
         if (hasNonHangupStateChanged || newRinging != null || hasAnyCallDisconnected) {
             mPhone.notifyPreciseCallStateChanged();
+            if (mCallStateChangeTime != 0) {
+                mLastPollToNotifyMs = SystemClock.elapsedRealtime() - mCallStateChangeTime;
+                if (DBG_POLL) log("poll: unsol to notify took " + mLastPollToNotifyMs + "ms");
+            }
         }
+        mCallStateChangeTime = 0;
 
         //dumpState();
     }
@@ -1008,8 +1070,14 @@ public final class GsmCallTracker extends CallTracker {
                 mDroppedDuringPoll.clear();
             break;
 
-            case EVENT_REPOLL_AFTER_DELAY:
             case EVENT_CALL_STATE_CHANGE:
+                if (mCallStateChangeTime == 0) {
+                    mCallStateChangeTime = SystemClock.elapsedRealtime();
+                }
+                pollCallsWhenSafe();
+            break;
+
+            case EVENT_REPOLL_AFTER_DELAY:
                 pollCallsWhenSafe();
             break;
 
@@ -1023,6 +1091,24 @@ public final class GsmCallTracker extends CallTracker {
         }
     }
 
+    /** @return number of slots handlePollCalls applied to their Connection */
+    @VisibleForTesting
+    synchronized int getSlotsUpdated() {
+        return mSlotsUpdated;
+    }
+
+    /** @return number of slots handlePollCalls skipped as unchanged */
+    @VisibleForTesting
+    synchronized int getSlotsUnchanged() {
+        return mSlotsUnchanged;
+    }
+
+    /** @return time from the last call state unsol to the precise call state notification */
+    @VisibleForTesting
+    synchronized long getLastPollToNotifyMs() {
+        return mLastPollToNotifyMs;
+    }
+
     @Override
     protected void log(String msg) {
         Rlog.d(LOG_TAG, "[GsmCallTracker] " + msg);
@@ -1050,6 +1136,9 @@ public final class GsmCallTracker extends CallTracker {
         pw.println(" mPhone=" + mPhone);
         pw.println(" mDesiredMute=" + mDesiredMute);
         pw.println(" mState=" + mState);
+        pw.println(" mSlotsUpdated=" + mSlotsUpdated);
+        pw.println(" mSlotsUnchanged=" + mSlotsUnchanged);
+        pw.println(" mLastPollToNotifyMs=" + mLastPollToNotifyMs);
     }
     @Override
     public PhoneConstants.State getState() {
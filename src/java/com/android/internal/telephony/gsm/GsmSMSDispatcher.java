@@ -41,7 +41,6 @@ import com.android.internal.telephony.uicc.IccUtils;
 import com.android.internal.telephony.uicc.UiccCardApplication;
 import com.android.internal.telephony.uicc.UiccController;
 
-import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -154,8 +153,8 @@ public final class GsmSMSDispatcher extends SMSDispatcher {
         SmsMessage.SubmitPdu pdu = SmsMessage.getSubmitPdu(
                 scAddr, destAddr, destPort, data, (deliveryIntent != null));
         if (pdu != null) {
-            HashMap map = getSmsTrackerMap(destAddr, scAddr, destPort, data, pdu);
-            SmsTracker tracker = getSmsTracker(map, sentIntent, deliveryIntent, getFormat(),
+            SmsTrackerData trackerData = getSmsTrackerData(destAddr, scAddr, destPort, data, pdu);
+            SmsTracker tracker = getSmsTracker(trackerData, sentIntent, deliveryIntent, getFormat(),
                     null /*messageUri*/, false /*isExpectMore*/, null /*fullMessageText*/,
                     false /*isText*/, true /*persistMessage*/);
 
@@ -181,8 +180,8 @@ public final class GsmSMSDispatcher extends SMSDispatcher {
         SmsMessage.SubmitPdu pdu = SmsMessage.getSubmitPdu(
                 scAddr, destAddr, text, (deliveryIntent != null), validityPeriod);
         if (pdu != null) {
-            HashMap map = getSmsTrackerMap(destAddr, scAddr, text, pdu);
-            SmsTracker tracker = getSmsTracker(map, sentIntent, deliveryIntent, getFormat(),
+            SmsTrackerData trackerData = getSmsTrackerData(destAddr, scAddr, text, pdu);
+            SmsTracker tracker = getSmsTracker(trackerData, sentIntent, deliveryIntent, getFormat(),
                     messageUri, false /*isExpectMore*/, text /*fullMessageText*/, true /*isText*/,
                     validityPeriod, persistMessage);
 
@@ -225,9 +224,9 @@ public final class GsmSMSDispatcher extends SMSDispatcher {
                 message, deliveryIntent != null, SmsHeader.toByteArray(smsHeader),
                 encoding, smsHeader.languageTable, smsHeader.languageShiftTable, validityPeriod);
         if (pdu != null) {
-            HashMap map =  getSmsTrackerMap(destinationAddress, scAddress,
+            SmsTrackerData trackerData = getSmsTrackerData(destinationAddress, scAddress,
                     message, pdu);
-            return getSmsTracker(map, sentIntent,
+            return getSmsTracker(trackerData, sentIntent,
                     deliveryIntent, getFormat(), unsentPartCount, anyPartFailed, messageUri,
                     smsHeader, (!lastPart || isExpectMore), fullMessageText, true /*isText*/,
                     validityPeriod, false /*persistMessage*/);
@@ -245,9 +244,7 @@ public final class GsmSMSDispatcher extends SMSDispatcher {
     /** {@inheritDoc} */
     @Override
     protected void sendSms(SmsTracker tracker) {
-        HashMap<String, Object> map = tracker.mData;
-
-        byte pdu[] = (byte[]) map.get("pdu");
+        byte pdu[] = tracker.mData.mPdu;
 
         if (tracker.mRetryCount > 0) {
             Rlog.d(TAG, "sendSms: "
@@ -270,7 +267,7 @@ public final class GsmSMSDispatcher extends SMSDispatcher {
                 + " mMessageRef=" + tracker.mMessageRef
                 + " SS=" + mPhone.getServiceState().getState());
 
-        sendSmsByPstn(tracker);
+        queueSmsByPstn(tracker);
     }
 
     /** {@inheritDoc} */
@@ -283,10 +280,8 @@ public final class GsmSMSDispatcher extends SMSDispatcher {
             return;
         }
 
-        HashMap<String, Object> map = tracker.mData;
-
-        byte smsc[] = (byte[]) map.get("smsc");
-        byte[] pdu = (byte[]) map.get("pdu");
+        byte smsc[] = tracker.mData.mSmsc;
+        byte[] pdu = tracker.mData.mPdu;
         Message reply = obtainMessage(EVENT_SEND_SMS_COMPLETE, tracker);
 
         // sms over gsm is used:
@@ -72,6 +72,7 @@ import com.android.internal.telephony.ServiceStateTracker;
 import android.telephony.SubscriptionManager;
 import com.android.internal.telephony.TelephonyIntents;
 import com.android.internal.telephony.TelephonyProperties;
+import com.android.internal.telephony.TimeZoneResolver;
 import com.android.internal.telephony.dataconnection.DcTrackerBase;
 import com.android.internal.telephony.imsphone.ImsPhone;
 import com.android.internal.telephony.uicc.IccCardApplicationStatus.AppState;
@@ -82,10 +83,8 @@ import com.android.internal.telephony.uicc.UiccController;
 
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
 
@@ -107,6 +106,11 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
     private int mReasonDataDenied = -1;
     protected int mNewReasonDataDenied = -1;
 
+    private final PollStateRequests mPollStateRequests = new PollStateRequests();
+    // Last registration states received, for dump
+    private String[] mLastVoiceRegStates;
+    private String[] mLastDataRegStates;
+
     private static final String ACTION_MANAGED_ROAMING_IND =
             "codeaurora.intent.action.ACTION_MANAGED_ROAMING_IND";
 
@@ -783,6 +787,7 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
             switch (what) {
                 case EVENT_POLL_STATE_REGISTRATION: {
                     states = (String[])ar.result;
+                    mLastVoiceRegStates = states;
                     int lac = -1;
                     int cid = -1;
                     int type = ServiceState.RIL_RADIO_TECHNOLOGY_UNKNOWN;
@@ -864,6 +869,7 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
 
                 case EVENT_POLL_STATE_GPRS: {
                     states = (String[])ar.result;
+                    mLastDataRegStates = states;
 
                     int type = 0;
                     int regState = ServiceState.RIL_REG_STATE_UNKNOWN;
@@ -946,6 +952,9 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
             updateRoamingState();
             mNewSS.setEmergencyOnly(mEmergencyOnly);
             pollStateDone();
+            if (mPollStateRequests.isPending()) {
+                startPollState();
+            }
         }
     }
 
@@ -1069,6 +1078,26 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
      */
     @Override
     public void pollState() {
+        boolean pollInFlight = mCi.getRadioState().isOn() && mPollingContext != null
+                && mPollingContext[0] > 0;
+        if (DBG && pollInFlight && !mPollStateRequests.isPending()) {
+            log("pollState: poll in flight, follow up");
+        }
+        // A poll in flight is followed by one more poll when it is done
+        // instead of being abandoned
+        if (mPollStateRequests.request(pollInFlight)) {
+            startPollState();
+        }
+    }
+
+    @Override
+    protected void cancelPollState() {
+        super.cancelPollState();
+        mPollStateRequests.cancel();
+    }
+
+    private void startPollState() {
+        mPollStateRequests.onStart();
         mPollingContext = new int[1];
         mPollingContext[0] = 0;
 
@@ -1098,6 +1127,7 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
                 // then count down the responses, which
                 // are allowed to arrive out-of-order
 
+                mPollStateRequests.onIssued();
                 mPollingContext[0]++;
                 mCi.getOperator(
                     obtainMessage(
@@ -1129,6 +1159,17 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
         useDataRegStateForDataOnlyDevices();
         resetServiceStateInIwlanMode();
 
+        if (mNewSS.equals(mSS) && mNewCellLoc.equals(mCellLoc)
+                && mSS.getCssIndicator() == mNewSS.getCssIndicator()
+                && mNewMaxDataCalls == mMaxDataCalls
+                && mNewReasonDataDenied == mReasonDataDenied) {
+            // Nothing to notify or to write, the last run already did it
+            mPollStateRequests.onUnchanged();
+            if (DBG) log("Poll ServiceState done: unchanged ss=[" + mSS + "]");
+            mNewSS.setStateOutOfService();
+            return;
+        }
+
         if (DBG) {
             log("Poll ServiceState done: " +
                 " oldSS=[" + mSS + "] newSS=[" + mNewSS + "]" +
@@ -1292,7 +1333,8 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
                                 TelephonyProperties.PROPERTY_IGNORE_NITZ, false) &&
                                     ((SystemClock.uptimeMillis() & 1) == 0);
 
-                    ArrayList<TimeZone> uniqueZones = TimeUtils.getTimeZonesWithUniqueOffsets(iso);
+                    List<TimeZone> uniqueZones =
+                            TimeZoneResolver.getTimeZonesWithUniqueOffsets(iso);
                     if ((uniqueZones.size() == 1) || testOneUniqueOffsetPath) {
                         zone = uniqueZones.get(0);
                         if (DBG) {
@@ -1361,7 +1403,7 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
                         }
                         if (DBG) log("pollStateDone: using default TimeZone");
                     } else {
-                        zone = TimeUtils.getTimeZone(mZoneOffset, mZoneDst, mZoneTime, iso);
+                        zone = TimeZoneResolver.getTimeZone(mZoneOffset, mZoneDst, mZoneTime, iso);
                         if (DBG) log("pollStateDone: using getTimeZone(off, dst, time, iso)");
                     }
 
@@ -1468,35 +1510,11 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
      * Returns a TimeZone object based only on parameters from the NITZ string.
      */
     private TimeZone getNitzTimeZone(int offset, boolean dst, long when) {
-        TimeZone guess = findTimeZone(offset, dst, when);
-        if (guess == null) {
-            // Couldn't find a proper timezone.  Perhaps the DST data is wrong.
-            guess = findTimeZone(offset, !dst, when);
-        }
+        TimeZone guess = TimeZoneResolver.getNitzTimeZone(offset, dst, when);
         if (DBG) log("getNitzTimeZone returning " + (guess == null ? guess : guess.getID()));
         return guess;
     }
 
-    private TimeZone findTimeZone(int offset, boolean dst, long when) {
-        int rawOffset = offset;
-        if (dst) {
-            rawOffset -= 3600000;
-        }
-        String[] zones = TimeZone.getAvailableIDs(rawOffset);
-        TimeZone guess = null;
-        Date d = new Date(when);
-        for (String zone : zones) {
-            TimeZone tz = TimeZone.getTimeZone(zone);
-            if (tz.getOffset(when) == offset &&
-                tz.inDaylightTime(d) == dst) {
-                guess = tz;
-                break;
-            }
-        }
-
-        return guess;
-    }
-
     private void queueNextSignalStrengthPoll() {
         if (mDontPollSignalStrength) {
             // The radio is telling us about signal strength changes
@@ -1928,7 +1946,7 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
 
                 if (mGotCountryCode) {
                     if (iso != null && iso.length() > 0) {
-                        zone = TimeUtils.getTimeZone(tzOffset, dst != 0,
+                        zone = TimeZoneResolver.getTimeZone(tzOffset, dst != 0,
                                 c.getTimeInMillis(),
                                 iso);
                     } else {
@@ -2263,6 +2281,10 @@ public class GsmServiceStateTracker extends ServiceStateTracker {
         pw.println(" mCurShowSpn=" + mCurShowSpn);
         pw.println(" mCurPlmn=" + mCurPlmn);
         pw.println(" mCurShowPlmn=" + mCurShowPlmn);
+        TimeZoneResolver.dump(pw);
+        pw.println(" pollState: " + mPollStateRequests);
+        pw.println(" mLastVoiceRegStates=" + Arrays.toString(mLastVoiceRegStates));
+        pw.println(" mLastDataRegStates=" + Arrays.toString(mLastDataRegStates));
         pw.flush();
     }
 
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.gsm;
+
+/**
+ * Coalescing of the service state polls requested while a poll is in flight.
+ *
+ * However many polls are requested meanwhile, a single one follows the poll
+ * in flight once it is done. A cancelled poll has no follow-up.
+ *
+ * {@hide}
+ */
+class PollStateRequests {
+    // pollState() calls, polls sent to the RIL and polls that changed nothing
+    private int mRequested;
+    private int mIssued;
+    private int mUnchanged;
+    // A poll was requested while one was in flight
+    private boolean mPending;
+
+    /**
+     * Record a request of a poll.
+     *
+     * @param pollInFlight whether a poll is waiting for RIL responses
+     * @return true if the poll is to start now, false if it follows the
+     *         poll in flight
+     */
+    boolean request(boolean pollInFlight) {
+        mRequested++;
+        if (pollInFlight) {
+            mPending = true;
+            return false;
+        }
+        return true;
+    }
+
+    /** A poll starts, which satisfies the requests made so far. */
+    void onStart() {
+        mPending = false;
+    }
+
+    /** The requests of a poll were sent to the RIL. */
+    void onIssued() {
+        mIssued++;
+    }
+
+    /** A poll completed without changing the service state. */
+    void onUnchanged() {
+        mUnchanged++;
+    }
+
+    /** The poll in flight was abandoned, along with its follow-up. */
+    void cancel() {
+        mPending = false;
+    }
+
+    /**
+     * @return true if a poll is to follow the one in flight
+     */
+    boolean isPending() {
+        return mPending;
+    }
+
+    @Override
+    public String toString() {
+        return "requested=" + mRequested + " issued=" + mIssued + " unchanged=" + mUnchanged
+                + " pending=" + mPending;
+    }
+}
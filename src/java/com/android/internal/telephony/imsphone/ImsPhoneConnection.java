@@ -27,6 +27,7 @@ import android.os.PersistableBundle;
 import android.os.PowerManager;
 import android.os.Registrant;
 import android.os.SystemClock;
+import android.telecom.ConferenceParticipant;
 import android.telecom.Log;
 import android.telephony.CarrierConfigManager;
 import android.telephony.DisconnectCause;
@@ -46,6 +47,8 @@ import com.android.internal.telephony.UUSInfo;
 import com.android.ims.ImsCall;
 import com.android.ims.ImsCallProfile;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import org.codeaurora.ims.qtiims.QtiImsInterfaceUtils;
@@ -90,6 +93,9 @@ public class ImsPhoneConnection extends Connection {
     // The cached connect time of the connection when it turns into a conference.
     private long mConferenceConnectTime = 0;
 
+    // Participants last reported to the listeners
+    private List<ConferenceParticipant> mConferenceParticipants;
+
     // The cached delay to be used between DTMF tones fetched from carrier config.
     private int mDtmfToneDelay = 0;
 
@@ -750,6 +756,41 @@ public class ImsPhoneConnection extends Connection {
         }
     }
 
+    /**
+     * Notifies listeners of a change to conference participant(s), unless the
+     * participants and their states are the same as the last time.
+     *
+     * @param conferenceParticipants The participant(s).
+     */
+    @Override
+    public void updateConferenceParticipants(List<ConferenceParticipant> conferenceParticipants) {
+        if (isSameParticipants(mConferenceParticipants, conferenceParticipants)) {
+            if (DBG) Rlog.d(LOG_TAG, "updateConferenceParticipants: no change");
+            return;
+        }
+        mConferenceParticipants = (conferenceParticipants == null) ? null
+                : new ArrayList<ConferenceParticipant>(conferenceParticipants);
+        super.updateConferenceParticipants(conferenceParticipants);
+    }
+
+    private static boolean isSameParticipants(List<ConferenceParticipant> a,
+            List<ConferenceParticipant> b) {
+        if (a == null || b == null || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            ConferenceParticipant pa = a.get(i);
+            ConferenceParticipant pb = b.get(i);
+            if (!Objects.equals(pa.getHandle(), pb.getHandle())
+                    || !Objects.equals(pa.getEndpoint(), pb.getEndpoint())
+                    || !TextUtils.equals(pa.getDisplayName(), pb.getDisplayName())
+                    || pa.getState() != pb.getState()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Sets the conference connect time.  Used when an {@code ImsConference} is created to out of
      * this phone connection.
@@ -49,11 +49,9 @@ import static com.android.internal.telephony.CommandsInterface.SERVICE_CLASS_PAD
 import static com.android.internal.telephony.CommandsInterface.SERVICE_CLASS_MAX;
 
 import com.android.internal.telephony.MmiCode;
+import com.android.internal.telephony.MmiDialString;
 import com.android.internal.telephony.Phone;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
 /**
  * The motto for this file is:
  *
@@ -188,37 +186,6 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
     static final String IcbDnMmi = "Specific Incoming Call Barring";
     //ICB (Anonymous)
     static final String IcbAnonymousMmi = "Anonymous Incoming Call Barring";
-    //***** Class Variables
-
-
-    // See TS 22.030 6.5.2 "Structure of the MMI"
-
-    private static Pattern sPatternSuppService = Pattern.compile(
-        "((\\*|#|\\*#|\\*\\*|##)(\\d{2,3})(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*))?)?)?)?#)(.*)");
-/*       1  2                    3          4  5       6   7         8    9     10  11             12
-
-         1 = Full string up to and including #
-         2 = action (activation/interrogation/registration/erasure)
-         3 = service code
-         5 = SIA
-         7 = SIB
-         9 = SIC
-         10 = dialing number
-*/
-
-    private static final int MATCH_GROUP_POUND_STRING = 1;
-
-    private static final int MATCH_GROUP_ACTION = 2;
-                        //(activation/interrogation/registration/erasure)
-
-    private static final int MATCH_GROUP_SERVICE_CODE = 3;
-    private static final int MATCH_GROUP_SIA = 5;
-    private static final int MATCH_GROUP_SIB = 7;
-    private static final int MATCH_GROUP_SIC = 9;
-    private static final int MATCH_GROUP_PWD_CONFIRM = 11;
-    private static final int MATCH_GROUP_DIALING_NUMBER = 12;
-    static private String[] sTwoDigitNumberPattern;
-
     //***** Public Class methods
 
     /**
@@ -236,47 +203,39 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
 
     static ImsPhoneMmiCode
     newFromDialString(String dialString, ImsPhone phone) {
-        Matcher m;
         ImsPhoneMmiCode ret = null;
 
-        m = sPatternSuppService.matcher(dialString);
-
-        // Is this formatted like a standard supplementary service code?
-        if (m.matches()) {
-            ret = new ImsPhoneMmiCode(phone);
-            ret.mPoundString = makeEmptyNull(m.group(MATCH_GROUP_POUND_STRING));
-            ret.mAction = makeEmptyNull(m.group(MATCH_GROUP_ACTION));
-            ret.mSc = makeEmptyNull(m.group(MATCH_GROUP_SERVICE_CODE));
-            ret.mSia = makeEmptyNull(m.group(MATCH_GROUP_SIA));
-            ret.mSib = makeEmptyNull(m.group(MATCH_GROUP_SIB));
-            ret.mSic = makeEmptyNull(m.group(MATCH_GROUP_SIC));
-            ret.mPwd = makeEmptyNull(m.group(MATCH_GROUP_PWD_CONFIRM));
-            ret.mDialingNumber = makeEmptyNull(m.group(MATCH_GROUP_DIALING_NUMBER));
-            // According to TS 22.030 6.5.2 "Structure of the MMI",
-            // the dialing number should not ending with #.
-            // The dialing number ending # is treated as unique USSD,
-            // eg, *400#16 digit number# to recharge the prepaid card
-            // in India operator(Mumbai MTNL)
-            if (ret.mDialingNumber != null &&
-                    ret.mDialingNumber.endsWith("#") &&
-                    dialString.endsWith("#")){
+        MmiDialString mmi = MmiDialString.parse(dialString);
+        switch (mmi.getType()) {
+            case MmiDialString.TYPE_SUPP_SERVICE:
+                // Formatted like a standard supplementary service code
+                ret = new ImsPhoneMmiCode(phone);
+                ret.mPoundString = mmi.getPoundString();
+                ret.mAction = mmi.getAction();
+                ret.mSc = mmi.getServiceCode();
+                ret.mSia = mmi.getSia();
+                ret.mSib = mmi.getSib();
+                ret.mSic = mmi.getSic();
+                ret.mPwd = mmi.getPwd();
+                ret.mDialingNumber = mmi.getDialingNumber();
+                break;
+            case MmiDialString.TYPE_USSD:
+                // TS 22.030 sec 6.5.3.2
+                // "Entry of any characters defined in the 3GPP TS 23.038 [8] Default Alphabet
+                // (up to the maximum defined in 3GPP TS 24.080 [10]), followed by #SEND".
                 ret = new ImsPhoneMmiCode(phone);
                 ret.mPoundString = dialString;
-            }
-        } else if (dialString.endsWith("#")) {
-            // TS 22.030 sec 6.5.3.2
-            // "Entry of any characters defined in the 3GPP TS 23.038 [8] Default Alphabet
-            // (up to the maximum defined in 3GPP TS 24.080 [10]), followed by #SEND".
-
-            ret = new ImsPhoneMmiCode(phone);
-            ret.mPoundString = dialString;
-        } else if (isTwoDigitShortCode(phone.getContext(), dialString)) {
-            //Is a country-specific exception to short codes as defined in TS 22.030, 6.5.3.2
-            ret = null;
-        } else if (isShortCode(dialString, phone)) {
-            // this may be a short code, as defined in TS 22.030, 6.5.3.2
-            ret = new ImsPhoneMmiCode(phone);
-            ret.mDialingNumber = dialString;
+                break;
+            case MmiDialString.TYPE_SHORT_CODE:
+                if (MmiDialString.isTwoDigitNumber(phone.getContext(), dialString)) {
+                    //Is a country-specific exception to short codes as defined in TS 22.030, 6.5.3.2
+                    ret = null;
+                } else if (isShortCode(dialString, phone)) {
+                    // this may be a short code, as defined in TS 22.030, 6.5.3.2
+                    ret = new ImsPhoneMmiCode(phone);
+                    ret.mDialingNumber = dialString;
+                }
+                break;
         }
 
         return ret;
@@ -316,21 +275,11 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
 
     //***** Private Class methods
 
-    /** make empty strings be null.
-     *  Regexp returns empty strings for empty groups
-     */
-    private static String
-    makeEmptyNull (String s) {
-        if (s != null && s.length() == 0) return null;
-
-        return s;
-    }
-
     static boolean isScMatchesSuppServType(String dialString) {
         boolean isMatch = false;
-        Matcher m = sPatternSuppService.matcher(dialString);
-        if (m.matches()) {
-            String sc = makeEmptyNull(m.group(MATCH_GROUP_SERVICE_CODE));
+        MmiDialString mmi = MmiDialString.parse(dialString);
+        if (mmi.isSuppService()) {
+            String sc = mmi.getServiceCode();
             if (sc.equals(SC_CFUT)) {
                 isMatch = true;
             } else if(sc.equals(SC_BS_MT)) {
@@ -536,27 +485,6 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
 
     }
 
-    static private boolean
-    isTwoDigitShortCode(Context context, String dialString) {
-        Rlog.d(LOG_TAG, "isTwoDigitShortCode");
-
-        if (dialString == null || dialString.length() > 2) return false;
-
-        if (sTwoDigitNumberPattern == null) {
-            sTwoDigitNumberPattern = context.getResources().getStringArray(
-                    com.android.internal.R.array.config_twoDigitNumberPattern);
-        }
-
-        for (String dialnumber : sTwoDigitNumberPattern) {
-            Rlog.d(LOG_TAG, "Two Digit Number Pattern " + dialnumber);
-            if (dialString.equals(dialnumber)) {
-                Rlog.d(LOG_TAG, "Two Digit Number Pattern -true");
-                return true;
-            }
-        }
-        Rlog.d(LOG_TAG, "Two Digit Number Pattern -false");
-        return false;
-    }
 
     /**
      * Helper function for newFromDialString. Returns true if dialString appears
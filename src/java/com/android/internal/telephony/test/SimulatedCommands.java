@@ -28,6 +28,7 @@ import com.android.internal.telephony.CommandsInterface;
 import com.android.internal.telephony.cdma.CdmaSmsBroadcastConfigInfo;
 import com.android.internal.telephony.dataconnection.DataCallResponse;
 import com.android.internal.telephony.dataconnection.DataProfile;
+import com.android.internal.telephony.LastCallFailCause;
 import com.android.internal.telephony.Phone;
 import com.android.internal.telephony.UUSInfo;
 import com.android.internal.telephony.gsm.CallFailCause;
@@ -753,7 +754,7 @@ public final class SimulatedCommands extends BaseCommands
     }
 
     /**
-     * cause code returned as Integer in Message.obj.response
+     * cause code returned as LastCallFailCause in Message.obj.response
      * Returns integer cause code defined in TS 24.008
      * Annex H or closest approximation.
      * Most significant codes:
@@ -762,9 +763,9 @@ public final class SimulatedCommands extends BaseCommands
      */
     @Override
     public void getLastCallFailCause (Message result) {
-        int[] ret = new int[1];
+        LastCallFailCause ret = new LastCallFailCause();
 
-        ret[0] = mNextCallFailCause;
+        ret.causeCode = mNextCallFailCause;
         resultSuccess(result, ret);
     }
 
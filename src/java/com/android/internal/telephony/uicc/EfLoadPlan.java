@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.uicc;
+
+import android.os.AsyncResult;
+import android.os.Handler;
+import android.os.Message;
+import android.os.SystemClock;
+import android.telephony.Rlog;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Schedules the EF reads of an {@link IccRecords}.
+ *
+ * The records declare their EF reads up front, optionally after another read
+ * of the same plan. A read is issued once the read it depends on has completed,
+ * with a bounded number of reads in flight per application and across all
+ * applications, so that the records of several cards are loaded side by side
+ * instead of one card queueing all of its reads ahead of the other. A read
+ * that gets no response in time gives its slot back, as does a disposed plan.
+ *
+ * The response of each read is delivered to the message given when it was
+ * declared, exactly as if it had been passed to the {@link IccFileHandler}.
+ *
+ * {@hide}
+ */
+public class EfLoadPlan extends Handler {
+    private static final String LOG_TAG = "EfLoadPlan";
+    private static final boolean DBG = true;
+
+    // Reads in flight for one application
+    private static final int MAX_IN_FLIGHT = 3;
+    // Reads in flight for all applications, shared between them
+    private static final int MAX_IN_FLIGHT_TOTAL = 4;
+    // Time after which a read without response no longer holds a slot
+    private static final int LOAD_TIMEOUT_MS = 30000;
+    // Completed reads kept for dump
+    private static final int MAX_HISTORY = 40;
+
+    private static final int EVENT_EF_LOAD_DONE = 1;
+    private static final int EVENT_SCHEDULE = 2;
+    private static final int EVENT_LOAD_TIMEOUT = 3;
+
+    private static final int TYPE_TRANSPARENT = 0;
+    private static final int TYPE_LINEAR_FIXED = 1;
+    private static final int TYPE_LINEAR_FIXED_ALL = 2;
+
+    private static final Object sLock = new Object();
+    private static int sInFlight;
+    // Plans with a read ready to issue but no free slot, woken in order
+    private static final ArrayList<EfLoadPlan> sWaiting = new ArrayList<EfLoadPlan>();
+
+    /**
+     * One EF read of the plan.
+     */
+    public static class EfLoad {
+        private final int mType;
+        private final int mEfid;
+        // record number for linear fixed EFs, size for transparent EFs or 0
+        private final int mArg;
+        private final Message mOnLoaded;
+        private final EfLoad mAfter;
+
+        private long mQueuedTime;
+        private long mIssuedTime;
+        private long mDoneTime;
+        private boolean mFailed;
+
+        private EfLoad(int type, int efid, int arg, Message onLoaded, EfLoad after) {
+            mType = type;
+            mEfid = efid;
+            mArg = arg;
+            mOnLoaded = onLoaded;
+            mAfter = after;
+        }
+
+        public boolean isDone() {
+            return mDoneTime != 0;
+        }
+
+        private boolean isReady() {
+            return mAfter == null || mAfter.isDone();
+        }
+
+        @Override
+        public String toString() {
+            return "EF 0x" + Integer.toHexString(mEfid)
+                    + " wait=" + (mIssuedTime - mQueuedTime)
+                    + " read=" + (mDoneTime - mIssuedTime)
+                    + (mFailed ? " failed" : "");
+        }
+    }
+
+    private final String mName;
+    private IccFileHandler mFh;
+    private final ArrayList<EfLoad> mPending = new ArrayList<EfLoad>();
+    private final ArrayDeque<EfLoad> mHistory = new ArrayDeque<EfLoad>();
+    // Reads holding a slot of the shared budget
+    private final ArrayList<EfLoad> mInFlight = new ArrayList<EfLoad>();
+
+    // Stats of the current burst of reads, reset once all reads completed
+    private long mBurstStartTime;
+    private int mBurstCount;
+
+    public EfLoadPlan(String name, IccFileHandler fh) {
+        mName = name;
+        mFh = fh;
+    }
+
+    public EfLoad loadEFTransparent(int efid, Message onLoaded) {
+        return add(new EfLoad(TYPE_TRANSPARENT, efid, 0, onLoaded, null));
+    }
+
+    public EfLoad loadEFTransparent(int efid, int size, Message onLoaded) {
+        return add(new EfLoad(TYPE_TRANSPARENT, efid, size, onLoaded, null));
+    }
+
+    public EfLoad loadEFLinearFixed(int efid, int recordNum, Message onLoaded) {
+        return add(new EfLoad(TYPE_LINEAR_FIXED, efid, recordNum, onLoaded, null));
+    }
+
+    public EfLoad loadEFLinearFixedAll(int efid, Message onLoaded) {
+        return add(new EfLoad(TYPE_LINEAR_FIXED_ALL, efid, 0, onLoaded, null));
+    }
+
+    /**
+     * Read a transparent EF once the given read has completed.
+     */
+    public EfLoad loadEFTransparentAfter(EfLoad after, int efid, Message onLoaded) {
+        return add(new EfLoad(TYPE_TRANSPARENT, efid, 0, onLoaded, after));
+    }
+
+    /**
+     * Stop issuing reads, called when the records are disposed.
+     * Reads in flight still complete, but no longer hold their slots.
+     */
+    public void dispose() {
+        mPending.clear();
+        mFh = null;
+        removeMessages(EVENT_LOAD_TIMEOUT);
+        int slots = mInFlight.size();
+        mInFlight.clear();
+        synchronized (sLock) {
+            sWaiting.remove(this);
+            sInFlight -= slots;
+        }
+        wakeWaiting();
+    }
+
+    private EfLoad add(EfLoad load) {
+        load.mQueuedTime = SystemClock.elapsedRealtime();
+        if (mInFlight.isEmpty() && mPending.isEmpty()) {
+            mBurstStartTime = load.mQueuedTime;
+            mBurstCount = 0;
+        }
+        mPending.add(load);
+        schedule();
+        return load;
+    }
+
+    @Override
+    public void handleMessage(Message msg) {
+        switch (msg.what) {
+            case EVENT_EF_LOAD_DONE:
+                AsyncResult ar = (AsyncResult) msg.obj;
+                EfLoad load = (EfLoad) ar.userObj;
+                load.mDoneTime = SystemClock.elapsedRealtime();
+                load.mFailed = ar.exception != null;
+                removeMessages(EVENT_LOAD_TIMEOUT, load);
+                if (mInFlight.remove(load)) {
+                    release();
+                }
+                addHistory(load);
+
+                AsyncResult.forMessage(load.mOnLoaded, ar.result, ar.exception);
+                load.mOnLoaded.sendToTarget();
+
+                schedule();
+                if (mInFlight.isEmpty() && mPending.isEmpty() && DBG) {
+                    log("loaded " + mBurstCount + " EFs in "
+                            + (load.mDoneTime - mBurstStartTime) + " ms");
+                }
+                break;
+
+            case EVENT_LOAD_TIMEOUT:
+                load = (EfLoad) msg.obj;
+                if (mInFlight.remove(load)) {
+                    // The response may still come, it is delivered as usual
+                    log("no response for " + load + ", releasing its slot");
+                    release();
+                    schedule();
+                }
+                break;
+
+            case EVENT_SCHEDULE:
+                schedule();
+                break;
+
+            default:
+                Rlog.e(LOG_TAG, "Unexpected message " + msg.what);
+        }
+    }
+
+    /**
+     * Issue the reads whose dependency completed, in the order they
+     * were declared, as long as there are free slots.
+     */
+    private void schedule() {
+        if (mFh == null) {
+            return;
+        }
+        for (int i = 0; i < mPending.size() && mInFlight.size() < MAX_IN_FLIGHT; ) {
+            EfLoad load = mPending.get(i);
+            if (!load.isReady()) {
+                i++;
+                continue;
+            }
+            if (!acquire()) {
+                return;
+            }
+            mPending.remove(i);
+            issue(load);
+        }
+        // Nothing left to issue for now, do not hold up the other plans
+        synchronized (sLock) {
+            sWaiting.remove(this);
+        }
+    }
+
+    private void issue(EfLoad load) {
+        load.mIssuedTime = SystemClock.elapsedRealtime();
+        mInFlight.add(load);
+        mBurstCount++;
+        sendMessageDelayed(obtainMessage(EVENT_LOAD_TIMEOUT, load), LOAD_TIMEOUT_MS);
+        Message response = obtainMessage(EVENT_EF_LOAD_DONE, load);
+        switch (load.mType) {
+            case TYPE_LINEAR_FIXED:
+                mFh.loadEFLinearFixed(load.mEfid, load.mArg, response);
+                break;
+            case TYPE_LINEAR_FIXED_ALL:
+                mFh.loadEFLinearFixedAll(load.mEfid, response);
+                break;
+            default:
+                if (load.mArg > 0) {
+                    mFh.loadEFTransparent(load.mEfid, load.mArg, response);
+                } else {
+                    mFh.loadEFTransparent(load.mEfid, response);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Take a slot of the shared budget for a read that is ready to issue.
+     * A plan that found no free slot waits until one is released.
+     */
+    private boolean acquire() {
+        synchronized (sLock) {
+            if (sInFlight < MAX_IN_FLIGHT_TOTAL) {
+                sInFlight++;
+                return true;
+            }
+            if (!sWaiting.contains(this)) {
+                sWaiting.add(this);
+            }
+            return false;
+        }
+    }
+
+    private static void release() {
+        synchronized (sLock) {
+            sInFlight--;
+        }
+        wakeWaiting();
+    }
+
+    /**
+     * Let the waiting plans retry, in the order they started waiting.
+     * Only plans with a read ready to issue wait, so none of them can
+     * hold a free slot back from the others.
+     */
+    private static void wakeWaiting() {
+        ArrayList<EfLoadPlan> waiting;
+        synchronized (sLock) {
+            if (sInFlight >= MAX_IN_FLIGHT_TOTAL || sWaiting.isEmpty()) {
+                return;
+            }
+            waiting = new ArrayList<EfLoadPlan>(sWaiting);
+        }
+        for (EfLoadPlan plan : waiting) {
+            plan.sendMessage(plan.obtainMessage(EVENT_SCHEDULE));
+        }
+    }
+
+    private void addHistory(EfLoad load) {
+        if (mHistory.size() == MAX_HISTORY) {
+            mHistory.removeFirst();
+        }
+        mHistory.addLast(load);
+    }
+
+    public void dump(PrintWriter pw) {
+        pw.println(" " + mName + " inFlight=" + mInFlight.size() + " pending=" + mPending.size());
+        for (EfLoad load : mHistory) {
+            pw.println("  " + load);
+        }
+    }
+
+    private void log(String s) {
+        Rlog.d(LOG_TAG, "[" + mName + "] " + s);
+    }
+}
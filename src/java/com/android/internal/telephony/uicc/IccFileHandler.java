@@ -112,6 +112,11 @@ public abstract class IccFileHandler extends Handler implements IccConstants {
         int mCount;
         Message mOnLoaded;
 
+        // Variables used to deliver records in batches while loading all
+        Message mOnBatch;
+        int mBatchSize;
+        int mBatchStart;
+
         ArrayList<byte[]> results;
 
         LoadLinearFixedContext(int efid, int recordNum, Message onLoaded) {
@@ -308,6 +313,32 @@ public abstract class IccFileHandler extends Handler implements IccConstants {
         loadEFLinearFixedAll(fileid, getEFPath(fileid), onLoaded);
     }
 
+    /**
+     * Load all records from a SIM Linear Fixed EF, delivering them in
+     * batches as they are read instead of all at once
+     *
+     * @param fileid EF id
+     * @param batchSize number of records per batch, the last batch may be smaller
+     * @param onBatch a copy of it is sent for each batch
+     * @param onLoaded sent once all records were read
+     *
+     * ((AsyncResult)(onBatch.obj)).result is an ArrayList<byte[]> and
+     * onBatch.arg1 the 0-based index of the first record of the batch.
+     * ((AsyncResult)(onLoaded.obj)).result is the Integer number of records.
+     *
+     */
+    public void loadEFLinearFixedAll(int fileid, int batchSize, Message onBatch,
+            Message onLoaded) {
+        String efPath = getEFPath(fileid);
+        LoadLinearFixedContext lc = new LoadLinearFixedContext(fileid, efPath, onLoaded);
+        lc.mOnBatch = onBatch;
+        lc.mBatchSize = batchSize;
+        Message response = obtainMessage(EVENT_GET_RECORD_SIZE_DONE, lc);
+
+        mCi.iccIOForApp(COMMAND_GET_RESPONSE, fileid, efPath,
+                        0, 0, GET_RESPONSE_EF_SIZE_BYTES, null, null, mAid, response);
+    }
+
     /**
      * Load several records from a SIM Linear Fixed EF
      *
@@ -491,6 +522,15 @@ public abstract class IccFileHandler extends Handler implements IccConstants {
         response.sendToTarget();
     }
 
+    private void sendBatch(LoadLinearFixedContext lc) {
+        Message batch = Message.obtain(lc.mOnBatch);
+        batch.arg1 = lc.mBatchStart;
+        sendResult(batch, lc.results, null);
+
+        lc.mBatchStart += lc.results.size();
+        lc.results = new ArrayList<byte[]>(lc.mBatchSize);
+    }
+
     private boolean processException(Message response, AsyncResult ar) {
         IccException iccException;
         boolean flag = false;
@@ -607,7 +647,8 @@ public abstract class IccFileHandler extends Handler implements IccConstants {
                 }
 
                  if (lc.mLoadAll) {
-                     lc.results = new ArrayList<byte[]>(lc.mCountRecords);
+                     lc.results = new ArrayList<byte[]>(lc.mOnBatch != null
+                             ? Math.min(lc.mBatchSize, lc.mCountRecords) : lc.mCountRecords);
                  } else if (lc.mLoadPart) {
                      lc.initLCResults(lc.mCountRecords);
                  }
@@ -679,8 +720,14 @@ public abstract class IccFileHandler extends Handler implements IccConstants {
 
                     lc.mRecordNum++;
 
+                    if (lc.mOnBatch != null && (lc.results.size() == lc.mBatchSize
+                            || lc.mRecordNum > lc.mCountRecords)) {
+                        sendBatch(lc);
+                    }
+
                     if (lc.mRecordNum > lc.mCountRecords) {
-                        sendResult(response, lc.results, null);
+                        sendResult(response, (lc.mOnBatch != null)
+                                ? Integer.valueOf(lc.mCountRecords) : lc.results, null);
                     } else {
                         if (path == null) {
                             path = getEFPath(lc.mEfid);
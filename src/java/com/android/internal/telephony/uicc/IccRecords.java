@@ -51,6 +51,8 @@ public abstract class IccRecords extends Handler implements IccConstants {
     protected Context mContext;
     protected CommandsInterface mCi;
     protected IccFileHandler mFh;
+    // Schedules the EF reads of the records
+    protected EfLoadPlan mLoadPlan;
     protected UiccCardApplication mParentApp;
     protected TelephonyManager mTelephonyManager;
 
@@ -179,6 +181,8 @@ public abstract class IccRecords extends Handler implements IccConstants {
         mContext = c;
         mCi = ci;
         mFh = app.getIccFileHandler();
+        mLoadPlan = new EfLoadPlan(getClass().getSimpleName() + "[" + app.getPhoneId() + "]",
+                mFh);
         mParentApp = app;
         mTelephonyManager = (TelephonyManager) mContext.getSystemService(
                 Context.TELEPHONY_SERVICE);
@@ -192,6 +196,7 @@ public abstract class IccRecords extends Handler implements IccConstants {
     public void dispose() {
         mDestroyed.set(true);
         mCi.unregisterForIccRefresh(this);
+        mLoadPlan.dispose();
         mParentApp = null;
         mFh = null;
         mCi = null;
@@ -808,6 +813,7 @@ public abstract class IccRecords extends Handler implements IccConstants {
         pw.println(" mDestroyed=" + mDestroyed);
         pw.println(" mCi=" + mCi);
         pw.println(" mFh=" + mFh);
+        mLoadPlan.dump(pw);
         pw.println(" mParentApp=" + mParentApp);
         pw.println(" mSpnOverride=" + mSpnOverride);
         pw.println(" recordsLoadedRegistrants: size=" + mRecordsLoadedRegistrants.size());
@@ -148,21 +148,21 @@ public final class IsimUiccRecords extends IccRecords implements IsimRecords {
     protected void fetchIsimRecords() {
         mRecordsRequested = true;
 
-        mFh.loadEFTransparent(EF_IMPI, obtainMessage(
+        mLoadPlan.loadEFTransparent(EF_IMPI, obtainMessage(
                 IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimImpiLoaded()));
         mRecordsToLoad++;
 
-        mFh.loadEFLinearFixedAll(EF_IMPU, obtainMessage(
+        mLoadPlan.loadEFLinearFixedAll(EF_IMPU, obtainMessage(
                 IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimImpuLoaded()));
         mRecordsToLoad++;
 
-        mFh.loadEFTransparent(EF_DOMAIN, obtainMessage(
+        mLoadPlan.loadEFTransparent(EF_DOMAIN, obtainMessage(
                 IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimDomainLoaded()));
         mRecordsToLoad++;
-        mFh.loadEFTransparent(EF_IST, obtainMessage(
+        mLoadPlan.loadEFTransparent(EF_IST, obtainMessage(
                     IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimIstLoaded()));
         mRecordsToLoad++;
-        mFh.loadEFLinearFixedAll(EF_PCSCF, obtainMessage(
+        mLoadPlan.loadEFLinearFixedAll(EF_PCSCF, obtainMessage(
                     IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimPcscfLoaded()));
         mRecordsToLoad++;
 
@@ -293,31 +293,31 @@ public final class IsimUiccRecords extends IccRecords implements IsimRecords {
     protected void handleFileUpdate(int efid) {
         switch (efid) {
             case EF_IMPI:
-                mFh.loadEFTransparent(EF_IMPI, obtainMessage(
+                mLoadPlan.loadEFTransparent(EF_IMPI, obtainMessage(
                             IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimImpiLoaded()));
                 mRecordsToLoad++;
                 break;
 
             case EF_IMPU:
-                mFh.loadEFLinearFixedAll(EF_IMPU, obtainMessage(
+                mLoadPlan.loadEFLinearFixedAll(EF_IMPU, obtainMessage(
                             IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimImpuLoaded()));
                 mRecordsToLoad++;
             break;
 
             case EF_DOMAIN:
-                mFh.loadEFTransparent(EF_DOMAIN, obtainMessage(
+                mLoadPlan.loadEFTransparent(EF_DOMAIN, obtainMessage(
                             IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimDomainLoaded()));
                 mRecordsToLoad++;
             break;
 
             case EF_IST:
-                mFh.loadEFTransparent(EF_IST, obtainMessage(
+                mLoadPlan.loadEFTransparent(EF_IST, obtainMessage(
                             IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimIstLoaded()));
                 mRecordsToLoad++;
             break;
 
             case EF_PCSCF:
-                mFh.loadEFLinearFixedAll(EF_PCSCF, obtainMessage(
+                mLoadPlan.loadEFLinearFixedAll(EF_PCSCF, obtainMessage(
                             IccRecords.EVENT_GET_ICC_RECORD_DONE, new EfIsimPcscfLoaded()));
                 mRecordsToLoad++;
 
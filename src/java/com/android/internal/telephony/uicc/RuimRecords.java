@@ -833,41 +833,41 @@ public final class RuimRecords extends IccRecords {
 
         if (DBG) log("fetchRuimRecords " + mRecordsToLoad);
 
-        mFh.loadEFTransparent(EF_ICCID,
+        mLoadPlan.loadEFTransparent(EF_ICCID,
                 obtainMessage(EVENT_GET_ICCID_DONE));
         mRecordsToLoad++;
 
-        mFh.loadEFTransparent(EF_PL,
+        mLoadPlan.loadEFTransparent(EF_PL,
                 obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfPlLoaded()));
         mRecordsToLoad++;
 
-        mFh.loadEFTransparent(EF_CSIM_LI,
+        mLoadPlan.loadEFTransparent(EF_CSIM_LI,
                 obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfCsimLiLoaded()));
         mRecordsToLoad++;
 
-        mFh.loadEFTransparent(EF_CSIM_SPN,
+        mLoadPlan.loadEFTransparent(EF_CSIM_SPN,
                 obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfCsimSpnLoaded()));
         mRecordsToLoad++;
 
-        mFh.loadEFLinearFixed(EF_CSIM_MDN, 1,
+        mLoadPlan.loadEFLinearFixed(EF_CSIM_MDN, 1,
                 obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfCsimMdnLoaded()));
         mRecordsToLoad++;
 
-        mFh.loadEFTransparent(EF_CSIM_IMSIM,
+        mLoadPlan.loadEFTransparent(EF_CSIM_IMSIM,
                 obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfCsimImsimLoaded()));
         mRecordsToLoad++;
 
-        mFh.loadEFLinearFixedAll(EF_CSIM_CDMAHOME,
+        mLoadPlan.loadEFLinearFixedAll(EF_CSIM_CDMAHOME,
                 obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfCsimCdmaHomeLoaded()));
         mRecordsToLoad++;
 
         // Entire PRL could be huge. We are only interested in
         // the first 4 bytes of the record.
-        mFh.loadEFTransparent(EF_CSIM_EPRL, 4,
+        mLoadPlan.loadEFTransparent(EF_CSIM_EPRL, 4,
                 obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfCsimEprlLoaded()));
         mRecordsToLoad++;
 
-        mFh.loadEFTransparent(EF_CSIM_MIPUPP,
+        mLoadPlan.loadEFTransparent(EF_CSIM_MIPUPP,
                 obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfCsimMipUppLoaded()));
         mRecordsToLoad++;
         mFh.getEFLinearRecordSize(EF_SMS, obtainMessage(EVENT_GET_SMS_RECORD_SIZE_DONE));
@@ -19,6 +19,8 @@ package com.android.internal.telephony.uicc;
 import android.content.Context;
 import android.os.AsyncResult;
 import android.os.Message;
+import android.os.SystemClock;
+import android.os.SystemProperties;
 import android.telephony.PhoneNumberUtils;
 import android.telephony.SmsMessage;
 import android.text.TextUtils;
@@ -86,6 +88,16 @@ public class SIMRecords extends IccRecords {
 
     UsimServiceTable mUsimServiceTable;
 
+    // Snapshot of the static EFs of this SIM, published before the SIM is read
+    private SimRecordsCache mRecordsCache;
+    private SimRecordsCache.Snapshot mSnapshot;
+    private boolean mSnapshotDirty;
+    // Number of EF_ICCID reads the cacheable EFs wait for to select the snapshot
+    private int mPendingCacheableLoads;
+    private long mFetchStartTime;
+    private int mEfsFromCache;
+    private long mLastRecordsLoadTime = -1;
+
     @Override
     public String toString() {
         return "SimRecords: " + super.toString()
@@ -159,6 +171,43 @@ public class SIMRecords extends IccRecords {
     private static final int EVENT_GET_GID1_DONE = 34;
     private static final int EVENT_APP_LOCKED = 35;
     private static final int EVENT_GET_GID2_DONE = 36;
+    private static final int EVENT_REVALIDATE_EF_DONE = 37;
+
+    // Set to false to always read every EF from the SIM
+    private static final String PROPERTY_SIM_RECORDS_CACHE = "persist.radio.sim_records_cache";
+
+    // userObj of the results replayed from the snapshot
+    private static final Object FROM_CACHE = new Object();
+    // userObj of the results read again from the SIM that differ from the snapshot
+    private static final Object REVALIDATED = new Object();
+
+    /**
+     * An EF that is kept in the snapshot. These are the files that do not
+     * change while the SIM is in use, everything else is always read.
+     */
+    private static class CacheableEf {
+        final int mEfid;
+        final int mEvent;
+        // record to read for linear fixed EFs, 0 for transparent EFs
+        final int mRecordNum;
+
+        CacheableEf(int efid, int event, int recordNum) {
+            mEfid = efid;
+            mEvent = event;
+            mRecordNum = recordNum;
+        }
+    }
+
+    private static final CacheableEf[] CACHEABLE_EFS = {
+        new CacheableEf(EF_AD, EVENT_GET_AD_DONE, 0),
+        new CacheableEf(EF_SPDI, EVENT_GET_SPDI_DONE, 0),
+        new CacheableEf(EF_PNN, EVENT_GET_PNN_DONE, 1),
+        new CacheableEf(EF_SST, EVENT_GET_SST_DONE, 0),
+        new CacheableEf(EF_INFO_CPHS, EVENT_GET_INFO_CPHS_DONE, 0),
+        new CacheableEf(EF_CSP_CPHS, EVENT_GET_CSP_CPHS_DONE, 0),
+        new CacheableEf(EF_GID1, EVENT_GET_GID1_DONE, 0),
+        new CacheableEf(EF_GID2, EVENT_GET_GID2_DONE, 0),
+    };
 
     // Lookup table for carriers known to produce SIMs which incorrectly indicate MNC length.
 
@@ -198,6 +247,10 @@ public class SIMRecords extends IccRecords {
 
         mCi.setOnSmsOnSim(this, EVENT_SMS_ON_SIM, null);
 
+        if (SystemProperties.getBoolean(PROPERTY_SIM_RECORDS_CACHE, true)) {
+            mRecordsCache = new SimRecordsCache(c);
+        }
+
         // Start off by setting empty state
         resetRecords();
         mParentApp.registerForReady(this, EVENT_APP_READY, null);
@@ -236,6 +289,9 @@ public class SIMRecords extends IccRecords {
         mPnnHomeName = null;
         mGid1 = null;
         mGid2 = null;
+        mSnapshot = null;
+        mSnapshotDirty = false;
+        mPendingCacheableLoads = 0;
 
         mAdnCache.reset();
 
@@ -584,6 +640,13 @@ public class SIMRecords extends IccRecords {
     @Override
     public void onRefresh(boolean fileChanged, int[] fileList) {
         if (fileChanged) {
+            if (fileList != null) {
+                for (int efid : fileList) {
+                    invalidateCachedEf(efid);
+                }
+            } else {
+                invalidateSnapshot();
+            }
             // A future optimization would be to inspect fileList and
             // only reload those files that we care about.  For now,
             // just re-fetch all SIM records that we cache.
@@ -626,6 +689,10 @@ public class SIMRecords extends IccRecords {
             return;
         }
 
+        if (mSnapshot != null) {
+            updateSnapshot(msg);
+        }
+
         try { switch (msg.what) {
             case EVENT_APP_READY:
                 onReady();
@@ -873,14 +940,16 @@ public class SIMRecords extends IccRecords {
                 ar = (AsyncResult)msg.obj;
                 data = (byte[])ar.result;
 
-                if (ar.exception != null) {
-                    break;
-                }
-
-                mIccId = IccUtils.bcdToString(data, 0, data.length);
+                if (ar.exception == null) {
+                    mIccId = IccUtils.bcdToString(data, 0, data.length);
 
-                log("iccid: " + mIccId);
+                    log("iccid: " + mIccId);
+                }
 
+                if (mPendingCacheableLoads > 0) {
+                    mPendingCacheableLoads--;
+                    loadCacheableEfs();
+                }
             break;
 
 
@@ -1226,6 +1295,13 @@ public class SIMRecords extends IccRecords {
 
                 break;
 
+            case EVENT_REVALIDATE_EF_DONE:
+                isRecordLoadResponse = false;
+
+                ar = (AsyncResult)msg.obj;
+                onCachedEfRevalidated((CacheableEf) ar.userObj, ar);
+                break;
+
             default:
                 super.handleMessage(msg);   // IccRecords handles generic record load responses
 
@@ -1233,13 +1309,18 @@ public class SIMRecords extends IccRecords {
             // I don't want these exceptions to be fatal
             logw("Exception parsing SIM record", exc);
         } finally {
-            // Count up record load responses even if they are fails
-            if (isRecordLoadResponse) {
+            // Count up record load responses even if they are fails. A record
+            // corrected after revalidation was already counted when published.
+            if (isRecordLoadResponse && !isRevalidation(msg)) {
                 onRecordLoaded();
             }
         }
     }
 
+    private static boolean isRevalidation(Message msg) {
+        return msg.obj instanceof AsyncResult && ((AsyncResult) msg.obj).userObj == REVALIDATED;
+    }
+
     private class EfPlLoaded implements IccRecordLoaded {
         public String getEfName() {
             return "EF_PL";
@@ -1264,6 +1345,8 @@ public class SIMRecords extends IccRecords {
 
     @Override
     protected void handleFileUpdate(int efid) {
+        invalidateCachedEf(efid);
+
         switch(efid) {
             case EF_MBDN:
                 mRecordsToLoad++;
@@ -1278,7 +1361,7 @@ public class SIMRecords extends IccRecords {
             case EF_CSP_CPHS:
                 mRecordsToLoad++;
                 log("[CSP] SIM Refresh for EF_CSP_CPHS");
-                mFh.loadEFTransparent(EF_CSP_CPHS,
+                mLoadPlan.loadEFTransparent(EF_CSP_CPHS,
                         obtainMessage(EVENT_GET_CSP_CPHS_DONE));
                 break;
             case EF_FDN:
@@ -1296,10 +1379,23 @@ public class SIMRecords extends IccRecords {
                 log("SIM Refresh called for EF_CFIS or EF_CFF_CPHS");
                 loadCallForwardingRecords();
                 break;
+            case EF_AD:
+            case EF_SPDI:
+            case EF_PNN:
+            case EF_SST:
+            case EF_INFO_CPHS:
+            case EF_GID1:
+            case EF_GID2:
+                log("SIM Refresh called for EF 0x" + Integer.toHexString(efid));
+                CacheableEf ef = getCacheableEf(efid);
+                mRecordsToLoad++;
+                loadEf(ef, obtainMessage(ef.mEvent));
+                break;
             default:
                 // For now, fetch all records if this is not a
                 // voicemail number.
                 // TODO: Handle other cases, instead of fetching all.
+                invalidateSnapshot();
                 mAdnCache.reset();
                 fetchSimRecords();
                 break;
@@ -1386,6 +1482,17 @@ public class SIMRecords extends IccRecords {
         }
     }
 
+    private void setOperatorNumeric(String operator) {
+        mTelephonyManager.setSimOperatorNumericForPhone(
+                mParentApp.getPhoneId(), operator);
+        final SubscriptionController subController = SubscriptionController.getInstance();
+        int[] subId = subController.getSubId(mParentApp.getPhoneId());
+        if (subId != null && subId.length > 0) {
+            subController.setMccMnc(operator, subId[0]);
+            log("update icc_operator_numeric = " + operator + " subId = " + subId[0]);
+        }
+    }
+
     private void setVoiceCallForwardingFlagFromSimRecords() {
         if (validEfCfis(mEfCfis)) {
             // Refer TS 51.011 Section 10.3.46 for the content description
@@ -1402,6 +1509,25 @@ public class SIMRecords extends IccRecords {
         }
     }
 
+    @Override
+    protected void handleRefresh(IccRefreshResponse refreshResponse) {
+        if (refreshResponse != null && (refreshResponse.aid == null
+                || refreshResponse.aid.equals(mParentApp.getAid()))) {
+            if (refreshResponse.refreshResult == IccRefreshResponse.REFRESH_INIT_FILE_UPDATED
+                    && refreshResponse.efId != null) {
+                for (int efid : refreshResponse.efId) {
+                    invalidateCachedEf(efid);
+                }
+            } else if (refreshResponse.refreshResult
+                    != IccRefreshResponse.REFRESH_RESULT_FILE_UPDATE) {
+                // The files updated by a single file refresh are dropped
+                // from the snapshot in handleFileUpdate()
+                invalidateSnapshot();
+            }
+        }
+        super.handleRefresh(refreshResponse);
+    }
+
     @Override
     protected void onAllRecordsLoaded() {
         if (DBG) log("record load complete");
@@ -1429,14 +1555,7 @@ public class SIMRecords extends IccRecords {
         if (!TextUtils.isEmpty(operator)) {
             log("onAllRecordsLoaded set 'gsm.sim.operator.numeric' to operator='" +
                     operator + "'");
-            mTelephonyManager.setSimOperatorNumericForPhone(
-                    mParentApp.getPhoneId(), operator);
-            final SubscriptionController subController = SubscriptionController.getInstance();
-            int[] subId = subController.getSubId(mParentApp.getPhoneId());
-            if (subId != null && subId.length > 0) {
-                subController.setMccMnc(operator, subId[0]);
-                log("update icc_operator_numeric = " + operator + " subId = " + subId[0]);
-            }
+            setOperatorNumeric(operator);
         } else {
             log("onAllRecordsLoaded empty 'gsm.sim.operator.numeric' skipping");
         }
@@ -1453,6 +1572,11 @@ public class SIMRecords extends IccRecords {
         setVoiceMailByCountry(operator);
         setSpnFromConfig(operator);
 
+        mLastRecordsLoadTime = SystemClock.elapsedRealtime() - mFetchStartTime;
+        if (DBG) log("records loaded in " + mLastRecordsLoadTime + " ms, "
+                + mEfsFromCache + " EFs from snapshot");
+        saveSnapshot();
+
         mRecordsLoadedRegistrants.notifyRegistrants(
             new AsyncResult(null, null, null));
     }
@@ -1480,11 +1604,11 @@ public class SIMRecords extends IccRecords {
     private void loadEfLiAndEfPl() {
         if (mParentApp.getType() == AppType.APPTYPE_USIM) {
             mRecordsRequested = true;
-            mFh.loadEFTransparent(EF_LI,
+            mLoadPlan.loadEFTransparent(EF_LI,
                     obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfUsimLiLoaded()));
             mRecordsToLoad++;
 
-            mFh.loadEFTransparent(EF_PL,
+            mLoadPlan.loadEFTransparent(EF_PL,
                     obtainMessage(EVENT_GET_ICC_RECORD_DONE, new EfPlLoaded()));
             mRecordsToLoad++;
         }
@@ -1492,21 +1616,23 @@ public class SIMRecords extends IccRecords {
 
     private void loadCallForwardingRecords() {
         mRecordsRequested = true;
-        mFh.loadEFLinearFixed(EF_CFIS, 1, obtainMessage(EVENT_GET_CFIS_DONE));
+        mLoadPlan.loadEFLinearFixed(EF_CFIS, 1, obtainMessage(EVENT_GET_CFIS_DONE));
         mRecordsToLoad++;
-        mFh.loadEFTransparent(EF_CFF_CPHS, obtainMessage(EVENT_GET_CFF_DONE));
+        mLoadPlan.loadEFTransparent(EF_CFF_CPHS, obtainMessage(EVENT_GET_CFF_DONE));
         mRecordsToLoad++;
     }
 
     protected void fetchSimRecords() {
         mRecordsRequested = true;
+        mFetchStartTime = SystemClock.elapsedRealtime();
+        mEfsFromCache = 0;
 
         if (DBG) log("fetchSimRecords " + mRecordsToLoad);
 
         mCi.getIMSIForApp(mParentApp.getAid(), obtainMessage(EVENT_GET_IMSI_DONE));
         mRecordsToLoad++;
 
-        mFh.loadEFTransparent(EF_ICCID, obtainMessage(EVENT_GET_ICCID_DONE));
+        mLoadPlan.loadEFTransparent(EF_ICCID, obtainMessage(EVENT_GET_ICCID_DONE));
         mRecordsToLoad++;
 
         // FIXME should examine EF[MSISDN]'s capability configuration
@@ -1516,14 +1642,12 @@ public class SIMRecords extends IccRecords {
         mRecordsToLoad++;
 
         // Record number is subscriber profile
-        mFh.loadEFLinearFixed(EF_MBI, 1, obtainMessage(EVENT_GET_MBI_DONE));
-        mRecordsToLoad++;
-
-        mFh.loadEFTransparent(EF_AD, obtainMessage(EVENT_GET_AD_DONE));
+        mLoadPlan.loadEFLinearFixed(EF_MBI, 1, obtainMessage(EVENT_GET_MBI_DONE));
         mRecordsToLoad++;
 
         // Record number is subscriber profile
-        mFh.loadEFLinearFixed(EF_MWIS, 1, obtainMessage(EVENT_GET_MWIS_DONE));
+        EfLoadPlan.EfLoad mwisLoad = mLoadPlan.loadEFLinearFixed(EF_MWIS, 1,
+                obtainMessage(EVENT_GET_MWIS_DONE));
         mRecordsToLoad++;
 
 
@@ -1531,7 +1655,7 @@ public class SIMRecords extends IccRecords {
         // the same info as EF[MWIS]. If both exist, both are updated
         // but the EF[MWIS] data is preferred
         // Please note this must be loaded after EF[MWIS]
-        mFh.loadEFTransparent(
+        mLoadPlan.loadEFTransparentAfter(mwisLoad,
                 EF_VOICE_MAIL_INDICATOR_CPHS,
                 obtainMessage(EVENT_GET_VOICE_MAIL_INDICATOR_CPHS_DONE));
         mRecordsToLoad++;
@@ -1542,26 +1666,14 @@ public class SIMRecords extends IccRecords {
 
         getSpnFsm(true, null);
 
-        mFh.loadEFTransparent(EF_SPDI, obtainMessage(EVENT_GET_SPDI_DONE));
-        mRecordsToLoad++;
-
-        mFh.loadEFLinearFixed(EF_PNN, 1, obtainMessage(EVENT_GET_PNN_DONE));
-        mRecordsToLoad++;
-
-        mFh.loadEFTransparent(EF_SST, obtainMessage(EVENT_GET_SST_DONE));
-        mRecordsToLoad++;
-
-        mFh.loadEFTransparent(EF_INFO_CPHS, obtainMessage(EVENT_GET_INFO_CPHS_DONE));
-        mRecordsToLoad++;
-
-        mFh.loadEFTransparent(EF_CSP_CPHS,obtainMessage(EVENT_GET_CSP_CPHS_DONE));
-        mRecordsToLoad++;
-
-        mFh.loadEFTransparent(EF_GID1, obtainMessage(EVENT_GET_GID1_DONE));
-        mRecordsToLoad++;
-
-        mFh.loadEFTransparent(EF_GID2, obtainMessage(EVENT_GET_GID2_DONE));
-        mRecordsToLoad++;
+        // EF_AD, EF_SPDI, EF_PNN, EF_SST, EF_INFO_CPHS, EF_CSP_CPHS, EF_GID1
+        // and EF_GID2 may come from the snapshot of this SIM, which is only
+        // known once EF_ICCID is read
+        if (mRecordsCache != null) {
+            mPendingCacheableLoads++;
+        } else {
+            loadCacheableEfs();
+        }
 
         loadEfLiAndEfPl();
         mFh.getEFLinearRecordSize(EF_SMS, obtainMessage(EVENT_GET_SMS_RECORD_SIZE_DONE));
@@ -1587,6 +1699,173 @@ public class SIMRecords extends IccRecords {
         if (DBG) log("fetchSimRecords " + mRecordsToLoad + " requested: " + mRecordsRequested);
     }
 
+    private static CacheableEf getCacheableEf(int efid) {
+        for (CacheableEf ef : CACHEABLE_EFS) {
+            if (ef.mEfid == efid) {
+                return ef;
+            }
+        }
+        return null;
+    }
+
+    private static CacheableEf getCacheableEfForEvent(int event) {
+        for (CacheableEf ef : CACHEABLE_EFS) {
+            if (ef.mEvent == event) {
+                return ef;
+            }
+        }
+        return null;
+    }
+
+    private void loadEf(CacheableEf ef, Message response) {
+        if (ef.mRecordNum > 0) {
+            mLoadPlan.loadEFLinearFixed(ef.mEfid, ef.mRecordNum, response);
+        } else {
+            mLoadPlan.loadEFTransparent(ef.mEfid, response);
+        }
+    }
+
+    /**
+     * Load the EFs that can be kept in the snapshot. EFs found in the snapshot
+     * of this SIM are published right away, and read again from the SIM to
+     * check that they are still current.
+     */
+    private void loadCacheableEfs() {
+        mSnapshot = null;
+        if (mRecordsCache != null && mIccId != null) {
+            mSnapshot = mRecordsCache.load(mIccId);
+            if (mSnapshot == null) {
+                mSnapshot = new SimRecordsCache.Snapshot();
+            }
+            if (DBG) log("loadCacheableEfs snapshot=" + mSnapshot);
+        }
+
+        for (CacheableEf ef : CACHEABLE_EFS) {
+            mRecordsToLoad++;
+            if (mSnapshot != null && mSnapshot.contains(ef.mEfid)) {
+                mEfsFromCache++;
+                sendMessage(obtainMessage(ef.mEvent, cachedResult(ef.mEfid,
+                        mSnapshot.get(ef.mEfid))));
+                loadEf(ef, obtainMessage(EVENT_REVALIDATE_EF_DONE, ef));
+            } else {
+                loadEf(ef, obtainMessage(ef.mEvent));
+            }
+        }
+    }
+
+    private static AsyncResult cachedResult(int efid, byte[] data) {
+        return new AsyncResult(FROM_CACHE, data, data == null ? new IccFileNotFound(efid) : null);
+    }
+
+    /**
+     * Record the EF read from the SIM in the snapshot. Only files that are
+     * missing on the SIM are remembered as failed reads, any other error
+     * drops the EF so that it is read again next time.
+     */
+    private void updateSnapshot(Message msg) {
+        CacheableEf ef = getCacheableEfForEvent(msg.what);
+        if (ef == null || !(msg.obj instanceof AsyncResult)) {
+            return;
+        }
+        AsyncResult ar = (AsyncResult) msg.obj;
+        if (ar.userObj == FROM_CACHE) {
+            return;
+        }
+        if (ar.exception == null) {
+            mSnapshot.put(ef.mEfid, (byte[]) ar.result);
+        } else if (ar.exception instanceof IccFileNotFound) {
+            mSnapshot.put(ef.mEfid, null);
+        } else {
+            mSnapshot.remove(ef.mEfid);
+        }
+        mSnapshotDirty = true;
+    }
+
+    private void onCachedEfRevalidated(CacheableEf ef, AsyncResult ar) {
+        if (mSnapshot == null || !mSnapshot.contains(ef.mEfid)) {
+            // records were reset or the EF was refreshed meanwhile
+            return;
+        }
+        byte[] data;
+        if (ar.exception == null) {
+            data = (byte[]) ar.result;
+        } else if (ar.exception instanceof IccFileNotFound) {
+            data = null;
+        } else {
+            // can't tell, keep what was published
+            loge("Exception revalidating EF 0x" + Integer.toHexString(ef.mEfid)
+                    + " " + ar.exception);
+            return;
+        }
+        byte[] cached = mSnapshot.get(ef.mEfid);
+        if (data == null ? cached == null : Arrays.equals(data, cached)) {
+            return;
+        }
+
+        log("EF 0x" + Integer.toHexString(ef.mEfid) + " differs from snapshot, updating");
+        // Only this EF is parsed again, the snapshot is updated on the way
+        handleMessage(obtainMessage(ef.mEvent, new AsyncResult(REVALIDATED, data,
+                data == null ? new IccFileNotFound(ef.mEfid) : null)));
+        if (mRecordsToLoad == 0 && mRecordsRequested) {
+            // Records loaded was notified with the contents of the snapshot
+            onCachedEfChanged(ef.mEfid);
+            saveSnapshot();
+        }
+    }
+
+    /**
+     * Publish the change of a cacheable EF after the records were loaded.
+     * Records loaded is not notified again, only what depends on the EF.
+     */
+    private void onCachedEfChanged(int efid) {
+        switch (efid) {
+            case EF_AD:
+                // The MNC length changes the operator
+                String operator = getOperatorNumeric();
+                if (!TextUtils.isEmpty(operator)) {
+                    setOperatorNumeric(operator);
+                }
+                break;
+
+            case EF_SPDI:
+            case EF_PNN:
+                mRecordsEventsRegistrants.notifyResult(EVENT_SPN);
+                break;
+
+            default:
+                // Read on demand, nothing to notify
+                break;
+        }
+    }
+
+    /**
+     * Drop one EF from the snapshot, it is read from the SIM next time.
+     */
+    private void invalidateCachedEf(int efid) {
+        if (mSnapshot != null && mSnapshot.contains(efid)) {
+            if (DBG) log("invalidateCachedEf 0x" + Integer.toHexString(efid));
+            mSnapshot.remove(efid);
+            mSnapshotDirty = true;
+            saveSnapshot();
+        }
+    }
+
+    private void invalidateSnapshot() {
+        if (DBG) log("invalidateSnapshot");
+        if (mRecordsCache != null && mIccId != null) {
+            mRecordsCache.invalidate(mIccId);
+        }
+        mSnapshot = null;
+        mSnapshotDirty = false;
+    }
+
+    private void saveSnapshot() {
+        if (mSnapshotDirty && mSnapshot != null && mIccId != null) {
+            mRecordsCache.save(mIccId, mSnapshot);
+            mSnapshotDirty = false;
+        }
+    }
+
     /**
      * Returns the SpnDisplayRule based on settings on the SIM and the
      * specified plmn (currently-registered PLMN).  See TS 22.101 Annex A
@@ -1694,7 +1973,7 @@ public class SIMRecords extends IccRecords {
             case INIT:
                 setServiceProviderName(null);
 
-                mFh.loadEFTransparent(EF_SPN,
+                mLoadPlan.loadEFTransparent(EF_SPN,
                         obtainMessage(EVENT_GET_SPN_DONE));
                 mRecordsToLoad++;
 
@@ -1718,7 +1997,7 @@ public class SIMRecords extends IccRecords {
                     mSpnState = GetSpnFsmState.IDLE;
                 }
                 if (!foundSpn) {
-                    mFh.loadEFTransparent( EF_SPN_CPHS,
+                    mLoadPlan.loadEFTransparent( EF_SPN_CPHS,
                             obtainMessage(EVENT_GET_SPN_DONE));
                     mRecordsToLoad++;
 
@@ -1745,7 +2024,7 @@ public class SIMRecords extends IccRecords {
                     mSpnState = GetSpnFsmState.IDLE;
                 }
                 if (!foundSpn) {
-                    mFh.loadEFTransparent(
+                    mLoadPlan.loadEFTransparent(
                             EF_SPN_SHORT_CPHS, obtainMessage(EVENT_GET_SPN_DONE));
                     mRecordsToLoad++;
 
@@ -1922,6 +2201,9 @@ public class SIMRecords extends IccRecords {
         pw.println(" mUsimServiceTable=" + mUsimServiceTable);
         pw.println(" mGid1=" + mGid1);
         pw.println(" mGid2=" + mGid2);
+        pw.println(" mSnapshot=" + mSnapshot);
+        pw.println(" mEfsFromCache=" + mEfsFromCache);
+        pw.println(" mLastRecordsLoadTime=" + mLastRecordsLoadTime);
         pw.flush();
     }
 }
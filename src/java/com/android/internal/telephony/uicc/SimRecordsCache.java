@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.uicc;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.telephony.Rlog;
+import android.util.SparseArray;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Map;
+
+/**
+ * Persistent snapshot of SIM elementary files, keyed by a salted hash of the
+ * ICCID so that the ICCIDs of the SIMs seen by the device are not stored.
+ *
+ * {@link SIMRecords} publishes the contents of the snapshot as soon as the
+ * ICCID is known and reads the files from the SIM again in the background.
+ * Only files that do not change while the SIM is in use are kept here.
+ *
+ * {@hide}
+ */
+class SimRecordsCache {
+    private static final String LOG_TAG = "SimRecordsCache";
+    private static final boolean DBG = true;
+
+    private static final String PREF_FILE = "sim_records_cache";
+    // Increase when the stored format or the meaning of a cached EF changes
+    private static final int VERSION = 1;
+    // Number of SIMs remembered, the least recently saved one is dropped first
+    private static final int MAX_SNAPSHOTS = 4;
+
+    private static final String ABSENT = "-";
+
+    // Random salt of the ICCID hashes, created with the first snapshot
+    private static final String KEY_SALT = "salt";
+    // Prefix of the keys of the snapshots
+    private static final String KEY_SNAPSHOT = "sim_";
+    private static final int SALT_LENGTH = 16;
+
+    /**
+     * Contents of the cached EFs of one SIM. An EF that is known to be
+     * missing on the SIM is kept with null contents.
+     */
+    static class Snapshot {
+        private final SparseArray<byte[]> mEfs = new SparseArray<byte[]>();
+
+        boolean contains(int efid) {
+            return mEfs.indexOfKey(efid) >= 0;
+        }
+
+        byte[] get(int efid) {
+            return mEfs.get(efid);
+        }
+
+        void put(int efid, byte[] data) {
+            mEfs.put(efid, data);
+        }
+
+        void remove(int efid) {
+            mEfs.remove(efid);
+        }
+
+        int size() {
+            return mEfs.size();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0; i < mEfs.size(); i++) {
+                if (i > 0) sb.append(' ');
+                sb.append(Integer.toHexString(mEfs.keyAt(i)));
+                if (mEfs.valueAt(i) == null) sb.append(ABSENT);
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    // The caches of all slots share the preferences file and its salt
+    private static final Object sLock = new Object();
+    private static byte[] sSalt;
+
+    private final SharedPreferences mPrefs;
+
+    SimRecordsCache(Context context) {
+        mPrefs = context.getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @return the snapshot saved for the SIM, or null if there is none or it
+     *         was written by another version
+     */
+    Snapshot load(String iccId) {
+        String key = keyFor(iccId);
+        String value = key == null ? null : mPrefs.getString(key, null);
+        if (value == null) {
+            return null;
+        }
+        Snapshot snapshot = decode(value);
+        if (snapshot == null) {
+            if (DBG) Rlog.d(LOG_TAG, "discard outdated snapshot");
+            mPrefs.edit().remove(key).apply();
+        }
+        return snapshot;
+    }
+
+    void save(String iccId, Snapshot snapshot) {
+        String key = keyFor(iccId);
+        if (key == null) {
+            return;
+        }
+        synchronized (sLock) {
+            saveLocked(key, snapshot);
+        }
+    }
+
+    private void saveLocked(String key, Snapshot snapshot) {
+        SharedPreferences.Editor editor = mPrefs.edit();
+        String oldest = null;
+        long oldestTime = Long.MAX_VALUE;
+        int count = 0;
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(KEY_SNAPSHOT) || entry.getKey().equals(key)) {
+                continue;
+            }
+            count++;
+            long time = savedTime(String.valueOf(entry.getValue()));
+            if (time < oldestTime) {
+                oldestTime = time;
+                oldest = entry.getKey();
+            }
+        }
+        if (count >= MAX_SNAPSHOTS) {
+            editor.remove(oldest);
+        }
+        editor.putString(key, encode(snapshot, System.currentTimeMillis())).apply();
+    }
+
+    void invalidate(String iccId) {
+        String key = keyFor(iccId);
+        if (key != null) {
+            mPrefs.edit().remove(key).apply();
+        }
+    }
+
+    /**
+     * @return the key of the snapshot of the SIM, or null if it can't be computed
+     */
+    private String keyFor(String iccId) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(getSalt());
+            md.update(iccId.getBytes(StandardCharsets.UTF_8));
+            return KEY_SNAPSHOT + IccUtils.bytesToHexString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            Rlog.e(LOG_TAG, "NoSuchAlgorithmException: " + e);
+            return null;
+        }
+    }
+
+    private byte[] getSalt() {
+        synchronized (sLock) {
+            if (sSalt == null) {
+                String salt = mPrefs.getString(KEY_SALT, null);
+                if (salt == null) {
+                    byte[] newSalt = new byte[SALT_LENGTH];
+                    new SecureRandom().nextBytes(newSalt);
+                    // Drop the snapshots of older versions, which were keyed by
+                    // ICCID. Hashed snapshots saved by another slot are kept.
+                    SharedPreferences.Editor editor = mPrefs.edit();
+                    for (String key : mPrefs.getAll().keySet()) {
+                        if (!key.startsWith(KEY_SNAPSHOT)) {
+                            editor.remove(key);
+                        }
+                    }
+                    editor.putString(KEY_SALT, IccUtils.bytesToHexString(newSalt)).apply();
+                    sSalt = newSalt;
+                } else {
+                    sSalt = IccUtils.hexStringToBytes(salt);
+                }
+            }
+            return sSalt;
+        }
+    }
+
+    /**
+     * Forget the salt read from the preferences, so that it is read or
+     * created again by the next cache access.
+     */
+    @VisibleForTesting
+    static void resetSalt() {
+        synchronized (sLock) {
+            sSalt = null;
+        }
+    }
+
+    /*
+     * Snapshots are stored as "version;savedTime;efid=hex,efid=-,...", with
+     * "-" marking an EF that is not present on the SIM.
+     */
+    private static String encode(Snapshot snapshot, long savedTime) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(VERSION).append(';').append(savedTime).append(';');
+        for (int i = 0; i < snapshot.mEfs.size(); i++) {
+            if (i > 0) sb.append(',');
+            byte[] data = snapshot.mEfs.valueAt(i);
+            sb.append(Integer.toHexString(snapshot.mEfs.keyAt(i))).append('=')
+                    .append(data == null ? ABSENT : IccUtils.bytesToHexString(data));
+        }
+        return sb.toString();
+    }
+
+    private static Snapshot decode(String value) {
+        String[] parts = value.split(";", -1);
+        if (parts.length != 3 || !Integer.toString(VERSION).equals(parts[0])) {
+            return null;
+        }
+        Snapshot snapshot = new Snapshot();
+        if (parts[2].isEmpty()) {
+            return snapshot;
+        }
+        try {
+            for (String ef : parts[2].split(",")) {
+                int separator = ef.indexOf('=');
+                if (separator < 0) {
+                    return null;
+                }
+                int efid = Integer.parseInt(ef.substring(0, separator), 16);
+                String data = ef.substring(separator + 1);
+                snapshot.put(efid, ABSENT.equals(data) ? null : IccUtils.hexStringToBytes(data));
+            }
+        } catch (RuntimeException e) {
+            Rlog.w(LOG_TAG, "corrupt snapshot " + e);
+            return null;
+        }
+        return snapshot;
+    }
+
+    private static long savedTime(String value) {
+        String[] parts = value.split(";", 3);
+        try {
+            return parts.length == 3 ? Long.parseLong(parts[1]) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
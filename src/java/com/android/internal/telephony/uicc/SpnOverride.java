@@ -30,9 +30,12 @@ import android.os.SystemProperties;
 import android.telephony.Rlog;
 import android.util.Xml;
 
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.util.XmlUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import com.android.internal.telephony.Phone;
 import com.android.internal.telephony.PhoneFactory;
@@ -44,7 +47,9 @@ import com.mediatek.internal.telephony.cdma.CdmaFeatureOptionUtils;
 import com.mediatek.internal.telephony.ltedc.svlte.SvlteUtils;
 
 public class SpnOverride {
-    private HashMap<String, String> mCarrierSpnMap;
+    // Shared by all instances, the override files are part of the system image
+    private static HashMap<String, String> sCarrierSpnMap;
+    private final HashMap<String, String> mCarrierSpnMap;
 
 
     static final String LOG_TAG = "SpnOverride";
@@ -52,26 +57,29 @@ public class SpnOverride {
     static final String OEM_SPN_OVERRIDE_PATH = "telephony/spn-conf.xml";
 
     SpnOverride () {
-        mCarrierSpnMap = new HashMap<String, String>();
-        loadSpnOverrides();
+        synchronized (sInstSync) {
+            if (sCarrierSpnMap == null) {
+                sCarrierSpnMap = loadSpnOverrides();
+            }
+            mCarrierSpnMap = sCarrierSpnMap;
+
+            // xen0n: initialize the static contents only once
+            // MTK-START
+            // MVNO-API
+            // IMSI
+            if (CarrierVirtualSpnMapByImsi == null) {
+                loadVirtualSpnOverridesByImsi();
+            }
+        }
 
-        // xen0n: initialize the static contents only once
         // race conditions can be ignored as the init operations should be
         // idempotent
-        // MTK-START
-        // MVNO-API
         // EF_SPN
         if (CarrierVirtualSpnMapByEfSpn == null) {
             CarrierVirtualSpnMapByEfSpn = new HashMap<String, String>();
             loadVirtualSpnOverridesByEfSpn();
         }
 
-        // IMSI
-        if (CarrierVirtualSpnMapByImsi == null) {
-            this.CarrierVirtualSpnMapByImsi = new ArrayList();
-            this.loadVirtualSpnOverridesByImsi();
-        }
-
         // EF_PNN
         if (CarrierVirtualSpnMapByEfPnn == null) {
             CarrierVirtualSpnMapByEfPnn = new HashMap<String, String>();
@@ -94,7 +102,8 @@ public class SpnOverride {
         return mCarrierSpnMap.get(carrier);
     }
 
-    private void loadSpnOverrides() {
+    private static HashMap<String, String> loadSpnOverrides() {
+        HashMap<String, String> carrierSpnMap = new HashMap<String, String>();
         FileReader spnReader;
 
         File spnFile = new File(Environment.getRootDirectory(),
@@ -123,7 +132,7 @@ public class SpnOverride {
             spnReader = new FileReader(spnFile);
         } catch (FileNotFoundException e) {
             Rlog.w(LOG_TAG, "Can not open " + spnFile.getAbsolutePath());
-            return;
+            return carrierSpnMap;
         }
 
         try {
@@ -143,7 +152,7 @@ public class SpnOverride {
                 String numeric = parser.getAttributeValue(null, "numeric");
                 String data    = parser.getAttributeValue(null, "spn");
 
-                mCarrierSpnMap.put(numeric, data);
+                carrierSpnMap.put(numeric, data);
             }
             spnReader.close();
         } catch (XmlPullParserException e) {
@@ -151,6 +160,7 @@ public class SpnOverride {
         } catch (IOException e) {
             Rlog.w(LOG_TAG, "Exception in spn-conf parser " + e);
         }
+        return carrierSpnMap;
     }
 
     // MTK
@@ -164,8 +174,9 @@ public class SpnOverride {
     private static HashMap<String, String> CarrierVirtualSpnMapByEfSpn;
     private static final String PARTNER_VIRTUAL_SPN_BY_EF_SPN_OVERRIDE_PATH = "etc/virtual-spn-conf-by-efspn.xml";
 
-    // IMSI
-    private ArrayList CarrierVirtualSpnMapByImsi;
+    // IMSI, in the order of the configuration
+    private static ArrayList<VirtualSpnByImsi> CarrierVirtualSpnMapByImsi;
+    private static ImsiPatternIndex sImsiPatternIndex;
     private static final String PARTNER_VIRTUAL_SPN_BY_IMSI_OVERRIDE_PATH = "etc/virtual-spn-conf-by-imsi.xml";
 
     // EF_PNN
@@ -184,6 +195,82 @@ public class SpnOverride {
             this.name = name;
         }
     }
+
+    /**
+     * The IMSI patterns in a trie, where 'x' matches any character. A lookup
+     * walks the IMSI once and returns the first pattern of the configuration
+     * that matches, as matching the patterns one after the other would.
+     */
+    @VisibleForTesting
+    static class ImsiPatternIndex {
+        private static final char ANY = 'x';
+
+        private static class Node {
+            char[] mKeys = new char[0];
+            Node[] mNext = new Node[0];
+            // Position of the first pattern ending here, -1 if none
+            int mFirst = -1;
+
+            Node child(char key) {
+                for (int i = 0; i < mKeys.length; i++) {
+                    if (mKeys[i] == key) {
+                        return mNext[i];
+                    }
+                }
+                Node node = new Node();
+                int size = mKeys.length;
+                mKeys = Arrays.copyOf(mKeys, size + 1);
+                mNext = Arrays.copyOf(mNext, size + 1);
+                mKeys[size] = key;
+                mNext[size] = node;
+                return node;
+            }
+        }
+
+        private final Node mRoot = new Node();
+
+        ImsiPatternIndex(List<String> patterns) {
+            for (int i = 0; i < patterns.size(); i++) {
+                String pattern = patterns.get(i);
+                if (pattern == null || pattern.isEmpty()) {
+                    continue;
+                }
+                Node node = mRoot;
+                for (int j = 0; j < pattern.length(); j++) {
+                    char c = pattern.charAt(j);
+                    node = node.child(c == 'X' ? ANY : c);
+                }
+                if (node.mFirst < 0) {
+                    node.mFirst = i;
+                }
+            }
+        }
+
+        /**
+         * @return the position of the first matching pattern, or -1
+         */
+        int find(String imsi) {
+            int first = find(mRoot, imsi, 0, Integer.MAX_VALUE);
+            return first == Integer.MAX_VALUE ? -1 : first;
+        }
+
+        private static int find(Node node, String imsi, int pos, int first) {
+            if (node.mFirst >= 0 && node.mFirst < first) {
+                first = node.mFirst;
+            }
+            if (pos == imsi.length()) {
+                return first;
+            }
+            char c = imsi.charAt(pos);
+            for (int i = 0; i < node.mKeys.length; i++) {
+                char key = node.mKeys[i];
+                if (key == ANY || key == c) {
+                    first = find(node.mNext[i], imsi, pos + 1, first);
+                }
+            }
+            return first;
+        }
+    }
     // MVNO-API END
 
     public static SpnOverride getInstance() {
@@ -246,6 +333,17 @@ public class SpnOverride {
     }
 
     private void loadVirtualSpnOverridesByImsi() {
+        ArrayList<VirtualSpnByImsi> patterns = new ArrayList<VirtualSpnByImsi>();
+        readVirtualSpnOverridesByImsi(patterns);
+        ArrayList<String> imsiPatterns = new ArrayList<String>(patterns.size());
+        for (VirtualSpnByImsi vsbi : patterns) {
+            imsiPatterns.add(vsbi.pattern);
+        }
+        sImsiPatternIndex = new ImsiPatternIndex(imsiPatterns);
+        CarrierVirtualSpnMapByImsi = patterns;
+    }
+
+    private void readVirtualSpnOverridesByImsi(ArrayList<VirtualSpnByImsi> patterns) {
         FileReader spnReader;
         Rlog.d(LOG_TAG, "loadVirtualSpnOverridesByImsi");
         final File spnFile = new File(Environment.getRootDirectory(), PARTNER_VIRTUAL_SPN_BY_IMSI_OVERRIDE_PATH);
@@ -275,7 +373,7 @@ public class SpnOverride {
                 String imsipattern = parser.getAttributeValue(null, "imsipattern");
                 String spn = parser.getAttributeValue(null, "name");
                 Rlog.w(LOG_TAG, "test imsipattern = " + imsipattern + ", name = " + spn);
-                this.CarrierVirtualSpnMapByImsi.add(new VirtualSpnByImsi(imsipattern, spn));
+                patterns.add(new VirtualSpnByImsi(imsipattern, spn));
             }
             spnReader.close();
         } catch (XmlPullParserException e) {
@@ -286,63 +384,27 @@ public class SpnOverride {
     }
 
     public String getSpnByImsi(String mccmnc, String imsi) {
-        if (mccmnc == null || imsi == null || mccmnc.isEmpty() || imsi.isEmpty())
-            return null;
-
-        VirtualSpnByImsi vsbi;
-        for (int i = 0; i < this.CarrierVirtualSpnMapByImsi.size(); i++) {
-            vsbi = (VirtualSpnByImsi) (this.CarrierVirtualSpnMapByImsi.get(i));
-            Rlog.w(LOG_TAG, "getSpnByImsi(): mccmnc = " + mccmnc + ", imsi = " +
-                    imsi + ", pattern = " + vsbi.pattern);
-
-            if (imsiMatches(vsbi.pattern, mccmnc + imsi) == true) {
-                return vsbi.name;
-            }
-        }
-        return null;
+        VirtualSpnByImsi vsbi = findVirtualSpnByImsi(mccmnc, imsi);
+        return vsbi == null ? null : vsbi.name;
     }
 
     public String isOperatorMvnoForImsi(String mccmnc, String imsi) {
+        VirtualSpnByImsi vsbi = findVirtualSpnByImsi(mccmnc, imsi);
+        return vsbi == null ? null : vsbi.pattern;
+    }
+
+    private VirtualSpnByImsi findVirtualSpnByImsi(String mccmnc, String imsi) {
         if (mccmnc == null || imsi == null || mccmnc.isEmpty() || imsi.isEmpty())
             return null;
 
-        VirtualSpnByImsi vsbi;
-        String pattern;
-        for (int i = 0; i < this.CarrierVirtualSpnMapByImsi.size(); i++) {
-            vsbi = (VirtualSpnByImsi) (this.CarrierVirtualSpnMapByImsi.get(i));
-            Rlog.w(LOG_TAG, "isOperatorMvnoForImsi(): mccmnc = " + mccmnc +
-                    ", imsi = " + imsi + ", pattern = " + vsbi.pattern);
-
-            if (imsiMatches(vsbi.pattern, mccmnc + imsi) == true) {
-                return vsbi.pattern;
-            }
-        }
-        return null;
-    }
-
-   private boolean imsiMatches(String imsiDB, String imsiSIM) {
-        // Note: imsiDB value has digit number or 'x' character for seperating USIM information
-        // for MVNO operator. And then digit number is matched at same order and 'x' character
-        // could replace by any digit number.
-        // ex) if imsiDB inserted '310260x10xxxxxx' for GG Operator,
+        // Note: the patterns have digit numbers or 'x' characters for separating USIM
+        // information for MVNO operators. Digit numbers are matched at the same position
+        // and an 'x' character could replace any digit number.
+        // ex) if the pattern is '310260x10xxxxxx' for GG Operator,
         //     that means first 6 digits, 8th and 9th digit
         //     should be set in USIM for GG Operator.
-        int len = imsiDB.length();
-        int idxCompare = 0;
-
-        Rlog.w(LOG_TAG, "mvno match imsi = " + imsiSIM + "pattern = " + imsiDB);
-        if (len <= 0) return false;
-        if (len > imsiSIM.length()) return false;
-
-        for (int idx = 0; idx < len; idx++) {
-            char c = imsiDB.charAt(idx);
-            if ((c == 'x') || (c == 'X') || (c == imsiSIM.charAt(idx))) {
-                continue;
-            } else {
-                return false;
-            }
-        }
-        return true;
+        int index = sImsiPatternIndex.find(mccmnc + imsi);
+        return index < 0 ? null : CarrierVirtualSpnMapByImsi.get(index);
     }
     private static void loadVirtualSpnOverridesByEfPnn() {
         FileReader spnReader;
@@ -438,8 +500,58 @@ public class SpnOverride {
         return CarrierVirtualSpnMapByEfGid1.get(mccmnc + gid1);
     }
 
+    /**
+     * Operator names of one network scan. The phone and its subscriber are
+     * resolved once, and the names of a numeric listed for several radio
+     * technologies are looked up once.
+     */
+    public class OperatorNameLookup {
+        private final Phone mPhone;
+        private final String mImsi;
+        private final Context mContext;
+        private final HashMap<String, String> mLongNames = new HashMap<String, String>();
+        private final HashMap<String, String> mShortNames = new HashMap<String, String>();
+
+        private OperatorNameLookup(int subId, Context context) {
+            mContext = context;
+            mPhone = getPhone(subId);
+            mImsi = mPhone != null ? mPhone.getSubscriberId() : null;
+        }
+
+        /**
+         * Same as {@link SpnOverride#lookupOperatorName} for the subscription
+         * of this lookup.
+         */
+        public String lookupOperatorName(String numeric, boolean desireLongName) {
+            if (mPhone == null) {
+                return numeric;
+            }
+            HashMap<String, String> names = desireLongName ? mLongNames : mShortNames;
+            String name = names.get(numeric);
+            if (name == null && !names.containsKey(numeric)) {
+                name = SpnOverride.this.lookupOperatorName(mPhone, mImsi, numeric,
+                        desireLongName, mContext);
+                names.put(numeric, name);
+            }
+            return name;
+        }
+    }
+
+    public OperatorNameLookup newOperatorNameLookup(int subId, Context context) {
+        return new OperatorNameLookup(subId, context);
+    }
+
     public String lookupOperatorName(int subId, String numeric, boolean desireLongName, Context context) {
-        String operName = numeric;
+        Phone phone = getPhone(subId);
+        if (phone == null) {
+            Rlog.w(LOG_TAG, "lookupOperatorName getPhone null");
+            return numeric;
+        }
+        return lookupOperatorName(phone, phone.getSubscriberId(), numeric, desireLongName,
+                context);
+    }
+
+    private static Phone getPhone(int subId) {
         Phone phone = null;
         // MTK TODO
         /*
@@ -457,15 +569,16 @@ public class SpnOverride {
         */
             phone = PhoneFactory.getPhone(SubscriptionManager.getPhoneId(subId));
         // }
+        return phone;
+    }
+
+    private String lookupOperatorName(Phone phone, String imsi, String numeric,
+            boolean desireLongName, Context context) {
+        String operName = numeric;
 
         // MVNO-API
         String mvnoOperName = null;
 
-        if (phone == null) {
-            Rlog.w(LOG_TAG, "lookupOperatorName getPhone null");
-            return operName;
-        }
-
         // MTK TODO
         /*
         mvnoOperName = getSpnByEfSpn(numeric,
@@ -474,7 +587,7 @@ public class SpnOverride {
         */
 
         if (mvnoOperName == null) // determine by IMSI
-            mvnoOperName = getSpnByImsi(numeric, phone.getSubscriberId());
+            mvnoOperName = getSpnByImsi(numeric, imsi);
         Rlog.w(LOG_TAG, "the result of searching mvnoOperName by IMSI: " + mvnoOperName);
 
         // MTK TODO
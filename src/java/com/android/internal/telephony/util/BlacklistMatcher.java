@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2015 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.util;
+
+import android.util.SparseArray;
+
+import java.util.HashMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory copy of the blacklist, matched the same way as the
+ * {@code bynumber} query of the blacklist provider.
+ *
+ * Plain numbers are kept in a hash map. The patterns of each mode, using the
+ * SQL LIKE wildcards '%' and '_' as produced by
+ * {@link BlacklistUtils#normalizeNumber} or the '*' and '.' entered by the
+ * user, are compiled into one regular expression that is rebuilt only after
+ * the patterns changed.
+ *
+ * Numbers passed in must already be normalized. Not thread safe.
+ *
+ * @hide
+ */
+public class BlacklistMatcher {
+    private static class Entry {
+        final String mNumber;
+        final boolean mIsRegex;
+        final boolean mBlockCalls;
+        final boolean mBlockMessages;
+
+        Entry(String number, boolean isRegex, boolean blockCalls, boolean blockMessages) {
+            mNumber = number;
+            mIsRegex = isRegex;
+            mBlockCalls = blockCalls;
+            mBlockMessages = blockMessages;
+        }
+
+        boolean isBlocked(int mode) {
+            return mode == BlacklistUtils.BLOCK_CALLS ? mBlockCalls : mBlockMessages;
+        }
+    }
+
+    private final SparseArray<Entry> mEntries = new SparseArray<Entry>();
+    private final HashMap<String, Entry> mNumbers = new HashMap<String, Entry>();
+    private int mRegexCount;
+
+    // Compiled patterns blocked for calls and for messages, null until needed
+    private Pattern mCallPattern;
+    private Pattern mMessagePattern;
+    private boolean mPatternsValid;
+
+    /**
+     * Add or replace the entry with the given row id.
+     */
+    public void put(int id, String number, boolean isRegex, boolean blockCalls,
+            boolean blockMessages) {
+        remove(id);
+        Entry entry = new Entry(number, isRegex, blockCalls, blockMessages);
+        mEntries.put(id, entry);
+        if (isRegex) {
+            mRegexCount++;
+            mPatternsValid = false;
+        } else {
+            mNumbers.put(number, entry);
+        }
+    }
+
+    public void remove(int id) {
+        Entry entry = mEntries.get(id);
+        if (entry == null) {
+            return;
+        }
+        mEntries.remove(id);
+        if (entry.mIsRegex) {
+            mRegexCount--;
+            mPatternsValid = false;
+        } else if (mNumbers.get(entry.mNumber) == entry) {
+            mNumbers.remove(entry.mNumber);
+            // Another row may list the same number
+            for (int i = 0; i < mEntries.size(); i++) {
+                Entry other = mEntries.valueAt(i);
+                if (!other.mIsRegex && other.mNumber.equals(entry.mNumber)) {
+                    mNumbers.put(other.mNumber, other);
+                    break;
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        mEntries.clear();
+        mNumbers.clear();
+        mRegexCount = 0;
+        mPatternsValid = false;
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @param number normalized number to check
+     * @param mode {@link BlacklistUtils#BLOCK_CALLS} or {@link BlacklistUtils#BLOCK_MESSAGES}
+     * @param matchRegex whether patterns are checked as well
+     * @return MATCH_NONE, MATCH_LIST or MATCH_REGEX of {@link BlacklistUtils}
+     */
+    public int match(String number, int mode, boolean matchRegex) {
+        Entry entry = mNumbers.get(number);
+        if (entry != null) {
+            // A plain number that is not blocked whitelists it
+            return entry.isBlocked(mode) ? BlacklistUtils.MATCH_LIST : BlacklistUtils.MATCH_NONE;
+        }
+        if (matchRegex && mRegexCount > 0) {
+            Pattern pattern = getPattern(mode);
+            if (pattern != null && pattern.matcher(number).matches()) {
+                return BlacklistUtils.MATCH_REGEX;
+            }
+        }
+        return BlacklistUtils.MATCH_NONE;
+    }
+
+    private Pattern getPattern(int mode) {
+        if (!mPatternsValid) {
+            mCallPattern = compile(BlacklistUtils.BLOCK_CALLS);
+            mMessagePattern = compile(BlacklistUtils.BLOCK_MESSAGES);
+            mPatternsValid = true;
+        }
+        return mode == BlacklistUtils.BLOCK_CALLS ? mCallPattern : mMessagePattern;
+    }
+
+    private Pattern compile(int mode) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < mEntries.size(); i++) {
+            Entry entry = mEntries.valueAt(i);
+            if (!entry.mIsRegex || !entry.isBlocked(mode)) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append('|');
+            }
+            sb.append("(?:");
+            appendLikePattern(sb, entry.mNumber);
+            sb.append(')');
+        }
+        return sb.length() == 0 ? null : Pattern.compile(sb.toString());
+    }
+
+    /**
+     * Translate a blacklist pattern into a regular expression.
+     */
+    private static void appendLikePattern(StringBuilder sb, String like) {
+        int literalStart = 0;
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == '%' || c == '*' || c == '_' || c == '.') {
+                if (i > literalStart) {
+                    sb.append(Pattern.quote(like.substring(literalStart, i)));
+                }
+                sb.append(c == '%' || c == '*' ? ".*" : ".");
+                literalStart = i + 1;
+            }
+        }
+        if (like.length() > literalStart) {
+            sb.append(Pattern.quote(like.substring(literalStart)));
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.android.internal.telephony.util;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.UserHandle;
@@ -29,6 +30,7 @@ import android.text.TextUtils;
 import android.util.Log;
 import android.util.Pair;
 
+import java.util.ArrayList;
 import java.util.Locale;
 
 import com.android.internal.telephony.CallerInfo;
@@ -53,6 +55,55 @@ public class BlacklistUtils {
     public final static int BLOCK_MESSAGES =
             Settings.System.BLACKLIST_BLOCK << Settings.System.BLACKLIST_MESSAGE_SHIFT;
 
+    private static final String[] CACHE_PROJECTION = new String[] {
+            Blacklist._ID, Blacklist.NUMBER, Blacklist.IS_REGEX,
+            Blacklist.PHONE_MODE, Blacklist.MESSAGE_MODE };
+
+    // Process-local copy of the blacklist, so that a burst of incoming messages
+    // does not query the provider once per message. Guarded by sCacheLock.
+    private static final Object sCacheLock = new Object();
+    private static final BlacklistMatcher sMatcher = new BlacklistMatcher();
+    private static BlacklistObserver sObserver;
+    private static boolean sCacheValid;
+    // Rows reported changed since the cache was last synced
+    private static final ArrayList<Long> sChangedIds = new ArrayList<Long>();
+    private static int sLookups;
+    private static int sProviderQueries;
+
+    /**
+     * Marks the rows of the cache as changed when the blacklist is modified.
+     */
+    private static class BlacklistObserver extends ContentObserver {
+        BlacklistObserver() {
+            super(null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange) {
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            long id = -1;
+            if (uri != null && uri.getPathSegments().size() == 1) {
+                try {
+                    id = Long.parseLong(uri.getLastPathSegment());
+                } catch (NumberFormatException e) {
+                    // not a single row, reload everything
+                }
+            }
+            synchronized (sCacheLock) {
+                if (id >= 0 && sCacheValid) {
+                    sChangedIds.add(id);
+                } else {
+                    sCacheValid = false;
+                    sChangedIds.clear();
+                }
+            }
+        }
+    }
+
     public static boolean addOrUpdate(Context context, String number, int flags, int valid) {
         ContentValues cv = new ContentValues();
 
@@ -113,9 +164,87 @@ public class BlacklistUtils {
             return MATCH_NONE;
         }
 
+        boolean matchRegex = isBlacklistRegexEnabled(context);
+        int result;
+        synchronized (sCacheLock) {
+            if (syncCache(context)) {
+                sLookups++;
+                result = sMatcher.match(normalizeNumber(context, number).first, mode, matchRegex);
+            } else {
+                result = queryProvider(context, number, type, matchRegex);
+            }
+        }
+
+        if (DEBUG) Log.d(TAG, "Blacklist check result for number " + number + " is " + result);
+        return result;
+    }
+
+    /**
+     * Bring the cached blacklist up to date with the provider, re-reading only
+     * the rows reported as changed once it was loaded.
+     *
+     * @return false if the blacklist could not be read
+     */
+    private static boolean syncCache(Context context) {
+        if (sObserver == null) {
+            sObserver = new BlacklistObserver();
+            context.getContentResolver().registerContentObserver(Blacklist.CONTENT_URI,
+                    true, sObserver);
+        }
+        if (sCacheValid && sChangedIds.isEmpty()) {
+            return true;
+        }
+
+        String selection = null;
+        if (sCacheValid) {
+            StringBuilder sb = new StringBuilder(Blacklist._ID).append(" IN (");
+            for (int i = 0; i < sChangedIds.size(); i++) {
+                if (i > 0) sb.append(',');
+                sb.append(sChangedIds.get(i));
+                // Removed rows are not returned, drop them all and add back the others
+                sMatcher.remove(sChangedIds.get(i).intValue());
+            }
+            selection = sb.append(')').toString();
+        } else {
+            sMatcher.clear();
+        }
+        sChangedIds.clear();
+
+        sProviderQueries++;
+        Cursor c = context.getContentResolver().query(Blacklist.CONTENT_URI,
+                CACHE_PROJECTION, selection, null, null);
+        if (c == null) {
+            sCacheValid = false;
+            return false;
+        }
+        try {
+            while (c.moveToNext()) {
+                String number = c.getString(1);
+                if (number == null) {
+                    continue;
+                }
+                boolean isRegex = c.getInt(2) != 0;
+                if (!isRegex) {
+                    number = normalizeNumber(context, number).first;
+                }
+                sMatcher.put(c.getInt(0), number, isRegex, c.getInt(3) != 0, c.getInt(4) != 0);
+            }
+        } finally {
+            c.close();
+        }
+        if (DEBUG) {
+            Log.d(TAG, "Blacklist cache synced, " + sMatcher.size() + " entries, "
+                    + sLookups + " lookups served by " + sProviderQueries + " queries");
+        }
+        sCacheValid = true;
+        return true;
+    }
+
+    private static int queryProvider(Context context, String number, String type,
+            boolean matchRegex) {
         Uri.Builder builder = Blacklist.CONTENT_FILTER_BYNUMBER_URI.buildUpon();
         builder.appendPath(number);
-        if (isBlacklistRegexEnabled(context)) {
+        if (matchRegex) {
             builder.appendQueryParameter(Blacklist.REGEX_KEY, "1");
         }
 
@@ -149,8 +278,6 @@ public class BlacklistUtils {
             }
             c.close();
         }
-
-        if (DEBUG) Log.d(TAG, "Blacklist check result for number " + number + " is " + result);
         return result;
     }
 
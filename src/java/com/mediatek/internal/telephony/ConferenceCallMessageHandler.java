@@ -37,6 +37,7 @@
 
 package com.mediatek.internal.telephony;
 
+import android.text.TextUtils;
 import android.util.Log;
 
 import org.xml.sax.Attributes;
@@ -44,21 +45,50 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 /**
 * This class is used to parse IMS conference call user information.
+*
+* The handler keeps the roster of the conference between documents, keyed by
+* user entity, so the same instance should be used to parse every notification
+* of a conference. A full-state document replaces the roster, a partial-state
+* document only adds, updates or deletes the users it lists (RFC 4575). After
+* each document, the users that were added, updated or removed are available
+* separately from the whole roster.
 */
 public class ConferenceCallMessageHandler extends DefaultHandler {
     private static final String TAG = "ConferenceCallMessageHandler";
-    private List<User> mUsers;
+
+    /*
+    * Values of the state attribute, define in RFC 4575
+    */
+    private static final String STATE_FULL = "full";
+    private static final String STATE_PARTIAL = "partial";
+    private static final String STATE_DELETED = "deleted";
+
+    // Roster in the order the users joined, keyed by entity
+    private final LinkedHashMap<String, User> mRoster = new LinkedHashMap<String, User>();
+    private List<User> mUsers = Collections.emptyList();
+    private List<User> mAddedUsers = Collections.emptyList();
+    private List<User> mUpdatedUsers = Collections.emptyList();
+    private List<User> mRemovedUsers = Collections.emptyList();
+
+    // State of the document being parsed
+    private ArrayList<User> mParsedUsers;
+    private ArrayList<String> mDeletedEntities;
+    private boolean mFullState;
+    private boolean mIgnoreDocument;
+    // Version of the last document applied, -1 if none
+    private long mVersion = -1;
     private User mUser;
     private int mMaxUserCount;
     private String mPreTag;
     private String mTempVal;
     private int mCallId = -1;
     private boolean mDuringEndPointTag = false;
-    private int mIndex = 0;
 
     /*
     * Define in RFC 4575
@@ -88,6 +118,28 @@ public class ConferenceCallMessageHandler extends DefaultHandler {
         private int    mIndex;
         private int    mConnectionIndex = -1;
 
+        /**
+        * @return a copy of this user, to apply a partial update to
+        */
+        private User copy() {
+            User user = new User();
+            user.mEndPoint = mEndPoint;
+            user.mEntity = mEntity;
+            user.mDisplayText = mDisplayText;
+            user.mStatus = mStatus;
+            user.mSipTelUri = mSipTelUri;
+            user.mIndex = mIndex;
+            user.mConnectionIndex = mConnectionIndex;
+            return user;
+        }
+
+        private boolean sameContents(User other) {
+            return TextUtils.equals(mEndPoint, other.mEndPoint)
+                    && TextUtils.equals(mDisplayText, other.mDisplayText)
+                    && TextUtils.equals(mStatus, other.mStatus)
+                    && TextUtils.equals(mSipTelUri, other.mSipTelUri);
+        }
+
         /**
         * To set endpoint entity value, it is usually phone number in tel uri or sip uri format.
         *
@@ -231,6 +283,42 @@ public class ConferenceCallMessageHandler extends DefaultHandler {
         return mUsers;
     }
 
+    /**
+    * To retrieve the participants that joined in the last document.
+    *
+    * @return the participants that were not in the roster before
+    */
+    public List<User> getAddedUsers() {
+        return mAddedUsers;
+    }
+
+    /**
+    * To retrieve the participants whose information changed in the last document.
+    *
+    * @return the participants that were in the roster and have changed
+    */
+    public List<User> getUpdatedUsers() {
+        return mUpdatedUsers;
+    }
+
+    /**
+    * To retrieve the participants that left in the last document.
+    *
+    * @return the participants that were removed from the roster
+    */
+    public List<User> getRemovedUsers() {
+        return mRemovedUsers;
+    }
+
+    /**
+    * To check whether the last document changed the roster.
+    *
+    * @return true if participants were added, updated or removed
+    */
+    public boolean hasChanges() {
+        return !mAddedUsers.isEmpty() || !mUpdatedUsers.isEmpty() || !mRemovedUsers.isEmpty();
+    }
+
     /**
     * To set the maximum count of participants.
     *
@@ -273,7 +361,79 @@ public class ConferenceCallMessageHandler extends DefaultHandler {
     */
     @Override
     public void startDocument() throws SAXException {
-        mUsers = new ArrayList<User>();
+        mParsedUsers = new ArrayList<User>();
+        mDeletedEntities = new ArrayList<String>();
+        mFullState = true;
+        mIgnoreDocument = false;
+        mUser = null;
+    }
+
+    /**
+    * To apply the parsed document to the roster.
+    * @throws SAXException if something wrong
+    */
+    @Override
+    public void endDocument() throws SAXException {
+        if (mIgnoreDocument) {
+            mAddedUsers = Collections.emptyList();
+            mUpdatedUsers = Collections.emptyList();
+            mRemovedUsers = Collections.emptyList();
+            return;
+        }
+        ArrayList<User> added = new ArrayList<User>();
+        ArrayList<User> updated = new ArrayList<User>();
+        ArrayList<User> removed = new ArrayList<User>();
+
+        if (mFullState) {
+            LinkedHashMap<String, User> previous = new LinkedHashMap<String, User>(mRoster);
+            mRoster.clear();
+            for (User user : mParsedUsers) {
+                User old = previous.remove(user.getEntity());
+                if (old == null) {
+                    added.add(user);
+                } else {
+                    user.setConnectionIndex(old.getConnectionIndex());
+                    if (!user.sameContents(old)) {
+                        updated.add(user);
+                    }
+                }
+                mRoster.put(user.getEntity(), user);
+            }
+            removed.addAll(previous.values());
+        } else {
+            for (String entity : mDeletedEntities) {
+                User old = mRoster.remove(entity);
+                if (old != null) {
+                    removed.add(old);
+                }
+            }
+            for (User user : mParsedUsers) {
+                User old = mRoster.put(user.getEntity(), user);
+                if (old == null) {
+                    added.add(user);
+                } else if (!user.sameContents(old)) {
+                    user.setConnectionIndex(old.getConnectionIndex());
+                    updated.add(user);
+                } else {
+                    user.setConnectionIndex(old.getConnectionIndex());
+                }
+            }
+        }
+
+        // Sequential index used for call id reassignment during SRVCC
+        int index = 0;
+        for (User user : mRoster.values()) {
+            user.setIndex(++index);
+        }
+        mUsers = Collections.unmodifiableList(new ArrayList<User>(mRoster.values()));
+        mAddedUsers = added;
+        mUpdatedUsers = updated;
+        mRemovedUsers = removed;
+        mParsedUsers = null;
+        mDeletedEntities = null;
+        Log.d(TAG, (mFullState ? "full" : "partial") + " state: users=" + mUsers.size()
+                + " added=" + added.size() + " updated=" + updated.size()
+                + " removed=" + removed.size());
     }
 
     /**
@@ -301,13 +461,27 @@ public class ConferenceCallMessageHandler extends DefaultHandler {
     @Override
     public void startElement(String uri, String localName, String qName,
             Attributes attributes) throws SAXException {
-        if (qName.equalsIgnoreCase("user")) {
-            mIndex++;
-            mUser = new User();
-            mUser.setIndex(mIndex);
-            mUser.setEntity(attributes.getValue("", "entity"));
-            Log.d(TAG, "user - entity: " + mUser.getEntity());
-        } else if (qName.equalsIgnoreCase("endpoint")) {
+        if (mIgnoreDocument) {
+            return;
+        }
+        if (qName.equalsIgnoreCase("conference-info")) {
+            startConferenceInfo(attributes);
+        } else if (qName.equalsIgnoreCase("user")) {
+            String entity = attributes.getValue("", "entity");
+            String state = attributes.getValue("", "state");
+            User old = (entity == null) ? null : mRoster.get(entity);
+            if (STATE_DELETED.equals(state)) {
+                mDeletedEntities.add(entity);
+                mUser = null;
+            } else if (STATE_PARTIAL.equals(state) && old != null) {
+                // Only the elements present in the document change
+                mUser = old.copy();
+            } else {
+                mUser = new User();
+                mUser.setEntity(entity);
+            }
+            Log.d(TAG, "user - entity: " + entity + " state: " + state);
+        } else if (qName.equalsIgnoreCase("endpoint") && mUser != null) {
             mUser.setEndPoint(attributes.getValue("", "entity"));
             mDuringEndPointTag = true;
             Log.d(TAG, "endpoint - entity: " + mUser.getEndPoint());
@@ -326,8 +500,13 @@ public class ConferenceCallMessageHandler extends DefaultHandler {
     @Override
     public void endElement(String uri, String localName, String qName)
             throws SAXException {
-        if (qName.equalsIgnoreCase("user") && mUsers != null) {
-            mUsers.add(mUser);
+        if (mIgnoreDocument) {
+            return;
+        }
+        if (qName.equalsIgnoreCase("user")) {
+            if (mUser != null && mUser.getEntity() != null) {
+                mParsedUsers.add(mUser);
+            }
             mUser = null;
         } else if (qName.equalsIgnoreCase("endpoint") && mUser != null) {
             mDuringEndPointTag = false;
@@ -344,4 +523,31 @@ public class ConferenceCallMessageHandler extends DefaultHandler {
         }
         mPreTag = null;
     }
+
+    private void startConferenceInfo(Attributes attributes) {
+        String state = attributes.getValue("", "state");
+        mFullState = !STATE_PARTIAL.equals(state);
+
+        String versionValue = attributes.getValue("", "version");
+        if (versionValue == null) {
+            return;
+        }
+        long version;
+        try {
+            version = Long.parseLong(versionValue.trim());
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Invalid version: " + versionValue);
+            return;
+        }
+        if (mVersion >= 0 && version <= mVersion) {
+            // Already applied or superseded by a later document
+            Log.d(TAG, "Ignore stale version " + version + ", current " + mVersion);
+            mIgnoreDocument = true;
+            return;
+        }
+        if (!mFullState && mVersion >= 0 && version > mVersion + 1) {
+            Log.w(TAG, "Missed versions " + (mVersion + 1) + " to " + (version - 1));
+        }
+        mVersion = version;
+    }
 }
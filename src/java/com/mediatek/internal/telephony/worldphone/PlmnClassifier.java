@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mediatek.internal.telephony.worldphone;
+
+import android.telephony.Rlog;
+import android.util.SparseIntArray;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compiled form of the PLMN tables of the world phone.
+ *
+ * MCCs are kept in a bitset indexed by their numeric value and MCC/MNCs in a
+ * sparse array keyed by the numeric value of their five digits, so that a PLMN
+ * is classified without creating substrings or walking the tables. Instances
+ * are immutable; a new one is compiled whenever the tables change.
+ *
+ * {@hide}
+ */
+class PlmnClassifier {
+    static final int PLMN_TYPE_NONE = 0;
+    static final int PLMN_TYPE1 = 1;
+    static final int PLMN_TYPE1_EXT = 2;
+    static final int PLMN_TYPE3 = 3;
+
+    private static final int MCC_LENGTH = 3;
+    private static final int PLMN_LENGTH = 5;
+
+    private final BitSet mDomesticMccs = new BitSet(1000);
+    private final SparseIntArray mPlmnTypes = new SparseIntArray();
+
+    /**
+     * Compile the tables. A PLMN listed in several tables keeps the type of
+     * the first one, in the order type 1, extended type 1, type 3.
+     */
+    PlmnClassifier(List<String> type1, List<String> type1Ext, List<String> type3,
+            List<String> domesticMccs) {
+        addPlmns(type3, PLMN_TYPE3);
+        addPlmns(type1Ext, PLMN_TYPE1_EXT);
+        addPlmns(type1, PLMN_TYPE1);
+        for (String mcc : domesticMccs) {
+            int value = parseDigits(mcc, MCC_LENGTH);
+            if (value < 0 || mcc.length() != MCC_LENGTH) {
+                Rlog.w(IWorldPhone.LOG_TAG, "[WPOM] Ignore invalid MCC " + mcc);
+                continue;
+            }
+            mDomesticMccs.set(value);
+        }
+    }
+
+    private void addPlmns(List<String> plmns, int type) {
+        for (String plmn : plmns) {
+            int value = parseDigits(plmn, PLMN_LENGTH);
+            if (value < 0 || plmn.length() != PLMN_LENGTH) {
+                Rlog.w(IWorldPhone.LOG_TAG, "[WPOM] Ignore invalid PLMN " + plmn);
+                continue;
+            }
+            mPlmnTypes.put(value, type);
+        }
+    }
+
+    /**
+     * @param plmn network PLMN or IMSI, only its first three digits are used
+     * @return whether the MCC is one of the domestic MCCs
+     */
+    boolean isDomestic(String plmn) {
+        int mcc = parseDigits(plmn, MCC_LENGTH);
+        return mcc >= 0 && mDomesticMccs.get(mcc);
+    }
+
+    /**
+     * @param plmn network PLMN or IMSI, only its first five digits are used
+     * @return the PLMN_TYPE of the MCC/MNC, PLMN_TYPE_NONE if it is not listed
+     */
+    int getPlmnType(String plmn) {
+        int value = parseDigits(plmn, PLMN_LENGTH);
+        return value < 0 ? PLMN_TYPE_NONE : mPlmnTypes.get(value, PLMN_TYPE_NONE);
+    }
+
+    /**
+     * @return the value of the first length decimal digits of s, or -1 if s is
+     *         shorter or one of them is not a digit
+     */
+    private static int parseDigits(String s, int length) {
+        if (s == null || s.length() < length) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "PlmnClassifier{domesticMccs=" + mDomesticMccs.cardinality()
+                + " plmns=" + mPlmnTypes.size() + "}";
+    }
+}
@@ -94,6 +94,8 @@ public class WorldPhoneOm extends Handler implements IWorldPhone {
     private static ArrayList<String> sPlmnType1Ext;
     private static ArrayList<String> sPlmnType3;
     private static ArrayList<String> sMccDomestic;
+    // Compiled from the tables above, rebuilt whenever they change
+    private static PlmnClassifier sPlmnClassifier;
 
     private static Context sContext = null;
     private static Phone sDefultPhone = null;
@@ -564,6 +566,7 @@ public class WorldPhoneOm extends Handler implements IWorldPhone {
                     }
 
                     if (hasChanged) {
+                        compilePlmnTables();
                         logd("sPlmnType1:" + sPlmnType1);
                         logd("sPlmnType1Ext:" + sPlmnType1Ext);
                         logd("sPlmnType3:" + sPlmnType3);
@@ -1190,19 +1193,15 @@ public class WorldPhoneOm extends Handler implements IWorldPhone {
     }
 
     private int getRegion(String plmn) {
-        String currentMcc;
         //[ALPS02297462] if plmn is update via EGMSS then plmn.length ==3
         //if (plmn == null || plmn.equals("") || plmn.length() < 5) {
         if (plmn == null || plmn.equals("") || plmn.length() < 3) {
             logd("[getRegion] Invalid PLMN");
             return REGION_UNKNOWN;
         }
-        currentMcc = plmn.substring(0, 3);
-        for (String mcc : sMccDomestic) {
-            if (currentMcc.equals(mcc)) {
-                logd("[getRegion] REGION_DOMESTIC");
-                return REGION_DOMESTIC;
-            }
+        if (sPlmnClassifier.isDomestic(plmn)) {
+            logd("[getRegion] REGION_DOMESTIC");
+            return REGION_DOMESTIC;
         }
         logd("[getRegion] REGION_FOREIGN");
         return REGION_FOREIGN;
@@ -1210,27 +1209,20 @@ public class WorldPhoneOm extends Handler implements IWorldPhone {
 
     private int getUserType(String imsi) {
         if (imsi != null && !imsi.equals("")) {
-            imsi = imsi.substring(0, 5);
-            for (String mccmnc : sPlmnType1) {
-                if (imsi.equals(mccmnc)) {
+            switch (sPlmnClassifier.getPlmnType(imsi)) {
+                case PlmnClassifier.PLMN_TYPE1:
                     logd("[getUserType] Type1 user");
                     return TYPE1_USER;
-                }
-            }
-            for (String mccmnc : sPlmnType1Ext) {
-                if (imsi.equals(mccmnc)) {
-                   logd("[getUserType] Extended Type1 user");
-                   return TYPE1_USER;
-                }
-            }
-            for (String mccmnc : sPlmnType3) {
-                if (imsi.equals(mccmnc)) {
+                case PlmnClassifier.PLMN_TYPE1_EXT:
+                    logd("[getUserType] Extended Type1 user");
+                    return TYPE1_USER;
+                case PlmnClassifier.PLMN_TYPE3:
                     logd("[getUserType] Type3 user");
                     return TYPE3_USER;
-                }
+                default:
+                    logd("[getUserType] Type2 user");
+                    return TYPE2_USER;
             }
-            logd("[getUserType] Type2 user");
-            return TYPE2_USER;
         } else {
             logd("[getUserType] null IMSI");
             return UNKNOWN_USER;
@@ -1359,16 +1351,12 @@ public class WorldPhoneOm extends Handler implements IWorldPhone {
             logd("[searchForDesignateService]- null source");
             return;
         }
-        strPlmn = strPlmn.substring(0, 5);
-        for (String mccmnc : sPlmnType1) {
-            if (strPlmn.equals(mccmnc)) {
-                logd("Find TD service");
-                logd("sUserType: " + sUserType + " sRegion: " + sRegion);
-                logd(ModemSwitchHandler.modemToString(
-                        ModemSwitchHandler.getActiveModemType()));
-                handleSwitchModem(ModemSwitchHandler.MD_TYPE_TDD);
-                break;
-            }
+        if (sPlmnClassifier.getPlmnType(strPlmn) == PlmnClassifier.PLMN_TYPE1) {
+            logd("Find TD service");
+            logd("sUserType: " + sUserType + " sRegion: " + sRegion);
+            logd(ModemSwitchHandler.modemToString(
+                    ModemSwitchHandler.getActiveModemType()));
+            handleSwitchModem(ModemSwitchHandler.MD_TYPE_TDD);
         }
 
         return;
@@ -1570,6 +1558,13 @@ public class WorldPhoneOm extends Handler implements IWorldPhone {
         for (String mcc : MCC_TABLE_DOMESTIC) {
             sMccDomestic.add(mcc);
         }
+        compilePlmnTables();
+    }
+
+    private static void compilePlmnTables() {
+        sPlmnClassifier = new PlmnClassifier(sPlmnType1, sPlmnType1Ext, sPlmnType3,
+                sMccDomestic);
+        logd("Compiled " + sPlmnClassifier);
     }
 
     private CommandsInterface getSvlteActiveCi(int slotId) {
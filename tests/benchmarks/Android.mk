@@ -0,0 +1,34 @@
+# Copyright (C) 2015 The Android Open Source Project
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+# Caliper benchmarks of telephony-common, run on a device with vogar:
+#
+#   vogar --benchmark --classpath $OUT/system/framework/telephony-common.jar \
+#       tests/benchmarks/src/com/android/internal/telephony/gsm/SmsMessageBenchmark.java \
+#       -- --saveResults /sdcard/telephony-benchmarks.json
+#
+# --saveResults writes the measurements as JSON, to compare between releases.
+
+LOCAL_PATH := $(call my-dir)
+include $(CLEAR_VARS)
+
+LOCAL_MODULE_TAGS := optional
+
+LOCAL_SRC_FILES := $(call all-subdir-java-files)
+
+LOCAL_JAVA_LIBRARIES := caliper-api-target telephony-common
+
+LOCAL_MODULE := FrameworksTelephonyBenchmarks
+
+include $(BUILD_JAVA_LIBRARY)
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Random;
+
+/**
+ * SID range lookups as done by HbpcdUtils.getMcc when the arbitrary and
+ * conflict tables have no answer, on a table the size of mcc_sid_range.
+ * timeTableScan checks every row in table order, as the range query of the
+ * provider does, without the cost of the provider call itself.
+ */
+public class HbpcdIndexBenchmark extends SimpleBenchmark {
+    private static final int RANGES = 400;
+    private static final int LOOKUPS = 100;
+
+    private int[][] mRanges;
+    private HbpcdIndex mIndex;
+    private int[] mSids;
+    // Sum of the MCCs found, kept so that the lookups are not optimized away
+    private int mMccs;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(2015);
+        // SIDs are 15 bit, most ranges are small and a few overlap
+        mRanges = new int[RANGES][];
+        for (int i = 0; i < RANGES; i++) {
+            int low = random.nextInt(32768);
+            int high = Math.min(32767, low + (i % 25 == 0 ? 2000 : random.nextInt(60)));
+            mRanges[i] = new int[] { low, high, 200 + random.nextInt(600) };
+        }
+        mIndex = HbpcdIndex.forRanges(mRanges);
+        mSids = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            mSids[i] = random.nextInt(32768);
+        }
+    }
+
+    public void timeIndex(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (int sid : mSids) {
+                mMccs += mIndex.getRangeMcc(sid);
+            }
+        }
+    }
+
+    public void timeTableScan(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (int sid : mSids) {
+                for (int[] range : mRanges) {
+                    if (range[0] <= sid && sid <= range[1]) {
+                        mMccs += range[2];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    public void timeBuild(int reps) {
+        for (int i = 0; i < reps; i++) {
+            mIndex = HbpcdIndex.forRanges(mRanges);
+        }
+    }
+}
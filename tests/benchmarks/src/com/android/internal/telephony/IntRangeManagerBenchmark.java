@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import com.android.internal.telephony.gsm.SmsBroadcastConfigInfo;
+
+import com.google.caliper.Param;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Enables and then disables cell broadcast channel ranges of a few clients,
+ * as emergency alert applications do at boot, with a manager building the
+ * configuration of each update like the GSM manager of
+ * IccSmsInterfaceManager. The configuration is not sent to a radio.
+ */
+public class IntRangeManagerBenchmark extends SimpleBenchmark {
+    private static final int SMS_CB_CODE_SCHEME_MIN = 0;
+    private static final int SMS_CB_CODE_SCHEME_MAX = 255;
+
+    @Param({"100", "2000"}) int ranges;
+
+    private int[][] mRanges;
+    // Number of configurations built, kept so that the updates are not optimized away
+    private int mConfigs;
+
+    private class ConfigRangeManager extends IntRangeManager {
+        private final boolean mIncremental;
+        private final ArrayList<SmsBroadcastConfigInfo> mConfigList =
+                new ArrayList<SmsBroadcastConfigInfo>();
+
+        ConfigRangeManager(boolean incremental) {
+            mIncremental = incremental;
+        }
+
+        @Override
+        protected boolean isIncrementalUpdateSupported() {
+            return mIncremental;
+        }
+
+        @Override
+        protected void startUpdate() {
+            mConfigList.clear();
+        }
+
+        @Override
+        protected void addRange(int startId, int endId, boolean selected) {
+            mConfigList.add(new SmsBroadcastConfigInfo(startId, endId,
+                    SMS_CB_CODE_SCHEME_MIN, SMS_CB_CODE_SCHEME_MAX, selected));
+        }
+
+        @Override
+        protected boolean finishUpdate() {
+            SmsBroadcastConfigInfo[] configs =
+                    mConfigList.toArray(new SmsBroadcastConfigInfo[mConfigList.size()]);
+            mConfigs += configs.length;
+            return true;
+        }
+    }
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(4370);
+        mRanges = new int[ranges][];
+        for (int i = 0; i < ranges; i++) {
+            // message ids of all the channels, mostly single channels and short ranges
+            int startId = random.nextInt(65536);
+            mRanges[i] = new int[] { startId, Math.min(65535, startId + random.nextInt(4)),
+                    random.nextInt(4) };
+        }
+    }
+
+    public void timeFullUpdates(int reps) {
+        for (int i = 0; i < reps; i++) {
+            enableAndDisable(new ConfigRangeManager(false));
+        }
+    }
+
+    public void timeIncrementalUpdates(int reps) {
+        for (int i = 0; i < reps; i++) {
+            enableAndDisable(new ConfigRangeManager(true));
+        }
+    }
+
+    private void enableAndDisable(IntRangeManager manager) {
+        for (int[] range : mRanges) {
+            manager.enableRange(range[0], range[1], "client" + range[2]);
+        }
+        for (int[] range : mRanges) {
+            manager.disableRange(range[0], range[1], "client" + range[2]);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classification of dial strings, done for every call dialed, against the
+ * regular expression it replaces.
+ */
+public class MmiDialStringBenchmark extends SimpleBenchmark {
+    private static final Pattern SUPP_SERVICE = Pattern.compile(
+        "((\\*|#|\\*#|\\*\\*|##)(\\d{2,3})(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*))?)?)?)?#)(.*)");
+
+    // Mostly numbers, as dialed, with the usual codes
+    private static final String[] DIAL_STRINGS = {
+        "6505551212",
+        "+16505551212",
+        "016505551212",
+        "+8613800138000",
+        "112",
+        "911",
+        "*31#6505551212",
+        "#31#+16505551212",
+        "**21*+16505551212#",
+        "*#21#",
+        "**04*1234*5678*5678#",
+        "*100#",
+        "*123*1#",
+        "12",
+    };
+
+    public void timeExpression(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (String dialString : DIAL_STRINGS) {
+                Matcher m = SUPP_SERVICE.matcher(dialString);
+                if (m.matches()) {
+                    m.group(1);
+                    m.group(2);
+                    m.group(3);
+                    m.group(12);
+                }
+            }
+        }
+    }
+
+    public void timeScan(int reps) {
+        MmiDialString mmi = new MmiDialString();
+        for (int i = 0; i < reps; i++) {
+            for (String dialString : DIAL_STRINGS) {
+                if (mmi.scan(dialString) == MmiDialString.TYPE_SUPP_SERVICE) {
+                    mmi.getPoundString();
+                    mmi.getAction();
+                    mmi.getServiceCode();
+                    mmi.getDialingNumber();
+                }
+            }
+        }
+    }
+}
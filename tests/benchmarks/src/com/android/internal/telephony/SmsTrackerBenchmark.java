@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import com.android.internal.telephony.SMSDispatcher.SmsTrackerData;
+import com.android.internal.telephony.gsm.SmsMessage;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.HashMap;
+
+/**
+ * Send preparation of the segments of a multipart text: encoding the
+ * SMS-SUBMIT PDU, building the payload of its tracker and reading the PDU
+ * back as sendSms does, with the typed SmsTrackerData and with the
+ * HashMap it replaces.
+ */
+public class SmsTrackerBenchmark extends SimpleBenchmark {
+    private static final String DEST_ADDR = "+16505551212";
+    private static final String[] PARTS = {
+        "Your order 4711 has shipped and will arrive on Thursday between 9am and 1pm. "
+                + "Track it in the app or reply STOP to opt out of delivery updates.",
+        "To change the delivery address or time slot, call us at 650 555 0100 before "
+                + "8pm today. Our opening hours are 8am to 8pm Monday to Saturday.",
+        "Thank you for shopping with us.",
+    };
+
+    private byte[][] mHeaders;
+    // Read by sendSms, kept so that the reads are not optimized away
+    private int mLength;
+
+    @Override
+    protected void setUp() {
+        mHeaders = new byte[PARTS.length][];
+        for (int i = 0; i < PARTS.length; i++) {
+            SmsHeader.ConcatRef concatRef = new SmsHeader.ConcatRef();
+            concatRef.refNumber = 42;
+            concatRef.seqNumber = i + 1;
+            concatRef.msgCount = PARTS.length;
+            concatRef.isEightBits = true;
+            SmsHeader header = new SmsHeader();
+            header.concatRef = concatRef;
+            mHeaders[i] = SmsHeader.toByteArray(header);
+        }
+    }
+
+    public void timeTrackerMap(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (int part = 0; part < PARTS.length; part++) {
+                SmsMessage.SubmitPdu pdu = SmsMessage.getSubmitPdu(null, DEST_ADDR,
+                        PARTS[part], false, mHeaders[part]);
+                HashMap<String, Object> map = new HashMap<String, Object>();
+                map.put("destAddr", DEST_ADDR);
+                map.put("scAddr", null);
+                map.put("text", PARTS[part]);
+                map.put("smsc", pdu.encodedScAddress);
+                map.put("pdu", pdu.encodedMessage);
+                mLength += ((byte[]) map.get("pdu")).length;
+            }
+        }
+    }
+
+    public void timeTrackerData(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (int part = 0; part < PARTS.length; part++) {
+                SmsMessage.SubmitPdu pdu = SmsMessage.getSubmitPdu(null, DEST_ADDR,
+                        PARTS[part], false, mHeaders[part]);
+                SmsTrackerData data = new SmsTrackerData(DEST_ADDR, null, PARTS[part], null,
+                        -1, pdu);
+                mLength += data.mPdu.length;
+            }
+        }
+    }
+
+    // The payload of a data message alone, without the encoding that dominates above
+    public void timeTrackerMapPayload(int reps) {
+        SmsMessage.SubmitPdu pdu = SmsMessage.getSubmitPdu(null, DEST_ADDR, PARTS[0], false,
+                mHeaders[0]);
+        for (int i = 0; i < reps; i++) {
+            HashMap<String, Object> map = new HashMap<String, Object>();
+            map.put("destAddr", DEST_ADDR);
+            map.put("scAddr", null);
+            map.put("destPort", 2948);
+            map.put("data", pdu.encodedMessage);
+            map.put("smsc", pdu.encodedScAddress);
+            map.put("pdu", pdu.encodedMessage);
+            mLength += ((byte[]) map.get("pdu")).length;
+        }
+    }
+
+    public void timeTrackerDataPayload(int reps) {
+        SmsMessage.SubmitPdu pdu = SmsMessage.getSubmitPdu(null, DEST_ADDR, PARTS[0], false,
+                mHeaders[0]);
+        for (int i = 0; i < reps; i++) {
+            SmsTrackerData data = new SmsTrackerData(DEST_ADDR, null, null,
+                    pdu.encodedMessage, 2948, pdu);
+            mLength += data.mPdu.length;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.util.TimeUtils;
+
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Time zone lookups of pollStateDone while a phone moves back and forth
+ * across the borders of Germany, France and Switzerland, with
+ * TimeZoneResolver and with the TimeUtils calls it replaces. TimeUtils only
+ * keeps the zones of the last country, so each border crossing reloads them.
+ */
+public class TimeZoneResolverBenchmark extends SimpleBenchmark {
+    private static final int MS_PER_HOUR = 60 * 60 * 1000;
+    // Registrations in Germany, France and Switzerland, with their summer offset
+    private static final int[] MCCS = { 262, 208, 228, 262, 228, 208 };
+    private static final int OFFSET = 2 * MS_PER_HOUR;
+    // 2015-07-15 12:00 UTC
+    private static final long WHEN = 1436961600000L;
+
+    // Zones found, kept so that the lookups are not optimized away
+    private int mZones;
+
+    public void timeResolver(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (int mcc : MCCS) {
+                String iso = MccTable.countryCodeForMcc(mcc);
+                List<TimeZone> unique = TimeZoneResolver.getTimeZonesWithUniqueOffsets(iso);
+                TimeZone zone = TimeZoneResolver.getTimeZone(OFFSET, true, WHEN + i, iso);
+                mZones += unique.size() + (zone != null ? 1 : 0);
+            }
+        }
+    }
+
+    public void timeTimeUtils(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (int mcc : MCCS) {
+                String iso = MccTable.countryCodeForMcc(mcc);
+                List<TimeZone> unique = TimeUtils.getTimeZonesWithUniqueOffsets(iso);
+                TimeZone zone = TimeUtils.getTimeZone(OFFSET, true, WHEN + i, iso);
+                mZones += unique.size() + (zone != null ? 1 : 0);
+            }
+        }
+    }
+
+    // The NITZ fallback, for a network without a known country
+    public void timeNitzResolver(int reps) {
+        for (int i = 0; i < reps; i++) {
+            if (TimeZoneResolver.getNitzTimeZone(OFFSET, true, WHEN + i) != null) {
+                mZones++;
+            }
+        }
+    }
+
+    public void timeNitzScan(int reps) {
+        for (int i = 0; i < reps; i++) {
+            long when = WHEN + i;
+            Date d = new Date(when);
+            for (String id : TimeZone.getAvailableIDs(OFFSET - MS_PER_HOUR)) {
+                TimeZone tz = TimeZone.getTimeZone(id);
+                if (tz.getOffset(when) == OFFSET && tz.inDaylightTime(d)) {
+                    mZones++;
+                    break;
+                }
+            }
+        }
+    }
+}
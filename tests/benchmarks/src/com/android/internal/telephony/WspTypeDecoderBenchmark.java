@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import com.android.internal.util.HexDump;
+import com.google.caliper.SimpleBenchmark;
+
+/**
+ * Decoding of the WSP headers of WAP push PDUs, as done for every push
+ * received by SMS.
+ */
+public class WspTypeDecoderBenchmark extends SimpleBenchmark {
+    private static final String[] PUSH_PDUS = {
+        // MMS notification: textual content type and application id
+        "0106276170706C69636174696F6E2F766E642E7761702E6D6D732D6D65737361676500"
+                + "AF848D0185B4848C8298524E453955304A6D7135514141426",
+        // SUPL INIT: well-known long content type and application id
+        "01060603020312AF900000",
+    };
+
+    private WspTypeDecoder[] mDecoders;
+
+    @Override
+    protected void setUp() {
+        mDecoders = new WspTypeDecoder[PUSH_PDUS.length];
+        for (int i = 0; i < PUSH_PDUS.length; i++) {
+            mDecoders[i] = new WspTypeDecoder(HexDump.hexStringToByteArray(PUSH_PDUS[i]));
+        }
+    }
+
+    public void timeDecodePushHeaders(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (WspTypeDecoder decoder : mDecoders) {
+                // Transaction id and PDU type
+                int index = 2;
+                decoder.decodeUintvarInteger(index);
+                int headerLength = (int) decoder.getValue32();
+                index += decoder.getDecodedDataLength();
+                decoder.decodeContentType(index);
+                decoder.getValueString();
+                index += decoder.getDecodedDataLength();
+                if (decoder.seekXWapApplicationId(index, index + headerLength - 1)) {
+                    decoder.decodeXWapApplicationId((int) decoder.getValue32());
+                    decoder.getValueString();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.cat;
+
+import com.android.internal.telephony.uicc.IccUtils;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.ArrayList;
+
+/**
+ * Parsing of the COMPREHENSION-TLV objects of proactive commands.
+ * timeSearchIndex and timeSearchLinear also look up the objects
+ * CommandParamsFactory reads, through the index or by walking the list of
+ * objects decoded one by one, as was done before the index.
+ */
+public class ComprehensionTlvBenchmark extends SimpleBenchmark {
+    // Proactive commands of TS 31.124, after the BER-TLV tag and length
+    private static final String[] COMMANDS = {
+        // DISPLAY TEXT "Toolkit Test 1"
+        "D01A8103012180820281028D0F04546F6F6C6B697420546573742031",
+        // SET UP MENU "Toolkit Menu" with four items
+        "D03B810301250082028182850C546F6F6C6B6974204D656E758F07014974656D20318F07"
+                + "024974656D20328F07034974656D20338F07044974656D2034",
+        // SEND SHORT MESSAGE with an SMS TPDU
+        "D036810301130082028183850753656E6420534D86099111223344556677F88B17010009"
+                + "9110325476F800000CD4F29C0E6A96E7F3F0B90C",
+    };
+
+    // Tags read by CommandParamsFactory: command details, device identities,
+    // alpha identifier, address, SMS TPDU, text string, icon identifier and
+    // item icon identifier list
+    private static final int[] SEARCHED_TAGS = { 0x01, 0x02, 0x05, 0x06, 0x0b, 0x0d, 0x1e, 0x1f };
+    private static final int ITEM = 0x0f;
+    private static final int MENU_ITEMS = 30;
+
+    private byte[][] mCommands;
+    // COMPREHENSION-TLV objects of a SET UP MENU with many items
+    private byte[] mMenu;
+    // Length of the objects found, kept so that the searches are not optimized away
+    private int mLength;
+
+    @Override
+    protected void setUp() {
+        mCommands = new byte[COMMANDS.length][];
+        for (int i = 0; i < COMMANDS.length; i++) {
+            mCommands[i] = IccUtils.hexStringToBytes(COMMANDS[i]);
+        }
+        StringBuilder menu = new StringBuilder("810301250082028182850C546F6F6C6B6974204D656E75");
+        for (int i = 0; i < MENU_ITEMS; i++) {
+            menu.append(String.format("8F07%02X4974656D2031", i + 1));
+        }
+        mMenu = IccUtils.hexStringToBytes(menu.toString());
+    }
+
+    public void timeDecodeMany(int reps) throws ResultException {
+        for (int i = 0; i < reps; i++) {
+            for (byte[] command : mCommands) {
+                ComprehensionTlv.decodeMany(command, 2);
+            }
+        }
+    }
+
+    public void timeSearchIndex(int reps) throws ResultException {
+        for (int i = 0; i < reps; i++) {
+            for (byte[] command : mCommands) {
+                searchIndex(command, 2);
+            }
+            searchIndex(mMenu, 0);
+        }
+    }
+
+    public void timeSearchLinear(int reps) throws ResultException {
+        for (int i = 0; i < reps; i++) {
+            for (byte[] command : mCommands) {
+                searchLinear(command, 2);
+            }
+            searchLinear(mMenu, 0);
+        }
+    }
+
+    private void searchIndex(byte[] command, int startIndex) throws ResultException {
+        ComprehensionTlvIndex ctlvs = ComprehensionTlv.decodeMany(command, startIndex);
+        for (int tag : SEARCHED_TAGS) {
+            ComprehensionTlv ctlv = ctlvs.getByTag(tag);
+            if (ctlv != null) {
+                mLength += ctlv.getLength();
+            }
+        }
+        for (int index = ctlvs.indexOfTag(ITEM); index >= 0;
+                index = ctlvs.nextIndexOfSameTag(index)) {
+            mLength += ctlvs.get(index).getLength();
+        }
+    }
+
+    private void searchLinear(byte[] command, int startIndex) throws ResultException {
+        ArrayList<ComprehensionTlv> ctlvs = new ArrayList<ComprehensionTlv>();
+        while (startIndex < command.length) {
+            ComprehensionTlv ctlv = ComprehensionTlv.decode(command, startIndex);
+            if (ctlv == null) {
+                break;
+            }
+            ctlvs.add(ctlv);
+            startIndex = ctlv.getValueIndex() + ctlv.getLength();
+        }
+        for (int tag : SEARCHED_TAGS) {
+            for (ComprehensionTlv ctlv : ctlvs) {
+                if (ctlv.getTag() == tag) {
+                    mLength += ctlv.getLength();
+                    break;
+                }
+            }
+        }
+        for (ComprehensionTlv ctlv : ctlvs) {
+            if (ctlv.getTag() == ITEM) {
+                mLength += ctlv.getLength();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.cdma.sms;
+
+import com.android.internal.util.HexDump;
+import com.google.caliper.SimpleBenchmark;
+
+/**
+ * Encoding and decoding of CDMA SMS bearer data.
+ */
+public class BearerDataBenchmark extends SimpleBenchmark {
+    // Bearer data of messages from CDMA networks: 7 bit ASCII, IS-91, Latin
+    // and with a user data header
+    private static final String[] PDUS = {
+        "00031040900112488ea794e074d69e1b7392c270326cde9e98",
+        "0003100160010610262d5ab500",
+        "00031001d00109104539b4d052ebb3d0",
+        "00031002100109184539b4d052ebb3d0",
+    };
+
+    private byte[][] mPdus;
+    private BearerData mAscii;
+    private BearerData mUnicode;
+
+    @Override
+    protected void setUp() {
+        mPdus = new byte[PDUS.length][];
+        for (int i = 0; i < PDUS.length; i++) {
+            mPdus[i] = HexDump.hexStringToByteArray(PDUS[i]);
+        }
+        mAscii = newBearerData("Your verification code is 482913", UserData.ENCODING_7BIT_ASCII);
+        mUnicode = newBearerData("\u4eca\u665a\u4e03\u70b9\u89c1", UserData.ENCODING_UNICODE_16);
+    }
+
+    private static BearerData newBearerData(String text, int encoding) {
+        BearerData bearerData = new BearerData();
+        bearerData.messageType = BearerData.MESSAGE_TYPE_SUBMIT;
+        bearerData.messageId = 42;
+        UserData userData = new UserData();
+        userData.payloadStr = text;
+        userData.msgEncoding = encoding;
+        userData.msgEncodingSet = true;
+        bearerData.userData = userData;
+        return bearerData;
+    }
+
+    public void timeDecode(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (byte[] pdu : mPdus) {
+                BearerData.decode(pdu);
+            }
+        }
+    }
+
+    public void timeEncode(int reps) {
+        for (int i = 0; i < reps; i++) {
+            BearerData.encode(mAscii);
+            BearerData.encode(mUnicode);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.dataconnection;
+
+import com.google.caliper.Param;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * The MVNO step of DcTracker.createApnList on an APN database where most
+ * APNs of the operator are MVNO APNs. timeMatcher compiles the candidates of
+ * the load and matches the SIM once, timeMatch only does the match.
+ * timePerApn checks each candidate the way ApnSetting.mvnoMatches does,
+ * without the cost of reading IccRecords for every candidate.
+ */
+public class MvnoMatcherBenchmark extends SimpleBenchmark {
+    private static final String[] TYPES = { "spn", "imsi", "imsi", "gid", "iccid" };
+
+    @Param({"50", "500"}) int apns;
+
+    private String[] mTypes;
+    private String[] mData;
+    private MvnoMatcher.SimIdentity mSim;
+    private MvnoMatcher mMatcher;
+    // APNs matched, kept so that the matching is not optimized away
+    private int mMatched;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(310260);
+        mTypes = new String[apns];
+        mData = new String[apns];
+        for (int i = 0; i < apns; i++) {
+            mTypes[i] = TYPES[i % TYPES.length];
+            if (mTypes[i].equals("spn")) {
+                mData[i] = "Carrier " + random.nextInt(apns);
+            } else if (mTypes[i].equals("imsi")) {
+                mData[i] = "310260" + (random.nextBoolean() ? "x" : "") + random.nextInt(1000);
+            } else if (mTypes[i].equals("gid")) {
+                mData[i] = Integer.toHexString(random.nextInt(256));
+            } else {
+                mData[i] = "8901260" + random.nextInt(100) + ",8901410" + random.nextInt(100);
+            }
+        }
+        mSim = new MvnoMatcher.SimIdentity("carrier 7", "310260123456789", "a0ff",
+                "8901260123456789012");
+        mMatcher = new MvnoMatcher();
+        for (int i = 0; i < apns; i++) {
+            mMatcher.add(i, mTypes[i], mData[i]);
+        }
+    }
+
+    public void timeMatcher(int reps) {
+        for (int i = 0; i < reps; i++) {
+            MvnoMatcher matcher = new MvnoMatcher();
+            for (int j = 0; j < apns; j++) {
+                matcher.add(j, mTypes[j], mData[j]);
+            }
+            BitSet matched = matcher.match(mSim);
+            mMatched += matched.cardinality();
+        }
+    }
+
+    public void timeMatch(int reps) {
+        for (int i = 0; i < reps; i++) {
+            mMatched += mMatcher.match(mSim).cardinality();
+        }
+    }
+
+    public void timePerApn(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (int j = 0; j < apns; j++) {
+                if (mvnoMatches(mSim, mTypes[j], mData[j])) {
+                    mMatched++;
+                }
+            }
+        }
+    }
+
+    private static boolean mvnoMatches(MvnoMatcher.SimIdentity sim, String mvnoType,
+            String mvnoMatchData) {
+        if (mvnoType.equalsIgnoreCase("spn")) {
+            return sim.mSpn != null && sim.mSpn.equalsIgnoreCase(mvnoMatchData);
+        } else if (mvnoType.equalsIgnoreCase("imsi")) {
+            return sim.mImsi != null && imsiMatches(mvnoMatchData, sim.mImsi);
+        } else if (mvnoType.equalsIgnoreCase("gid")) {
+            int length = mvnoMatchData.length();
+            return sim.mGid1 != null && sim.mGid1.length() >= length
+                    && sim.mGid1.substring(0, length).equalsIgnoreCase(mvnoMatchData);
+        } else if (mvnoType.equalsIgnoreCase("iccid")) {
+            if (sim.mIccId != null) {
+                for (String iccId : mvnoMatchData.split(",")) {
+                    if (sim.mIccId.startsWith(iccId)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean imsiMatches(String imsiDB, String imsiSIM) {
+        int len = imsiDB.length();
+        if (len <= 0) return false;
+        if (len > imsiSIM.length()) return false;
+
+        for (int idx = 0; idx < len; idx++) {
+            char c = imsiDB.charAt(idx);
+            if ((c != 'x') && (c != 'X') && (c != imsiSIM.charAt(idx))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.gsm;
+
+import com.android.internal.util.HexDump;
+import com.google.caliper.SimpleBenchmark;
+
+/**
+ * Parsing of received SMS PDUs and encoding of SMS-SUBMIT PDUs.
+ */
+public class SmsMessageBenchmark extends SimpleBenchmark {
+    // SMS-DELIVER PDUs as received from networks: 7 bit, UCS-2, concatenated
+    // with a user data header and a WAP push
+    private static final String[] DELIVER_PDUS = {
+        "07914151551512f2040B916105551511f100006060605130308A04D4F29C0E",
+        "07912160130300F4040B914151245584F600087010807121352B1021220"
+                + "0A900AE00680065006C006C006F",
+        "07916163838408F6440B816105224431F700007060217175830AA0050003"
+                + "00020162B1582C168BC562B1582C168BC562B1582C168BC562B1582C"
+                + "168BC562B1582C168BC562B1582C168BC562B1582C168BC562B1582C"
+                + "168BC562B1582C168BC562B1582C168BC562B1582C168BC562B1582C"
+                + "168BC562B1582C168BC562B1582C168BC562B1582C168BC562B1582C"
+                + "168BC562B1582C168BC562B1582C168BC562B1582C168BC562",
+        "07914140279510F6440A8111110301003BF56080207130138A8C0B05040B8423F"
+                + "000032A02010106276170706C69636174696F6E2F766E642E7761702E6D6D732D"
+                + "6D65737361676500AF848D0185B4848C8298524E453955304A6D7135514141426"
+                + "66C414141414D7741414236514141414141008D908918802B3135313232393737"
+                + "3638332F545950453D504C4D4E008A808E022B918805810306977F83687474703"
+                + "A2F2F36",
+    };
+
+    private static final String SHORT_TEXT = "Meeting moved to 3pm, see you there";
+    private static final String LONG_TEXT = "Your verification code is 482913. It expires "
+            + "in 10 minutes. Do not share this code with anyone, our staff will never ask "
+            + "for it.";
+    private static final String UNICODE_TEXT = "\u4eca\u665a\u4e03\u70b9\u89c1 \u263a";
+
+    private byte[][] mPdus;
+
+    @Override
+    protected void setUp() {
+        mPdus = new byte[DELIVER_PDUS.length][];
+        for (int i = 0; i < DELIVER_PDUS.length; i++) {
+            mPdus[i] = HexDump.hexStringToByteArray(DELIVER_PDUS[i]);
+        }
+    }
+
+    public void timeCreateFromPdu(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (byte[] pdu : mPdus) {
+                SmsMessage.createFromPdu(pdu).getMessageBody();
+            }
+        }
+    }
+
+    public void timeGetSubmitPdu7Bit(int reps) {
+        for (int i = 0; i < reps; i++) {
+            SmsMessage.getSubmitPdu(null, "+16505551111", SHORT_TEXT, false, null);
+            SmsMessage.getSubmitPdu("+14155551212", "+16505551111", LONG_TEXT, true, null);
+        }
+    }
+
+    public void timeGetSubmitPduUcs2(int reps) {
+        for (int i = 0; i < reps; i++) {
+            SmsMessage.getSubmitPdu(null, "+8613800138000", UNICODE_TEXT, false, null);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.uicc;
+
+import com.google.caliper.SimpleBenchmark;
+
+/**
+ * BCD and ADN conversions done while loading the records and phonebook of
+ * a SIM.
+ */
+public class IccUtilsBenchmark extends SimpleBenchmark {
+    // EF_ICCID and EF_ADN records, as read from cards
+    private static final String ICCID = "981062400510444868f2";
+    private static final String[] ADN_RECORDS = {
+        "566F696365204D61696C07918150367742F3FFFFFFFFFFFF",
+        "566F696365204D61696C07818150367742F3FFFFFFFFFFFF",
+        "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF",
+    };
+    // Alpha identifiers in the GSM default alphabet and the three UCS2 forms
+    private static final String[] ALPHA_TAGS = {
+        "00566f696365204d61696c07918150367742f3ffffffffffff",
+        "809673539A5764002F004DFFFFFFFFFF",
+        "810A01566fec6365204de0696cFFFFFF",
+        "820505302D82d32d31",
+    };
+
+    private byte[] mIccid;
+    private byte[][] mAdnRecords;
+    private byte[][] mAlphaTags;
+    private AdnRecord mAdn;
+
+    @Override
+    protected void setUp() {
+        mIccid = IccUtils.hexStringToBytes(ICCID);
+        mAdnRecords = new byte[ADN_RECORDS.length][];
+        for (int i = 0; i < ADN_RECORDS.length; i++) {
+            mAdnRecords[i] = IccUtils.hexStringToBytes(ADN_RECORDS[i]);
+        }
+        mAlphaTags = new byte[ALPHA_TAGS.length][];
+        for (int i = 0; i < ALPHA_TAGS.length; i++) {
+            mAlphaTags[i] = IccUtils.hexStringToBytes(ALPHA_TAGS[i]);
+        }
+        mAdn = new AdnRecord("Voice Mail", "+18056377243");
+    }
+
+    public void timeBcdToString(int reps) {
+        for (int i = 0; i < reps; i++) {
+            IccUtils.bcdToString(mIccid, 0, mIccid.length);
+        }
+    }
+
+    public void timeAdnStringFieldToString(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (byte[] tag : mAlphaTags) {
+                IccUtils.adnStringFieldToString(tag, 0, tag.length);
+            }
+        }
+    }
+
+    public void timeParseAdnRecord(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (byte[] record : mAdnRecords) {
+                new AdnRecord(record);
+            }
+        }
+    }
+
+    public void timeBuildAdnString(int reps) {
+        for (int i = 0; i < reps; i++) {
+            mAdn.buildAdnString(ADN_RECORDS[0].length() / 2);
+        }
+    }
+
+    public void timeHexStringConversions(int reps) {
+        for (int i = 0; i < reps; i++) {
+            IccUtils.bytesToHexString(IccUtils.hexStringToBytes(ADN_RECORDS[0]));
+        }
+    }
+}
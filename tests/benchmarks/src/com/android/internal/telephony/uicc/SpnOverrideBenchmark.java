@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.uicc;
+
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * The MVNO name lookups of a manual network scan, 30 operators each seen on
+ * two RATs, against a virtual-spn-conf-by-imsi of 200 patterns. timeLinear
+ * matches the patterns one after the other for each result, as SpnOverride
+ * did before the index; timeIndexPerPlmn also reuses the name of a PLMN
+ * already seen in the scan, as OperatorNameLookup does.
+ */
+public class SpnOverrideBenchmark extends SimpleBenchmark {
+    private static final int OPERATORS = 30;
+    private static final int PATTERNS = 200;
+
+    private ArrayList<String> mPatterns;
+    private SpnOverride.ImsiPatternIndex mIndex;
+    private String mImsi;
+    // The PLMN of each scan result, both RATs of an operator in a row
+    private String[] mScan;
+    // Sum of the pattern positions found, kept so that the lookups are not optimized away
+    private int mFound;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(2015);
+        mPatterns = new ArrayList<String>(PATTERNS);
+        for (int i = 0; i < PATTERNS; i++) {
+            // mccmnc of one of the operators, then an MSIN prefix with wildcards
+            StringBuilder sb = new StringBuilder(plmn(random.nextInt(OPERATORS)));
+            int length = 3 + random.nextInt(5);
+            for (int j = 0; j < length; j++) {
+                sb.append(random.nextInt(4) == 0 ? 'x' : (char) ('0' + random.nextInt(10)));
+            }
+            mPatterns.add(sb.toString());
+        }
+        mIndex = new SpnOverride.ImsiPatternIndex(mPatterns);
+        mImsi = "4600" + (100000000L + random.nextInt(900000000));
+        mScan = new String[OPERATORS * 2];
+        for (int i = 0; i < mScan.length; i++) {
+            mScan[i] = plmn(i / 2);
+        }
+    }
+
+    private static String plmn(int operator) {
+        return "4" + (10 + operator) + "0" + (operator % 10);
+    }
+
+    public void timeIndex(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (String plmn : mScan) {
+                mFound += mIndex.find(plmn + mImsi);
+            }
+        }
+    }
+
+    public void timeIndexPerPlmn(int reps) {
+        for (int i = 0; i < reps; i++) {
+            HashMap<String, Integer> names = new HashMap<String, Integer>();
+            for (String plmn : mScan) {
+                Integer found = names.get(plmn);
+                if (found == null) {
+                    found = mIndex.find(plmn + mImsi);
+                    names.put(plmn, found);
+                }
+                mFound += found;
+            }
+        }
+    }
+
+    public void timeLinear(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (String plmn : mScan) {
+                String key = plmn + mImsi;
+                int found = -1;
+                for (int j = 0; j < mPatterns.size(); j++) {
+                    if (imsiMatches(mPatterns.get(j), key)) {
+                        found = j;
+                        break;
+                    }
+                }
+                mFound += found;
+            }
+        }
+    }
+
+    public void timeBuild(int reps) {
+        for (int i = 0; i < reps; i++) {
+            mIndex = new SpnOverride.ImsiPatternIndex(mPatterns);
+        }
+    }
+
+    private static boolean imsiMatches(String imsiDB, String imsiSIM) {
+        int len = imsiDB.length();
+        if (len > imsiSIM.length()) return false;
+
+        for (int idx = 0; idx < len; idx++) {
+            char c = imsiDB.charAt(idx);
+            if ((c != 'x') && (c != 'X') && (c != imsiSIM.charAt(idx))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.util;
+
+import com.google.caliper.Param;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Blacklist checks of a flood of incoming messages, each of which used to be
+ * a query of the blacklist provider. The provider matched every row with
+ * LIKE, which timeRowScan approximates with one pattern per row.
+ */
+public class BlacklistMatcherBenchmark extends SimpleBenchmark {
+    private static final int MESSAGES = BlacklistUtils.BLOCK_MESSAGES;
+    private static final int FLOOD = 1000;
+
+    @Param({"20", "200"}) int entries;
+
+    private BlacklistMatcher mMatcher;
+    private String[] mRowNumbers;
+    private Pattern[] mRowPatterns;
+    private String[] mSenders;
+    // Listed senders found, kept so that the matching is not optimized away
+    private int mListed;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(4711);
+        mMatcher = new BlacklistMatcher();
+        mRowNumbers = new String[entries];
+        mRowPatterns = new Pattern[entries];
+        for (int i = 0; i < entries; i++) {
+            // One pattern for every ten plain numbers
+            boolean isRegex = i % 10 == 0;
+            String number = isRegex ? "+1900" + random.nextInt(100) + "%" : randomNumber(random);
+            mMatcher.put(i, number, isRegex, true, true);
+            mRowNumbers[i] = number;
+            mRowPatterns[i] = isRegex
+                    ? Pattern.compile(Pattern.quote(number.substring(0, number.length() - 1))
+                            + ".*")
+                    : null;
+        }
+        // Mostly unknown senders, as in a flood, with some listed ones
+        mSenders = new String[FLOOD];
+        for (int i = 0; i < FLOOD; i++) {
+            mSenders[i] = i % 20 == 0 ? mRowNumbers[random.nextInt(entries)]
+                    : randomNumber(random);
+        }
+    }
+
+    private static String randomNumber(Random random) {
+        return "+1" + (2000000000L + (long) (random.nextDouble() * 7999999999L));
+    }
+
+    public void timeMatcher(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (String sender : mSenders) {
+                if (mMatcher.match(sender, MESSAGES, true) != BlacklistUtils.MATCH_NONE) {
+                    mListed++;
+                }
+            }
+        }
+    }
+
+    public void timeRowScan(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (String sender : mSenders) {
+                for (int row = 0; row < entries; row++) {
+                    if (mRowPatterns[row] != null ? mRowPatterns[row].matcher(sender).matches()
+                            : mRowNumbers[row].equals(sender)) {
+                        mListed++;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // A pattern changing between messages, so the alternation is compiled again
+    public void timeMatcherAfterChange(int reps) {
+        for (int i = 0; i < reps; i++) {
+            mMatcher.put(0, "+1900" + (i % 100) + "%", true, true, true);
+            if (mMatcher.match(mSenders[i % FLOOD], MESSAGES, true)
+                    != BlacklistUtils.MATCH_NONE) {
+                mListed++;
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.mms.pdu;
+
+import android.content.ContentResolver;
+import android.test.mock.MockContext;
+
+import com.android.internal.util.HexDump;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Arrays;
+
+/**
+ * Parsing and composing of MMS PDUs.
+ */
+public class PduBenchmark extends SimpleBenchmark {
+    private static final String NOTIFICATION_IND =
+            "8C82"                                                  // m-notification-ind
+            + "98543132333400"                                      // Transaction-Id T1234
+            + "8D92"                                                // MMS-Version 1.2
+            + "8918802B31353535313233343536372F545950453D504C4D4E00" // From
+            + "8A80"                                                // Message-Class personal
+            + "8E020BB8"                                            // Message-Size 3000
+            + "8805810303F480"                                      // Expiry in 3 days
+            + "83687474703A2F2F6D6D73632E6578616D706C652E636F6D2F6D6D733F69643D3100";
+
+    private static final String SMIL = "<smil><head><layout><root-layout/>"
+            + "<region id=\"Image\" top=\"0\" left=\"0\" height=\"80%\" width=\"100%\"/>"
+            + "<region id=\"Text\" top=\"80%\" left=\"0\" height=\"20%\" width=\"100%\"/>"
+            + "</layout></head><body><par dur=\"5000ms\">"
+            + "<img src=\"image.jpg\" region=\"Image\"/><text src=\"text.txt\" region=\"Text\"/>"
+            + "</par></body></smil>";
+
+    // Parts carry their data, the resolver of the context is never used
+    private static final MockContext CONTEXT = new MockContext() {
+        @Override
+        public ContentResolver getContentResolver() {
+            return null;
+        }
+    };
+
+    private byte[] mNotificationInd;
+    private SendReq mSendReq;
+    private byte[] mSendReqPdu;
+
+    @Override
+    protected void setUp() {
+        mNotificationInd = HexDump.hexStringToByteArray(NOTIFICATION_IND);
+
+        mSendReq = new SendReq();
+        mSendReq.setTo(EncodedStringValue.extract("+16505551111,+16505552222"));
+        mSendReq.setSubject(new EncodedStringValue("Holiday pictures"));
+        PduBody body = new PduBody();
+        body.addPart(newPart("application/smil", "smil.xml", SMIL.getBytes()));
+        body.addPart(newPart("text/plain", "text.txt", "Greetings from the beach!".getBytes()));
+        byte[] image = new byte[16 * 1024];
+        Arrays.fill(image, (byte) 0x5a);
+        body.addPart(newPart("image/jpeg", "image.jpg", image));
+        mSendReq.setBody(body);
+        mSendReqPdu = new PduComposer(CONTEXT, mSendReq).make();
+    }
+
+    private static PduPart newPart(String contentType, String location, byte[] data) {
+        PduPart part = new PduPart();
+        part.setContentType(contentType.getBytes());
+        part.setContentLocation(location.getBytes());
+        part.setContentId(("<" + location + ">").getBytes());
+        part.setCharset(CharacterSets.UTF_8);
+        part.setData(data);
+        return part;
+    }
+
+    public void timeParseNotificationInd(int reps) {
+        for (int i = 0; i < reps; i++) {
+            new PduParser(mNotificationInd, true).parse();
+        }
+    }
+
+    public void timeParseSendReq(int reps) {
+        for (int i = 0; i < reps; i++) {
+            new PduParser(mSendReqPdu, true).parse();
+        }
+    }
+
+    public void timeComposeSendReq(int reps) {
+        for (int i = 0; i < reps; i++) {
+            new PduComposer(CONTEXT, mSendReq).make();
+        }
+    }
+}
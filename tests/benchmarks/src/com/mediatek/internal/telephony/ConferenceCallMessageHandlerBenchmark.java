@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mediatek.internal.telephony;
+
+import com.google.caliper.SimpleBenchmark;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Conference-info notifications of a conference with 100 participants, where
+ * one participant goes on hold or comes back per notification. timeFullState gets the
+ * whole roster every time; timePartialState gets a partial-state document
+ * with the one participant, applied to the roster kept by the handler.
+ */
+public class ConferenceCallMessageHandlerBenchmark extends SimpleBenchmark {
+    private static final int PARTICIPANTS = 100;
+
+    private SAXParser mParser;
+    private ConferenceCallMessageHandler mHandler;
+    private String[] mConnected;
+    private String[] mOnHold;
+    private int mVersion;
+    // Changes seen, kept so that the results are not optimized away
+    private int mChanges;
+
+    @Override
+    protected void setUp() throws Exception {
+        mParser = SAXParserFactory.newInstance().newSAXParser();
+        mConnected = new String[PARTICIPANTS];
+        mOnHold = new String[PARTICIPANTS];
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            mConnected[i] = user(i, "connected");
+            mOnHold[i] = user(i, "on-hold");
+        }
+        mHandler = new ConferenceCallMessageHandler();
+        parse(document("full", roster(-1)));
+    }
+
+    private static String user(int i, String status) {
+        String entity = "sip:+1650555" + (1000 + i) + "@ims.example.com";
+        return "<user entity=\"" + entity + "\"><display-text>Participant " + i
+                + "</display-text><endpoint entity=\"" + entity + "\"><status>" + status
+                + "</status></endpoint></user>";
+    }
+
+    // All participants connected, except the one on hold
+    private String roster(int onHold) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            sb.append(i == onHold ? mOnHold[i] : mConnected[i]);
+        }
+        return sb.toString();
+    }
+
+    private String document(String state, String users) {
+        return "<?xml version=\"1.0\"?><conference-info version=\"" + (++mVersion)
+                + "\" state=\"" + state + "\"><users>" + users + "</users></conference-info>";
+    }
+
+    private void parse(String xml) throws Exception {
+        mParser.parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), mHandler);
+        mChanges += mHandler.getUpdatedUsers().size();
+    }
+
+    public void timeFullState(int reps) throws Exception {
+        for (int i = 0; i < reps; i++) {
+            int user = (i / 2) % PARTICIPANTS;
+            parse(document("full", roster((i & 1) == 0 ? user : -1)));
+        }
+    }
+
+    public void timePartialState(int reps) throws Exception {
+        for (int i = 0; i < reps; i++) {
+            int user = (i / 2) % PARTICIPANTS;
+            parse(document("partial", (i & 1) == 0 ? mOnHold[user] : mConnected[user]));
+        }
+    }
+}
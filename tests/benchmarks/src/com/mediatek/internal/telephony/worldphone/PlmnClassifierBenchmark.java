@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mediatek.internal.telephony.worldphone;
+
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Region and user type decisions of WorldPhoneOm for a stream of PLMN
+ * changed events while roaming, with PlmnClassifier and with the list walks
+ * it replaces. The tables are the default ones of WorldPhoneOm.
+ */
+public class PlmnClassifierBenchmark extends SimpleBenchmark {
+    private static final List<String> TYPE1 = Arrays.asList(
+            "46000", "46002", "46007", "46008");
+    private static final List<String> TYPE1_EXT = new ArrayList<String>();
+    private static final List<String> TYPE3 = Arrays.asList(
+            "46001", "46006", "46009", "45407", "46003", "46005", "45502", "46011");
+    private static final List<String> DOMESTIC = Arrays.asList("460");
+
+    // Network PLMNs reported near the Hong Kong and Macau borders, and the
+    // IMSI of the SIM, as the modem reports them
+    private static final String[] PLMNS = {
+        "46000", "45400", "46000", "45406", "45412", "46001", "45500", "45502",
+        "46000", "460", "45400", "46011",
+    };
+    private static final String IMSI = "460021234567890";
+
+    private PlmnClassifier mClassifier;
+    // Decisions taken, kept so that they are not optimized away
+    private int mDecisions;
+
+    @Override
+    protected void setUp() {
+        mClassifier = new PlmnClassifier(TYPE1, TYPE1_EXT, TYPE3, DOMESTIC);
+    }
+
+    public void timeClassifier(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (String plmn : PLMNS) {
+                if (mClassifier.isDomestic(plmn)) {
+                    mDecisions++;
+                }
+                mDecisions += mClassifier.getPlmnType(IMSI);
+            }
+        }
+    }
+
+    public void timeListScan(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (String plmn : PLMNS) {
+                if (DOMESTIC.contains(plmn.substring(0, 3))) {
+                    mDecisions++;
+                }
+                mDecisions += scanUserType(IMSI);
+            }
+        }
+    }
+
+    private static int scanUserType(String imsi) {
+        String plmn = imsi.substring(0, 5);
+        for (String type1 : TYPE1) {
+            if (plmn.equals(type1)) {
+                return PlmnClassifier.PLMN_TYPE1;
+            }
+        }
+        for (String type1Ext : TYPE1_EXT) {
+            if (plmn.equals(type1Ext)) {
+                return PlmnClassifier.PLMN_TYPE1_EXT;
+            }
+        }
+        for (String type3 : TYPE3) {
+            if (plmn.equals(type3)) {
+                return PlmnClassifier.PLMN_TYPE3;
+            }
+        }
+        return PlmnClassifier.PLMN_TYPE_NONE;
+    }
+}
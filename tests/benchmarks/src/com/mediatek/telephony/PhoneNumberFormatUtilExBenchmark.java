@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mediatek.telephony;
+
+import com.google.caliper.SimpleBenchmark;
+
+/**
+ * Formatting of dialed and received numbers, as done for every call log and
+ * contact entry shown.
+ */
+public class PhoneNumberFormatUtilExBenchmark extends SimpleBenchmark {
+    private static final String[] NUMBERS = {
+        "6505551212",
+        "+16505551212",
+        "13800138000",
+        "+8613800138000",
+        "0212345678",
+        "+886212345678",
+        "07700900123",
+        "+447700900123",
+        "0312345678",
+        "+81312345678",
+        "9876543210",
+        "+919876543210",
+        "*#06#",
+        "112",
+    };
+
+    private static final int[] FORMATS = {
+        PhoneNumberFormatUtilEx.FORMAT_NANP,
+        PhoneNumberFormatUtilEx.FORMAT_CHINA_MAINLAND,
+        PhoneNumberFormatUtilEx.FORMAT_TAIWAN,
+        PhoneNumberFormatUtilEx.FORMAT_ENGLAND,
+        PhoneNumberFormatUtilEx.FORMAT_JAPAN,
+        PhoneNumberFormatUtilEx.FORMAT_INDIA,
+    };
+
+    public void timeFormatNumber(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (String number : NUMBERS) {
+                PhoneNumberFormatUtilEx.formatNumber(number);
+            }
+        }
+    }
+
+    public void timeFormatNumberPerCountry(int reps) {
+        for (int i = 0; i < reps; i++) {
+            for (int format : FORMATS) {
+                for (String number : NUMBERS) {
+                    PhoneNumberFormatUtilEx.formatNumber(number, format);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.os.AsyncResult;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test cases for the CommandFuture class.
+ */
+public class CommandFutureTest extends AndroidTestCase {
+    private HandlerThread mThread;
+    private Looper mLooper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mThread = new HandlerThread("CommandFutureTest");
+        mThread.start();
+        mLooper = mThread.getLooper();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mThread.quit();
+        super.tearDown();
+    }
+
+    private static void respond(Message response, Object result, Throwable exception) {
+        AsyncResult.forMessage(response, result, exception);
+        response.sendToTarget();
+    }
+
+    @SmallTest
+    public void testResponse() throws Exception {
+        CommandFuture<String> f = new CommandFuture<String>(mLooper);
+        respond(f.obtainMessage(), "310260123456789", null);
+        assertEquals("310260123456789", f.get(1, TimeUnit.SECONDS));
+
+        CommandFuture<String> failed = new CommandFuture<String>(mLooper);
+        CommandException error = new CommandException(CommandException.Error.GENERIC_FAILURE);
+        respond(failed.obtainMessage(), null, error);
+        try {
+            failed.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @SmallTest
+    public void testTimeoutAndCancel() throws Exception {
+        CommandFuture<String> f = new CommandFuture<String>(mLooper).setTimeout(10);
+        try {
+            f.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        CommandFuture<String> cancelled = new CommandFuture<String>(mLooper);
+        Message response = cancelled.obtainMessage();
+        assertTrue(cancelled.cancel());
+        respond(response, "late", null);
+        try {
+            cancelled.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (CancellationException e) {
+            // expected
+        }
+        assertNull(cancelled.getResult());
+    }
+
+    @SmallTest
+    public void testComposition() throws Exception {
+        CommandFuture<String> imsi = new CommandFuture<String>(mLooper);
+        CommandFuture<Integer> mcc = imsi.thenApply(
+                new CommandFuture.Transform<String, Integer>() {
+                    @Override
+                    public Integer apply(String result) {
+                        return Integer.parseInt(result.substring(0, 3));
+                    }
+                });
+        CommandFuture<String> version = new CommandFuture<String>(mLooper);
+        CommandFuture<Void> all = CommandFuture.whenAll(mLooper, mcc, version);
+
+        respond(version.obtainMessage(), "MOLY.LR9", null);
+        assertFalse(all.isDone());
+        respond(imsi.obtainMessage(), "310260123456789", null);
+
+        all.get(1, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(310), mcc.getResult());
+        assertEquals("MOLY.LR9", version.getResult());
+    }
+}
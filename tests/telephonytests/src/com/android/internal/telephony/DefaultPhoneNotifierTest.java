@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.telephony.TelephonyManager;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test cases for the suppression and coalescing of registry calls by
+ * DefaultPhoneNotifier.
+ */
+public class DefaultPhoneNotifierTest extends AndroidTestCase {
+    private static final int PHONE_ID = 0;
+    private static final int SUB_ID = 1;
+    // Longer than the 16 ms flush delay of the notifier
+    private static final long FRAME_WAIT_MS = 100;
+
+    @Mock private ITelephonyRegistry mRegistry;
+    @Mock private Phone mPhone;
+    @Mock private Phone mOtherPhone;
+
+    private HandlerThread mThread;
+    private Handler mHandler;
+    private DefaultPhoneNotifier mNotifier;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", getContext().getCacheDir().getPath());
+        Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(mPhone.getPhoneId()).thenReturn(PHONE_ID);
+        Mockito.when(mPhone.getSubId()).thenReturn(SUB_ID);
+        Mockito.when(mOtherPhone.getPhoneId()).thenReturn(PHONE_ID + 1);
+        Mockito.when(mOtherPhone.getSubId()).thenReturn(SUB_ID + 1);
+
+        mThread = new HandlerThread("DefaultPhoneNotifierTest");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mNotifier = new DefaultPhoneNotifier(mRegistry, mThread.getLooper());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mThread.quit();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testEqualUpdatesDropped() throws Exception {
+        Mockito.when(mPhone.getState()).thenReturn(PhoneConstants.State.IDLE,
+                PhoneConstants.State.IDLE, PhoneConstants.State.RINGING);
+        Mockito.when(mOtherPhone.getState()).thenReturn(PhoneConstants.State.IDLE);
+
+        mNotifier.notifyPhoneState(mPhone);
+        mNotifier.notifyPhoneState(mPhone);
+        Mockito.verify(mRegistry, Mockito.times(1)).notifyCallStateForSubscriber(SUB_ID,
+                TelephonyManager.CALL_STATE_IDLE, "");
+
+        // the same state of another phone has its own key
+        mNotifier.notifyPhoneState(mOtherPhone);
+        Mockito.verify(mRegistry).notifyCallStateForSubscriber(SUB_ID + 1,
+                TelephonyManager.CALL_STATE_IDLE, "");
+
+        mNotifier.notifyPhoneState(mPhone);
+        Mockito.verify(mRegistry).notifyCallStateForSubscriber(SUB_ID,
+                TelephonyManager.CALL_STATE_RINGING, "");
+        Mockito.verifyNoMoreInteractions(mRegistry);
+    }
+
+    @SmallTest
+    public void testBurstCoalesced() throws Exception {
+        Mockito.when(mPhone.getMessageWaitingIndicator()).thenReturn(true, false, true);
+
+        // keep the flush from running until the whole burst is in
+        CountDownLatch release = blockLooper();
+        mNotifier.notifyMessageWaitingChanged(mPhone);
+        mNotifier.notifyMessageWaitingChanged(mPhone);
+        mNotifier.notifyMessageWaitingChanged(mPhone);
+        Mockito.verifyZeroInteractions(mRegistry);
+
+        release.countDown();
+        Mockito.verify(mRegistry, Mockito.timeout(1000)).notifyMessageWaitingChangedForPhoneId(
+                PHONE_ID, SUB_ID, true);
+        waitForFrames();
+        Mockito.verifyNoMoreInteractions(mRegistry);
+    }
+
+    @SmallTest
+    public void testSentAfterFrame() throws Exception {
+        Mockito.when(mPhone.getCallForwardingIndicator()).thenReturn(true);
+        final long[] sentTime = new long[1];
+        final CountDownLatch sent = new CountDownLatch(1);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                sentTime[0] = SystemClock.uptimeMillis();
+                sent.countDown();
+                return null;
+            }
+        }).when(mRegistry).notifyCallForwardingChangedForSubscriber(SUB_ID, true);
+
+        long notifyTime = SystemClock.uptimeMillis();
+        mNotifier.notifyCallForwardingChanged(mPhone);
+        assertTrue("update sent", sent.await(1, TimeUnit.SECONDS));
+        assertTrue("sent after " + (sentTime[0] - notifyTime) + " ms",
+                sentTime[0] - notifyTime >= 16);
+
+        // the registry has this state already
+        mNotifier.notifyCallForwardingChanged(mPhone);
+        waitForFrames();
+        Mockito.verify(mRegistry, Mockito.times(1)).notifyCallForwardingChangedForSubscriber(
+                SUB_ID, true);
+        Mockito.verifyNoMoreInteractions(mRegistry);
+    }
+
+    @SmallTest
+    public void testPendingUpdatesSentFirst() throws Exception {
+        Mockito.when(mPhone.getMessageWaitingIndicator()).thenReturn(true);
+        Mockito.when(mPhone.getState()).thenReturn(PhoneConstants.State.OFFHOOK);
+
+        CountDownLatch release = blockLooper();
+        mNotifier.notifyMessageWaitingChanged(mPhone);
+        mNotifier.notifyPhoneState(mPhone);
+        release.countDown();
+
+        InOrder inOrder = Mockito.inOrder(mRegistry);
+        inOrder.verify(mRegistry).notifyMessageWaitingChangedForPhoneId(PHONE_ID, SUB_ID, true);
+        inOrder.verify(mRegistry).notifyCallStateForSubscriber(SUB_ID,
+                TelephonyManager.CALL_STATE_OFFHOOK, "");
+        waitForFrames();
+        Mockito.verifyNoMoreInteractions(mRegistry);
+    }
+
+    private CountDownLatch blockLooper() {
+        final CountDownLatch release = new CountDownLatch(1);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // let the test fail on its checks
+                }
+            }
+        });
+        return release;
+    }
+
+    private void waitForFrames() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        mHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, FRAME_WAIT_MS);
+        assertTrue("looper idle", done.await(1, TimeUnit.SECONDS));
+    }
+}
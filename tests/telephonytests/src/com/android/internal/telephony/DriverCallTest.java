@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+public class DriverCallTest extends TestCase {
+    @SmallTest
+    public void testSameAsCopy() {
+        DriverCall dc = newCall(new UUSInfo(UUSInfo.UUS_TYPE1_IMPLICIT, UUSInfo.UUS_DCS_IA5c,
+                new byte[] {1, 2, 3}));
+        DriverCall copy = new DriverCall();
+        copy.copyFrom(dc);
+        assertTrue(copy.isSameAs(dc));
+        assertFalse(copy.isSameAs(null));
+
+        copy.state = DriverCall.State.HOLDING;
+        assertFalse(copy.isSameAs(dc));
+    }
+
+    @SmallTest
+    public void testUusInfoComparedByContent() {
+        // Each poll response carries its own UUSInfo instance
+        DriverCall polled = newCall(new UUSInfo(UUSInfo.UUS_TYPE1_IMPLICIT, UUSInfo.UUS_DCS_IA5c,
+                new byte[] {1, 2, 3}));
+        DriverCall repolled = newCall(new UUSInfo(UUSInfo.UUS_TYPE1_IMPLICIT, UUSInfo.UUS_DCS_IA5c,
+                new byte[] {1, 2, 3}));
+        assertTrue(repolled.isSameAs(polled));
+
+        repolled.uusInfo.setUserData(new byte[] {1, 2, 4});
+        assertFalse(repolled.isSameAs(polled));
+
+        repolled.uusInfo = null;
+        assertFalse(repolled.isSameAs(polled));
+        polled.uusInfo = null;
+        assertTrue(repolled.isSameAs(polled));
+    }
+
+    private static DriverCall newCall(UUSInfo uusInfo) {
+        DriverCall dc = new DriverCall();
+        dc.index = 1;
+        dc.isMT = true;
+        dc.state = DriverCall.State.ACTIVE;
+        dc.number = "5551000";
+        dc.uusInfo = uusInfo;
+        return dc;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.Random;
+
+/**
+ * Test cases for the SID range lookup of HbpcdIndex.
+ */
+public class HbpcdIndexTest extends AndroidTestCase {
+
+    @SmallTest
+    public void testRangeLookup() {
+        HbpcdIndex index = HbpcdIndex.forRanges(new int[][] {
+                { 2, 5, 310 },
+                { 10, 20, 311 },
+        });
+        assertEquals(0, index.getRangeMcc(1));
+        assertEquals(310, index.getRangeMcc(2));
+        assertEquals(310, index.getRangeMcc(5));
+        assertEquals(0, index.getRangeMcc(6));
+        assertEquals(311, index.getRangeMcc(15));
+        assertEquals(0, index.getRangeMcc(21));
+    }
+
+    @SmallTest
+    public void testOverlappingRangesFirstInTableWins() {
+        HbpcdIndex index = HbpcdIndex.forRanges(new int[][] {
+                { 100, 200, 310 },
+                // starts later, but listed after the range above
+                { 150, 160, 311 },
+                // starts earlier, listed last
+                { 50, 300, 312 },
+        });
+        assertEquals(312, index.getRangeMcc(60));
+        assertEquals(310, index.getRangeMcc(100));
+        assertEquals(310, index.getRangeMcc(155));
+        assertEquals(312, index.getRangeMcc(250));
+        assertEquals(0, index.getRangeMcc(301));
+    }
+
+    @SmallTest
+    public void testMatchesTableScan() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            int[][] ranges = new int[random.nextInt(30)][];
+            for (int i = 0; i < ranges.length; i++) {
+                int low = random.nextInt(1000);
+                ranges[i] = new int[] { low, low + random.nextInt(200), 300 + i };
+            }
+            HbpcdIndex index = HbpcdIndex.forRanges(ranges);
+            for (int sid = 0; sid < 1300; sid++) {
+                assertEquals("sid " + sid, scan(ranges, sid), index.getRangeMcc(sid));
+            }
+        }
+    }
+
+    // What the range query of HbpcdUtils returns, the first row containing the SID
+    private static int scan(int[][] ranges, int sid) {
+        for (int[] range : ranges) {
+            if (range[0] <= sid && sid <= range[1]) {
+                return range[2];
+            }
+        }
+        return 0;
+    }
+}
@@ -21,6 +21,8 @@ import android.test.AndroidTestCase;
 import com.android.internal.telephony.gsm.SmsBroadcastConfigInfo;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
 
 /**
  * Test cases for the IntRangeManager class.
@@ -95,6 +97,72 @@ public class IntRangeManagerTest extends AndroidTestCase {
         }
     }
 
+    /** IntRangeManager keeping the update methods of the base class. */
+    class ReplayIntRangeManager extends IntRangeManager {
+        // Ids enabled by the last update sent to the radio
+        final BitSet mSent = new BitSet();
+
+        protected void startUpdate() {
+            mSent.clear();
+        }
+
+        protected void addRange(int startId, int endId, boolean selected) {
+            assertTrue("range selected", selected);
+            mSent.set(startId, endId + 1);
+        }
+
+        protected boolean finishUpdate() {
+            return true;
+        }
+    }
+
+    /** IntRangeManager in incremental mode, applying each update to a radio model. */
+    class IncrementalIntRangeManager extends IntRangeManager {
+        // Ids enabled on the radio
+        final BitSet mRadio = new BitSet();
+        // Ranges of the last update
+        final ArrayList<SmsBroadcastConfigInfo> mUpdate = new ArrayList<SmsBroadcastConfigInfo>();
+
+        protected boolean isIncrementalUpdateSupported() {
+            return true;
+        }
+
+        protected void startUpdate() {
+            mUpdate.clear();
+        }
+
+        protected void addRange(int startId, int endId, boolean selected) {
+            mUpdate.add(new SmsBroadcastConfigInfo(startId, endId,
+                    SMS_CB_CODE_SCHEME_MIN, SMS_CB_CODE_SCHEME_MAX, selected));
+        }
+
+        protected boolean finishUpdate() {
+            // only ids that change state are sent
+            for (SmsBroadcastConfigInfo info : mUpdate) {
+                int startId = info.getFromServiceId();
+                int endId = info.getToServiceId();
+                if (info.isSelected()) {
+                    assertEquals("enabled ids already on", -1, nextSet(startId, endId));
+                    mRadio.set(startId, endId + 1);
+                } else {
+                    assertEquals("disabled ids already off", -1, nextClear(startId, endId));
+                    mRadio.clear(startId, endId + 1);
+                }
+            }
+            return true;
+        }
+
+        private int nextSet(int startId, int endId) {
+            int id = mRadio.nextSetBit(startId);
+            return (id >= 0 && id <= endId) ? id : -1;
+        }
+
+        private int nextClear(int startId, int endId) {
+            int id = mRadio.nextClearBit(startId);
+            return (id <= endId) ? id : -1;
+        }
+    }
+
     public void testEmptyRangeManager() {
         TestIntRangeManager testManager = new TestIntRangeManager();
         assertEquals("expecting empty configlist", 0, testManager.mConfigList.size());
@@ -1134,4 +1202,136 @@ public class IntRangeManagerTest extends AndroidTestCase {
                 testManager.flags);
         assertEquals("configlist size", 0, testManager.mConfigList.size());
     }
+
+    private void checkCoverage(TestIntRangeManager testManager, ArrayList<int[]> enabled) {
+        BitSet expected = new BitSet();
+        for (int[] range : enabled) {
+            expected.set(range[0], range[1] + 1);
+        }
+        testManager.reset();
+        assertTrue("updating ranges", testManager.updateRanges());
+        BitSet actual = new BitSet();
+        for (SmsBroadcastConfigInfo info : testManager.mConfigList) {
+            actual.set(info.getFromServiceId(), info.getToServiceId() + 1);
+        }
+        assertEquals("enabled ids", expected, actual);
+    }
+
+    // Enable and disable thousands of random ranges, as emergency alert apps do at boot
+    public void testManyRanges() {
+        TestIntRangeManager testManager = new TestIntRangeManager();
+        ArrayList<int[]> enabled = new ArrayList<int[]>();
+        Random random = new Random(4370);
+        for (int i = 0; i < 2000; i++) {
+            int startId = random.nextInt(5000);
+            int endId = startId + random.nextInt(8);
+            int client = random.nextInt(4);
+            boolean duplicate = false;
+            for (int[] range : enabled) {
+                if (range[0] == startId && range[1] == endId && range[2] == client) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                assertTrue("enabling range", testManager.enableRange(startId, endId,
+                        "client" + client));
+                enabled.add(new int[] {startId, endId, client});
+            }
+        }
+        checkCoverage(testManager, enabled);
+
+        while (!enabled.isEmpty()) {
+            int[] range = enabled.remove(random.nextInt(enabled.size()));
+            assertTrue("disabling range", testManager.disableRange(range[0], range[1],
+                    "client" + range[2]));
+            if (enabled.size() % 100 == 0) {
+                checkCoverage(testManager, enabled);
+            }
+        }
+        assertTrue("range manager empty", testManager.isEmpty());
+    }
+
+    // Each update replays every enabled range, the radio keeps only the last one
+    public void testManyRangesReplayed() {
+        ReplayIntRangeManager testManager = new ReplayIntRangeManager();
+        ArrayList<int[]> enabled = new ArrayList<int[]>();
+        Random random = new Random(4371);
+        for (int i = 0; i < 1000; i++) {
+            if (enabled.isEmpty() || random.nextInt(3) != 0) {
+                int startId = random.nextInt(1000);
+                int[] range = { startId, startId + random.nextInt(8), i };
+                assertTrue("enabling range", testManager.enableRange(range[0], range[1],
+                        "client" + range[2]));
+                enabled.add(range);
+            } else {
+                int[] range = enabled.remove(random.nextInt(enabled.size()));
+                assertTrue("disabling range", testManager.disableRange(range[0], range[1],
+                        "client" + range[2]));
+            }
+            BitSet expected = new BitSet();
+            for (int[] range : enabled) {
+                expected.set(range[0], range[1] + 1);
+            }
+            assertEquals("ids sent", expected, testManager.mSent);
+        }
+    }
+
+    public void testIncrementalUpdates() {
+        IncrementalIntRangeManager testManager = new IncrementalIntRangeManager();
+        assertTrue(testManager.enableRange(2, 3, "client1"));
+        assertTrue(testManager.enableRange(5, 6, "client1"));
+        assertTrue(testManager.enableRange(14, 15, "client1"));
+        assertEquals("updated ranges", 1, testManager.mUpdate.size());
+        checkConfigInfo(testManager.mUpdate.get(0), 14, 15, SMS_CB_CODE_SCHEME_MIN,
+                SMS_CB_CODE_SCHEME_MAX, true);
+
+        // only the gaps between the joined ranges are enabled
+        assertTrue(testManager.enableRange(1, 10, "client2"));
+        assertEquals("updated ranges", 3, testManager.mUpdate.size());
+        checkConfigInfo(testManager.mUpdate.get(0), 1, 1, SMS_CB_CODE_SCHEME_MIN,
+                SMS_CB_CODE_SCHEME_MAX, true);
+        checkConfigInfo(testManager.mUpdate.get(1), 4, 4, SMS_CB_CODE_SCHEME_MIN,
+                SMS_CB_CODE_SCHEME_MAX, true);
+        checkConfigInfo(testManager.mUpdate.get(2), 7, 10, SMS_CB_CODE_SCHEME_MIN,
+                SMS_CB_CODE_SCHEME_MAX, true);
+
+        // only the ids no other client range covers are disabled
+        assertTrue(testManager.disableRange(1, 10, "client2"));
+        assertEquals("updated ranges", 3, testManager.mUpdate.size());
+        checkConfigInfo(testManager.mUpdate.get(0), 1, 1, SMS_CB_CODE_SCHEME_MIN,
+                SMS_CB_CODE_SCHEME_MAX, false);
+        checkConfigInfo(testManager.mUpdate.get(1), 4, 4, SMS_CB_CODE_SCHEME_MIN,
+                SMS_CB_CODE_SCHEME_MAX, false);
+        checkConfigInfo(testManager.mUpdate.get(2), 7, 10, SMS_CB_CODE_SCHEME_MIN,
+                SMS_CB_CODE_SCHEME_MAX, false);
+    }
+
+    // The radio configured incrementally ends up as with a full rebuild after each call
+    public void testIncrementalMatchesFullUpdate() {
+        IncrementalIntRangeManager incremental = new IncrementalIntRangeManager();
+        ReplayIntRangeManager full = new ReplayIntRangeManager();
+        ArrayList<int[]> enabled = new ArrayList<int[]>();
+        Random random = new Random(4372);
+        for (int i = 0; i < 2000; i++) {
+            int[] range;
+            if (enabled.isEmpty() || random.nextInt(3) != 0) {
+                int startId = random.nextInt(1000);
+                range = new int[] { startId, startId + random.nextInt(20), random.nextInt(4) };
+                boolean added = incremental.enableRange(range[0], range[1], "client" + range[2]);
+                assertTrue("enabling range", added);
+                assertTrue("enabling range", full.enableRange(range[0], range[1],
+                        "client" + range[2]));
+                enabled.add(range);
+            } else {
+                range = enabled.remove(random.nextInt(enabled.size()));
+                // the same client range may have been enabled twice
+                boolean removed = incremental.disableRange(range[0], range[1],
+                        "client" + range[2]);
+                assertEquals("disabling range", removed, full.disableRange(range[0], range[1],
+                        "client" + range[2]));
+            }
+            assertEquals("ids after " + i, full.mSent, incremental.mRadio);
+        }
+    }
 }
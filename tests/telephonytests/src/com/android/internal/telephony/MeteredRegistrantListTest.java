@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.os.AsyncResult;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Registrant;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test cases for the MeteredRegistrantList class.
+ */
+public class MeteredRegistrantListTest extends AndroidTestCase {
+    private static final int EVENT_NOTIFIED = 7;
+    private static final Object USER_OBJ = new Object();
+
+    private HandlerThread mThread;
+    private final ArrayList<AsyncResult> mReceived = new ArrayList<AsyncResult>();
+    private Handler mHandler;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mThread = new HandlerThread("MeteredRegistrantListTest");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper()) {
+            @Override
+            public void handleMessage(Message msg) {
+                assertEquals(EVENT_NOTIFIED, msg.what);
+                synchronized (mReceived) {
+                    mReceived.add((AsyncResult) msg.obj);
+                }
+            }
+        };
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mThread.quit();
+        super.tearDown();
+    }
+
+    /**
+     * Notify three results while the handler is busy, then let it run.
+     *
+     * @return the dump of the list while the handler was busy
+     */
+    private String notifyWhileBusy(MeteredRegistrantList list) throws Exception {
+        list.add(new Registrant(mHandler, EVENT_NOTIFIED, USER_OBJ));
+        final CountDownLatch busy = new CountDownLatch(1);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    busy.await();
+                } catch (InterruptedException e) {
+                    // fall through
+                }
+            }
+        });
+        list.notifyResult("first");
+        list.notifyResult("second");
+        list.notifyRegistrants(new AsyncResult(null, "third", null));
+        String dump = dump(list);
+        busy.countDown();
+        waitForHandler();
+        return dump;
+    }
+
+    private void waitForHandler() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+    }
+
+    private static String dump(MeteredRegistrantList list) {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        list.dump(pw);
+        pw.flush();
+        return sw.toString();
+    }
+
+    @SmallTest
+    public void testDeliverAll() throws Exception {
+        notifyWhileBusy(new MeteredRegistrantList("test",
+                MeteredRegistrantList.POLICY_DELIVER_ALL));
+        assertEquals(3, mReceived.size());
+        assertEquals("first", mReceived.get(0).result);
+        assertEquals("third", mReceived.get(2).result);
+        assertSame(USER_OBJ, mReceived.get(2).userObj);
+    }
+
+    @SmallTest
+    public void testCoalesce() throws Exception {
+        notifyWhileBusy(new MeteredRegistrantList("test",
+                MeteredRegistrantList.POLICY_COALESCE));
+        assertEquals(1, mReceived.size());
+        assertEquals("third", mReceived.get(0).result);
+        assertSame(USER_OBJ, mReceived.get(0).userObj);
+    }
+
+    @SmallTest
+    public void testQueuedNotifications() throws Exception {
+        MeteredRegistrantList list = new MeteredRegistrantList("test",
+                MeteredRegistrantList.POLICY_DELIVER_ALL);
+        String busy = notifyWhileBusy(list);
+        assertTrue(busy, busy.contains(" sent=3 coalesced=0 queued=3 "));
+        String idle = dump(list);
+        assertTrue(idle, idle.contains(" queued=0 lag=0 maxQueued=3 "));
+    }
+
+    @SmallTest
+    public void testCoalescedQueue() throws Exception {
+        MeteredRegistrantList list = new MeteredRegistrantList("test",
+                MeteredRegistrantList.POLICY_COALESCE);
+        String busy = notifyWhileBusy(list);
+        assertTrue(busy, busy.contains(" sent=3 coalesced=2 queued=1 "));
+
+        list.notifyResult("fourth");
+        waitForHandler();
+        assertEquals(2, mReceived.size());
+        assertEquals("fourth", mReceived.get(1).result);
+        String idle = dump(list);
+        assertTrue(idle, idle.contains(" coalesced=2 queued=0 "));
+    }
+}
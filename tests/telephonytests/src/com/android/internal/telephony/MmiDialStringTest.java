@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Test cases for the MmiDialString class.
+ */
+public class MmiDialStringTest extends AndroidTestCase {
+    // The expression of TS 22.030 6.5.2 the MMI codes used to match
+    private static final Pattern SUPP_SERVICE = Pattern.compile(
+        "((\\*|#|\\*#|\\*\\*|##)(\\d{2,3})(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*))?)?)?)?#)(.*)");
+    private static final int[] GROUPS = { 1, 2, 3, 5, 7, 9, 11, 12 };
+
+    @SmallTest
+    public void testSuppService() {
+        MmiDialString mmi = MmiDialString.parse("**21*+16505551212*11*20#");
+        assertEquals(MmiDialString.TYPE_SUPP_SERVICE, mmi.getType());
+        assertEquals("**21*+16505551212*11*20#", mmi.getPoundString());
+        assertEquals("**", mmi.getAction());
+        assertEquals("21", mmi.getServiceCode());
+        assertEquals("+16505551212", mmi.getSia());
+        assertEquals("11", mmi.getSib());
+        assertEquals("20", mmi.getSic());
+        assertNull(mmi.getPwd());
+        assertNull(mmi.getDialingNumber());
+
+        mmi = MmiDialString.parse("*#31#6505551212");
+        assertEquals(MmiDialString.TYPE_SUPP_SERVICE, mmi.getType());
+        assertEquals("*#", mmi.getAction());
+        assertEquals("31", mmi.getServiceCode());
+        assertEquals("6505551212", mmi.getDialingNumber());
+
+        mmi = MmiDialString.parse("**04*1234**5678*5678#");
+        assertEquals("04", mmi.getServiceCode());
+        assertEquals("1234", mmi.getSia());
+        assertNull(mmi.getSib());
+        assertEquals("5678", mmi.getSic());
+        assertEquals("5678", mmi.getPwd());
+    }
+
+    @SmallTest
+    public void testUssd() {
+        assertEquals(MmiDialString.TYPE_USSD, MmiDialString.parse("*1234#").getType());
+        assertEquals(MmiDialString.TYPE_USSD, MmiDialString.parse("#*21#").getType());
+        // A dialing number ending with # makes the whole string a USSD
+        MmiDialString mmi = MmiDialString.parse("*400#1234567890123456#");
+        assertTrue(mmi.isSuppService());
+        assertEquals(MmiDialString.TYPE_USSD, mmi.getType());
+    }
+
+    @SmallTest
+    public void testNumbers() {
+        assertEquals(MmiDialString.TYPE_NUMBER, MmiDialString.parse("").getType());
+        assertEquals(MmiDialString.TYPE_NUMBER, MmiDialString.parse("6505551212").getType());
+        assertEquals(MmiDialString.TYPE_NUMBER, MmiDialString.parse("*31*6505551212").getType());
+        assertEquals(MmiDialString.TYPE_SHORT_CODE, MmiDialString.parse("12").getType());
+        assertEquals(MmiDialString.TYPE_SHORT_CODE, MmiDialString.parse("5").getType());
+    }
+
+    @SmallTest
+    public void testSameAsExpression() {
+        String[] dialStrings = {
+            "*21#", "#21#", "*#21#", "**21#", "##21#", "#*21#", "*2#", "*2222#", "*222#",
+            "*21*1*2*3*4#", "*21*1*2*3*4*5#", "*21**#", "*21*#", "*21#\n", "*21#12\u2028",
+            "*21\n#", "**", "*#", "*1#", "*21", "21#", "*21#*21#",
+        };
+        MmiDialString mmi = new MmiDialString();
+        for (String dialString : dialStrings) {
+            assertSameAsExpression(mmi, dialString);
+        }
+
+        String alphabet = "*#*#0123456789+a\n\u2029";
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            assertSameAsExpression(mmi, new String(chars));
+        }
+    }
+
+    private static void assertSameAsExpression(MmiDialString mmi, String dialString) {
+        mmi.scan(dialString);
+        Matcher m = SUPP_SERVICE.matcher(dialString);
+        boolean matches = m.matches();
+        assertEquals(dialString, matches, mmi.isSuppService());
+        if (!matches) {
+            return;
+        }
+        String[] fields = {
+            mmi.getPoundString(), mmi.getAction(), mmi.getServiceCode(), mmi.getSia(),
+            mmi.getSib(), mmi.getSic(), mmi.getPwd(), mmi.getDialingNumber(),
+        };
+        for (int i = 0; i < GROUPS.length; i++) {
+            String group = m.group(GROUPS[i]);
+            assertEquals(dialString, group == null || group.isEmpty() ? null : group, fields[i]);
+        }
+    }
+}
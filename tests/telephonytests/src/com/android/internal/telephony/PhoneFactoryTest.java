@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test cases for the concurrent creation of the per-slot objects in
+ * PhoneFactory.
+ */
+public class PhoneFactoryTest extends TestCase {
+    private static final int NUM_SLOTS = 3;
+
+    @SmallTest
+    public void testSlotsMadeConcurrently() {
+        final CountDownLatch allStarted = new CountDownLatch(NUM_SLOTS);
+        final Thread caller = Thread.currentThread();
+        Thread[] results = new Thread[NUM_SLOTS];
+        Exception[] errors = new Exception[NUM_SLOTS];
+        long[] durations = new long[NUM_SLOTS];
+
+        PhoneFactory.makeConcurrently(new PhoneFactory.SlotFactory<Thread>() {
+            @Override
+            public Thread make(int phoneId) throws Exception {
+                // Only returns if every slot is being made at the same time
+                allStarted.countDown();
+                if (!allStarted.await(1, TimeUnit.SECONDS)) {
+                    throw new TimeoutException("slot " + phoneId);
+                }
+                // The last slot finishes well after the calling thread
+                Thread.sleep(phoneId * 50);
+                return Thread.currentThread();
+            }
+        }, results, errors, durations);
+
+        for (int i = 0; i < NUM_SLOTS; i++) {
+            assertNull("slot " + i, errors[i]);
+            assertNotNull("slot " + i, results[i]);
+        }
+        assertSame(caller, results[0]);
+        assertNotSame(caller, results[1]);
+        assertNotSame(results[1], results[2]);
+        // Joined, not just started
+        assertFalse(results[2].isAlive());
+        assertTrue("duration " + durations[2], durations[2] >= 100);
+    }
+
+    @SmallTest
+    public void testErrorPropagated() {
+        final IllegalStateException failure = new IllegalStateException("no RIL");
+        String[] results = new String[NUM_SLOTS];
+        Exception[] errors = new Exception[NUM_SLOTS];
+        long[] durations = new long[NUM_SLOTS];
+
+        PhoneFactory.makeConcurrently(new PhoneFactory.SlotFactory<String>() {
+            @Override
+            public String make(int phoneId) throws Exception {
+                if (phoneId == 1) {
+                    throw failure;
+                }
+                Thread.sleep(phoneId * 50);
+                return "ril" + phoneId;
+            }
+        }, results, errors, durations);
+
+        assertSame(failure, errors[1]);
+        assertNull(results[1]);
+        // The other slots are still made, including one slower than the failure
+        assertNull(errors[0]);
+        assertEquals("ril0", results[0]);
+        assertNull(errors[2]);
+        assertEquals("ril2", results[2]);
+    }
+
+    @SmallTest
+    public void testErrorOnCallingThread() {
+        String[] results = new String[NUM_SLOTS];
+        Exception[] errors = new Exception[NUM_SLOTS];
+        long[] durations = new long[NUM_SLOTS];
+
+        PhoneFactory.makeConcurrently(new PhoneFactory.SlotFactory<String>() {
+            @Override
+            public String make(int phoneId) throws Exception {
+                if (phoneId == 0) {
+                    throw new ClassNotFoundException("com.android.internal.telephony.NoRIL");
+                }
+                Thread.sleep(100);
+                return "ril" + phoneId;
+            }
+        }, results, errors, durations);
+
+        // The workers are joined even though slot 0 failed first
+        assertTrue(errors[0] instanceof ClassNotFoundException);
+        assertEquals("ril1", results[1]);
+        assertEquals("ril2", results[2]);
+    }
+}
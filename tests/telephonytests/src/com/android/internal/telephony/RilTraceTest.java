@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test cases for the RilTrace file format.
+ */
+public class RilTraceTest extends AndroidTestCase {
+
+    @SmallTest
+    public void testRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RilTrace.Writer writer = new RilTrace.Writer(out, 1000);
+        byte[] big = new byte[300];
+        Arrays.fill(big, (byte) 0x5a);
+        writer.write(RilTrace.DIRECTION_REQUEST, 1000, new byte[] {1, 2, 3}, 0, 3);
+        writer.write(RilTrace.DIRECTION_RESPONSE, 1200500, new byte[] {9, 4, 5, 6}, 1, 3);
+        writer.write(RilTrace.DIRECTION_RESPONSE, 1200600, big, 0, big.length);
+        assertEquals(3, writer.getFrameCount());
+        writer.close();
+
+        RilTrace.Reader reader = new RilTrace.Reader(new ByteArrayInputStream(out.toByteArray()));
+        RilTrace.Frame frame = reader.next();
+        assertEquals(RilTrace.DIRECTION_REQUEST, frame.direction);
+        assertEquals(0, frame.timeMicros);
+        assertTrue(Arrays.equals(new byte[] {1, 2, 3}, frame.data));
+
+        frame = reader.next();
+        assertEquals(RilTrace.DIRECTION_RESPONSE, frame.direction);
+        assertEquals(1199500, frame.timeMicros);
+        assertTrue(Arrays.equals(new byte[] {4, 5, 6}, frame.data));
+
+        frame = reader.next();
+        assertEquals(1199600, frame.timeMicros);
+        assertTrue(Arrays.equals(big, frame.data));
+
+        assertNull(reader.next());
+    }
+
+    @SmallTest
+    public void testTimeNeverGoesBack() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RilTrace.Writer writer = new RilTrace.Writer(out, 0);
+        writer.write(RilTrace.DIRECTION_RESPONSE, 500, new byte[1], 0, 1);
+        // Written by another thread with an earlier timestamp
+        writer.write(RilTrace.DIRECTION_REQUEST, 400, new byte[1], 0, 1);
+        writer.close();
+
+        RilTrace.Reader reader = new RilTrace.Reader(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(500, reader.next().timeMicros);
+        assertEquals(500, reader.next().timeMicros);
+    }
+
+    @SmallTest
+    public void testRejectsOtherFiles() {
+        try {
+            new RilTrace.Reader(new ByteArrayInputStream(new byte[] {0, 0, 0, 1, 0, 0, 0, 1}));
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @SmallTest
+    public void testTruncatedFrame() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RilTrace.Writer writer = new RilTrace.Writer(out, 0);
+        writer.write(RilTrace.DIRECTION_RESPONSE, 10, new byte[8], 0, 8);
+        writer.close();
+        byte[] data = out.toByteArray();
+
+        RilTrace.Reader reader = new RilTrace.Reader(
+                new ByteArrayInputStream(Arrays.copyOf(data, data.length - 2)));
+        try {
+            reader.next();
+            fail("Expected EOFException");
+        } catch (EOFException expected) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.TimeUtils;
+
+import java.util.TimeZone;
+
+/**
+ * Test cases for the TimeZoneResolver class.
+ */
+public class TimeZoneResolverTest extends AndroidTestCase {
+    private static final int MS_PER_HOUR = 60 * 60 * 1000;
+    private static final String[] COUNTRIES = { "us", "de", "fr", "au", "in", "br", "np" };
+    // 2015-01-15 and 2015-07-15, 12:00 UTC
+    private static final long[] TIMES = { 1421323200000L, 1436961600000L };
+
+    private static String id(TimeZone zone) {
+        return zone == null ? null : zone.getID();
+    }
+
+    @SmallTest
+    public void testSameAsTimeUtils() {
+        for (String iso : COUNTRIES) {
+            for (long when : TIMES) {
+                for (int offset = -12 * MS_PER_HOUR; offset <= 14 * MS_PER_HOUR;
+                        offset += MS_PER_HOUR / 4) {
+                    for (boolean dst : new boolean[] { false, true }) {
+                        // Twice, the second lookup is served from the cache
+                        for (int i = 0; i < 2; i++) {
+                            assertEquals(iso + " " + offset + " " + dst,
+                                    id(TimeUtils.getTimeZone(offset, dst, when, iso)),
+                                    id(TimeZoneResolver.getTimeZone(offset, dst, when, iso)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @SmallTest
+    public void testUniqueOffsets() {
+        for (String iso : COUNTRIES) {
+            assertEquals(TimeUtils.getTimeZonesWithUniqueOffsets(iso).size(),
+                    TimeZoneResolver.getTimeZonesWithUniqueOffsets(iso).size());
+        }
+    }
+
+    @SmallTest
+    public void testNitzTimeZone() {
+        TimeZone zone = TimeZoneResolver.getNitzTimeZone(5 * MS_PER_HOUR + MS_PER_HOUR / 2,
+                false, TIMES[0]);
+        assertNotNull(zone);
+        assertEquals(5 * MS_PER_HOUR + MS_PER_HOUR / 2, zone.getOffset(TIMES[0]));
+
+        // Central European Summer Time in January is not valid, found without DST
+        zone = TimeZoneResolver.getNitzTimeZone(2 * MS_PER_HOUR, true, TIMES[0]);
+        assertNotNull(zone);
+        assertEquals(2 * MS_PER_HOUR, zone.getOffset(TIMES[0]));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.cat;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test cases for ComprehensionTlvIndex, checked against decoding the objects
+ * one by one and searching the list in order.
+ */
+public class ComprehensionTlvIndexTest extends AndroidTestCase {
+    // A few tags repeat so that the same-tag links get used
+    private static final int[] TAGS = { 0x01, 0x02, 0x05, 0x0d, 0x0f, 0x10, 0x1e, 0x7e };
+
+    @SmallTest
+    public void testLookupByTag() throws ResultException {
+        // Command details, device identities, two items and a three-byte format tag
+        byte[] data = {
+            (byte) 0x81, 0x03, 0x01, 0x25, 0x00,
+            (byte) 0x82, 0x02, (byte) 0x81, (byte) 0x82,
+            0x0f, 0x02, 0x01, 0x41,
+            (byte) 0x8f, 0x02, 0x02, 0x42,
+            0x7f, (byte) 0x81, 0x23, 0x01, 0x00,
+        };
+        ComprehensionTlvIndex index = ComprehensionTlv.decodeMany(data, 0);
+        assertEquals(5, index.size());
+        assertEquals(0, index.indexOfTag(0x01));
+        assertEquals(2, index.indexOfTag(0x0f));
+        assertEquals(3, index.nextIndexOfSameTag(2));
+        assertEquals(-1, index.nextIndexOfSameTag(3));
+        assertTrue(index.get(3).isComprehensionRequired());
+        assertEquals(15, index.getValueIndex(3));
+        assertEquals(4, index.indexOfTag(0x0123));
+        assertTrue(index.getByTag(0x0123).isComprehensionRequired());
+        assertNull(index.getByTag(0x05));
+    }
+
+    @SmallTest
+    public void testMatchesLinearSearch() {
+        Random random = new Random(31124);
+        for (int round = 0; round < 2000; round++) {
+            byte[] data = randomStream(random);
+            List<ComprehensionTlv> expected = null;
+            ComprehensionTlvIndex index = null;
+            ResultException expectedError = null;
+            ResultException error = null;
+            try {
+                expected = decodeLinear(data);
+            } catch (ResultException e) {
+                expectedError = e;
+            }
+            try {
+                index = ComprehensionTlv.decodeMany(data, 0);
+            } catch (ResultException e) {
+                error = e;
+            }
+            if (expectedError != null) {
+                assertNotNull("round " + round, error);
+                assertEquals(expectedError.result(), error.result());
+                continue;
+            }
+            assertNull("round " + round, error);
+            assertEquals(expected.size(), index.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSameTlv(expected.get(i), index.get(i));
+            }
+            for (int tag : TAGS) {
+                assertTagChain(expected, index, tag);
+                assertTagChain(expected, index, tag | 0x0100);
+            }
+        }
+    }
+
+    // Every object with the tag, in list order
+    private static void assertTagChain(List<ComprehensionTlv> expected,
+            ComprehensionTlvIndex index, int tag) {
+        int found = index.indexOfTag(tag);
+        ComprehensionTlv first = index.getByTag(tag);
+        assertEquals(found < 0, first == null);
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i).getTag() == tag) {
+                if (first != null) {
+                    assertSameTlv(index.get(i), first);
+                    first = null;
+                }
+                assertEquals(i, found);
+                found = index.nextIndexOfSameTag(found);
+            }
+        }
+        assertEquals(-1, found);
+    }
+
+    private static void assertSameTlv(ComprehensionTlv expected, ComprehensionTlv actual) {
+        assertEquals(expected.getTag(), actual.getTag());
+        assertEquals(expected.isComprehensionRequired(), actual.isComprehensionRequired());
+        assertEquals(expected.getLength(), actual.getLength());
+        assertEquals(expected.getValueIndex(), actual.getValueIndex());
+        assertTrue(expected.getRawValue() == actual.getRawValue());
+    }
+
+    // The list decodeMany used to build, one ComprehensionTlv after the other
+    private static List<ComprehensionTlv> decodeLinear(byte[] data) throws ResultException {
+        ArrayList<ComprehensionTlv> items = new ArrayList<ComprehensionTlv>();
+        int startIndex = 0;
+        while (startIndex < data.length) {
+            ComprehensionTlv ctlv = ComprehensionTlv.decode(data, startIndex);
+            if (ctlv == null) {
+                break;
+            }
+            items.add(ctlv);
+            startIndex = ctlv.getValueIndex() + ctlv.getLength();
+        }
+        return items;
+    }
+
+    /**
+     * Objects with tags in both formats and lengths in every encoding, now
+     * and then ending in a truncated object, a bad length or a stray byte.
+     */
+    private static byte[] randomStream(Random random) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            int tag = TAGS[random.nextInt(TAGS.length)];
+            boolean cr = random.nextBoolean();
+            if (random.nextInt(8) == 0) {
+                int longTag = tag | 0x0100 | (cr ? 0x8000 : 0);
+                out.write(0x7f);
+                out.write(longTag >> 8);
+                out.write(longTag);
+            } else {
+                out.write(tag | (cr ? 0x80 : 0));
+            }
+            int length;
+            switch (random.nextInt(10)) {
+                case 0:
+                    length = 0x80 + random.nextInt(0x80);
+                    out.write(0x81);
+                    out.write(length);
+                    break;
+                case 1:
+                    length = 0x100 + random.nextInt(0x100);
+                    out.write(0x82);
+                    out.write(length >> 8);
+                    out.write(length);
+                    break;
+                default:
+                    length = random.nextInt(0x20);
+                    out.write(length);
+                    break;
+            }
+            for (int j = 0; j < length; j++) {
+                out.write(random.nextInt(256));
+            }
+        }
+        byte[] data = out.toByteArray();
+        switch (random.nextInt(8)) {
+            case 0:
+                // Truncated, possibly inside a header
+                if (data.length > 0) {
+                    byte[] truncated = new byte[random.nextInt(data.length)];
+                    System.arraycopy(data, 0, truncated, 0, truncated.length);
+                    data = truncated;
+                }
+                break;
+            case 1:
+                // A header after the last object, padding or garbage
+                byte[] longer = new byte[data.length + 3];
+                System.arraycopy(data, 0, longer, 0, data.length);
+                longer[data.length] = (byte) (random.nextBoolean() ? 0xff : 0x01);
+                longer[data.length + 1] = (byte) (random.nextBoolean() ? 0x84 : 0x81);
+                longer[data.length + 2] = (byte) random.nextInt(0x80);
+                data = longer;
+                break;
+        }
+        return data;
+    }
+}
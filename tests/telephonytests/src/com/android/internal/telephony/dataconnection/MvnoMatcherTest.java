@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.dataconnection;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.BitSet;
+
+/**
+ * Test cases for the MvnoMatcher class.
+ */
+public class MvnoMatcherTest extends AndroidTestCase {
+    private static final String IMSI = "310260123456789";
+    private static final String ICCID = "8901260123456789012";
+
+    private static MvnoMatcher.SimIdentity sim(String spn, String gid1) {
+        return new MvnoMatcher.SimIdentity(spn, IMSI, gid1, ICCID);
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bits = new BitSet();
+        for (int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+
+    @SmallTest
+    public void testEachType() {
+        MvnoMatcher matcher = new MvnoMatcher();
+        matcher.add(0, "spn", "Carrier");
+        matcher.add(1, "imsi", "310260x2");
+        matcher.add(2, "IMSI", "310260X1");
+        matcher.add(3, "gid", "ab");
+        matcher.add(4, "iccid", "890127,8901260");
+        matcher.add(5, "imsi", "3102601234567890");
+        matcher.add(6, "unknown", "310");
+
+        assertEquals(bits(0, 1, 3, 4), matcher.match(sim("CARRIER", "AB01")));
+        assertEquals(bits(1, 4), matcher.match(sim("Other", "0AB")));
+        assertEquals(bits(), matcher.match(new MvnoMatcher.SimIdentity(null, null, null, null)));
+    }
+
+    @SmallTest
+    public void testOverlappingPatterns() {
+        MvnoMatcher matcher = new MvnoMatcher();
+        matcher.add(0, "imsi", "310260");
+        matcher.add(1, "imsi", "31026");
+        matcher.add(2, "imsi", "xxxxxx1");
+        matcher.add(3, "imsi", "310260");
+        matcher.add(4, "imsi", "");
+
+        assertEquals(bits(0, 1, 2, 3), matcher.match(sim(null, null)));
+    }
+
+    @SmallTest
+    public void testEmpty() {
+        MvnoMatcher matcher = new MvnoMatcher();
+        assertTrue(matcher.isEmpty());
+        matcher.add(0, "unknown", "310");
+        assertTrue(matcher.isEmpty());
+        matcher.add(1, "gid", "ab");
+        assertFalse(matcher.isEmpty());
+    }
+}
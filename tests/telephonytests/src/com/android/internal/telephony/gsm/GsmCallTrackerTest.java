@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.gsm;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.RegistrantList;
+import android.os.SystemClock;
+import android.telephony.DisconnectCause;
+import android.telephony.ServiceState;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+
+import com.android.internal.telephony.Call;
+import com.android.internal.telephony.Connection;
+import com.android.internal.telephony.PhoneBase;
+import com.android.internal.telephony.PhoneNotifier;
+import com.android.internal.telephony.test.SimulatedCommands;
+import com.android.internal.telephony.uicc.IccCardApplicationStatus.AppState;
+import com.android.internal.telephony.uicc.UiccCardApplication;
+
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test that GsmCallTracker skips unchanged call slots of a poll and still
+ * reports the calls that changed or dropped.
+ */
+public class GsmCallTrackerTest extends AndroidTestCase {
+    private static final long TIMEOUT_MS = 1000;
+
+    @Mock private GSMPhone mPhone;
+    @Mock private PhoneNotifier mNotifier;
+    @Mock private UiccCardApplication mCardApp;
+
+    private SimulatedCommands mSimulatedCommands;
+    private HandlerThread mThread;
+    private GsmCallTracker mCT;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", getContext().getCacheDir().getPath());
+        Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+        MockitoAnnotations.initMocks(this);
+
+        mSimulatedCommands = new SimulatedCommands();
+        mPhone.mCi = mSimulatedCommands;
+        mPhone.mIsTheCurrentActivePhone = true;
+        // The package private notify methods of the mock run for real
+        setPhoneBaseField("mNotifier", mNotifier);
+        setPhoneBaseField("mPreciseCallStateRegistrants", new RegistrantList());
+        setPhoneBaseField("mDisconnectRegistrants", new RegistrantList());
+        setPhoneBaseField("mUnknownConnectionRegistrants", new RegistrantList());
+        setPhoneBaseField("mSuppServiceFailedRegistrants", new RegistrantList());
+
+        ServiceState ss = new ServiceState();
+        ss.setState(ServiceState.STATE_IN_SERVICE);
+        Mockito.when(mPhone.getServiceState()).thenReturn(ss);
+        Mockito.when(mCardApp.getState()).thenReturn(AppState.APPSTATE_READY);
+        Mockito.when(mPhone.getUiccCardApplication()).thenReturn(mCardApp);
+        Mockito.when(mPhone.getContext()).thenReturn(getContext());
+
+        mThread = new HandlerThread("GsmCallTrackerTest");
+        mThread.start();
+        final CountDownLatch created = new CountDownLatch(1);
+        new Handler(mThread.getLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                mCT = new GsmCallTracker(mPhone);
+                created.countDown();
+            }
+        });
+        assertTrue("tracker created", created.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        mSimulatedCommands.setRadioPower(true, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mThread.quit();
+        super.tearDown();
+    }
+
+    @MediumTest
+    public void testUnchangedSlotsSkipped() throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        mSimulatedCommands.triggerRing("5551000");
+        waitForSlots(1, 0);
+        Mockito.verify(mPhone).notifyNewRingingConnection(Mockito.any(Connection.class));
+        Mockito.verify(mNotifier).notifyPreciseCallState(mPhone);
+        assertEquals(Call.State.INCOMING, mCT.mRingingCall.getState());
+
+        // Answer the call, the state change is picked up by the next poll
+        mSimulatedCommands.acceptCall(null);
+        mSimulatedCommands.progressConnectingCallState();
+        waitForSlots(2, 0);
+        Mockito.verify(mNotifier, Mockito.times(2)).notifyPreciseCallState(mPhone);
+        assertEquals(Call.State.ACTIVE, mCT.mForegroundCall.getState());
+        long pollToNotifyMs = mCT.getLastPollToNotifyMs();
+        assertTrue("poll to notify " + pollToNotifyMs + " ms", pollToNotifyMs >= 0
+                && pollToNotifyMs <= SystemClock.elapsedRealtime() - start);
+
+        // A waiting call leaves the active call in place
+        mSimulatedCommands.triggerRing("5551001");
+        waitForSlots(3, 1);
+        Mockito.verify(mPhone, Mockito.times(2)).notifyNewRingingConnection(
+                Mockito.any(Connection.class));
+        Mockito.verify(mNotifier, Mockito.times(3)).notifyPreciseCallState(mPhone);
+        assertEquals(Call.State.WAITING, mCT.mRingingCall.getState());
+
+        // An unsol without a change polls two unchanged slots, nothing is reported
+        mSimulatedCommands.progressConnectingCallState();
+        waitForSlots(3, 3);
+        Mockito.verify(mNotifier, Mockito.times(3)).notifyPreciseCallState(mPhone);
+
+        // Swap the calls, both slots changed
+        mSimulatedCommands.switchWaitingOrHoldingAndActive(null);
+        mSimulatedCommands.progressConnectingCallState();
+        waitForSlots(5, 3);
+        Mockito.verify(mNotifier, Mockito.times(4)).notifyPreciseCallState(mPhone);
+        assertEquals(Call.State.HOLDING, mCT.mBackgroundCall.getState());
+        assertEquals(Call.State.ACTIVE, mCT.mForegroundCall.getState());
+        Connection held = mCT.mBackgroundCall.getEarliestConnection();
+
+        // The held call drops, the active one is unchanged
+        mSimulatedCommands.triggerHangupBackground();
+        waitForSlots(6, 4);
+        Mockito.verify(mNotifier, Mockito.timeout(TIMEOUT_MS)).notifyDisconnectCause(
+                Mockito.eq(DisconnectCause.NORMAL), Mockito.anyInt());
+        Mockito.verify(mNotifier, Mockito.timeout(TIMEOUT_MS).times(5))
+                .notifyPreciseCallState(mPhone);
+        assertEquals(DisconnectCause.NORMAL, held.getDisconnectCause());
+        assertEquals(Call.State.ACTIVE, mCT.mForegroundCall.getState());
+    }
+
+    private void waitForSlots(int updated, int unchanged) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (mCT.getSlotsUpdated() < updated || mCT.getSlotsUnchanged() < unchanged) {
+            assertTrue("updated=" + mCT.getSlotsUpdated() + " unchanged="
+                    + mCT.getSlotsUnchanged(), SystemClock.elapsedRealtime() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(updated, mCT.getSlotsUpdated());
+        assertEquals(unchanged, mCT.getSlotsUnchanged());
+    }
+
+    private void setPhoneBaseField(String name, Object value) throws Exception {
+        Field field = PhoneBase.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mPhone, value);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.gsm;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+/**
+ * Test PollStateRequests class.
+ */
+public class PollStateRequestsTest extends AndroidTestCase {
+
+    @SmallTest
+    public void testCoalesce() {
+        PollStateRequests requests = new PollStateRequests();
+        assertTrue(requests.request(false));
+        requests.onStart();
+        requests.onIssued();
+        assertFalse(requests.isPending());
+
+        // Triggers while the poll is in flight make a single follow-up
+        assertFalse(requests.request(true));
+        assertFalse(requests.request(true));
+        assertFalse(requests.request(true));
+        assertTrue(requests.isPending());
+
+        // The poll is done, the follow-up starts
+        requests.onStart();
+        requests.onIssued();
+        assertFalse(requests.isPending());
+        requests.onUnchanged();
+        assertEquals("requested=4 issued=2 unchanged=1 pending=false", requests.toString());
+    }
+
+    @SmallTest
+    public void testCancel() {
+        PollStateRequests requests = new PollStateRequests();
+        assertTrue(requests.request(false));
+        requests.onStart();
+        requests.onIssued();
+        assertFalse(requests.request(true));
+        assertTrue(requests.isPending());
+
+        // The radio went away, no poll follows the abandoned one
+        requests.cancel();
+        assertFalse(requests.isPending());
+        assertTrue(requests.request(false));
+        assertEquals("requested=3 issued=1 unchanged=0 pending=false", requests.toString());
+    }
+}
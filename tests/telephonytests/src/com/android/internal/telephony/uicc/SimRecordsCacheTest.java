@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.uicc;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test cases for the snapshots kept by SimRecordsCache for the SIMs of
+ * several slots.
+ */
+public class SimRecordsCacheTest extends AndroidTestCase {
+    private static final String PREF_FILE = "sim_records_cache";
+    private static final String ICCID_1 = "89014103211118510720";
+    private static final String ICCID_2 = "89014103211118510738";
+    private static final int EF_AD = 0x6fad;
+
+    private SharedPreferences mPrefs;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = getContext().getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
+        mPrefs.edit().clear().commit();
+        SimRecordsCache.resetSalt();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mPrefs.edit().clear().commit();
+        SimRecordsCache.resetSalt();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testSlotsShareSalt() {
+        // Snapshot of an older version, keyed by the ICCID itself
+        mPrefs.edit().putString(ICCID_1, "1;0;6fad=00").commit();
+
+        SimRecordsCache slot1 = new SimRecordsCache(getContext());
+        SimRecordsCache slot2 = new SimRecordsCache(getContext());
+        slot1.save(ICCID_1, newSnapshot(1));
+        slot2.save(ICCID_2, newSnapshot(2));
+
+        assertFalse(mPrefs.contains(ICCID_1));
+        // The salt and one snapshot per SIM
+        assertEquals(3, mPrefs.getAll().size());
+        assertSnapshot(1, slot2.load(ICCID_1));
+        assertSnapshot(2, slot1.load(ICCID_2));
+    }
+
+    @SmallTest
+    public void testInvalidateKeepsOtherSim() {
+        SimRecordsCache slot1 = new SimRecordsCache(getContext());
+        SimRecordsCache slot2 = new SimRecordsCache(getContext());
+        slot1.save(ICCID_1, newSnapshot(1));
+        slot2.save(ICCID_2, newSnapshot(2));
+
+        slot1.invalidate(ICCID_1);
+        assertNull(slot1.load(ICCID_1));
+        assertSnapshot(2, slot2.load(ICCID_2));
+    }
+
+    @SmallTest
+    public void testConcurrentFirstSave() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[2];
+        final String[] iccIds = {ICCID_1, ICCID_2};
+        for (int i = 0; i < threads.length; i++) {
+            final int slot = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    SimRecordsCache cache = new SimRecordsCache(getContext());
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    cache.save(iccIds[slot], newSnapshot(slot + 1));
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(1000);
+        }
+
+        // Neither slot dropped the snapshot of the other or used its own salt
+        SimRecordsCache cache = new SimRecordsCache(getContext());
+        assertSnapshot(1, cache.load(ICCID_1));
+        assertSnapshot(2, cache.load(ICCID_2));
+    }
+
+    private static SimRecordsCache.Snapshot newSnapshot(int mncLength) {
+        SimRecordsCache.Snapshot snapshot = new SimRecordsCache.Snapshot();
+        snapshot.put(EF_AD, new byte[] {0, 0, 0, (byte) mncLength});
+        return snapshot;
+    }
+
+    private static void assertSnapshot(int mncLength, SimRecordsCache.Snapshot snapshot) {
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.size());
+        assertEquals(mncLength, snapshot.get(EF_AD)[3]);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.uicc;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test cases for the IMSI pattern index of SpnOverride.
+ */
+public class SpnOverrideTest extends AndroidTestCase {
+
+    @SmallTest
+    public void testFirstPatternWins() {
+        SpnOverride.ImsiPatternIndex index = new SpnOverride.ImsiPatternIndex(Arrays.asList(
+                "310260x10", "31026012", "310260X1", "310260"));
+        assertEquals(0, index.find("310260510123456"));
+        assertEquals(1, index.find("310260120000000"));
+        assertEquals(2, index.find("310260514000000"));
+        assertEquals(3, index.find("310260990000000"));
+        assertEquals(-1, index.find("31026"));
+        assertEquals(-1, index.find("310270123456789"));
+    }
+
+    @SmallTest
+    public void testMissingPatternsAreSkipped() {
+        SpnOverride.ImsiPatternIndex index = new SpnOverride.ImsiPatternIndex(Arrays.asList(
+                null, "", "46000"));
+        assertEquals(2, index.find("460001234567890"));
+        assertEquals(-1, index.find("460011234567890"));
+    }
+
+    @SmallTest
+    public void testMatchesLinearScan() {
+        Random random = new Random(460);
+        for (int round = 0; round < 200; round++) {
+            List<String> patterns = new ArrayList<String>();
+            int count = random.nextInt(20);
+            for (int i = 0; i < count; i++) {
+                patterns.add(randomString(random, 1 + random.nextInt(12), "01xX"));
+            }
+            SpnOverride.ImsiPatternIndex index = new SpnOverride.ImsiPatternIndex(patterns);
+            for (int i = 0; i < 100; i++) {
+                String imsi = randomString(random, random.nextInt(16), "012");
+                assertEquals(patterns + " " + imsi, scan(patterns, imsi), index.find(imsi));
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length, String chars) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        return sb.toString();
+    }
+
+    // The matching SpnOverride did before the index, one pattern after the other
+    private static int scan(List<String> patterns, String imsi) {
+        for (int i = 0; i < patterns.size(); i++) {
+            if (imsiMatches(patterns.get(i), imsi)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean imsiMatches(String imsiDB, String imsiSIM) {
+        int len = imsiDB.length();
+        if (len <= 0) return false;
+        if (len > imsiSIM.length()) return false;
+
+        for (int idx = 0; idx < len; idx++) {
+            char c = imsiDB.charAt(idx);
+            if ((c == 'x') || (c == 'X') || (c == imsiSIM.charAt(idx))) {
+                continue;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 The CyanogenMod Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.util;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+/**
+ * Test cases for the BlacklistMatcher class.
+ */
+public class BlacklistMatcherTest extends AndroidTestCase {
+    private static final int CALLS = BlacklistUtils.BLOCK_CALLS;
+    private static final int MESSAGES = BlacklistUtils.BLOCK_MESSAGES;
+
+    @SmallTest
+    public void testPlainNumbers() {
+        BlacklistMatcher matcher = new BlacklistMatcher();
+        matcher.put(1, "+15551234567", false, true, false);
+        matcher.put(2, "+15557654321", false, true, true);
+
+        assertEquals(BlacklistUtils.MATCH_LIST, matcher.match("+15551234567", CALLS, false));
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("+15551234567", MESSAGES, false));
+        assertEquals(BlacklistUtils.MATCH_LIST, matcher.match("+15557654321", MESSAGES, true));
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("+15550000000", MESSAGES, true));
+
+        matcher.remove(2);
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("+15557654321", MESSAGES, true));
+        assertEquals(1, matcher.size());
+    }
+
+    @SmallTest
+    public void testPatterns() {
+        BlacklistMatcher matcher = new BlacklistMatcher();
+        matcher.put(1, "+1900%", true, true, true);
+        matcher.put(2, "555_12", true, false, true);
+
+        assertEquals(BlacklistUtils.MATCH_REGEX, matcher.match("+19001234", CALLS, true));
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("+19001234", CALLS, false));
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("+1800", CALLS, true));
+        assertEquals(BlacklistUtils.MATCH_REGEX, matcher.match("555912", MESSAGES, true));
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("555912", CALLS, true));
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("5559123", MESSAGES, true));
+
+        // The '+' of the pattern is a literal
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("11900", CALLS, true));
+
+        matcher.put(1, "+1800*", true, true, false);
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("+19001234", CALLS, true));
+        assertEquals(BlacklistUtils.MATCH_REGEX, matcher.match("+1800", CALLS, true));
+    }
+
+    @SmallTest
+    public void testPlainNumberWhitelistsPattern() {
+        BlacklistMatcher matcher = new BlacklistMatcher();
+        matcher.put(1, "+1900%", true, true, true);
+        matcher.put(2, "+19001234", false, false, false);
+
+        assertEquals(BlacklistUtils.MATCH_NONE, matcher.match("+19001234", MESSAGES, true));
+        assertEquals(BlacklistUtils.MATCH_REGEX, matcher.match("+19005678", MESSAGES, true));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mediatek.internal.telephony;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mediatek.internal.telephony.ConferenceCallMessageHandler.User;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Test cases for the ConferenceCallMessageHandler class.
+ */
+public class ConferenceCallMessageHandlerTest extends AndroidTestCase {
+    private ConferenceCallMessageHandler mHandler;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mHandler = new ConferenceCallMessageHandler();
+    }
+
+    private void parse(String xml) throws Exception {
+        SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+        parser.parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), mHandler);
+    }
+
+    private static String user(String entity, String state, String status) {
+        return "<user entity=\"" + entity + "\"" + (state == null ? "" : " state=\"" + state + "\"")
+                + "><display-text>" + entity + "</display-text>"
+                + (status == null ? "" : "<endpoint entity=\"" + entity + "\"><status>"
+                        + status + "</status></endpoint>")
+                + "</user>";
+    }
+
+    private static String document(int version, String state, String users) {
+        return "<?xml version=\"1.0\"?><conference-info version=\"" + version
+                + "\" state=\"" + state + "\"><users>" + users + "</users></conference-info>";
+    }
+
+    private static User find(List<User> users, String entity) {
+        for (User user : users) {
+            if (entity.equals(user.getEntity())) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    @SmallTest
+    public void testFullState() throws Exception {
+        parse(document(1, "full", user("tel:1", null, "connected") + user("tel:2", null, "alerting")));
+        assertEquals(2, mHandler.getUsers().size());
+        assertEquals(2, mHandler.getAddedUsers().size());
+        assertEquals(1, find(mHandler.getUsers(), "tel:1").getIndex());
+        assertEquals(2, find(mHandler.getUsers(), "tel:2").getIndex());
+
+        // tel:1 left, tel:2 connected and tel:3 joined
+        parse(document(2, "full", user("tel:2", null, "connected") + user("tel:3", null, "connected")));
+        assertEquals(2, mHandler.getUsers().size());
+        assertEquals("tel:3", mHandler.getAddedUsers().get(0).getEntity());
+        assertEquals("tel:2", mHandler.getUpdatedUsers().get(0).getEntity());
+        assertEquals("tel:1", mHandler.getRemovedUsers().get(0).getEntity());
+        assertEquals(1, find(mHandler.getUsers(), "tel:2").getIndex());
+    }
+
+    @SmallTest
+    public void testPartialState() throws Exception {
+        parse(document(1, "full", user("tel:1", null, "connected") + user("tel:2", null, "alerting")));
+        find(mHandler.getUsers(), "tel:2").setConnectionIndex(5);
+
+        // Only the status of tel:2 is sent, its display text is kept
+        parse(document(2, "partial", "<user entity=\"tel:2\" state=\"partial\"><endpoint"
+                + " entity=\"tel:2\"><status>connected</status></endpoint></user>"));
+        assertEquals(2, mHandler.getUsers().size());
+        assertTrue(mHandler.getAddedUsers().isEmpty());
+        assertTrue(mHandler.getRemovedUsers().isEmpty());
+        User user = mHandler.getUpdatedUsers().get(0);
+        assertEquals("tel:2", user.getEntity());
+        assertEquals("tel:2", user.getDisplayText());
+        assertEquals(ConferenceCallMessageHandler.STATUS_CONNECTED, user.getStatus());
+        assertEquals(5, user.getConnectionIndex());
+
+        parse(document(3, "partial", user("tel:1", "deleted", null)
+                + user("tel:3", null, "dialing-out")));
+        assertEquals("tel:1", mHandler.getRemovedUsers().get(0).getEntity());
+        assertEquals("tel:3", mHandler.getAddedUsers().get(0).getEntity());
+        assertEquals(2, mHandler.getUsers().size());
+        assertEquals(1, find(mHandler.getUsers(), "tel:2").getIndex());
+        assertEquals(2, find(mHandler.getUsers(), "tel:3").getIndex());
+    }
+
+    @SmallTest
+    public void testUnchangedAndStaleDocuments() throws Exception {
+        String full = document(1, "full", user("tel:1", null, "connected"));
+        parse(full);
+        assertTrue(mHandler.hasChanges());
+
+        parse(document(2, "full", user("tel:1", null, "connected")));
+        assertFalse(mHandler.hasChanges());
+        assertEquals(1, mHandler.getUsers().size());
+
+        // Version 1 was already applied
+        parse(document(1, "full", ""));
+        assertFalse(mHandler.hasChanges());
+        assertEquals(1, mHandler.getUsers().size());
+    }
+}